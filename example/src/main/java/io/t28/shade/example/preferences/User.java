@@ -24,7 +24,6 @@ import java.util.Set;
 import io.t28.shade.annotation.Preferences;
 import io.t28.shade.annotation.Property;
 import io.t28.shade.converter.DateConverter;
-import io.t28.shade.example.preferences.converter.UserTypeConverter;
 
 @Preferences("io.t28.shade.example.user")
 public abstract class User {
@@ -37,7 +36,7 @@ public abstract class User {
     @Property("user_tags")
     public abstract Set<String> tags();
 
-    @Property(key = "user_type", converter = UserTypeConverter.class)
+    @Property(key = "user_type", defValue = "GUEST")
     public abstract Type type();
 
     @Property(key = "user_updated", converter = DateConverter.class)
@@ -0,0 +1,301 @@
+/*
+ * Copyright (c) 2016 Tatsuya Maki
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.t28.shade.processor.factory;
+
+import android.annotation.SuppressLint;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.google.common.base.CaseFormat;
+import com.google.common.collect.ImmutableList;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterSpec;
+
+import java.util.List;
+
+import javax.annotation.Nonnull;
+import javax.lang.model.element.Modifier;
+
+import io.t28.shade.internal.BinaryReader;
+import io.t28.shade.internal.BinaryWriter;
+import io.t28.shade.internal.Snapshot;
+import io.t28.shade.processor.metadata.PropertyMethodMetadata;
+import io.t28.shade.processor.util.CodeBlocks;
+import io.t28.shade.processor.util.SupportedType;
+import io.t28.shade.storage.Storage;
+
+/**
+ * Builds the codec which stores the whole model as one binary blob
+ * <p>
+ * The blob starts with {@link BinaryWriter#HEADER}, followed by the properties which are present in the storage.
+ * Every property is tagged with its key and type, so that a property which is added, removed, reordered or changed
+ * its type is migrated one by one: a known property is read, and an unknown one is skipped.
+ * A blob of another header is ignored, so that the values stored per key are read instead.
+ * </p>
+ * <p>
+ * The presence of each property is returned through the bits whose layout is the same as the dirty bits of the editor.
+ * </p>
+ */
+@SuppressLint("NewApi")
+class BinaryCodecs {
+    static final String FIELD_KEY = "BINARY_KEY";
+    static final String METHOD_NAME_LOAD = "load";
+    static final String METHOD_NAME_ENCODE = "encode";
+    private static final String KEY = "io.t28.shade.binary";
+    private static final String METHOD_NAME_DECODE = "decode";
+    private static final String PARAMETER_STORAGE = "storage";
+    private static final String PARAMETER_BYTES = "bytes";
+    private static final String PARAMETER_MODEL = "model";
+    private static final String PARAMETER_PRESENT = "present";
+    private static final String VARIABLE_READER = "reader";
+    private static final String VARIABLE_WRITER = "writer";
+    private static final String VARIABLE_KEY = "key";
+    private static final String VARIABLE_TYPE = "type";
+    private static final String VARIABLE_DECODED = "decoded";
+    private static final String VARIABLE_SNAPSHOT = "snapshot";
+    private static final String VARIABLE_PREFIX_STORED = "stored";
+    private static final int BITS_PER_WORD = 64;
+
+    private BinaryCodecs() {
+    }
+
+    @Nonnull
+    static List<FieldSpec> buildFieldSpecs() {
+        return ImmutableList.of(
+                FieldSpec.builder(String.class, FIELD_KEY)
+                        .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                        .initializer("$S", KEY)
+                        .build()
+        );
+    }
+
+    @Nonnull
+    static List<MethodSpec> buildMethodSpecs(@Nonnull List<PropertyMethodMetadata> properties,
+                                             @Nonnull ClassName modelClass,
+                                             @Nonnull ClassName modelImplClass) {
+        return ImmutableList.of(
+                buildLoadMethodSpec(properties, modelClass),
+                buildLoadPresenceMethodSpec(properties, modelClass, modelImplClass),
+                buildDecodeMethodSpec(properties, modelClass, modelImplClass),
+                buildEncodeMethodSpec(properties, modelClass)
+        );
+    }
+
+    static int getWords(@Nonnull List<PropertyMethodMetadata> properties) {
+        return (properties.size() + BITS_PER_WORD - 1) / BITS_PER_WORD;
+    }
+
+    @Nonnull
+    static CodeBlock buildIsPresentStatement(@Nonnull String variable, int index) {
+        return CodeBlock.of("($N[$L] & 1L << $L) != 0L", variable, index / BITS_PER_WORD, index % BITS_PER_WORD);
+    }
+
+    private static CodeBlock buildMarkPresentStatement(int index) {
+        return CodeBlock.of("$N[$L] |= 1L << $L", PARAMETER_PRESENT, index / BITS_PER_WORD, index % BITS_PER_WORD);
+    }
+
+    private static MethodSpec buildLoadMethodSpec(List<PropertyMethodMetadata> properties, ClassName modelClass) {
+        return MethodSpec.methodBuilder(METHOD_NAME_LOAD)
+                .addAnnotation(NonNull.class)
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .returns(modelClass)
+                .addParameter(ParameterSpec.builder(Storage.class, PARAMETER_STORAGE)
+                        .addAnnotation(NonNull.class)
+                        .build())
+                .addStatement("return $N($N, new long[$L])", METHOD_NAME_LOAD, PARAMETER_STORAGE, getWords(properties))
+                .build();
+    }
+
+    private static MethodSpec buildLoadPresenceMethodSpec(List<PropertyMethodMetadata> properties, ClassName modelClass, ClassName modelImplClass) {
+        final CodeBlock arguments = properties.stream()
+                .map(property -> PropertyStatements.buildLoadStatement(property, VARIABLE_SNAPSHOT))
+                .collect(CodeBlocks.joining(",\n"));
+        final MethodSpec.Builder builder = MethodSpec.methodBuilder(METHOD_NAME_LOAD)
+                .addAnnotation(NonNull.class)
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .returns(modelClass)
+                .addParameter(ParameterSpec.builder(Storage.class, PARAMETER_STORAGE)
+                        .addAnnotation(NonNull.class)
+                        .build())
+                .addParameter(ParameterSpec.builder(long[].class, PARAMETER_PRESENT)
+                        .addAnnotation(NonNull.class)
+                        .build())
+                .addStatement("final $T $N = $N($N.getBytes($N, null), $N)",
+                        modelClass, VARIABLE_DECODED, METHOD_NAME_DECODE, PARAMETER_STORAGE, FIELD_KEY, PARAMETER_PRESENT)
+                .beginControlFlow("if ($N != null)", VARIABLE_DECODED)
+                .addStatement("return $N", VARIABLE_DECODED)
+                .endControlFlow()
+                .addCode("// Read the values stored per key until the blob is written\n")
+                .addStatement("final $T $N = new $T($N.getAll())", Snapshot.class, VARIABLE_SNAPSHOT, Snapshot.class, PARAMETER_STORAGE);
+        for (int index = 0; index < properties.size(); index++) {
+            builder.beginControlFlow("if ($N.contains($S))", VARIABLE_SNAPSHOT, properties.get(index).getPreferenceKey())
+                    .addStatement("$L", buildMarkPresentStatement(index))
+                    .endControlFlow();
+        }
+        return builder.addStatement("return new $T(\n$L)", modelImplClass, arguments)
+                .build();
+    }
+
+    private static MethodSpec buildDecodeMethodSpec(List<PropertyMethodMetadata> properties, ClassName modelClass, ClassName modelImplClass) {
+        final MethodSpec.Builder builder = MethodSpec.methodBuilder(METHOD_NAME_DECODE)
+                .addAnnotation(Nullable.class)
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .returns(modelClass)
+                .addParameter(ParameterSpec.builder(byte[].class, PARAMETER_BYTES)
+                        .addAnnotation(Nullable.class)
+                        .build())
+                .addParameter(ParameterSpec.builder(long[].class, PARAMETER_PRESENT)
+                        .addAnnotation(NonNull.class)
+                        .build())
+                .beginControlFlow("if ($N == null)", PARAMETER_BYTES)
+                .addStatement("return null")
+                .endControlFlow()
+                .addCode("// A property which is not in the blob is the default value\n");
+        properties.forEach(property -> {
+            final SupportedType supported = PropertyStatements.getSupportedType(property);
+            builder.addStatement("$T $N = $L", supported.getTypeName(), getStoredName(property),
+                    supported.buildDefaultValue(PropertyStatements.getSupportedDefaultValue(property)));
+        });
+        builder.beginControlFlow("try")
+                .addStatement("final $T $N = new $T($N)", BinaryReader.class, VARIABLE_READER, BinaryReader.class, PARAMETER_BYTES)
+                .beginControlFlow("if ($N.readFixedInt() != $T.HEADER)", VARIABLE_READER, BinaryWriter.class)
+                .addStatement("return null")
+                .endControlFlow()
+                .beginControlFlow("while ($N.hasRemaining())", VARIABLE_READER)
+                .addStatement("final $T $N = $N.readKey()", String.class, VARIABLE_KEY, VARIABLE_READER)
+                .addStatement("final int $N = $N.readType()", VARIABLE_TYPE, VARIABLE_READER)
+                .beginControlFlow("switch ($N)", VARIABLE_KEY);
+        for (int index = 0; index < properties.size(); index++) {
+            final PropertyMethodMetadata property = properties.get(index);
+            final SupportedType supported = PropertyStatements.getSupportedType(property);
+            builder.addCode("case $S:\n$>", property.getPreferenceKey())
+                    .beginControlFlow("if ($N == $T.$N)", VARIABLE_TYPE, BinaryWriter.class, getTypeConstant(supported))
+                    .addStatement("$N = $L", getStoredName(property), buildReadStatement(property))
+                    .addStatement("$L", buildMarkPresentStatement(index))
+                    .addStatement("continue")
+                    .endControlFlow()
+                    .addStatement("break")
+                    .addCode("$<");
+        }
+        final CodeBlock arguments = properties.stream()
+                .map(property -> PropertyStatements.buildConvertStatement(property, CodeBlock.of("$N", getStoredName(property))))
+                .collect(CodeBlocks.joining(",\n"));
+        return builder.endControlFlow()
+                .addCode("// The property is removed or its type is changed\n")
+                .addStatement("$N.skip($N)", VARIABLE_READER, VARIABLE_TYPE)
+                .endControlFlow()
+                .nextControlFlow("catch ($T e)", IllegalArgumentException.class)
+                .addCode("// The rest of the blob is truncated or malformed, and the properties read so far are kept\n")
+                .endControlFlow()
+                .addStatement("return new $T(\n$L)", modelImplClass, arguments)
+                .build();
+    }
+
+    private static MethodSpec buildEncodeMethodSpec(List<PropertyMethodMetadata> properties, ClassName modelClass) {
+        final MethodSpec.Builder builder = MethodSpec.methodBuilder(METHOD_NAME_ENCODE)
+                .addAnnotation(NonNull.class)
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .returns(byte[].class)
+                .addParameter(ParameterSpec.builder(modelClass, PARAMETER_MODEL)
+                        .addAnnotation(NonNull.class)
+                        .build())
+                .addParameter(ParameterSpec.builder(long[].class, PARAMETER_PRESENT)
+                        .addAnnotation(NonNull.class)
+                        .build())
+                .addStatement("final $T $N = new $T().writeFixedInt($T.HEADER)",
+                        BinaryWriter.class, VARIABLE_WRITER, BinaryWriter.class, BinaryWriter.class);
+        for (int index = 0; index < properties.size(); index++) {
+            final PropertyMethodMetadata property = properties.get(index);
+            final SupportedType supported = PropertyStatements.getSupportedType(property);
+            final CodeBlock value = CodeBlock.of("$N.$N()", PARAMETER_MODEL, property.getSimpleName());
+            builder.beginControlFlow("if ($L)", buildIsPresentStatement(PARAMETER_PRESENT, index))
+                    .addStatement("$N.writeField($S, $T.$N).write$L($L)",
+                            VARIABLE_WRITER, property.getPreferenceKey(), BinaryWriter.class, getTypeConstant(supported),
+                            getTypeName(supported), PropertyStatements.buildSupportedStatement(property, value))
+                    .endControlFlow();
+        }
+        return builder.addStatement("return $N.toByteArray()", VARIABLE_WRITER)
+                .build();
+    }
+
+    private static CodeBlock buildReadStatement(PropertyMethodMetadata property) {
+        final SupportedType supported = PropertyStatements.getSupportedType(property);
+        switch (supported) {
+            case STRING:
+            case STRING_SET:
+            case STRING_LIST:
+            case BYTE_ARRAY:
+            case INT_ARRAY:
+            case LONG_ARRAY:
+            case FLOAT_ARRAY:
+                final CodeBlock defValue = supported.buildDefaultValue(PropertyStatements.getSupportedDefaultValue(property));
+                return CodeBlock.of("$N.read$L($L)", VARIABLE_READER, getTypeName(supported), defValue);
+            case SHORT:
+            case BYTE:
+            case CHAR:
+                // The narrow types are written as int
+                return CodeBlock.of("($T) $N.read$L()", supported.getTypeName(), VARIABLE_READER, getTypeName(supported));
+            default:
+                return CodeBlock.of("$N.read$L()", VARIABLE_READER, getTypeName(supported));
+        }
+    }
+
+    private static String getStoredName(PropertyMethodMetadata property) {
+        return VARIABLE_PREFIX_STORED + property.getSimpleNameWithoutPrefix(CaseFormat.UPPER_CAMEL);
+    }
+
+    private static String getTypeConstant(SupportedType supported) {
+        return "TYPE_" + CaseFormat.UPPER_CAMEL.to(CaseFormat.UPPER_UNDERSCORE, getTypeName(supported));
+    }
+
+    private static String getTypeName(SupportedType supported) {
+        switch (supported) {
+            case BOOLEAN:
+                return "Boolean";
+            case FLOAT:
+                return "Float";
+            case INT:
+                return "Int";
+            case LONG:
+                return "Long";
+            case DOUBLE:
+                return "Double";
+            case SHORT:
+            case BYTE:
+            case CHAR:
+                return "Int";
+            case STRING:
+                return "String";
+            case STRING_SET:
+                return "StringSet";
+            case STRING_LIST:
+                return "StringList";
+            case BYTE_ARRAY:
+                return "ByteArray";
+            case INT_ARRAY:
+                return "IntArray";
+            case LONG_ARRAY:
+                return "LongArray";
+            case FLOAT_ARRAY:
+                return "FloatArray";
+            default:
+                throw new IllegalArgumentException("Type(" + supported + ") is not supported");
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2016 Tatsuya Maki
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.t28.shade.processor.factory;
+
+import android.annotation.SuppressLint;
+
+import com.google.common.base.CaseFormat;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.TypeSpec;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.lang.model.element.Modifier;
+
+import io.t28.shade.processor.metadata.ConverterClassMetadata;
+import io.t28.shade.processor.metadata.PropertyMethodMetadata;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Builds holders of converter instances which are shared by the generated class
+ * <p>
+ * Each instance is held by its own holder class, so that the converter is created when it is used at first.
+ * </p>
+ */
+@SuppressLint("NewApi")
+class ConverterInstances {
+    private static final String FIELD_INSTANCE = "INSTANCE";
+    private static final String HOLDER_SUFFIX = "Holder";
+
+    private ConverterInstances() {
+    }
+
+    @Nonnull
+    static List<TypeSpec> buildHolderTypeSpecs(@Nonnull List<PropertyMethodMetadata> properties) {
+        final Map<ClassName, ConverterClassMetadata> converters = new LinkedHashMap<>();
+        properties.stream()
+                .map(PropertyMethodMetadata::getConverterClass)
+                .filter(converter -> !converter.isDefault() && !converter.isStateful())
+                .forEach(converter -> converters.putIfAbsent(converter.getClassName(), converter));
+        return converters.values()
+                .stream()
+                .map(converter -> TypeSpec.classBuilder(getHolderName(converter))
+                        .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                        // The instance is not private, so that accessors are not synthesized for the enclosing class
+                        .addField(FieldSpec.builder(converter.getClassName(), FIELD_INSTANCE)
+                                .addModifiers(Modifier.STATIC, Modifier.FINAL)
+                                .initializer("new $T()", converter.getClassName())
+                                .build())
+                        .build())
+                .collect(toList());
+    }
+
+    @Nonnull
+    static CodeBlock buildInstanceStatement(@Nonnull ConverterClassMetadata converter) {
+        if (converter.isStateful()) {
+            return CodeBlock.of("new $T()", converter.getClassName());
+        }
+        return CodeBlock.of("$N.$N", getHolderName(converter), FIELD_INSTANCE);
+    }
+
+    private static String getHolderName(ConverterClassMetadata converter) {
+        return CaseFormat.UPPER_UNDERSCORE.to(CaseFormat.UPPER_CAMEL, converter.getInstanceName()) + HOLDER_SUFFIX;
+    }
+}
@@ -15,7 +15,6 @@
  */
 package io.t28.shade.processor.factory;
 
-import android.content.SharedPreferences;
 import android.support.annotation.NonNull;
 import android.support.annotation.VisibleForTesting;
 
@@ -26,45 +25,96 @@ import com.squareup.javapoet.CodeBlock;
 import com.squareup.javapoet.FieldSpec;
 import com.squareup.javapoet.MethodSpec;
 import com.squareup.javapoet.ParameterSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
 import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 import javax.annotation.Nonnull;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.lang.model.element.Modifier;
 
-import io.t28.shade.processor.metadata.ConverterClassMetadata;
+import io.t28.shade.internal.PackedLayout;
+import io.t28.shade.internal.Snapshot;
+import io.t28.shade.internal.SnapshotCache;
+import io.t28.shade.processor.metadata.PackedSlot;
 import io.t28.shade.processor.metadata.PreferenceClassMetadata;
 import io.t28.shade.processor.metadata.PropertyMethodMetadata;
+import io.t28.shade.processor.util.CodeBlocks;
 import io.t28.shade.processor.util.SupportedType;
+import io.t28.shade.storage.Storage;
 
 import static java.util.stream.Collectors.toList;
 
 @SuppressWarnings("NewApi")
 public class EditorClassFactory extends TypeFactory {
     private static final String FIELD_EDITOR = "editor";
+    private static final String FIELD_SNAPSHOT_CACHE = "snapshotCache";
+    private static final String FIELD_STORAGE = "storage";
+    private static final String FIELD_DIRTY = "dirty";
+    private static final String FIELD_CLEARED = "cleared";
+    private static final String FIELD_PRESENT = "present";
+    private static final String FIELD_PREFIX_PACKED = "packed";
+    private static final String FIELD_PREFIX_PACKED_MASK = "packedMask";
+    private static final String METHOD_NAME_PUT_PACKED = "putPacked";
+    private static final String METHOD_NAME_IS_DIRTY = "isDirty";
+    private static final String METHOD_NAME_IS_ALL_DIRTY = "isAllDirty";
+    private static final String METHOD_NAME_MERGE = "merge";
+    private static final String METHOD_NAME_PUT_BINARY = "putBinary";
+    private static final String VARIABLE_CURRENT = "current";
+    private static final String VARIABLE_WORD = "word";
+    private static final String VARIABLE_PREFIX_STORED = "stored";
+    private static final String VARIABLE_STORED = "stored";
+    private static final String VARIABLE_SNAPSHOT = "snapshot";
+    private static final String VARIABLE_MERGED = "merged";
+    private static final String VARIABLE_MODEL = "model";
+    private static final String VARIABLE_MIGRATED = "migrated";
+    private static final int BITS_PER_WORD = Long.SIZE;
     private static final String METHOD_PREFIX_PUT = "put";
     private static final String METHOD_PREFIX_REMOVE = "remove";
+    private static final String METHOD_NAME_COMMIT = "commit";
+    private static final String METHOD_NAME_COMMIT_ASYNC = "commitAsync";
+    private static final String PARAMETER_EXECUTOR = "executor";
+    private static final String VARIABLE_TASK = "task";
 
     private final List<PropertyMethodMetadata> properties;
+    private final Map<Integer, List<PropertyMethodMetadata>> packedWords;
+    private final boolean snapshotCacheEnabled;
+    private final boolean binaryEnabled;
     private final ClassName modelClass;
+    private final ClassName modelImplClass;
     private final ClassName editorClass;
 
     @Inject
     public EditorClassFactory(@Nonnull PreferenceClassMetadata preference,
                               @Nonnull @Named("Model") ClassName modelClass,
+                              @Nonnull @Named("ModelImpl") ClassName modelImplClass,
                               @Nonnull @Named("Editor") ClassName editorClass) {
-        this(preference.getPropertyMethods(), modelClass, editorClass);
+        this(preference.getPropertyMethods(), preference.isSnapshotCacheEnabled(), preference.isBinaryEnabled(), modelClass, modelImplClass, editorClass);
     }
 
     @VisibleForTesting
     EditorClassFactory(@Nonnull List<PropertyMethodMetadata> properties,
+                       boolean snapshotCacheEnabled,
+                       boolean binaryEnabled,
                        @NonNull ClassName modelClass,
+                       @Nonnull ClassName modelImplClass,
                        @Nonnull ClassName editorClass) {
         this.properties = properties;
+        this.packedWords = PackedBits.groupByWord(properties);
+        this.snapshotCacheEnabled = snapshotCacheEnabled;
+        this.binaryEnabled = binaryEnabled;
         this.modelClass = modelClass;
+        this.modelImplClass = modelImplClass;
         this.editorClass = editorClass;
     }
 
@@ -83,34 +133,91 @@ public class EditorClassFactory extends TypeFactory {
     @Nonnull
     @Override
     protected List<FieldSpec> getFields() {
-        return ImmutableList.of(
-                FieldSpec.builder(SharedPreferences.Editor.class, FIELD_EDITOR)
+        final int words = (properties.size() + BITS_PER_WORD - 1) / BITS_PER_WORD;
+        final ImmutableList.Builder<FieldSpec> builder = ImmutableList.<FieldSpec>builder()
+                .add(FieldSpec.builder(Storage.class, FIELD_STORAGE)
                         .addModifiers(Modifier.PRIVATE, Modifier.FINAL)
+                        .build())
+                .add(FieldSpec.builder(Storage.Editor.class, FIELD_EDITOR)
+                        .addModifiers(Modifier.PRIVATE, Modifier.FINAL)
+                        .build())
+                .add(FieldSpec.builder(long[].class, FIELD_DIRTY)
+                        .addModifiers(Modifier.PRIVATE, Modifier.FINAL)
+                        .initializer("new long[$L]", words)
                         .build());
+        if (snapshotCacheEnabled) {
+            builder.add(FieldSpec.builder(getSnapshotCacheType(), FIELD_SNAPSHOT_CACHE)
+                    .addModifiers(Modifier.PRIVATE, Modifier.FINAL)
+                    .build());
+        }
+        if (binaryEnabled) {
+            // Written values and whether each of them is put or removed are kept until the whole model is encoded
+            builder.add(FieldSpec.builder(long[].class, FIELD_PRESENT)
+                    .addModifiers(Modifier.PRIVATE, Modifier.FINAL)
+                    .initializer("new long[$L]", words)
+                    .build());
+            properties.forEach(property -> builder.add(FieldSpec.builder(property.getReturnTypeName(), getValueName(property))
+                    .addModifiers(Modifier.PRIVATE)
+                    .build()));
+        }
+        if (!packedWords.isEmpty()) {
+            // Written bits are kept until each word is stored at once
+            packedWords.keySet().forEach(word -> builder
+                    .add(FieldSpec.builder(TypeName.LONG, FIELD_PREFIX_PACKED + word)
+                            .addModifiers(Modifier.PRIVATE)
+                            .build())
+                    .add(FieldSpec.builder(TypeName.LONG, FIELD_PREFIX_PACKED_MASK + word)
+                            .addModifiers(Modifier.PRIVATE)
+                            .build()));
+            builder.add(FieldSpec.builder(TypeName.BOOLEAN, FIELD_CLEARED)
+                    .addModifiers(Modifier.PRIVATE)
+                    .build());
+        }
+        return builder.build();
     }
 
     @Nonnull
     @Override
     protected List<MethodSpec> getMethods() {
-        return ImmutableList.<MethodSpec>builder()
+        final ImmutableList.Builder<MethodSpec> builder = ImmutableList.<MethodSpec>builder()
                 .add(buildConstructorSpec())
                 .add(buildPutModelMethodSpec())
                 .addAll(buildPutPropertyMethodSpecs())
                 .addAll(buildRemoveMethodSpecs())
                 .add(buildClearMethodSpec())
                 .add(buildApplyMethodSpec())
-                .build();
+                .add(buildCommitMethodSpec())
+                .add(buildCommitAsyncMethodSpec())
+                .add(buildIsDirtyMethodSpec());
+        if (binaryEnabled) {
+            builder.add(buildIsAllDirtyMethodSpec())
+                    .add(buildMergeMethodSpec())
+                    .add(buildPutBinaryMethodSpec());
+        }
+        if (!packedWords.isEmpty()) {
+            builder.add(buildPutPackedMethodSpec());
+        }
+        return builder.build();
     }
 
     private MethodSpec buildConstructorSpec() {
-        return MethodSpec.constructorBuilder()
+        final MethodSpec.Builder builder = MethodSpec.constructorBuilder()
                 .addModifiers(Modifier.PROTECTED)
-                .addParameter(ParameterSpec.builder(SharedPreferences.class, "preferences")
+                .addParameter(ParameterSpec.builder(Storage.class, FIELD_STORAGE)
                         .addAnnotation(NonNull.class)
                         .build()
-                )
-                .addStatement("this.$L = $L", FIELD_EDITOR, "preferences.edit()")
-                .build();
+                );
+        if (snapshotCacheEnabled) {
+            builder.addParameter(ParameterSpec.builder(getSnapshotCacheType(), FIELD_SNAPSHOT_CACHE)
+                    .addAnnotation(NonNull.class)
+                    .build());
+        }
+        builder.addStatement("this.$N = $N", FIELD_STORAGE, FIELD_STORAGE);
+        builder.addStatement("this.$N = $N.edit()", FIELD_EDITOR, FIELD_STORAGE);
+        if (snapshotCacheEnabled) {
+            builder.addStatement("this.$N = $N", FIELD_SNAPSHOT_CACHE, FIELD_SNAPSHOT_CACHE);
+        }
+        return builder.build();
     }
 
     private MethodSpec buildPutModelMethodSpec() {
@@ -124,13 +231,37 @@ public class EditorClassFactory extends TypeFactory {
                         .build()
                 );
 
-        properties.forEach(property -> builder.addStatement(
-                "$N$N($N.$N())",
-                METHOD_PREFIX_PUT,
-                property.getSimpleNameWithoutPrefix(CaseFormat.UPPER_CAMEL),
-                parameterName,
-                property.getSimpleName()
-        ));
+        if (binaryEnabled) {
+            // The whole model is encoded at once, so that the stored model is not read
+            properties.forEach(property -> builder.addStatement("$N$N($N.$N())",
+                    METHOD_PREFIX_PUT, property.getSimpleNameWithoutPrefix(CaseFormat.UPPER_CAMEL), parameterName, property.getSimpleName()));
+            return builder.addStatement("return this")
+                    .build();
+        }
+
+        // Put only properties which are absent or differ from the stored values, which are read at once
+        builder.addStatement("final $T $N = new $T($N.getAll())", Snapshot.class, VARIABLE_SNAPSHOT, Snapshot.class, FIELD_STORAGE);
+        for (int index = 0; index < properties.size(); index++) {
+            final PropertyMethodMetadata property = properties.get(index);
+            final TypeName valueType = property.getReturnTypeName();
+            final String valueName = property.getSimpleNameWithoutPrefix(CaseFormat.LOWER_CAMEL);
+            final String storedName = VARIABLE_PREFIX_STORED + property.getSimpleNameWithoutPrefix(CaseFormat.UPPER_CAMEL);
+            final String putMethodName = METHOD_PREFIX_PUT + property.getSimpleNameWithoutPrefix(CaseFormat.UPPER_CAMEL);
+            final CodeBlock notEquals = CodeBlocks.createNotEqualsStatement(
+                    valueType,
+                    CodeBlock.of("$N", valueName),
+                    CodeBlock.of("$N", storedName)
+            );
+            builder.addStatement("final $T $N = $N.$N()", valueType, valueName, parameterName, property.getSimpleName())
+                    .beginControlFlow("if ($L || !$L)", buildIsDirtyStatement(index), PropertyStatements.buildContainsStatement(property, VARIABLE_SNAPSHOT))
+                    .addStatement("$N($N)", putMethodName, valueName)
+                    .nextControlFlow("else")
+                    .addStatement("final $T $N = $L", valueType, storedName, PropertyStatements.buildLoadStatement(property, VARIABLE_SNAPSHOT))
+                    .beginControlFlow("if ($L)", notEquals)
+                    .addStatement("$N($N)", putMethodName, valueName)
+                    .endControlFlow()
+                    .endControlFlow();
+        }
         builder.addStatement("return this");
         return builder.build();
     }
@@ -155,17 +286,19 @@ public class EditorClassFactory extends TypeFactory {
                                 .build());
                     }
 
-                    final ConverterClassMetadata converter = property.getConverterClass();
-                    final TypeName storeType;
-                    if (converter.isDefault()) {
-                        storeType = property.getReturnTypeName();
+                    final Optional<PackedSlot> slot = property.getPackedSlot();
+                    if (binaryEnabled) {
+                        builder.addStatement("this.$N = $N", getValueName(property), parameterName)
+                                .addStatement("$L", buildMarkPresentStatement(properties.indexOf(property)));
+                    } else if (slot.isPresent()) {
+                        final CodeBlock bits = PackedBits.buildEncodeStatement(property, slot.get(), CodeBlock.of("$N", parameterName));
+                        builder.addCode(buildPutBitsStatement(slot.get(), bits));
                     } else {
-                        storeType = converter.getSupportedType();
+                        final SupportedType supportedType = PropertyStatements.getSupportedType(property);
+                        builder.addStatement("$L", buildSaveStatement(property, supportedType, parameterName));
                     }
-
-                    final SupportedType supportedType = SupportedType.find(storeType);
                     return builder
-                            .addStatement("$L", buildSaveStatement(property, supportedType, parameterName))
+                            .addStatement("$L", buildMarkDirtyStatement(properties.indexOf(property)))
                             .addStatement("return this")
                             .build();
                 })
@@ -177,10 +310,22 @@ public class EditorClassFactory extends TypeFactory {
                 .stream()
                 .map(property -> {
                     final String methodName = METHOD_PREFIX_REMOVE + property.getSimpleNameWithoutPrefix(CaseFormat.UPPER_CAMEL);
-                    return MethodSpec.methodBuilder(methodName)
+                    final MethodSpec.Builder builder = MethodSpec.methodBuilder(methodName)
                             .addAnnotation(NonNull.class)
-                            .addModifiers(Modifier.PUBLIC)
-                            .addStatement("$L.remove($S)", FIELD_EDITOR, property.getPreferenceKey())
+                            .addModifiers(Modifier.PUBLIC);
+                    final Optional<PackedSlot> slot = property.getPackedSlot();
+                    if (binaryEnabled) {
+                        // The property is left out of the blob
+                        builder.addStatement("this.$N = $L", getValueName(property), PropertyStatements.buildDefaultStatement(property))
+                                .addStatement("$L", buildMarkAbsentStatement(properties.indexOf(property)));
+                    } else if (slot.isPresent()) {
+                        builder.addCode(buildPutDefaultBitsStatement(property, slot.get()));
+                    }
+                    if (!binaryEnabled && !property.getEnumSetClass().isPresent()) {
+                        // EnumSet is never stored per key
+                        builder.addStatement("$L.remove($S)", FIELD_EDITOR, property.getPreferenceKey());
+                    }
+                    return builder.addStatement("$L", buildMarkDirtyStatement(properties.indexOf(property)))
                             .addStatement("return this")
                             .returns(editorClass)
                             .build();
@@ -190,34 +335,256 @@ public class EditorClassFactory extends TypeFactory {
     }
 
     private MethodSpec buildClearMethodSpec() {
-        return MethodSpec.methodBuilder("clear")
+        final MethodSpec.Builder builder = MethodSpec.methodBuilder("clear")
                 .addAnnotation(NonNull.class)
-                .addModifiers(Modifier.PUBLIC)
-                .addStatement("$L.clear()", FIELD_EDITOR)
+                .addModifiers(Modifier.PUBLIC);
+        if (binaryEnabled) {
+            properties.forEach(property -> builder.addStatement("this.$N = $L", getValueName(property), PropertyStatements.buildDefaultStatement(property)));
+            builder.addStatement("$T.fill($N, 0L)", Arrays.class, FIELD_PRESENT);
+        }
+        if (!packedWords.isEmpty()) {
+            // Bits written by this editor are kept like values put to the editor
+            builder.addStatement("this.$N = true", FIELD_CLEARED);
+        }
+        return builder.addStatement("$L.clear()", FIELD_EDITOR)
+                .addStatement("$T.fill($N, -1L)", Arrays.class, FIELD_DIRTY)
                 .addStatement("return this")
                 .returns(editorClass)
                 .build();
     }
 
     private MethodSpec buildApplyMethodSpec() {
-        return MethodSpec.methodBuilder("apply")
+        final MethodSpec.Builder builder = MethodSpec.methodBuilder("apply")
+                .addModifiers(Modifier.PUBLIC)
+                .beginControlFlow("if (!$N())", METHOD_NAME_IS_DIRTY)
+                .addStatement("return")
+                .endControlFlow();
+        // The lock of the storage serializes this write with updates which read the stored values
+        final CodeBlock.Builder body = CodeBlock.builder();
+        if (binaryEnabled) {
+            body.addStatement("$N()", METHOD_NAME_PUT_BINARY);
+        }
+        if (!packedWords.isEmpty()) {
+            body.addStatement("$N()", METHOD_NAME_PUT_PACKED);
+        }
+        body.addStatement("$L.apply()", FIELD_EDITOR);
+        builder.addCode(CodeBlocks.createLockedBlock(CodeBlock.of("$N.getLock()", FIELD_STORAGE), body.build()));
+        if (snapshotCacheEnabled) {
+            builder.addStatement("$N.invalidate()", FIELD_SNAPSHOT_CACHE);
+        }
+        return builder.build();
+    }
+
+    private MethodSpec buildCommitMethodSpec() {
+        final MethodSpec.Builder builder = MethodSpec.methodBuilder(METHOD_NAME_COMMIT)
                 .addModifiers(Modifier.PUBLIC)
-                .addStatement("$L.apply()", FIELD_EDITOR)
+                .returns(TypeName.BOOLEAN)
+                .beginControlFlow("if (!$N())", METHOD_NAME_IS_DIRTY)
+                .addStatement("return true")
+                .endControlFlow();
+        // Only the modifications are applied while holding the lock, so that updates do not wait for the storage device
+        final CodeBlock.Builder body = CodeBlock.builder();
+        if (binaryEnabled) {
+            body.addStatement("$N()", METHOD_NAME_PUT_BINARY);
+        }
+        if (!packedWords.isEmpty()) {
+            body.addStatement("$N()", METHOD_NAME_PUT_PACKED);
+        }
+        body.addStatement("$N.apply()", FIELD_EDITOR);
+        builder.addCode(CodeBlocks.createLockedBlock(CodeBlock.of("$N.getLock()", FIELD_STORAGE), body.build()));
+        if (snapshotCacheEnabled) {
+            builder.addStatement("$N.invalidate()", FIELD_SNAPSHOT_CACHE);
+        }
+        // An empty commit returns after the applied modifications are written
+        return builder.addStatement("return $N.edit().commit()", FIELD_STORAGE)
                 .build();
     }
 
-    private CodeBlock buildSaveStatement(PropertyMethodMetadata property, SupportedType supported, String parameterName) {
-        final ConverterClassMetadata converter = property.getConverterClass();
-        final CodeBlock statement;
-        if (converter.isDefault()) {
-            statement = CodeBlock.builder()
-                    .add(parameterName)
-                    .build();
+    private MethodSpec buildCommitAsyncMethodSpec() {
+        final TypeName booleanType = TypeName.BOOLEAN.box();
+        final TypeSpec callable = TypeSpec.anonymousClassBuilder("")
+                .addSuperinterface(ParameterizedTypeName.get(ClassName.get(Callable.class), booleanType))
+                .addMethod(MethodSpec.methodBuilder("call")
+                        .addAnnotation(Override.class)
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(booleanType)
+                        .addException(Exception.class)
+                        .addStatement("return $T.this.$N()", editorClass, METHOD_NAME_COMMIT)
+                        .build())
+                .build();
+        return MethodSpec.methodBuilder(METHOD_NAME_COMMIT_ASYNC)
+                .addAnnotation(NonNull.class)
+                .addModifiers(Modifier.PUBLIC)
+                .returns(ParameterizedTypeName.get(ClassName.get(Future.class), booleanType))
+                .addParameter(ParameterSpec.builder(Executor.class, PARAMETER_EXECUTOR)
+                        .addAnnotation(NonNull.class)
+                        .build())
+                .addStatement("final $T $N = new $T<>($L)",
+                        ParameterizedTypeName.get(ClassName.get(FutureTask.class), booleanType),
+                        VARIABLE_TASK,
+                        FutureTask.class,
+                        callable)
+                .addStatement("$N.execute($N)", PARAMETER_EXECUTOR, VARIABLE_TASK)
+                .addStatement("return $N", VARIABLE_TASK)
+                .build();
+    }
+
+    private MethodSpec buildIsDirtyMethodSpec() {
+        return MethodSpec.methodBuilder(METHOD_NAME_IS_DIRTY)
+                .addModifiers(Modifier.PRIVATE)
+                .returns(TypeName.BOOLEAN)
+                .beginControlFlow("for (final long $N : $N)", VARIABLE_WORD, FIELD_DIRTY)
+                .beginControlFlow("if ($N != 0L)", VARIABLE_WORD)
+                .addStatement("return true")
+                .endControlFlow()
+                .endControlFlow()
+                .addStatement("return false")
+                .build();
+    }
+
+    private MethodSpec buildIsAllDirtyMethodSpec() {
+        final CodeBlock.Builder condition = CodeBlock.builder();
+        final int words = (properties.size() + BITS_PER_WORD - 1) / BITS_PER_WORD;
+        for (int word = 0; word < words; word++) {
+            final int bits = Math.min(BITS_PER_WORD, properties.size() - word * BITS_PER_WORD);
+            final long mask = bits == BITS_PER_WORD ? -1L : (1L << bits) - 1L;
+            if (word > 0) {
+                condition.add(" && ");
+            }
+            condition.add("($N[$L] & 0x$LL) == 0x$LL", FIELD_DIRTY, word, Long.toHexString(mask), Long.toHexString(mask));
+        }
+        if (words == 0) {
+            condition.add("true");
+        }
+        return MethodSpec.methodBuilder(METHOD_NAME_IS_ALL_DIRTY)
+                .addModifiers(Modifier.PRIVATE)
+                .returns(TypeName.BOOLEAN)
+                .addStatement("return $L", condition.build())
+                .build();
+    }
+
+    private MethodSpec buildMergeMethodSpec() {
+        final CodeBlock.Builder arguments = CodeBlock.builder();
+        for (int index = 0; index < properties.size(); index++) {
+            final PropertyMethodMetadata property = properties.get(index);
+            if (index > 0) {
+                arguments.add(",\n");
+            }
+            arguments.add("$L ? $N : $N.$N()", buildIsDirtyStatement(index), getValueName(property), VARIABLE_CURRENT, property.getSimpleName());
+        }
+        return MethodSpec.methodBuilder(METHOD_NAME_MERGE)
+                .addAnnotation(NonNull.class)
+                .addModifiers(Modifier.PRIVATE)
+                .returns(modelClass)
+                .addParameter(ParameterSpec.builder(long[].class, VARIABLE_MERGED)
+                        .addAnnotation(NonNull.class)
+                        .build())
+                .addCode("// The stored model is read only when any property is not written by this editor\n")
+                .addStatement("final long[] $N = new long[$N.length]", VARIABLE_STORED, FIELD_DIRTY)
+                .addStatement("final $T $N = $N() ? null : $N($N, $N)",
+                        modelClass, VARIABLE_CURRENT, METHOD_NAME_IS_ALL_DIRTY, BinaryCodecs.METHOD_NAME_LOAD, FIELD_STORAGE, VARIABLE_STORED)
+                .beginControlFlow("for (int $N = 0; $N < $N.length; $N++)", VARIABLE_WORD, VARIABLE_WORD, FIELD_DIRTY, VARIABLE_WORD)
+                .addStatement("$N[$N] = ($N[$N] & ~$N[$N]) | ($N[$N] & $N[$N])",
+                        VARIABLE_MERGED, VARIABLE_WORD,
+                        VARIABLE_STORED, VARIABLE_WORD, FIELD_DIRTY, VARIABLE_WORD,
+                        FIELD_PRESENT, VARIABLE_WORD, FIELD_DIRTY, VARIABLE_WORD)
+                .endControlFlow()
+                .addStatement("return new $T(\n$L)", modelImplClass, arguments.build())
+                .build();
+    }
+
+    private MethodSpec buildPutBinaryMethodSpec() {
+        final MethodSpec.Builder builder = MethodSpec.methodBuilder(METHOD_NAME_PUT_BINARY)
+                .addModifiers(Modifier.PRIVATE)
+                .beginControlFlow("if (!$N.contains($N))", FIELD_STORAGE, BinaryCodecs.FIELD_KEY)
+                .addCode("// The values stored per key are moved into the blob in the same transaction\n");
+        properties.forEach(property -> builder.addStatement("$N.remove($S)", FIELD_EDITOR, property.getPreferenceKey()));
+        return builder.endControlFlow()
+                .addStatement("final long[] $N = new long[$N.length]", VARIABLE_MERGED, FIELD_DIRTY)
+                .addStatement("final $T $N = $N($N)", modelClass, VARIABLE_MODEL, METHOD_NAME_MERGE, VARIABLE_MERGED)
+                .addStatement("$N.putBytes($N, $N($N, $N))",
+                        FIELD_EDITOR, BinaryCodecs.FIELD_KEY, BinaryCodecs.METHOD_NAME_ENCODE, VARIABLE_MODEL, VARIABLE_MERGED)
+                .build();
+    }
+
+    private MethodSpec buildPutPackedMethodSpec() {
+        final List<String> legacyKeys = properties.stream()
+                .filter(property -> property.getPackedSlot().isPresent() && !property.getEnumSetClass().isPresent())
+                .map(PropertyMethodMetadata::getPreferenceKey)
+                .distinct()
+                .collect(toList());
+        final MethodSpec.Builder builder = MethodSpec.methodBuilder(METHOD_NAME_PUT_PACKED)
+                .addModifiers(Modifier.PRIVATE)
+                .addCode("// Words of another layout are rewritten in this layout, and the values stored per key are folded into them\n")
+                .addStatement("final boolean $N = $N || !($L)",
+                        VARIABLE_MIGRATED, FIELD_CLEARED, PackedBits.buildVersionStatement(FIELD_STORAGE))
+                .beginControlFlow("if ($N)", VARIABLE_MIGRATED);
+        legacyKeys.forEach(key -> builder.addStatement("$N.remove($S)", FIELD_EDITOR, key));
+        builder.addStatement("$N.putString($T.KEY, $N)", FIELD_EDITOR, PackedLayout.class, PackedBits.FIELD_LAYOUT)
+                .addStatement("$N.putLong($T.VERSION_KEY, $N)", FIELD_EDITOR, PackedLayout.class, PackedBits.FIELD_VERSION)
+                .endControlFlow();
+        packedWords.forEach((word, group) -> {
+            final String bitsName = FIELD_PREFIX_PACKED + word;
+            final String maskName = FIELD_PREFIX_PACKED_MASK + word;
+            // Bits which are not written by this editor are read from the storage, or are the defaults after clear()
+            builder.beginControlFlow("if ($N || $N != 0L)", VARIABLE_MIGRATED, maskName)
+                    .addStatement("final long $N = $N ? $L : $N($N)",
+                            VARIABLE_CURRENT, FIELD_CLEARED, PackedBits.buildLiteral(PackedBits.getDefaultBits(group)),
+                            PackedBits.getLoadMethodName(word), FIELD_STORAGE)
+                    .addStatement("$N.putLong($N, ($N & ~$N) | $N)", FIELD_EDITOR, PackedBits.getKeyName(word), VARIABLE_CURRENT, maskName, bitsName)
+                    .endControlFlow();
+        });
+        return builder.build();
+    }
+
+    private CodeBlock buildPutBitsStatement(PackedSlot slot, CodeBlock bits) {
+        final String bitsName = FIELD_PREFIX_PACKED + slot.getWord();
+        final CodeBlock mask = PackedBits.buildLiteral(slot.getMask());
+        return CodeBlock.builder()
+                .addStatement("this.$N = (this.$N & ~$L) | $L", bitsName, bitsName, mask, bits)
+                .addStatement("this.$N |= $L", FIELD_PREFIX_PACKED_MASK + slot.getWord(), mask)
+                .build();
+    }
+
+    private CodeBlock buildPutDefaultBitsStatement(PropertyMethodMetadata property, PackedSlot slot) {
+        final String bitsName = FIELD_PREFIX_PACKED + slot.getWord();
+        final CodeBlock mask = PackedBits.buildLiteral(slot.getMask());
+        final CodeBlock.Builder builder = CodeBlock.builder();
+        if (PackedBits.getDefaultBits(property, slot) == 0L) {
+            builder.addStatement("this.$N &= ~$L", bitsName, mask);
         } else {
-            statement = CodeBlock.builder()
-                    .add("new $T().toSupported($L)", converter.getClassName(), parameterName)
-                    .build();
+            builder.addStatement("this.$N |= $L", bitsName, mask);
         }
+        return builder.addStatement("this.$N |= $L", FIELD_PREFIX_PACKED_MASK + slot.getWord(), mask)
+                .build();
+    }
+
+    private String getValueName(PropertyMethodMetadata property) {
+        return property.getSimpleNameWithoutPrefix(CaseFormat.LOWER_CAMEL);
+    }
+
+    private CodeBlock buildMarkDirtyStatement(int index) {
+        return CodeBlock.of("$N[$L] |= 1L << $L", FIELD_DIRTY, index / BITS_PER_WORD, index % BITS_PER_WORD);
+    }
+
+    private CodeBlock buildMarkPresentStatement(int index) {
+        return CodeBlock.of("$N[$L] |= 1L << $L", FIELD_PRESENT, index / BITS_PER_WORD, index % BITS_PER_WORD);
+    }
+
+    private CodeBlock buildMarkAbsentStatement(int index) {
+        return CodeBlock.of("$N[$L] &= ~(1L << $L)", FIELD_PRESENT, index / BITS_PER_WORD, index % BITS_PER_WORD);
+    }
+
+    private CodeBlock buildIsDirtyStatement(int index) {
+        return CodeBlock.of("($N[$L] & 1L << $L) != 0L", FIELD_DIRTY, index / BITS_PER_WORD, index % BITS_PER_WORD);
+    }
+
+    private TypeName getSnapshotCacheType() {
+        return ParameterizedTypeName.get(ClassName.get(SnapshotCache.class), modelClass);
+    }
+
+    private CodeBlock buildSaveStatement(PropertyMethodMetadata property, SupportedType supported, String parameterName) {
+        final CodeBlock statement = PropertyStatements.buildSupportedStatement(property, CodeBlock.of("$N", parameterName));
         return supported.buildSaveStatement(FIELD_EDITOR, property.getPreferenceKey(), statement);
     }
 }
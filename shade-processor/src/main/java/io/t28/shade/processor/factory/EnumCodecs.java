@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2016 Tatsuya Maki
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.t28.shade.processor.factory;
+
+import android.annotation.SuppressLint;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterSpec;
+import com.squareup.javapoet.TypeName;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import javax.annotation.Nonnull;
+import javax.lang.model.element.Modifier;
+
+import io.t28.shade.processor.metadata.EnumClassMetadata;
+import io.t28.shade.processor.metadata.PropertyMethodMetadata;
+import io.t28.shade.processor.util.SupportedType;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Builds code which stores enum properties without converters
+ * <p>
+ * An enum is stored by the name of the constant, or by its {@code @EnumCode} when the constants declare codes.
+ * Decoding is a switch statement, so that no array is allocated by {@code values()} or {@code valueOf()}.
+ * </p>
+ */
+@SuppressLint("NewApi")
+class EnumCodecs {
+    private static final String METHOD_PREFIX_DECODE = "decode";
+    private static final String METHOD_PREFIX_ENCODE = "encode";
+    private static final String PARAMETER_VALUE = "value";
+    private static final String PARAMETER_DEF_VALUE = "defValue";
+
+    private EnumCodecs() {
+    }
+
+    @Nonnull
+    static List<MethodSpec> buildMethodSpecs(@Nonnull List<PropertyMethodMetadata> properties) {
+        final Map<ClassName, EnumClassMetadata> enums = new LinkedHashMap<>();
+        properties.forEach(property -> property.getEnumClass()
+                .ifPresent(enumClass -> enums.putIfAbsent(enumClass.getClassName(), enumClass)));
+        return enums.values()
+                .stream()
+                .flatMap(enumClass -> {
+                    if (enumClass.hasCodes()) {
+                        return Stream.of(buildDecodeMethodSpec(enumClass), buildEncodeMethodSpec(enumClass));
+                    }
+                    return Stream.of(buildDecodeMethodSpec(enumClass));
+                })
+                .collect(toList());
+    }
+
+    @Nonnull
+    static SupportedType getSupportedType(@Nonnull EnumClassMetadata enumClass) {
+        return enumClass.hasCodes() ? SupportedType.INT : SupportedType.STRING;
+    }
+
+    @Nonnull
+    static String getSupportedValue(@Nonnull EnumClassMetadata enumClass, @Nonnull String constantName) {
+        if (enumClass.hasCodes()) {
+            return String.valueOf(enumClass.getCode(constantName).orElse(0));
+        }
+        return constantName;
+    }
+
+    @Nonnull
+    static CodeBlock buildConstantStatement(@Nonnull EnumClassMetadata enumClass, @Nonnull String constantName) {
+        return CodeBlock.of("$T.$N", enumClass.getClassName(), constantName);
+    }
+
+    @Nonnull
+    static CodeBlock buildDecodeStatement(@Nonnull EnumClassMetadata enumClass, @Nonnull CodeBlock value, @Nonnull String constantName) {
+        return CodeBlock.of("$N($L, $L)", getMethodName(METHOD_PREFIX_DECODE, enumClass), value, buildConstantStatement(enumClass, constantName));
+    }
+
+    @Nonnull
+    static CodeBlock buildEncodeStatement(@Nonnull EnumClassMetadata enumClass, @Nonnull CodeBlock value) {
+        if (enumClass.hasCodes()) {
+            return CodeBlock.of("$N($L)", getMethodName(METHOD_PREFIX_ENCODE, enumClass), value);
+        }
+        return CodeBlock.of("$L.name()", value);
+    }
+
+    private static MethodSpec buildDecodeMethodSpec(EnumClassMetadata enumClass) {
+        final ClassName enumType = enumClass.getClassName();
+        final MethodSpec.Builder builder = MethodSpec.methodBuilder(getMethodName(METHOD_PREFIX_DECODE, enumClass))
+                .addAnnotation(NonNull.class)
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .returns(enumType);
+        if (enumClass.hasCodes()) {
+            builder.addParameter(TypeName.INT, PARAMETER_VALUE);
+        } else {
+            builder.addParameter(ParameterSpec.builder(String.class, PARAMETER_VALUE)
+                    .addAnnotation(Nullable.class)
+                    .build())
+                    .beginControlFlow("if ($N == null)", PARAMETER_VALUE)
+                    .addStatement("return $N", PARAMETER_DEF_VALUE)
+                    .endControlFlow();
+        }
+        builder.addParameter(ParameterSpec.builder(enumType, PARAMETER_DEF_VALUE)
+                .addAnnotation(NonNull.class)
+                .build());
+
+        builder.beginControlFlow("switch ($N)", PARAMETER_VALUE);
+        enumClass.getConstantNames().forEach(constantName -> {
+            if (enumClass.hasCodes()) {
+                builder.addCode("case $L:\n$>", enumClass.getCode(constantName).orElse(0));
+            } else {
+                builder.addCode("case $S:\n$>", constantName);
+            }
+            builder.addStatement("return $T.$N", enumType, constantName)
+                    .addCode("$<");
+        });
+        // A value which is stored by a newer or older version of the enum is ignored
+        return builder.addCode("default:\n$>")
+                .addStatement("return $N", PARAMETER_DEF_VALUE)
+                .addCode("$<")
+                .endControlFlow()
+                .build();
+    }
+
+    private static MethodSpec buildEncodeMethodSpec(EnumClassMetadata enumClass) {
+        final ClassName enumType = enumClass.getClassName();
+        final MethodSpec.Builder builder = MethodSpec.methodBuilder(getMethodName(METHOD_PREFIX_ENCODE, enumClass))
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .returns(TypeName.INT)
+                .addParameter(ParameterSpec.builder(enumType, PARAMETER_VALUE)
+                        .addAnnotation(NonNull.class)
+                        .build())
+                .beginControlFlow("switch ($N)", PARAMETER_VALUE);
+        enumClass.getConstantNames().forEach(constantName -> builder.addCode("case $N:\n$>", constantName)
+                .addStatement("return $L", enumClass.getCode(constantName).orElse(0))
+                .addCode("$<"));
+        return builder.addCode("default:\n$>")
+                .addStatement("throw new $T($S + $N)", IllegalArgumentException.class, "Unknown constant: ", PARAMETER_VALUE)
+                .addCode("$<")
+                .endControlFlow()
+                .build();
+    }
+
+    private static String getMethodName(String prefix, EnumClassMetadata enumClass) {
+        return prefix + String.join("", enumClass.getClassName().simpleNames());
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2016 Tatsuya Maki
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.t28.shade.processor.factory;
+
+import android.annotation.SuppressLint;
+import android.support.annotation.NonNull;
+
+import com.google.common.base.CaseFormat;
+import com.google.common.collect.ImmutableList;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterSpec;
+import com.squareup.javapoet.TypeName;
+
+import java.util.List;
+
+import javax.annotation.Nonnull;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.type.TypeMirror;
+
+import io.t28.shade.processor.metadata.PreferenceClassMetadata;
+import io.t28.shade.processor.metadata.PropertyMethodMetadata;
+import io.t28.shade.processor.util.CodeBlocks;
+import io.t28.shade.storage.Storage;
+
+import static java.util.stream.Collectors.toList;
+
+@SuppressLint("NewApi")
+public class LazyModelClassFactory extends ModelClassFactory {
+    private static final String FIELD_STORAGE = "storage";
+    private static final String FIELD_SUFFIX_LOADED = "Loaded";
+    private static final String VARIABLE_LOADED = "loaded";
+
+    @Inject
+    public LazyModelClassFactory(@Nonnull PreferenceClassMetadata preference,
+                                 @Nonnull @Named("Model") ClassName modelClass,
+                                 @Nonnull @Named("LazyModelImpl") ClassName lazyModelImplClass) {
+        super(preference, modelClass, lazyModelImplClass);
+    }
+
+    @Nonnull
+    @Override
+    protected List<FieldSpec> getFields() {
+        final ImmutableList.Builder<FieldSpec> builder = ImmutableList.<FieldSpec>builder()
+                .add(FieldSpec.builder(Storage.class, FIELD_STORAGE)
+                        .addModifiers(Modifier.PRIVATE, Modifier.FINAL)
+                        .build());
+        properties.forEach(property -> {
+            final String fieldName = property.getSimpleNameWithoutPrefix(CaseFormat.LOWER_CAMEL);
+            builder.add(FieldSpec.builder(TypeName.BOOLEAN, fieldName + FIELD_SUFFIX_LOADED)
+                    .addModifiers(Modifier.PRIVATE, Modifier.VOLATILE)
+                    .build());
+            builder.add(FieldSpec.builder(property.getReturnTypeName(), fieldName)
+                    .addModifiers(Modifier.PRIVATE)
+                    .build());
+        });
+        return builder.addAll(buildCacheFieldSpecs())
+                .build();
+    }
+
+    @Override
+    protected MethodSpec buildConstructorSpec() {
+        return MethodSpec.constructorBuilder()
+                .addModifiers(Modifier.PUBLIC)
+                .addParameter(ParameterSpec.builder(Storage.class, FIELD_STORAGE)
+                        .addAnnotation(NonNull.class)
+                        .build())
+                .addStatement("this.$N = $N", FIELD_STORAGE, FIELD_STORAGE)
+                .build();
+    }
+
+    @Nonnull
+    @Override
+    protected CodeBlock buildValueStatement(@Nonnull PropertyMethodMetadata property) {
+        return CodeBlock.of("$N()", property.getSimpleName());
+    }
+
+    @Override
+    protected List<MethodSpec> buildGetMethodSpecs() {
+        return properties.stream()
+                .map(property -> {
+                    final String fieldName = property.getSimpleNameWithoutPrefix(CaseFormat.LOWER_CAMEL);
+                    final String flagName = fieldName + FIELD_SUFFIX_LOADED;
+                    final TypeMirror valueType = property.getReturnType();
+                    return MethodSpec.overriding(property.getMethod())
+                            .beginControlFlow("if (!$N)", flagName)
+                            .addStatement("final $T $N = $L",
+                                    property.getReturnTypeName(),
+                                    VARIABLE_LOADED,
+                                    PropertyStatements.buildLoadStatement(property, FIELD_STORAGE))
+                            .addStatement("this.$N = $L", fieldName, CodeBlocks.createUnmodifiableStatement(valueType, VARIABLE_LOADED))
+                            .addStatement("this.$N = true", flagName)
+                            .endControlFlow()
+                            .addStatement("return $L", CodeBlocks.createGetterStatement(valueType, fieldName))
+                            .build();
+                })
+                .collect(toList());
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2016 Tatsuya Maki
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.t28.shade.processor.factory;
+
+import android.annotation.SuppressLint;
+import android.support.annotation.NonNull;
+
+import com.google.common.base.CaseFormat;
+import com.google.common.collect.ImmutableList;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterSpec;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+
+import java.util.List;
+
+import javax.annotation.Nonnull;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.lang.model.element.Modifier;
+
+import io.t28.shade.processor.metadata.PreferenceClassMetadata;
+import io.t28.shade.processor.metadata.PropertyMethodMetadata;
+
+import static java.util.stream.Collectors.toList;
+
+@SuppressLint("NewApi")
+public class ListenerClassFactory extends TypeFactory {
+    private static final String METHOD_PREFIX_ON = "on";
+    private static final String METHOD_SUFFIX_CHANGED = "Changed";
+
+    private final List<PropertyMethodMetadata> properties;
+    private final ClassName listenerClass;
+
+    @Inject
+    public ListenerClassFactory(@Nonnull PreferenceClassMetadata preference,
+                                @Nonnull @Named("Listener") ClassName listenerClass) {
+        this.properties = preference.getPropertyMethods();
+        this.listenerClass = listenerClass;
+    }
+
+    @Nonnull
+    static String getCallbackName(@Nonnull PropertyMethodMetadata property) {
+        return METHOD_PREFIX_ON + property.getSimpleNameWithoutPrefix(CaseFormat.UPPER_CAMEL) + METHOD_SUFFIX_CHANGED;
+    }
+
+    @Nonnull
+    @Override
+    protected TypeSpec.Kind getKind() {
+        return TypeSpec.Kind.INTERFACE;
+    }
+
+    @Nonnull
+    @Override
+    protected String getName() {
+        return listenerClass.simpleName();
+    }
+
+    @Nonnull
+    @Override
+    protected List<Modifier> getModifiers() {
+        return ImmutableList.of(Modifier.PUBLIC);
+    }
+
+    @Nonnull
+    @Override
+    protected List<MethodSpec> getMethods() {
+        return properties.stream()
+                .map(property -> {
+                    final String parameterName = property.getSimpleNameWithoutPrefix(CaseFormat.LOWER_CAMEL);
+                    final TypeName valueType = property.getReturnTypeName();
+                    final ParameterSpec.Builder parameter = ParameterSpec.builder(valueType, parameterName);
+                    if (!valueType.isPrimitive()) {
+                        parameter.addAnnotation(NonNull.class);
+                    }
+                    return MethodSpec.methodBuilder(getCallbackName(property))
+                            .addModifiers(Modifier.PUBLIC, Modifier.ABSTRACT)
+                            .addParameter(parameter.build())
+                            .build();
+                })
+                .collect(toList());
+    }
+}
@@ -20,6 +20,7 @@ import android.support.annotation.NonNull;
 
 import com.google.common.base.CaseFormat;
 import com.google.common.collect.ImmutableList;
+import com.squareup.javapoet.ArrayTypeName;
 import com.squareup.javapoet.ClassName;
 import com.squareup.javapoet.CodeBlock;
 import com.squareup.javapoet.FieldSpec;
@@ -27,6 +28,8 @@ import com.squareup.javapoet.MethodSpec;
 import com.squareup.javapoet.ParameterSpec;
 import com.squareup.javapoet.TypeName;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
@@ -37,9 +40,6 @@ import javax.inject.Named;
 import javax.lang.model.element.Modifier;
 import javax.lang.model.type.TypeMirror;
 
-import io.t28.shade.internal.EqualsBuilder;
-import io.t28.shade.internal.HashCodeBuilder;
-import io.t28.shade.internal.ToStringBuilder;
 import io.t28.shade.processor.metadata.PreferenceClassMetadata;
 import io.t28.shade.processor.metadata.PropertyMethodMetadata;
 import io.t28.shade.processor.util.CodeBlocks;
@@ -51,9 +51,13 @@ public class ModelClassFactory extends TypeFactory {
     private static final String METHOD_NAME_EQUALS = "equals";
     private static final String METHOD_NAME_HASH_CODE = "hashCode";
     private static final String METHOD_NAME_TO_STRING = "toString";
+    private static final String FIELD_CACHED_HASH_CODE = "cachedHashCode";
+    private static final String FIELD_CACHED_TO_STRING = "cachedToString";
+    private static final String VARIABLE_RESULT = "result";
+    private static final int ESTIMATED_VALUE_LENGTH = 16;
 
-    private final PreferenceClassMetadata preference;
-    private final List<PropertyMethodMetadata> properties;
+    protected final PreferenceClassMetadata preference;
+    protected final List<PropertyMethodMetadata> properties;
     private final ClassName modelClass;
     private final ClassName modelImplClass;
 
@@ -101,13 +105,16 @@ public class ModelClassFactory extends TypeFactory {
     @Nonnull
     @Override
     protected List<FieldSpec> getFields() {
-        return ImmutableList.copyOf(properties.stream()
-                .map(property -> {
-                    final String fieldName = property.getSimpleNameWithoutPrefix(CaseFormat.LOWER_CAMEL);
-                    final TypeName valueType = property.getReturnTypeName();
-                    return FieldSpec.builder(valueType, fieldName, Modifier.PRIVATE, Modifier.FINAL).build();
-                })
-                .collect(toList()));
+        return ImmutableList.<FieldSpec>builder()
+                .addAll(properties.stream()
+                        .map(property -> {
+                            final String fieldName = property.getSimpleNameWithoutPrefix(CaseFormat.LOWER_CAMEL);
+                            final TypeName valueType = property.getReturnTypeName();
+                            return FieldSpec.builder(valueType, fieldName, Modifier.PRIVATE, Modifier.FINAL).build();
+                        })
+                        .collect(toList()))
+                .addAll(buildCacheFieldSpecs())
+                .build();
     }
 
     @Nonnull
@@ -122,7 +129,14 @@ public class ModelClassFactory extends TypeFactory {
                 .build();
     }
 
-    private MethodSpec buildConstructorSpec() {
+    protected List<FieldSpec> buildCacheFieldSpecs() {
+        return ImmutableList.of(
+                FieldSpec.builder(TypeName.INT, FIELD_CACHED_HASH_CODE, Modifier.PRIVATE).build(),
+                FieldSpec.builder(String.class, FIELD_CACHED_TO_STRING, Modifier.PRIVATE).build()
+        );
+    }
+
+    protected MethodSpec buildConstructorSpec() {
         final MethodSpec.Builder builder = MethodSpec.constructorBuilder();
         builder.addModifiers(Modifier.PUBLIC);
 
@@ -157,12 +171,37 @@ public class ModelClassFactory extends TypeFactory {
                 .addModifiers(Modifier.PUBLIC)
                 .returns(String.class);
 
-        builder.addStatement("final $1T builder = new $1T(this)", ToStringBuilder.class);
-        properties.forEach(property -> {
-            final String fieldName = property.getSimpleNameWithoutPrefix(CaseFormat.LOWER_CAMEL);
-            builder.addStatement("builder.append($1S, $1L)", fieldName);
-        });
-        builder.addStatement("return builder.toString()");
+        final String prefix = getName() + "{";
+        final List<String> labels = new ArrayList<>();
+        for (final PropertyMethodMetadata property : properties) {
+            final String delimiter = labels.isEmpty() ? "" : ", ";
+            labels.add(delimiter + property.getSimpleNameWithoutPrefix(CaseFormat.LOWER_CAMEL) + "=");
+        }
+        final int capacity = labels.stream()
+                .mapToInt(label -> label.length() + ESTIMATED_VALUE_LENGTH)
+                .sum() + prefix.length() + 1;
+
+        final CodeBlock.Builder statement = CodeBlock.builder()
+                .add("new $T($L)", StringBuilder.class, capacity)
+                .add("\n.append($S)", prefix);
+        for (int i = 0; i < properties.size(); i++) {
+            final PropertyMethodMetadata property = properties.get(i);
+            final CodeBlock value = buildValueStatement(property);
+            if (property.getReturnTypeName() instanceof ArrayTypeName) {
+                statement.add("\n.append($S).append($T.toString($L))", labels.get(i), Arrays.class, value);
+            } else {
+                statement.add("\n.append($S).append($L)", labels.get(i), value);
+            }
+        }
+        statement.add("\n.append('}')")
+                .add("\n.toString()");
+
+        builder.addStatement("$T $N = $N", String.class, VARIABLE_RESULT, FIELD_CACHED_TO_STRING)
+                .beginControlFlow("if ($N == null)", VARIABLE_RESULT)
+                .addStatement("$N = $L", VARIABLE_RESULT, statement.build())
+                .addStatement("$N = $N", FIELD_CACHED_TO_STRING, VARIABLE_RESULT)
+                .endControlFlow()
+                .addStatement("return $N", VARIABLE_RESULT);
         return builder.build();
     }
 
@@ -183,13 +222,14 @@ public class ModelClassFactory extends TypeFactory {
 
         builder.addStatement("final $T that = ($T) object", modelClass, modelClass);
 
-        builder.addStatement("final $1T builder = new $1T()", EqualsBuilder.class);
         properties.forEach(property -> {
-            final String fieldName = property.getSimpleNameWithoutPrefix(CaseFormat.LOWER_CAMEL);
-            final String methodName = property.getSimpleName();
-            builder.addStatement("builder.append($L, that.$L())", fieldName, methodName);
+            final CodeBlock other = CodeBlock.of("that.$N()", property.getSimpleName());
+            final CodeBlock condition = CodeBlocks.createNotEqualsStatement(property.getReturnTypeName(), buildValueStatement(property), other);
+            builder.beginControlFlow("if ($L)", condition)
+                    .addStatement("return false")
+                    .endControlFlow();
         });
-        builder.addStatement("return builder.build()");
+        builder.addStatement("return true");
         return builder.build();
     }
 
@@ -199,21 +239,30 @@ public class ModelClassFactory extends TypeFactory {
                 .addModifiers(Modifier.PUBLIC)
                 .returns(int.class);
 
-        builder.addStatement("final $1T builder = new $1T()", HashCodeBuilder.class);
+        builder.addStatement("int $N = $N", VARIABLE_RESULT, FIELD_CACHED_HASH_CODE)
+                .beginControlFlow("if ($N == 0)", VARIABLE_RESULT)
+                .addStatement("$N = 1", VARIABLE_RESULT);
         properties.forEach(property -> {
-            final String fieldName = property.getSimpleNameWithoutPrefix(CaseFormat.LOWER_CAMEL);
-            builder.addStatement("builder.append($L)", fieldName);
+            final CodeBlock hashCode = CodeBlocks.createHashCodeStatement(property.getReturnTypeName(), buildValueStatement(property));
+            builder.addStatement("$N = 31 * $N + $L", VARIABLE_RESULT, VARIABLE_RESULT, hashCode);
         });
-        builder.addStatement("return builder.build()");
+        builder.addStatement("$N = $N", FIELD_CACHED_HASH_CODE, VARIABLE_RESULT)
+                .endControlFlow()
+                .addStatement("return $N", VARIABLE_RESULT);
         return builder.build();
     }
 
-    private List<MethodSpec> buildGetMethodSpecs() {
+    @Nonnull
+    protected CodeBlock buildValueStatement(@Nonnull PropertyMethodMetadata property) {
+        return CodeBlock.of("$N", property.getSimpleNameWithoutPrefix(CaseFormat.LOWER_CAMEL));
+    }
+
+    protected List<MethodSpec> buildGetMethodSpecs() {
         return properties.stream()
                 .map(property -> {
                     final String fieldName = property.getSimpleNameWithoutPrefix(CaseFormat.LOWER_CAMEL);
                     final TypeMirror valueType = property.getReturnType();
-                    final CodeBlock statement = CodeBlocks.createUnmodifiableStatement(valueType, fieldName);
+                    final CodeBlock statement = CodeBlocks.createGetterStatement(valueType, fieldName);
                     return MethodSpec.overriding(property.getMethod())
                             .addStatement("return $L", statement)
                             .build();
@@ -0,0 +1,370 @@
+/*
+ * Copyright (c) 2016 Tatsuya Maki
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.t28.shade.processor.factory;
+
+import android.annotation.SuppressLint;
+import android.support.annotation.NonNull;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.WildcardTypeName;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import javax.annotation.Nonnull;
+import javax.lang.model.element.Modifier;
+
+import io.t28.shade.internal.PackedLayout;
+import io.t28.shade.internal.Snapshot;
+import io.t28.shade.processor.metadata.EnumClassMetadata;
+import io.t28.shade.processor.metadata.PackedSlot;
+import io.t28.shade.processor.metadata.PropertyMethodMetadata;
+import io.t28.shade.processor.util.CodeBlocks;
+import io.t28.shade.processor.util.SupportedType;
+import io.t28.shade.storage.Storage;
+
+import static java.util.stream.Collectors.joining;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Builds code which packs boolean and {@code EnumSet} properties into bits of {@code long} values
+ * <p>
+ * Each word is stored with its own key, and the layout of all words and its version are stored with them. Words of
+ * another layout are rewritten in the current layout by key once, under the lock of the storage, when a word is read
+ * from the storage or the next editor is applied. A boolean stored per key is read until the words are written, and
+ * the editor which writes them at first folds the values stored per key into them.
+ * </p>
+ */
+@SuppressLint("NewApi")
+class PackedBits {
+    static final String FIELD_LAYOUT = "PACKED_LAYOUT";
+    static final String FIELD_VERSION = "PACKED_VERSION";
+    private static final String FIELD_PREFIX_KEY = "PACKED_KEY_";
+    private static final String METHOD_PREFIX_LOAD = "loadPacked";
+    private static final String METHOD_NAME_MIGRATE = "migratePacked";
+    private static final String METHOD_PREFIX_DECODE = "decode";
+    private static final String METHOD_PREFIX_ENCODE = "encode";
+    private static final String METHOD_SUFFIX_SET = "Set";
+    private static final String PARAMETER_STORAGE = "storage";
+    private static final String PARAMETER_SNAPSHOT = "snapshot";
+    private static final String PARAMETER_BITS = "bits";
+    private static final String PARAMETER_VALUE = "value";
+    private static final String VARIABLE_SET = "set";
+    private static final String VARIABLE_WORD = "word";
+    private static final String VARIABLE_LAYOUT = "layout";
+    private static final String VARIABLE_VALUES = "values";
+    private static final TypeName MAP_TYPE = ParameterizedTypeName.get(ClassName.get(Map.class),
+            ClassName.get(String.class), WildcardTypeName.subtypeOf(Object.class));
+
+    private PackedBits() {
+    }
+
+    @Nonnull
+    static Map<Integer, List<PropertyMethodMetadata>> groupByWord(@Nonnull List<PropertyMethodMetadata> properties) {
+        final Map<Integer, List<PropertyMethodMetadata>> words = new TreeMap<>();
+        properties.forEach(property -> property.getPackedSlot()
+                .ifPresent(slot -> words.computeIfAbsent(slot.getWord(), word -> new ArrayList<>()).add(property)));
+        return words;
+    }
+
+    @Nonnull
+    static List<FieldSpec> buildFieldSpecs(@Nonnull List<PropertyMethodMetadata> properties) {
+        final Set<Integer> words = groupByWord(properties).keySet();
+        final List<FieldSpec> fields = new ArrayList<>();
+        words.forEach(word -> fields.add(FieldSpec.builder(String.class, getKeyName(word))
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                .initializer("$S", PackedLayout.WORD_KEY_PREFIX + word)
+                .build()));
+        if (!words.isEmpty()) {
+            final String layout = buildLayout(properties);
+            fields.add(FieldSpec.builder(String.class, FIELD_LAYOUT)
+                    .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                    .initializer("$S", layout)
+                    .build());
+            fields.add(FieldSpec.builder(TypeName.LONG, FIELD_VERSION)
+                    .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                    .initializer("$L", buildLiteral(PackedLayout.hash(layout)))
+                    .build());
+        }
+        return fields;
+    }
+
+    @Nonnull
+    static List<MethodSpec> buildMethodSpecs(@Nonnull List<PropertyMethodMetadata> properties) {
+        final List<MethodSpec> methods = new ArrayList<>();
+        final Map<Integer, List<PropertyMethodMetadata>> words = groupByWord(properties);
+        words.forEach((word, group) -> {
+            methods.add(buildLoadMethodSpec(word, group, Storage.class, PARAMETER_STORAGE));
+            methods.add(buildLoadMethodSpec(word, group, Snapshot.class, PARAMETER_SNAPSHOT));
+        });
+        if (!words.isEmpty()) {
+            methods.add(buildMigrateMethodSpec(words));
+        }
+
+        final Map<ClassName, EnumClassMetadata> enums = new LinkedHashMap<>();
+        properties.stream()
+                .filter(property -> property.getPackedSlot().isPresent())
+                .forEach(property -> property.getEnumSetClass()
+                        .ifPresent(enumClass -> enums.putIfAbsent(enumClass.getClassName(), enumClass)));
+        enums.values()
+                .stream()
+                .flatMap(enumClass -> Stream.of(buildDecodeMethodSpec(enumClass), buildEncodeMethodSpec(enumClass)))
+                .forEach(methods::add);
+        return methods;
+    }
+
+    @Nonnull
+    static String getKeyName(int word) {
+        return FIELD_PREFIX_KEY + word;
+    }
+
+    @Nonnull
+    static String getLoadMethodName(int word) {
+        return METHOD_PREFIX_LOAD + word;
+    }
+
+    @Nonnull
+    static CodeBlock buildLoadStatement(@Nonnull PropertyMethodMetadata property, @Nonnull PackedSlot slot, @Nonnull String variable) {
+        final CodeBlock word = CodeBlock.of("$N($N)", getLoadMethodName(slot.getWord()), variable);
+        final Optional<EnumClassMetadata> enumSetClass = property.getEnumSetClass();
+        if (enumSetClass.isPresent()) {
+            return CodeBlock.of("$N($L)", getMethodName(METHOD_PREFIX_DECODE, enumSetClass.get()),
+                    buildShiftStatement(word, ">>>", slot.getShift()));
+        }
+        return CodeBlock.of("($L & $L) != 0L", word, buildLiteral(slot.getMask()));
+    }
+
+    @Nonnull
+    static CodeBlock buildContainsStatement(@Nonnull PropertyMethodMetadata property, @Nonnull PackedSlot slot, @Nonnull String variable) {
+        final CodeBlock packed = CodeBlock.of("$L || $T.contains($N.getString($T.KEY, null), $S)",
+                buildVersionStatement(variable), PackedLayout.class, variable, PackedLayout.class, property.getPreferenceKey());
+        if (property.getEnumSetClass().isPresent()) {
+            return CodeBlock.of("($L)", packed);
+        }
+        return CodeBlock.of("($L || $N.contains($S))", packed, variable, property.getPreferenceKey());
+    }
+
+    /**
+     * Return the bits of the default values of the properties which are assigned to the word
+     *
+     * @param group The properties of the word
+     * @return The bits of the word
+     */
+    static long getDefaultBits(@Nonnull List<PropertyMethodMetadata> group) {
+        long bits = 0L;
+        for (final PropertyMethodMetadata property : group) {
+            bits |= getDefaultBits(property, property.getPackedSlot().orElseThrow(IllegalArgumentException::new));
+        }
+        return bits;
+    }
+
+    /**
+     * Build the statement which places the value at the bits of the slot
+     *
+     * @param property The property
+     * @param slot     The slot of the property
+     * @param value    The value of the property
+     * @return The statement of {@code long}
+     */
+    @Nonnull
+    static CodeBlock buildEncodeStatement(@Nonnull PropertyMethodMetadata property, @Nonnull PackedSlot slot, @Nonnull CodeBlock value) {
+        final Optional<EnumClassMetadata> enumSetClass = property.getEnumSetClass();
+        if (enumSetClass.isPresent()) {
+            return buildShiftStatement(CodeBlock.of("$N($L)", getMethodName(METHOD_PREFIX_ENCODE, enumSetClass.get()), value), "<<", slot.getShift());
+        }
+        return CodeBlock.of("($L ? $L : 0L)", value, buildLiteral(slot.getMask()));
+    }
+
+    /**
+     * Return the bits of the default value of the property
+     *
+     * @param property The property
+     * @param slot     The slot of the property
+     * @return The bits which are placed at the slot
+     */
+    static long getDefaultBits(@Nonnull PropertyMethodMetadata property, @Nonnull PackedSlot slot) {
+        if (property.getEnumSetClass().isPresent()) {
+            // The default value of EnumSet is always empty
+            return 0L;
+        }
+        return property.getDefaultValue().map(Boolean::valueOf).orElse(false) ? slot.getMask() : 0L;
+    }
+
+    /**
+     * Build the statement which returns whether the words are written in the current layout
+     *
+     * @param variable The name of the storage or the snapshot
+     * @return The statement of {@code boolean}
+     */
+    @Nonnull
+    static CodeBlock buildVersionStatement(@Nonnull String variable) {
+        return CodeBlock.of("$N.getLong($T.VERSION_KEY, 0L) == $N", variable, PackedLayout.class, FIELD_VERSION);
+    }
+
+    @Nonnull
+    static CodeBlock buildLiteral(long bits) {
+        return CodeBlock.of("0x$LL", Long.toHexString(bits));
+    }
+
+    private static CodeBlock buildShiftStatement(CodeBlock statement, String operator, int shift) {
+        if (shift == 0) {
+            return statement;
+        }
+        return CodeBlock.of("$L $L $L", statement, operator, shift);
+    }
+
+    private static MethodSpec buildLoadMethodSpec(int word, List<PropertyMethodMetadata> group, Class<?> sourceClass, String source) {
+        final String keyName = getKeyName(word);
+        final CodeBlock defaultBits = buildLiteral(getDefaultBits(group));
+        final MethodSpec.Builder builder = MethodSpec.methodBuilder(getLoadMethodName(word))
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .returns(TypeName.LONG)
+                .addParameter(ParameterSpec.builder(sourceClass, source)
+                        .addAnnotation(NonNull.class)
+                        .build())
+                .beginControlFlow("if ($L)", buildVersionStatement(source))
+                .addStatement("return $N.getLong($N, $L)", source, keyName, defaultBits)
+                .endControlFlow();
+        if (sourceClass == Storage.class) {
+            builder.beginControlFlow("if ($N.contains($T.KEY))", source, PackedLayout.class)
+                    .addCode("// The words which are written by another version are rewritten in this layout once\n")
+                    .addStatement("$N($N)", METHOD_NAME_MIGRATE, source)
+                    .addStatement("return $N.getLong($N, $L)", source, keyName, defaultBits)
+                    .endControlFlow();
+        } else {
+            // A snapshot can not be written, and the words are rewritten by the next access to the storage
+            builder.addStatement("final $T $N = $N.getString($T.KEY, null)", String.class, VARIABLE_LAYOUT, source, PackedLayout.class)
+                    .beginControlFlow("if ($N != null)", VARIABLE_LAYOUT)
+                    .addCode("// The bits are moved by key from the layout which is written by another version\n")
+                    .addStatement("return $T.remap($N.getAll(), $N, $N, $L, $L)", PackedLayout.class, source, VARIABLE_LAYOUT, FIELD_LAYOUT, word, defaultBits)
+                    .endControlFlow();
+        }
+        builder.addCode("// Read the values stored per key until the words are written\n")
+                .addStatement("long $N = 0L", VARIABLE_WORD);
+        group.stream()
+                .filter(property -> !property.getEnumSetClass().isPresent())
+                .forEach(property -> {
+                    final PackedSlot slot = property.getPackedSlot().orElseThrow(IllegalArgumentException::new);
+                    final CodeBlock legacy = SupportedType.BOOLEAN.buildLoadStatement(source, property.getPreferenceKey(), property.getDefaultValue().orElse(null));
+                    builder.beginControlFlow("if ($L)", legacy)
+                            .addStatement("$N |= $L", VARIABLE_WORD, buildLiteral(slot.getMask()))
+                            .endControlFlow();
+                });
+        return builder.addStatement("return $N", VARIABLE_WORD)
+                .build();
+    }
+
+    private static MethodSpec buildMigrateMethodSpec(Map<Integer, List<PropertyMethodMetadata>> words) {
+        final CodeBlock.Builder edit = CodeBlock.builder()
+                .add("$N.edit()\n$>$>", PARAMETER_STORAGE);
+        words.forEach((word, group) -> edit.add(".putLong($N, $T.remap($N, $N, $N, $L, $L))\n",
+                getKeyName(word), PackedLayout.class, VARIABLE_VALUES, VARIABLE_LAYOUT, FIELD_LAYOUT, word, buildLiteral(getDefaultBits(group))));
+        edit.add(".putString($T.KEY, $N)\n", PackedLayout.class, FIELD_LAYOUT)
+                .add(".putLong($T.VERSION_KEY, $N)\n", PackedLayout.class, FIELD_VERSION)
+                .add(".apply();\n$<$<");
+        return MethodSpec.methodBuilder(METHOD_NAME_MIGRATE)
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .addParameter(ParameterSpec.builder(Storage.class, PARAMETER_STORAGE)
+                        .addAnnotation(NonNull.class)
+                        .build())
+                .addCode(CodeBlocks.createLockedBlock(CodeBlock.of("$N.getLock()", PARAMETER_STORAGE), CodeBlock.builder()
+                        .addStatement("final $T $N = $N.getString($T.KEY, null)", String.class, VARIABLE_LAYOUT, PARAMETER_STORAGE, PackedLayout.class)
+                        .beginControlFlow("if ($N == null || $L)", VARIABLE_LAYOUT, buildVersionStatement(PARAMETER_STORAGE))
+                        .add("// The words are rewritten by another thread or are removed while waiting for the lock\n")
+                        .addStatement("return")
+                        .endControlFlow()
+                        .addStatement("final $T $N = $N.getAll()", MAP_TYPE, VARIABLE_VALUES, PARAMETER_STORAGE)
+                        .add(edit.build())
+                        .build()))
+                .build();
+    }
+
+    private static MethodSpec buildDecodeMethodSpec(EnumClassMetadata enumClass) {
+        final ClassName enumType = enumClass.getClassName();
+        final TypeName setType = ParameterizedTypeName.get(ClassName.get(EnumSet.class), enumType);
+        final MethodSpec.Builder builder = MethodSpec.methodBuilder(getMethodName(METHOD_PREFIX_DECODE, enumClass))
+                .addAnnotation(NonNull.class)
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .returns(setType)
+                .addParameter(TypeName.LONG, PARAMETER_BITS)
+                .addStatement("final $T $N = $T.noneOf($T.class)", setType, VARIABLE_SET, EnumSet.class, enumType);
+        // The bit of each constant is its ordinal, and the stored layout lists constants in the same order
+        final List<String> constantNames = enumClass.getConstantNames();
+        for (int ordinal = 0; ordinal < constantNames.size(); ordinal++) {
+            builder.beginControlFlow("if (($N & $L) != 0L)", PARAMETER_BITS, buildLiteral(1L << ordinal))
+                    .addStatement("$N.add($T.$N)", VARIABLE_SET, enumType, constantNames.get(ordinal))
+                    .endControlFlow();
+        }
+        return builder.addStatement("return $N", VARIABLE_SET)
+                .build();
+    }
+
+    private static MethodSpec buildEncodeMethodSpec(EnumClassMetadata enumClass) {
+        final ClassName enumType = enumClass.getClassName();
+        final TypeName setType = ParameterizedTypeName.get(ClassName.get(EnumSet.class), enumType);
+        final MethodSpec.Builder builder = MethodSpec.methodBuilder(getMethodName(METHOD_PREFIX_ENCODE, enumClass))
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .returns(TypeName.LONG)
+                .addParameter(ParameterSpec.builder(setType, PARAMETER_VALUE)
+                        .addAnnotation(NonNull.class)
+                        .build())
+                .addStatement("long $N = 0L", PARAMETER_BITS);
+        final List<String> constantNames = enumClass.getConstantNames();
+        for (int ordinal = 0; ordinal < constantNames.size(); ordinal++) {
+            builder.beginControlFlow("if ($N.contains($T.$N))", PARAMETER_VALUE, enumType, constantNames.get(ordinal))
+                    .addStatement("$N |= $L", PARAMETER_BITS, buildLiteral(1L << ordinal))
+                    .endControlFlow();
+        }
+        return builder.addStatement("return $N", PARAMETER_BITS)
+                .build();
+    }
+
+    private static String buildLayout(List<PropertyMethodMetadata> properties) {
+        return properties.stream()
+                .filter(property -> property.getPackedSlot().isPresent())
+                .map(property -> {
+                    final PackedSlot slot = property.getPackedSlot().orElseThrow(IllegalArgumentException::new);
+                    final StringBuilder entry = new StringBuilder()
+                            .append(PackedLayout.escape(property.getPreferenceKey()))
+                            .append('@').append(slot.getWord())
+                            .append(':').append(slot.getShift());
+                    // Constants are identified by their codes if they have codes, so that they can be renamed
+                    property.getEnumSetClass().ifPresent(enumClass -> entry.append(enumClass.getConstantNames()
+                            .stream()
+                            .map(name -> PackedLayout.escape(enumClass.getCode(name).map(String::valueOf).orElse(name)))
+                            .collect(joining("|", "[", "]"))));
+                    return entry.toString();
+                })
+                .collect(joining(","));
+    }
+
+    private static String getMethodName(String prefix, EnumClassMetadata enumClass) {
+        return prefix + String.join("", enumClass.getClassName().simpleNames()) + METHOD_SUFFIX_SET;
+    }
+}
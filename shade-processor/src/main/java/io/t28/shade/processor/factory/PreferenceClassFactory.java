@@ -19,6 +19,7 @@ import android.content.Context;
 import android.content.SharedPreferences;
 import android.preference.PreferenceManager;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 
 import com.google.common.base.CaseFormat;
 import com.google.common.collect.ImmutableList;
@@ -28,51 +29,128 @@ import com.squareup.javapoet.CodeBlock;
 import com.squareup.javapoet.FieldSpec;
 import com.squareup.javapoet.MethodSpec;
 import com.squareup.javapoet.ParameterSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
 import com.squareup.javapoet.TypeName;
 import com.squareup.javapoet.TypeSpec;
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 import javax.annotation.Nonnull;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.lang.model.element.Modifier;
 
-import io.t28.shade.processor.metadata.ConverterClassMetadata;
+import io.t28.shade.function.UnaryOperator;
+import io.t28.shade.internal.CoalescingStorage;
+import io.t28.shade.internal.ExternalStorage;
+import io.t28.shade.internal.Snapshot;
+import io.t28.shade.internal.SnapshotCache;
+import io.t28.shade.internal.SplitStorage;
 import io.t28.shade.processor.metadata.PreferenceClassMetadata;
-import io.t28.shade.processor.util.SupportedType;
+import io.t28.shade.processor.metadata.PropertyMethodMetadata;
+import io.t28.shade.processor.util.CodeBlocks;
+import io.t28.shade.storage.SharedPreferencesStorage;
+import io.t28.shade.storage.SharedPreferencesStorageFactory;
+import io.t28.shade.storage.Storage;
 
-import static java.util.stream.Collectors.joining;
+import static java.util.stream.Collectors.groupingBy;
 import static java.util.stream.Collectors.toList;
 
 @SuppressWarnings("NewApi")
 public class PreferenceClassFactory extends TypeFactory {
     private static final String PARAMETER_CONTEXT = "context";
+    private static final String PARAMETER_EXECUTOR = "executor";
+    private static final String FIELD_INSTANCE = "instance";
+    private static final String FIELD_STORAGE = "storage";
     private static final String FIELD_PREFERENCES = "preferences";
+    private static final String FIELD_SNAPSHOT_CACHE = "snapshotCache";
+    private static final String FIELD_CHANGE_LISTENER = "changeListener";
+    private static final String FIELD_LISTENERS = "listeners";
+    private static final String FIELD_LISTENER_COUNTS = "listenerCounts";
+    private static final String FIELD_CHANGE_DISPATCHER = "changeDispatcher";
+    private static final String PARAMETER_LISTENER = "listener";
+    private static final String PARAMETER_KEY = "key";
+    private static final String PARAMETER_KEYS = "keys";
+    private static final String PARAMETER_PROPERTIES = "properties";
+    private static final String PARAMETER_DELTA_COUNT = "delta";
+    private static final String METHOD_NAME_FLUSH = "flush";
+    private static final String METHOD_NAME_UPDATE = "update";
+    private static final String METHOD_PREFIX_UPDATE = "update";
+    private static final String METHOD_PREFIX_INCREMENT = "increment";
+    private static final String METHOD_PREFIX_PUT = "put";
+    private static final String PARAMETER_OPERATOR = "operator";
+    private static final String PARAMETER_DELTA = "delta";
+    private static final String VARIABLE_UPDATED = "updated";
+    private static final String METHOD_NAME_REGISTER = "register";
+    private static final String METHOD_NAME_UNREGISTER = "unregister";
+    private static final String METHOD_NAME_UPDATE_LISTENER_COUNTS = "updateListenerCounts";
+    private static final String METHOD_NAME_DISPATCH_CHANGE = "dispatchChange";
+    private static final String METHOD_PREFIX_DISPATCH = "dispatch";
+    private static final String METHOD_SUFFIX_CHANGED = "Changed";
+    private static final String VARIABLE_SNAPSHOT = "snapshot";
+    private static final String VARIABLE_CACHED = "cached";
+    private static final String VARIABLE_STAMP = "stamp";
+    private static final String VARIABLE_LOADED = "loaded";
+    private static final String VARIABLE_TASK = "task";
+    private static final String VARIABLE_CURRENT = "current";
+    private static final String VARIABLE_EDITOR = "editor";
+    private static final String VARIABLE_PREFERENCES = "preferences";
+    private static final String VARIABLE_PRESENT = "present";
+    private static final String VARIABLE_INDEX = "index";
+    private static final String VARIABLE_ENTRY = "entry";
+    private static final String METHOD_NAME_GET_INSTANCE = "getInstance";
+    private static final String METHOD_NAME_PRELOAD = "preload";
     private static final String METHOD_PREFIX_GET = "get";
+    private static final String METHOD_NAME_GET_LAZY = "getLazy";
     private static final String METHOD_PREFIX_HAS = "contains";
+    private static final String DEFAULT_NAME_SUFFIX = "_preferences";
+    private static final String COLD_NAME_SUFFIX = ".cold";
 
     private final PreferenceClassMetadata preference;
     private final ClassName modelClass;
     private final ClassName modelImplClass;
+    private final ClassName lazyModelImplClass;
     private final ClassName editorClass;
     private final ClassName preferencesClass;
+    private final ClassName listenerClass;
     private final List<TypeFactory> enclosedClassFactories;
 
     @Inject
     public PreferenceClassFactory(@Nonnull PreferenceClassMetadata preference,
                                   @Nonnull @Named("Model") ClassName modelClass,
                                   @Nonnull @Named("ModelImpl") ClassName modelImplClass,
+                                  @Nonnull @Named("LazyModelImpl") ClassName lazyModelImplClass,
                                   @Nonnull @Named("Editor") ClassName editorClass,
                                   @Nonnull @Named("Preferences") ClassName preferencesClass,
+                                  @Nonnull @Named("Listener") ClassName listenerClass,
                                   @Nonnull @Named("Model") TypeFactory modelClassFactory,
-                                  @Nonnull @Named("Editor") TypeFactory editorClassFactory) {
+                                  @Nonnull @Named("LazyModel") TypeFactory lazyModelClassFactory,
+                                  @Nonnull @Named("Editor") TypeFactory editorClassFactory,
+                                  @Nonnull @Named("Listener") TypeFactory listenerClassFactory) {
         this.preference = preference;
         this.modelClass = modelClass;
         this.modelImplClass = modelImplClass;
+        this.lazyModelImplClass = lazyModelImplClass;
         this.editorClass = editorClass;
         this.preferencesClass = preferencesClass;
-        this.enclosedClassFactories = ImmutableList.of(modelClassFactory, editorClassFactory);
+        this.listenerClass = listenerClass;
+        if (preference.isBinaryEnabled()) {
+            // The lazy model is not generated because the blob is decoded at once
+            this.enclosedClassFactories = ImmutableList.of(modelClassFactory, editorClassFactory, listenerClassFactory);
+        } else {
+            this.enclosedClassFactories = ImmutableList.of(modelClassFactory, lazyModelClassFactory, editorClassFactory, listenerClassFactory);
+        }
     }
 
     @Nonnull
@@ -98,30 +176,94 @@ public class PreferenceClassFactory extends TypeFactory {
     @Nonnull
     @Override
     protected List<FieldSpec> getFields() {
-        return ImmutableList.of(FieldSpec.builder(SharedPreferences.class, FIELD_PREFERENCES)
+        final ImmutableList.Builder<FieldSpec> builder = ImmutableList.<FieldSpec>builder()
+                .add(FieldSpec.builder(preferencesClass, FIELD_INSTANCE)
+                        .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.VOLATILE)
+                        .build())
+                .add(FieldSpec.builder(getStorageType(), FIELD_STORAGE)
+                        .addModifiers(Modifier.PRIVATE, Modifier.FINAL)
+                        .build());
+        if (preference.isDefaultStorage()) {
+            builder.add(FieldSpec.builder(SharedPreferences.class, FIELD_PREFERENCES)
+                    .addModifiers(Modifier.PRIVATE, Modifier.FINAL)
+                    .build());
+        }
+        if (preference.isBinaryEnabled()) {
+            builder.addAll(BinaryCodecs.buildFieldSpecs());
+        }
+        if (preference.isPackedEnabled()) {
+            builder.addAll(PackedBits.buildFieldSpecs(preference.getPropertyMethods()));
+        }
+        if (preference.isSnapshotCacheEnabled()) {
+            builder.add(FieldSpec.builder(getSnapshotCacheType(), FIELD_SNAPSHOT_CACHE)
+                    .addModifiers(Modifier.PRIVATE, Modifier.FINAL)
+                    .initializer("new $T<>()", SnapshotCache.class)
+                    .build());
+            builder.add(FieldSpec.builder(Storage.OnChangeListener.class, FIELD_CHANGE_LISTENER)
+                    .addModifiers(Modifier.PRIVATE, Modifier.FINAL)
+                    .initializer("$L", buildChangeListenerSpec())
+                    .build());
+        }
+        builder.add(FieldSpec.builder(getListenersType(), FIELD_LISTENERS)
+                .addModifiers(Modifier.PRIVATE, Modifier.FINAL)
+                .initializer("new $T<>()", ConcurrentHashMap.class)
+                .build());
+        builder.add(FieldSpec.builder(AtomicIntegerArray.class, FIELD_LISTENER_COUNTS)
+                .addModifiers(Modifier.PRIVATE, Modifier.FINAL)
+                .initializer("new $T($L)", AtomicIntegerArray.class, preference.getPropertyMethods().size())
+                .build());
+        builder.add(FieldSpec.builder(Storage.OnChangeListener.class, FIELD_CHANGE_DISPATCHER)
                 .addModifiers(Modifier.PRIVATE, Modifier.FINAL)
+                .initializer("$L", buildChangeDispatcherSpec())
                 .build());
+        return builder.build();
     }
 
     @Nonnull
     @Override
     protected List<MethodSpec> getMethods() {
-        return ImmutableList.<MethodSpec>builder()
+        final ImmutableList.Builder<MethodSpec> builder = ImmutableList.<MethodSpec>builder()
                 .add(buildConstructorSpec())
+                .add(buildGetInstanceMethodSpec())
+                .add(buildPreloadMethodSpec())
                 .add(buildGetMethodSpec())
+                .add(buildGetLazyMethodSpec())
                 .addAll(buildGetMethodSpecs())
                 .addAll(buildContainsMethodSpecs())
                 .add(buildEditMethodSpec())
-                .add(buildGetSharedPreferencesMethodSpec())
-                .build();
+                .add(buildUpdateMethodSpec())
+                .addAll(buildUpdatePropertyMethodSpecs())
+                .addAll(buildIncrementMethodSpecs())
+                .addAll(buildFlushMethodSpecs())
+                .add(buildRegisterMethodSpec())
+                .add(buildRegisterKeysMethodSpec())
+                .add(buildRegisterPropertiesMethodSpec())
+                .add(buildUnregisterMethodSpec())
+                .add(buildUpdateListenerCountsMethodSpec())
+                .add(buildDispatchChangeMethodSpec())
+                .addAll(buildDispatchPropertyMethodSpecs())
+                .add(buildGetStorageMethodSpec())
+                .addAll(EnumCodecs.buildMethodSpecs(preference.getPropertyMethods()));
+        if (preference.isDefaultStorage()) {
+            builder.add(buildGetSharedPreferencesMethodSpec());
+        }
+        if (preference.isBinaryEnabled()) {
+            builder.addAll(BinaryCodecs.buildMethodSpecs(preference.getPropertyMethods(), modelClass, modelImplClass));
+        }
+        if (preference.isPackedEnabled()) {
+            builder.addAll(PackedBits.buildMethodSpecs(preference.getPropertyMethods()));
+        }
+        return builder.build();
     }
 
     @Nonnull
     @Override
     protected List<TypeSpec> getEnclosedTypes() {
-        return enclosedClassFactories.stream()
+        final List<TypeSpec> types = enclosedClassFactories.stream()
                 .map(TypeFactory::create)
                 .collect(toList());
+        types.addAll(ConverterInstances.buildHolderTypeSpecs(preference.getPropertyMethods()));
+        return types;
     }
 
     private MethodSpec buildConstructorSpec() {
@@ -130,32 +272,180 @@ public class PreferenceClassFactory extends TypeFactory {
                 .addParameter(ParameterSpec.builder(Context.class, PARAMETER_CONTEXT)
                         .addAnnotation(NonNull.class)
                         .build());
-        if (preference.isDefault()) {
-            builder.addStatement(
-                    "this.$N = $T.getDefaultSharedPreferences($L.getApplicationContext())",
-                    FIELD_PREFERENCES, PreferenceManager.class, PARAMETER_CONTEXT
-            );
+        CodeBlock statement;
+        if (!preference.isDefaultStorage()) {
+            statement = CodeBlock.of("new $T().create($L.getApplicationContext(), $S, $L)",
+                    preference.getStorageFactoryClass(), PARAMETER_CONTEXT, preference.getPreferenceName(), preference.getOperationMode());
         } else {
-            builder.addStatement(
-                    "this.$N = $L.getApplicationContext().getSharedPreferences($S, $L)",
-                    FIELD_PREFERENCES, PARAMETER_CONTEXT, preference.getPreferenceName(), preference.getOperationMode()
-            );
+            if (preference.isDefault()) {
+                builder.addStatement("this.$N = $T.getDefaultSharedPreferences($L.getApplicationContext())",
+                        FIELD_PREFERENCES, PreferenceManager.class, PARAMETER_CONTEXT);
+            } else {
+                builder.addStatement("this.$N = $L.getApplicationContext().getSharedPreferences($S, $L)",
+                        FIELD_PREFERENCES, PARAMETER_CONTEXT, preference.getPreferenceName(), preference.getOperationMode());
+            }
+            statement = CodeBlock.of("new $T($N)", SharedPreferencesStorage.class, FIELD_PREFERENCES);
+        }
+        final List<String> coldKeys = preference.getPropertyMethods()
+                .stream()
+                .filter(PropertyMethodMetadata::isCold)
+                .map(PropertyMethodMetadata::getPreferenceKey)
+                .distinct()
+                .collect(toList());
+        if (!coldKeys.isEmpty()) {
+            statement = buildSplitStorageStatement(statement, coldKeys);
+        }
+        final List<String> externalKeys = preference.getPropertyMethods()
+                .stream()
+                .filter(PropertyMethodMetadata::isExternal)
+                .map(PropertyMethodMetadata::getPreferenceKey)
+                .distinct()
+                .collect(toList());
+        if (!externalKeys.isEmpty()) {
+            statement = buildExternalStorageStatement(statement, externalKeys);
+        }
+        if (preference.isCoalescingEnabled()) {
+            builder.addStatement("this.$N = $T.wrap($S, $L, $LL)",
+                    FIELD_STORAGE, CoalescingStorage.class, preference.getPreferenceName(), statement, preference.getCoalesceWindow());
+        } else {
+            builder.addStatement("this.$N = $L", FIELD_STORAGE, statement);
+        }
+        if (preference.isSnapshotCacheEnabled()) {
+            // Storages hold listeners weakly, so that the listener is released together with this instance
+            builder.addStatement("this.$N.registerListener($N)", FIELD_STORAGE, FIELD_CHANGE_LISTENER);
         }
         return builder.build();
     }
 
+    private CodeBlock buildSplitStorageStatement(CodeBlock hotStatement, List<String> coldKeys) {
+        final TypeName factoryClass;
+        if (preference.isDefaultStorage()) {
+            factoryClass = ClassName.get(SharedPreferencesStorageFactory.class);
+        } else {
+            factoryClass = preference.getStorageFactoryClass();
+        }
+        return CodeBlock.of("new $T($L, new $T(), $L.getApplicationContext(), $L, $L, $L)",
+                SplitStorage.class, hotStatement, factoryClass, PARAMETER_CONTEXT, buildNameStatement(COLD_NAME_SUFFIX),
+                preference.getOperationMode(), buildKeysStatement(coldKeys));
+    }
+
+    private CodeBlock buildExternalStorageStatement(CodeBlock statement, List<String> externalKeys) {
+        return CodeBlock.of("new $T($L, $L.getApplicationContext(), $L, $L)",
+                ExternalStorage.class, statement, PARAMETER_CONTEXT, buildNameStatement(""), buildKeysStatement(externalKeys));
+    }
+
+    private CodeBlock buildNameStatement(String suffix) {
+        if (preference.isDefault()) {
+            return CodeBlock.of("$L.getPackageName() + $S", PARAMETER_CONTEXT, DEFAULT_NAME_SUFFIX + suffix);
+        }
+        return CodeBlock.of("$S", preference.getPreferenceName() + suffix);
+    }
+
+    private CodeBlock buildKeysStatement(List<String> keys) {
+        return keys.stream()
+                .map(key -> CodeBlock.of("$S", key))
+                .collect(CodeBlocks.joining(", "));
+    }
+
+    private MethodSpec buildGetInstanceMethodSpec() {
+        return MethodSpec.methodBuilder(METHOD_NAME_GET_INSTANCE)
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                .addAnnotation(NonNull.class)
+                .returns(preferencesClass)
+                .addParameter(ParameterSpec.builder(Context.class, PARAMETER_CONTEXT)
+                        .addAnnotation(NonNull.class)
+                        .build())
+                .addStatement("$T $N = $N", preferencesClass, VARIABLE_CURRENT, FIELD_INSTANCE)
+                .beginControlFlow("if ($N == null)", VARIABLE_CURRENT)
+                .beginControlFlow("synchronized ($T.class)", preferencesClass)
+                .addStatement("$N = $N", VARIABLE_CURRENT, FIELD_INSTANCE)
+                .beginControlFlow("if ($N == null)", VARIABLE_CURRENT)
+                .addStatement("$N = new $T($N)", VARIABLE_CURRENT, preferencesClass, PARAMETER_CONTEXT)
+                .addStatement("$N = $N", FIELD_INSTANCE, VARIABLE_CURRENT)
+                .endControlFlow()
+                .endControlFlow()
+                .endControlFlow()
+                .addStatement("return $N", VARIABLE_CURRENT)
+                .build();
+    }
+
+    private MethodSpec buildPreloadMethodSpec() {
+        final TypeName futureType = ParameterizedTypeName.get(ClassName.get(Future.class), preferencesClass);
+        final TypeName taskType = ParameterizedTypeName.get(ClassName.get(FutureTask.class), preferencesClass);
+        final TypeSpec callable = TypeSpec.anonymousClassBuilder("")
+                .addSuperinterface(ParameterizedTypeName.get(ClassName.get(Callable.class), preferencesClass))
+                .addMethod(MethodSpec.methodBuilder("call")
+                        .addAnnotation(Override.class)
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(preferencesClass)
+                        .addException(Exception.class)
+                        .addStatement("final $T $N = $N($N)", preferencesClass, VARIABLE_PREFERENCES, METHOD_NAME_GET_INSTANCE, PARAMETER_CONTEXT)
+                        .addStatement("$N.$N()", VARIABLE_PREFERENCES, METHOD_PREFIX_GET)
+                        .addStatement("return $N", VARIABLE_PREFERENCES)
+                        .build())
+                .build();
+        return MethodSpec.methodBuilder(METHOD_NAME_PRELOAD)
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                .addAnnotation(NonNull.class)
+                .returns(futureType)
+                .addParameter(ParameterSpec.builder(Context.class, PARAMETER_CONTEXT, Modifier.FINAL)
+                        .addAnnotation(NonNull.class)
+                        .build())
+                .addParameter(ParameterSpec.builder(Executor.class, PARAMETER_EXECUTOR)
+                        .addAnnotation(NonNull.class)
+                        .build())
+                .addStatement("final $T $N = new $T<>($L)", taskType, VARIABLE_TASK, FutureTask.class, callable)
+                .addStatement("$N.execute($N)", PARAMETER_EXECUTOR, VARIABLE_TASK)
+                .addStatement("return $N", VARIABLE_TASK)
+                .build();
+    }
+
     private MethodSpec buildGetMethodSpec() {
         final MethodSpec.Builder builder = MethodSpec.methodBuilder(METHOD_PREFIX_GET)
                 .addModifiers(Modifier.PUBLIC)
                 .addAnnotation(NonNull.class)
                 .returns(modelClass);
 
-        final String arguments = preference.getPropertyMethods()
-                .stream()
-                .map(property -> METHOD_PREFIX_GET + property.getSimpleNameWithoutPrefix(CaseFormat.UPPER_CAMEL) + "()")
-                .collect(joining(", "));
-        builder.addStatement("return new $T($L)", modelImplClass, arguments);
-        return builder.build();
+        if (preference.isSnapshotCacheEnabled()) {
+            builder.addStatement("final $T $N = $N.get()", modelClass, VARIABLE_CACHED, FIELD_SNAPSHOT_CACHE)
+                    .beginControlFlow("if ($N != null)", VARIABLE_CACHED)
+                    .addStatement("return $N", VARIABLE_CACHED)
+                    .endControlFlow()
+                    .addStatement("final int $N = $N.stamp()", VARIABLE_STAMP, FIELD_SNAPSHOT_CACHE);
+        }
+
+        final CodeBlock statement;
+        if (preference.isBinaryEnabled()) {
+            statement = CodeBlock.of("$N($N)", BinaryCodecs.METHOD_NAME_LOAD, FIELD_STORAGE);
+        } else {
+            builder.addStatement("final $T $N = new $T($N.getAll())", Snapshot.class, VARIABLE_SNAPSHOT, Snapshot.class, FIELD_STORAGE);
+            final CodeBlock arguments = preference.getPropertyMethods()
+                    .stream()
+                    .map(property -> PropertyStatements.buildLoadStatement(property, VARIABLE_SNAPSHOT))
+                    .collect(CodeBlocks.joining(",\n"));
+            statement = CodeBlock.of("new $T(\n$L)", modelImplClass, arguments);
+        }
+        if (!preference.isSnapshotCacheEnabled()) {
+            return builder.addStatement("return $L", statement)
+                    .build();
+        }
+        return builder.addStatement("final $T $N = $L", modelClass, VARIABLE_LOADED, statement)
+                .addStatement("$N.put($N, $N)", FIELD_SNAPSHOT_CACHE, VARIABLE_STAMP, VARIABLE_LOADED)
+                .addStatement("return $N", VARIABLE_LOADED)
+                .build();
+    }
+
+    private MethodSpec buildGetLazyMethodSpec() {
+        final MethodSpec.Builder builder = MethodSpec.methodBuilder(METHOD_NAME_GET_LAZY)
+                .addModifiers(Modifier.PUBLIC)
+                .addAnnotation(NonNull.class)
+                .returns(modelClass);
+        if (preference.isBinaryEnabled()) {
+            return builder.addStatement("return $N()", METHOD_PREFIX_GET)
+                    .build();
+        }
+        return builder.addStatement("return new $T($N)", lazyModelImplClass, FIELD_STORAGE)
+                .build();
     }
 
     private List<MethodSpec> buildGetMethodSpecs() {
@@ -172,39 +462,32 @@ public class PreferenceClassFactory extends TypeFactory {
                     }
                     builder.returns(returnType);
 
-                    final ConverterClassMetadata converter = property.getConverterClass();
-                    final TypeName valueType;
-                    if (converter.isDefault()) {
-                        valueType = property.getReturnTypeName();
-                    } else {
-                        valueType = converter.getSupportedType();
-                    }
-
-                    final SupportedType supported = SupportedType.find(valueType);
-                    final CodeBlock statement = supported.buildLoadStatement(
-                            FIELD_PREFERENCES,
-                            property.getPreferenceKey(),
-                            property.getDefaultValue().orElse(null)
-                    );
-                    if (converter.isDefault()) {
-                        builder.addStatement("return $L", statement);
-                    } else {
-                        builder.addStatement("return new $T().toConverted($L)", converter.getClassName(), statement);
+                    if (preference.isBinaryEnabled()) {
+                        return builder.addStatement("return $N().$N()", METHOD_PREFIX_GET, property.getSimpleName())
+                                .build();
                     }
-                    return builder.build();
+                    return builder.addStatement("return $L", PropertyStatements.buildLoadStatement(property, FIELD_STORAGE))
+                            .build();
                 })
                 .collect(toList());
     }
 
     private List<MethodSpec> buildContainsMethodSpecs() {
-        return preference.getPropertyMethods()
-                .stream()
+        final List<PropertyMethodMetadata> properties = preference.getPropertyMethods();
+        return properties.stream()
                 .map(property -> {
                     final String methodName = METHOD_PREFIX_HAS + property.getSimpleNameWithoutPrefix(CaseFormat.UPPER_CAMEL);
-                    return MethodSpec.methodBuilder(methodName)
+                    final MethodSpec.Builder builder = MethodSpec.methodBuilder(methodName)
                             .addModifiers(Modifier.PUBLIC)
-                            .returns(TypeName.BOOLEAN)
-                            .addStatement("return $L.contains($S)", FIELD_PREFERENCES, property.getPreferenceKey())
+                            .returns(TypeName.BOOLEAN);
+                    if (preference.isBinaryEnabled()) {
+                        // The blob records which properties are present
+                        return builder.addStatement("final long[] $N = new long[$L]", VARIABLE_PRESENT, BinaryCodecs.getWords(properties))
+                                .addStatement("$N($N, $N)", BinaryCodecs.METHOD_NAME_LOAD, FIELD_STORAGE, VARIABLE_PRESENT)
+                                .addStatement("return $L", BinaryCodecs.buildIsPresentStatement(VARIABLE_PRESENT, properties.indexOf(property)))
+                                .build();
+                    }
+                    return builder.addStatement("return $L", PropertyStatements.buildContainsStatement(property, FIELD_STORAGE))
                             .build();
                 })
                 .collect(toList());
@@ -215,16 +498,356 @@ public class PreferenceClassFactory extends TypeFactory {
                 .addModifiers(Modifier.PUBLIC)
                 .addAnnotation(NonNull.class)
                 .returns(editorClass)
-                .addStatement("return new $L($N)", editorClass, FIELD_PREFERENCES)
+                .addStatement("return $L", buildNewEditorStatement())
+                .build();
+    }
+
+    private MethodSpec buildUpdateMethodSpec() {
+        return MethodSpec.methodBuilder(METHOD_NAME_UPDATE)
+                .addModifiers(Modifier.PUBLIC)
+                .addAnnotation(NonNull.class)
+                .returns(modelClass)
+                .addParameter(ParameterSpec.builder(getOperatorType(modelClass), PARAMETER_OPERATOR)
+                        .addAnnotation(NonNull.class)
+                        .build())
+                .addCode(buildCompareAndSetBlock(
+                        modelClass,
+                        CodeBlock.of("$N()", METHOD_PREFIX_GET),
+                        CodeBlock.of("!$N.equals($N())", VARIABLE_CURRENT, METHOD_PREFIX_GET),
+                        CodeBlock.of("$N().$N($N)", "edit", METHOD_PREFIX_PUT, VARIABLE_UPDATED)
+                ))
+                .build();
+    }
+
+    private List<MethodSpec> buildUpdatePropertyMethodSpecs() {
+        return preference.getPropertyMethods()
+                .stream()
+                .map(property -> {
+                    final String suffix = property.getSimpleNameWithoutPrefix(CaseFormat.UPPER_CAMEL);
+                    final TypeName valueType = property.getReturnTypeName();
+                    final CodeBlock getter = CodeBlock.of("$N()", METHOD_PREFIX_GET + suffix);
+                    final MethodSpec.Builder builder = MethodSpec.methodBuilder(METHOD_PREFIX_UPDATE + suffix)
+                            .addModifiers(Modifier.PUBLIC);
+                    if (!valueType.isPrimitive()) {
+                        builder.addAnnotation(NonNull.class);
+                    }
+                    return builder.returns(valueType)
+                            .addParameter(ParameterSpec.builder(getOperatorType(valueType.box()), PARAMETER_OPERATOR)
+                                    .addAnnotation(NonNull.class)
+                                    .build())
+                            .addCode(buildCompareAndSetBlock(
+                                    valueType,
+                                    getter,
+                                    CodeBlocks.createNotEqualsStatement(valueType, CodeBlock.of("$N", VARIABLE_CURRENT), getter),
+                                    CodeBlock.of("$N().$N($N)", "edit", METHOD_PREFIX_PUT + suffix, VARIABLE_UPDATED)
+                            ))
+                            .build();
+                })
+                .collect(toList());
+    }
+
+    private List<MethodSpec> buildIncrementMethodSpecs() {
+        return preference.getPropertyMethods()
+                .stream()
+                .filter(property -> {
+                    final TypeName valueType = property.getReturnTypeName();
+                    return valueType.equals(TypeName.INT) || valueType.equals(TypeName.LONG);
+                })
+                .map(property -> {
+                    final String suffix = property.getSimpleNameWithoutPrefix(CaseFormat.UPPER_CAMEL);
+                    final TypeName valueType = property.getReturnTypeName();
+                    return MethodSpec.methodBuilder(METHOD_PREFIX_INCREMENT + suffix)
+                            .addModifiers(Modifier.PUBLIC)
+                            .returns(valueType)
+                            .addParameter(valueType, PARAMETER_DELTA)
+                            .addCode(CodeBlocks.createLockedBlock(CodeBlock.of("$N.getLock()", FIELD_STORAGE), CodeBlock.builder()
+                                    .addStatement("final $T $N = $N() + $N", valueType, VARIABLE_UPDATED, METHOD_PREFIX_GET + suffix, PARAMETER_DELTA)
+                                    .addStatement("$N().$N($N).apply()", "edit", METHOD_PREFIX_PUT + suffix, VARIABLE_UPDATED)
+                                    .addStatement("return $N", VARIABLE_UPDATED)
+                                    .build()))
+                            .build();
+                })
+                .collect(toList());
+    }
+
+    private CodeBlock buildCompareAndSetBlock(TypeName valueType, CodeBlock getter, CodeBlock changed, CodeBlock editor) {
+        // The operator is invoked and the editor is filled outside of the lock of the storage, so that only the comparison and the apply hold it
+        return CodeBlock.builder()
+                .beginControlFlow("while (true)")
+                .addStatement("final $T $N = $L", valueType, VARIABLE_CURRENT, getter)
+                .addStatement("final $T $N = $N.apply($N)", valueType, VARIABLE_UPDATED, PARAMETER_OPERATOR, VARIABLE_CURRENT)
+                .addStatement("final $T $N = $L", editorClass, VARIABLE_EDITOR, editor)
+                .add(CodeBlocks.createLockedBlock(CodeBlock.of("$N.getLock()", FIELD_STORAGE), CodeBlock.builder()
+                        .beginControlFlow("if ($L)", changed)
+                        .addStatement("continue")
+                        .endControlFlow()
+                        .addStatement("$N.apply()", VARIABLE_EDITOR)
+                        .addStatement("return $N", VARIABLE_UPDATED)
+                        .build()))
+                .endControlFlow()
+                .build();
+    }
+
+    private TypeName getOperatorType(TypeName valueType) {
+        return ParameterizedTypeName.get(ClassName.get(UnaryOperator.class), valueType);
+    }
+
+    private CodeBlock buildNewEditorStatement() {
+        if (preference.isSnapshotCacheEnabled()) {
+            return CodeBlock.of("new $L($N, $N)", editorClass, FIELD_STORAGE, FIELD_SNAPSHOT_CACHE);
+        }
+        return CodeBlock.of("new $L($N)", editorClass, FIELD_STORAGE);
+    }
+
+    private TypeSpec buildChangeListenerSpec() {
+        return TypeSpec.anonymousClassBuilder("")
+                .addSuperinterface(Storage.OnChangeListener.class)
+                .addMethod(MethodSpec.methodBuilder("onChanged")
+                        .addAnnotation(Override.class)
+                        .addModifiers(Modifier.PUBLIC)
+                        .addParameter(ParameterSpec.builder(Storage.class, "storage")
+                                .addAnnotation(NonNull.class)
+                                .build())
+                        .addParameter(ParameterSpec.builder(String.class, PARAMETER_KEY)
+                                .addAnnotation(Nullable.class)
+                                .build())
+                        .addStatement("$N.invalidate()", FIELD_SNAPSHOT_CACHE)
+                        .build())
+                .build();
+    }
+
+    private List<MethodSpec> buildFlushMethodSpecs() {
+        if (!preference.isCoalescingEnabled()) {
+            return Collections.emptyList();
+        }
+        return Collections.singletonList(MethodSpec.methodBuilder(METHOD_NAME_FLUSH)
+                .addModifiers(Modifier.PUBLIC)
+                .addStatement("$N.flush()", FIELD_STORAGE)
+                .build());
+    }
+
+    private MethodSpec buildRegisterMethodSpec() {
+        return MethodSpec.methodBuilder(METHOD_NAME_REGISTER)
+                .addModifiers(Modifier.PUBLIC)
+                .addParameter(ParameterSpec.builder(listenerClass, PARAMETER_LISTENER)
+                        .addAnnotation(NonNull.class)
+                        .build())
+                .addStatement("final $T $N = new $T()", BitSet.class, PARAMETER_PROPERTIES, BitSet.class)
+                .addStatement("$N.set(0, $L)", PARAMETER_PROPERTIES, preference.getPropertyMethods().size())
+                .addStatement("$N($N, $N)", METHOD_NAME_REGISTER, PARAMETER_LISTENER, PARAMETER_PROPERTIES)
+                .build();
+    }
+
+    private MethodSpec buildRegisterKeysMethodSpec() {
+        final List<PropertyMethodMetadata> properties = preference.getPropertyMethods();
+        final Map<String, List<Integer>> indicesByKey = new LinkedHashMap<>();
+        for (int index = 0; index < properties.size(); index++) {
+            indicesByKey.computeIfAbsent(properties.get(index).getPreferenceKey(), key -> new ArrayList<>()).add(index);
+        }
+        final MethodSpec.Builder builder = MethodSpec.methodBuilder(METHOD_NAME_REGISTER)
+                .addModifiers(Modifier.PUBLIC)
+                .addParameter(ParameterSpec.builder(listenerClass, PARAMETER_LISTENER)
+                        .addAnnotation(NonNull.class)
+                        .build())
+                .addParameter(ParameterSpec.builder(String[].class, PARAMETER_KEYS)
+                        .addAnnotation(NonNull.class)
+                        .build())
+                .varargs()
+                .addStatement("final $T $N = new $T()", BitSet.class, PARAMETER_PROPERTIES, BitSet.class)
+                .beginControlFlow("for (final $T $N : $N)", String.class, PARAMETER_KEY, PARAMETER_KEYS)
+                .beginControlFlow("switch ($N)", PARAMETER_KEY);
+        indicesByKey.forEach((key, indices) -> {
+            builder.addCode("case $S:\n$>", key);
+            indices.forEach(index -> builder.addStatement("$N.set($L)", PARAMETER_PROPERTIES, index));
+            builder.addStatement("break")
+                    .addCode("$<");
+        });
+        return builder.addCode("default:\n$>")
+                .addStatement("throw new $T($S + $N + $S)", IllegalArgumentException.class, "Property of key(", PARAMETER_KEY, ") does not exist")
+                .addCode("$<")
+                .endControlFlow()
+                .endControlFlow()
+                .addStatement("$N($N, $N)", METHOD_NAME_REGISTER, PARAMETER_LISTENER, PARAMETER_PROPERTIES)
+                .build();
+    }
+
+    private MethodSpec buildRegisterPropertiesMethodSpec() {
+        return MethodSpec.methodBuilder(METHOD_NAME_REGISTER)
+                .addModifiers(Modifier.PRIVATE)
+                .addParameter(ParameterSpec.builder(listenerClass, PARAMETER_LISTENER)
+                        .addAnnotation(NonNull.class)
+                        .build())
+                .addParameter(ParameterSpec.builder(BitSet.class, PARAMETER_PROPERTIES)
+                        .addAnnotation(NonNull.class)
+                        .build())
+                .beginControlFlow("synchronized ($N)", FIELD_LISTENERS)
+                .beginControlFlow("if ($N.isEmpty())", FIELD_LISTENERS)
+                .addStatement("$N.registerListener($N)", FIELD_STORAGE, FIELD_CHANGE_DISPATCHER)
+                .endControlFlow()
+                .addStatement("$N($N.put($N, $N), -1)", METHOD_NAME_UPDATE_LISTENER_COUNTS, FIELD_LISTENERS, PARAMETER_LISTENER, PARAMETER_PROPERTIES)
+                .addStatement("$N($N, 1)", METHOD_NAME_UPDATE_LISTENER_COUNTS, PARAMETER_PROPERTIES)
+                .endControlFlow()
+                .build();
+    }
+
+    private MethodSpec buildUnregisterMethodSpec() {
+        return MethodSpec.methodBuilder(METHOD_NAME_UNREGISTER)
+                .addModifiers(Modifier.PUBLIC)
+                .addParameter(ParameterSpec.builder(listenerClass, PARAMETER_LISTENER)
+                        .addAnnotation(NonNull.class)
+                        .build())
+                .beginControlFlow("synchronized ($N)", FIELD_LISTENERS)
+                .addStatement("final $T $N = $N.remove($N)", BitSet.class, PARAMETER_PROPERTIES, FIELD_LISTENERS, PARAMETER_LISTENER)
+                .beginControlFlow("if ($N == null)", PARAMETER_PROPERTIES)
+                .addStatement("return")
+                .endControlFlow()
+                .addStatement("$N($N, -1)", METHOD_NAME_UPDATE_LISTENER_COUNTS, PARAMETER_PROPERTIES)
+                .beginControlFlow("if ($N.isEmpty())", FIELD_LISTENERS)
+                .addStatement("$N.unregisterListener($N)", FIELD_STORAGE, FIELD_CHANGE_DISPATCHER)
+                .endControlFlow()
+                .endControlFlow()
+                .build();
+    }
+
+    private MethodSpec buildUpdateListenerCountsMethodSpec() {
+        return MethodSpec.methodBuilder(METHOD_NAME_UPDATE_LISTENER_COUNTS)
+                .addModifiers(Modifier.PRIVATE)
+                .addParameter(ParameterSpec.builder(BitSet.class, PARAMETER_PROPERTIES)
+                        .addAnnotation(Nullable.class)
+                        .build())
+                .addParameter(TypeName.INT, PARAMETER_DELTA_COUNT)
+                .beginControlFlow("if ($N == null)", PARAMETER_PROPERTIES)
+                .addStatement("return")
+                .endControlFlow()
+                .beginControlFlow("for (int $N = $N.nextSetBit(0); $N >= 0; $N = $N.nextSetBit($N + 1))",
+                        VARIABLE_INDEX, PARAMETER_PROPERTIES, VARIABLE_INDEX, VARIABLE_INDEX, PARAMETER_PROPERTIES, VARIABLE_INDEX)
+                .addStatement("$N.addAndGet($N, $N)", FIELD_LISTENER_COUNTS, VARIABLE_INDEX, PARAMETER_DELTA_COUNT)
+                .endControlFlow()
+                .build();
+    }
+
+    private MethodSpec buildDispatchChangeMethodSpec() {
+        final List<PropertyMethodMetadata> properties = preference.getPropertyMethods();
+        final MethodSpec.Builder builder = MethodSpec.methodBuilder(METHOD_NAME_DISPATCH_CHANGE)
+                .addModifiers(Modifier.PRIVATE)
+                .addParameter(ParameterSpec.builder(String.class, PARAMETER_KEY)
+                        .addAnnotation(Nullable.class)
+                        .build());
+
+        builder.beginControlFlow("if ($N.isEmpty())", FIELD_LISTENERS)
+                .addStatement("return")
+                .endControlFlow();
+
+        // All preferences are removed when the key is null
+        if (preference.isBinaryEnabled()) {
+            builder.beginControlFlow("if ($N == null || $N.equals($N))", PARAMETER_KEY, BinaryCodecs.FIELD_KEY, PARAMETER_KEY);
+        } else {
+            builder.beginControlFlow("if ($N == null)", PARAMETER_KEY);
+        }
+        properties.forEach(property -> builder.addStatement("$N()", getDispatchMethodName(property)));
+        builder.addStatement("return")
+                .endControlFlow();
+
+        final Map<String, List<PropertyMethodMetadata>> propertiesByKey = properties.stream()
+                .filter(property -> !property.getEnumSetClass().isPresent())
+                .collect(groupingBy(PropertyMethodMetadata::getPreferenceKey, LinkedHashMap::new, toList()));
+        builder.beginControlFlow("switch ($N)", PARAMETER_KEY);
+        propertiesByKey.forEach((key, group) -> {
+            builder.addCode("case $S:\n$>", key);
+            group.forEach(property -> builder.addStatement("$N()", getDispatchMethodName(property)));
+            builder.addStatement("break")
+                    .addCode("$<");
+        });
+        // A packed word notifies every property which is assigned to it
+        PackedBits.groupByWord(properties).forEach((word, group) -> {
+            builder.addCode("case $N:\n$>", PackedBits.getKeyName(word));
+            group.forEach(property -> builder.addStatement("$N()", getDispatchMethodName(property)));
+            builder.addStatement("break")
+                    .addCode("$<");
+        });
+        return builder.endControlFlow()
+                .build();
+    }
+
+    private List<MethodSpec> buildDispatchPropertyMethodSpecs() {
+        final List<PropertyMethodMetadata> properties = preference.getPropertyMethods();
+        final List<MethodSpec> methods = new ArrayList<>();
+        for (int index = 0; index < properties.size(); index++) {
+            final PropertyMethodMetadata property = properties.get(index);
+            final String variableName = property.getSimpleNameWithoutPrefix(CaseFormat.LOWER_CAMEL);
+            final String getterName = METHOD_PREFIX_GET + property.getSimpleNameWithoutPrefix(CaseFormat.UPPER_CAMEL);
+            final TypeName entryType = ParameterizedTypeName.get(ClassName.get(Map.Entry.class), listenerClass, ClassName.get(BitSet.class));
+            methods.add(MethodSpec.methodBuilder(getDispatchMethodName(property))
+                    .addModifiers(Modifier.PRIVATE)
+                    .beginControlFlow("if ($N.get($L) == 0)", FIELD_LISTENER_COUNTS, index)
+                    .addCode("// The value is neither read nor converted unless a listener of the property is registered\n")
+                    .addStatement("return")
+                    .endControlFlow()
+                    .addStatement("final $T $N = $N()", property.getReturnTypeName(), variableName, getterName)
+                    .beginControlFlow("for (final $T $N : $N.entrySet())", entryType, VARIABLE_ENTRY, FIELD_LISTENERS)
+                    .beginControlFlow("if ($N.getValue().get($L))", VARIABLE_ENTRY, index)
+                    .addStatement("$N.getKey().$N($N)", VARIABLE_ENTRY, ListenerClassFactory.getCallbackName(property), variableName)
+                    .endControlFlow()
+                    .endControlFlow()
+                    .build());
+        }
+        return methods;
+    }
+
+    private String getDispatchMethodName(PropertyMethodMetadata property) {
+        return METHOD_PREFIX_DISPATCH + property.getSimpleNameWithoutPrefix(CaseFormat.UPPER_CAMEL) + METHOD_SUFFIX_CHANGED;
+    }
+
+    private TypeSpec buildChangeDispatcherSpec() {
+        return TypeSpec.anonymousClassBuilder("")
+                .addSuperinterface(Storage.OnChangeListener.class)
+                .addMethod(MethodSpec.methodBuilder("onChanged")
+                        .addAnnotation(Override.class)
+                        .addModifiers(Modifier.PUBLIC)
+                        .addParameter(ParameterSpec.builder(Storage.class, "storage")
+                                .addAnnotation(NonNull.class)
+                                .build())
+                        .addParameter(ParameterSpec.builder(String.class, PARAMETER_KEY)
+                                .addAnnotation(Nullable.class)
+                                .build())
+                        .addStatement("$N($N)", METHOD_NAME_DISPATCH_CHANGE, PARAMETER_KEY)
+                        .build())
+                .build();
+    }
+
+    private TypeName getStorageType() {
+        if (preference.isCoalescingEnabled()) {
+            return ClassName.get(CoalescingStorage.class);
+        }
+        return ClassName.get(Storage.class);
+    }
+
+    private TypeName getListenersType() {
+        return ParameterizedTypeName.get(ClassName.get(Map.class), listenerClass, ClassName.get(BitSet.class));
+    }
+
+    private TypeName getSnapshotCacheType() {
+        return ParameterizedTypeName.get(ClassName.get(SnapshotCache.class), modelClass);
+    }
+
+    private MethodSpec buildGetStorageMethodSpec() {
+        return MethodSpec.methodBuilder("getStorage")
+                .addAnnotation(NonNull.class)
+                .addModifiers(Modifier.PUBLIC)
+                .returns(Storage.class)
+                .addStatement("return $L", FIELD_STORAGE)
                 .build();
     }
 
     private MethodSpec buildGetSharedPreferencesMethodSpec() {
         return MethodSpec.methodBuilder("getSharedPreferences")
+                .addJavadoc("@deprecated Use {@link #getStorage()} instead. Values which are coalesced, stored into other files or packed\n")
+                .addJavadoc("are not read or written as they are through {@code SharedPreferences}.\n")
+                .addAnnotation(Deprecated.class)
                 .addAnnotation(NonNull.class)
                 .addModifiers(Modifier.PUBLIC)
                 .returns(SharedPreferences.class)
-                .addStatement("return $L", FIELD_PREFERENCES)
+                .addStatement("return $N", FIELD_PREFERENCES)
                 .build();
     }
 }
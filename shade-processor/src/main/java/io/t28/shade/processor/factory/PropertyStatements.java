@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2016 Tatsuya Maki
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.t28.shade.processor.factory;
+
+import android.annotation.SuppressLint;
+
+import com.squareup.javapoet.CodeBlock;
+
+import java.util.Optional;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import io.t28.shade.processor.metadata.ConverterClassMetadata;
+import io.t28.shade.processor.metadata.EnumClassMetadata;
+import io.t28.shade.processor.metadata.PackedSlot;
+import io.t28.shade.processor.metadata.PropertyMethodMetadata;
+import io.t28.shade.processor.util.SupportedType;
+
+@SuppressLint("NewApi")
+class PropertyStatements {
+    private PropertyStatements() {
+    }
+
+    @Nonnull
+    static CodeBlock buildLoadStatement(@Nonnull PropertyMethodMetadata property, @Nonnull String variable) {
+        final Optional<PackedSlot> slot = property.getPackedSlot();
+        if (slot.isPresent()) {
+            return PackedBits.buildLoadStatement(property, slot.get(), variable);
+        }
+        final CodeBlock statement = getSupportedType(property).buildLoadStatement(
+                variable,
+                property.getPreferenceKey(),
+                getSupportedDefaultValue(property)
+        );
+        return buildConvertStatement(property, statement);
+    }
+
+    @Nonnull
+    static CodeBlock buildContainsStatement(@Nonnull PropertyMethodMetadata property, @Nonnull String variable) {
+        final Optional<PackedSlot> slot = property.getPackedSlot();
+        if (slot.isPresent()) {
+            return PackedBits.buildContainsStatement(property, slot.get(), variable);
+        }
+        return CodeBlock.of("$N.contains($S)", variable, property.getPreferenceKey());
+    }
+
+    @Nonnull
+    static CodeBlock buildDefaultStatement(@Nonnull PropertyMethodMetadata property) {
+        final Optional<EnumClassMetadata> enumClass = property.getEnumClass();
+        if (enumClass.isPresent()) {
+            return EnumCodecs.buildConstantStatement(enumClass.get(), getDefaultConstantName(property, enumClass.get()));
+        }
+        final CodeBlock statement = getSupportedType(property).buildDefaultValue(getSupportedDefaultValue(property));
+        return buildConvertStatement(property, statement);
+    }
+
+    @Nonnull
+    static SupportedType getSupportedType(@Nonnull PropertyMethodMetadata property) {
+        final Optional<EnumClassMetadata> enumClass = property.getEnumClass();
+        if (enumClass.isPresent()) {
+            return EnumCodecs.getSupportedType(enumClass.get());
+        }
+        final ConverterClassMetadata converter = property.getConverterClass();
+        if (converter.isDefault()) {
+            return SupportedType.find(property.getReturnTypeName());
+        }
+        return SupportedType.find(converter.getSupportedType());
+    }
+
+    /**
+     * Return the default value as a literal of the supported type
+     *
+     * @param property The property
+     * @return The default value, or {@code null} if the default of the supported type is used
+     */
+    @Nullable
+    static String getSupportedDefaultValue(@Nonnull PropertyMethodMetadata property) {
+        final Optional<EnumClassMetadata> enumClass = property.getEnumClass();
+        if (enumClass.isPresent()) {
+            return EnumCodecs.getSupportedValue(enumClass.get(), getDefaultConstantName(property, enumClass.get()));
+        }
+        return property.getDefaultValue().orElse(null);
+    }
+
+    @Nonnull
+    static CodeBlock buildConvertStatement(@Nonnull PropertyMethodMetadata property, @Nonnull CodeBlock statement) {
+        final Optional<EnumClassMetadata> enumClass = property.getEnumClass();
+        if (enumClass.isPresent()) {
+            return EnumCodecs.buildDecodeStatement(enumClass.get(), statement, getDefaultConstantName(property, enumClass.get()));
+        }
+        final ConverterClassMetadata converter = property.getConverterClass();
+        if (converter.isDefault()) {
+            return statement;
+        }
+        return CodeBlock.of("$L.toConverted($L)", ConverterInstances.buildInstanceStatement(converter), statement);
+    }
+
+    @Nonnull
+    static CodeBlock buildSupportedStatement(@Nonnull PropertyMethodMetadata property, @Nonnull CodeBlock value) {
+        final Optional<EnumClassMetadata> enumClass = property.getEnumClass();
+        if (enumClass.isPresent()) {
+            return EnumCodecs.buildEncodeStatement(enumClass.get(), value);
+        }
+        final ConverterClassMetadata converter = property.getConverterClass();
+        if (converter.isDefault()) {
+            return value;
+        }
+        return CodeBlock.of("$L.toSupported($L)", ConverterInstances.buildInstanceStatement(converter), value);
+    }
+
+    @Nonnull
+    private static String getDefaultConstantName(@Nonnull PropertyMethodMetadata property, @Nonnull EnumClassMetadata enumClass) {
+        // The first constant is used when the default value is not specified
+        return property.getDefaultValue().orElseGet(() -> enumClass.getConstantNames().get(0));
+    }
+}
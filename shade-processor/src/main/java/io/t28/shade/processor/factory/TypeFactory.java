@@ -33,6 +33,11 @@ public abstract class TypeFactory implements Factory<TypeSpec> {
     @Nonnull
     protected abstract String getName();
 
+    @Nonnull
+    protected TypeSpec.Kind getKind() {
+        return TypeSpec.Kind.CLASS;
+    }
+
     @Nonnull
     protected List<AnnotationSpec> getAnnotations() {
         return Collections.emptyList();
@@ -71,7 +76,12 @@ public abstract class TypeFactory implements Factory<TypeSpec> {
     @Nonnull
     @Override
     public TypeSpec create() {
-        final TypeSpec.Builder builder = TypeSpec.classBuilder(getName());
+        final TypeSpec.Builder builder;
+        if (getKind() == TypeSpec.Kind.INTERFACE) {
+            builder = TypeSpec.interfaceBuilder(getName());
+        } else {
+            builder = TypeSpec.classBuilder(getName());
+        }
         builder.addAnnotations(getAnnotations());
         getModifiers().forEach(builder::addModifiers);
         getSuperClass().ifPresent(builder::superclass);
@@ -29,6 +29,8 @@ import javax.lang.model.element.TypeElement;
 import javax.lang.model.util.Elements;
 
 import io.t28.shade.processor.factory.EditorClassFactory;
+import io.t28.shade.processor.factory.LazyModelClassFactory;
+import io.t28.shade.processor.factory.ListenerClassFactory;
 import io.t28.shade.processor.factory.ModelClassFactory;
 import io.t28.shade.processor.factory.PreferenceClassFactory;
 import io.t28.shade.processor.factory.TypeFactory;
@@ -44,7 +46,9 @@ import io.t28.shade.processor.validation.Validator;
 public class PreferenceModule implements Module {
     private static final String PREFERENCE_SUFFIX = "Preferences";
     private static final String MODEL_IMPL_SUFFIX = "Impl";
+    private static final String LAZY_MODEL_IMPL_SUFFIX = "LazyImpl";
     private static final String EDITOR_CLASS_NAME = "Editor";
+    private static final String LISTENER_CLASS_NAME = "OnChangeListener";
 
     private final TypeElement element;
 
@@ -61,9 +65,15 @@ public class PreferenceModule implements Module {
         binder.bind(TypeFactory.class)
                 .annotatedWith(Names.named("Model"))
                 .to(ModelClassFactory.class);
+        binder.bind(TypeFactory.class)
+                .annotatedWith(Names.named("LazyModel"))
+                .to(LazyModelClassFactory.class);
         binder.bind(TypeFactory.class)
                 .annotatedWith(Names.named("Editor"))
                 .to(EditorClassFactory.class);
+        binder.bind(TypeFactory.class)
+                .annotatedWith(Names.named("Listener"))
+                .to(ListenerClassFactory.class);
 
         // Validator bindings
         binder.bind(new TypeLiteral<Validator<PreferenceClassMetadata>>(){})
@@ -109,10 +119,24 @@ public class PreferenceModule implements Module {
         return ClassName.bestGuess(element.getSimpleName().toString() + MODEL_IMPL_SUFFIX);
     }
 
+    @Nonnull
+    @Provides
+    @Named("LazyModelImpl")
+    public ClassName provideLazyModelImplClass(@Nonnull TypeElement element) {
+        return ClassName.bestGuess(element.getSimpleName().toString() + LAZY_MODEL_IMPL_SUFFIX);
+    }
+
     @Nonnull
     @Provides
     @Named("Editor")
     public ClassName provideEditorClass() {
         return ClassName.bestGuess(EDITOR_CLASS_NAME);
     }
+
+    @Nonnull
+    @Provides
+    @Named("Listener")
+    public ClassName provideListenerClass() {
+        return ClassName.bestGuess(LISTENER_CLASS_NAME);
+    }
 }
@@ -15,15 +15,24 @@
  */
 package io.t28.shade.processor.metadata;
 
+import com.google.common.base.CaseFormat;
+import com.google.common.collect.ImmutableMap;
 import com.squareup.javapoet.ClassName;
 import com.squareup.javapoet.TypeName;
 
 import java.util.List;
+import java.util.Map;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.lang.model.element.TypeElement;
 
+import io.t28.shade.annotation.Stateful;
+import io.t28.shade.converter.BooleanConverter;
 import io.t28.shade.converter.Converter;
+import io.t28.shade.converter.FloatConverter;
+import io.t28.shade.converter.IntConverter;
+import io.t28.shade.converter.LongConverter;
 import io.t28.shade.processor.util.TypeElements;
 import io.t28.shade.processor.util.TypeNames;
 
@@ -31,12 +40,26 @@ public class ConverterClassMetadata extends ClassMetadata {
     private static final int CONVERTED_TYPE_INDEX = 0;
     private static final int SUPPORTED_TYPE_INDEX = 1;
     private static final ClassName DEFAULT_CLASS = ClassName.get(Converter.class);
+    private static final Map<Class<?>, TypeName> PRIMITIVE_CONVERTERS = ImmutableMap.of(
+            BooleanConverter.class, TypeName.BOOLEAN,
+            FloatConverter.class, TypeName.FLOAT,
+            IntConverter.class, TypeName.INT,
+            LongConverter.class, TypeName.LONG
+    );
 
     private final TypeName supportedType;
     private final TypeName convertedType;
+    private final boolean stateful;
+    private final String instanceName;
 
     ConverterClassMetadata(@Nonnull TypeElement element) {
+        this(element, null);
+    }
+
+    ConverterClassMetadata(@Nonnull TypeElement element, @Nullable String instanceName) {
         super(element);
+        this.instanceName = instanceName;
+        this.stateful = element.getAnnotation(Stateful.class) != null;
 
         final ClassName className = ClassName.get(element);
         if (DEFAULT_CLASS.equals(className)) {
@@ -44,15 +67,50 @@ public class ConverterClassMetadata extends ClassMetadata {
             this.convertedType = TypeName.VOID;
             return;
         }
-        final List<TypeName> typeNames = TypeElements.findGenericTypes(element, Converter.class.getSimpleName());
-        this.supportedType = TypeNames.unbox(typeNames.get(SUPPORTED_TYPE_INDEX));
-        this.convertedType = TypeNames.unbox(typeNames.get(CONVERTED_TYPE_INDEX));
+        final List<TypeName> typeNames = TypeElements.findGenericTypes(element, Converter.class);
+        if (!typeNames.isEmpty()) {
+            this.supportedType = TypeNames.unbox(typeNames.get(SUPPORTED_TYPE_INDEX));
+            this.convertedType = TypeNames.unbox(typeNames.get(CONVERTED_TYPE_INDEX));
+            return;
+        }
+
+        // Primitive converters receive and return the supported value without boxing
+        TypeName primitiveType = TypeName.VOID;
+        TypeName valueType = TypeName.VOID;
+        for (final Map.Entry<Class<?>, TypeName> entry : PRIMITIVE_CONVERTERS.entrySet()) {
+            final List<TypeName> found = TypeElements.findGenericTypes(element, entry.getKey());
+            if (!found.isEmpty()) {
+                primitiveType = entry.getValue();
+                valueType = TypeNames.unbox(found.get(CONVERTED_TYPE_INDEX));
+                break;
+            }
+        }
+        this.supportedType = primitiveType;
+        this.convertedType = valueType;
     }
 
     public boolean isDefault() {
         return getClassName().equals(DEFAULT_CLASS);
     }
 
+    public boolean isStateful() {
+        return stateful;
+    }
+
+    /**
+     * Return the name of the shared instance of the converter
+     *
+     * @return The name which is assigned by the preference class, or the name derived from the simple names
+     */
+    @Nonnull
+    public String getInstanceName() {
+        if (instanceName != null) {
+            return instanceName;
+        }
+        final String simpleNames = String.join("", getClassName().simpleNames());
+        return CaseFormat.UPPER_CAMEL.to(CaseFormat.UPPER_UNDERSCORE, simpleNames);
+    }
+
     @Nonnull
     public TypeName getSupportedType() {
         return supportedType;
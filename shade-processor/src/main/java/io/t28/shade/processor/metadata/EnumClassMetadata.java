@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2016 Tatsuya Maki
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package io.t28.shade.processor.metadata;
+
+import android.annotation.SuppressLint;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import javax.annotation.Nonnull;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+
+import io.t28.shade.annotation.EnumCode;
+
+@SuppressLint("NewApi")
+public class EnumClassMetadata extends ClassMetadata {
+    private final Map<String, Optional<Integer>> constants;
+
+    EnumClassMetadata(@Nonnull TypeElement element) {
+        super(element);
+        this.constants = new LinkedHashMap<>();
+        for (final Element enclosed : element.getEnclosedElements()) {
+            if (enclosed.getKind() != ElementKind.ENUM_CONSTANT) {
+                continue;
+            }
+            final EnumCode code = enclosed.getAnnotation(EnumCode.class);
+            constants.put(enclosed.getSimpleName().toString(), Optional.ofNullable(code).map(EnumCode::value));
+        }
+    }
+
+    @Nonnull
+    public List<String> getConstantNames() {
+        return new ArrayList<>(constants.keySet());
+    }
+
+    public boolean hasCodes() {
+        return constants.values()
+                .stream()
+                .anyMatch(Optional::isPresent);
+    }
+
+    @Nonnull
+    public Optional<Integer> getCode(@Nonnull String constantName) {
+        return constants.getOrDefault(constantName, Optional.empty());
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2016 Tatsuya Maki
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package io.t28.shade.processor.metadata;
+
+/**
+ * The bits of a packed {@code long} value which are assigned to a property
+ */
+public class PackedSlot {
+    private final int word;
+    private final int shift;
+    private final int width;
+
+    PackedSlot(int word, int shift, int width) {
+        this.word = word;
+        this.shift = shift;
+        this.width = width;
+    }
+
+    public int getWord() {
+        return word;
+    }
+
+    public int getShift() {
+        return shift;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public long getMask() {
+        final long bits = width == Long.SIZE ? -1L : (1L << width) - 1L;
+        return bits << shift;
+    }
+}
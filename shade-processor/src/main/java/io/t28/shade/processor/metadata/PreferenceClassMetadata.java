@@ -19,16 +19,27 @@ import android.annotation.SuppressLint;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Strings;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.TypeName;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import javax.annotation.Nonnull;
 import javax.inject.Inject;
+import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.MirroredTypeException;
 import javax.lang.model.util.Elements;
 
 import io.t28.shade.annotation.Preferences;
 import io.t28.shade.annotation.Property;
+import io.t28.shade.processor.util.TypeElements;
+import io.t28.shade.storage.StorageFactory;
 
 import static java.util.stream.Collectors.toList;
 
@@ -66,12 +77,106 @@ public class PreferenceClassMetadata extends ClassMetadata {
         return annotation.mode();
     }
 
+    public boolean isSnapshotCacheEnabled() {
+        return annotation.cacheSnapshot();
+    }
+
+    public boolean isCoalescingEnabled() {
+        return annotation.coalesceWindow() > 0;
+    }
+
+    public long getCoalesceWindow() {
+        return annotation.coalesceWindow();
+    }
+
+    public boolean isBinaryEnabled() {
+        return annotation.binary();
+    }
+
+    public boolean isPackedEnabled() {
+        return annotation.packed();
+    }
+
+    public boolean isDefaultStorage() {
+        return getStorageFactoryClass().equals(ClassName.get(StorageFactory.class));
+    }
+
+    @Nonnull
+    public ClassName getStorageFactoryClass() {
+        try {
+            final Class<?> storageClass = annotation.storage();
+            return ClassName.get(storageClass);
+        } catch (MirroredTypeException e) {
+            final TypeElement element = TypeElements.toElement(e.getTypeMirror());
+            return ClassName.get(element);
+        }
+    }
+
     @Nonnull
     public List<PropertyMethodMetadata> getPropertyMethods() {
-        return getMethods()
+        final List<ExecutableElement> methods = getMethods()
                 .stream()
                 .filter(method -> method.getAnnotation(Property.class) != null)
-                .map(method -> new PropertyMethodMetadata(method, method.getAnnotation(Property.class), elementUtils))
                 .collect(toList());
+        if (!isPackedEnabled()) {
+            return assignConverterInstanceNames(methods.stream()
+                    .map(method -> new PropertyMethodMetadata(method, method.getAnnotation(Property.class), elementUtils))
+                    .collect(toList()));
+        }
+
+        // Bits are assigned in declaration order, and a property which does not fit in the current word starts the next one.
+        // The layout is stored with the words, so that stored bits are moved by key when properties are reordered.
+        final List<PropertyMethodMetadata> properties = new ArrayList<>(methods.size());
+        int word = 0;
+        int shift = 0;
+        for (final ExecutableElement method : methods) {
+            final Property annotation = method.getAnnotation(Property.class);
+            final PropertyMethodMetadata property = new PropertyMethodMetadata(method, annotation, elementUtils);
+            final int width = getPackedWidth(property);
+            if (width == 0) {
+                properties.add(property);
+                continue;
+            }
+            if (shift + width > Long.SIZE) {
+                word++;
+                shift = 0;
+            }
+            properties.add(new PropertyMethodMetadata(method, annotation, elementUtils, new PackedSlot(word, shift, width)));
+            shift += width;
+        }
+        return assignConverterInstanceNames(properties);
+    }
+
+    private static List<PropertyMethodMetadata> assignConverterInstanceNames(List<PropertyMethodMetadata> properties) {
+        // Converters whose simple names are the same are distinguished by a suffix in declaration order
+        final Map<ClassName, String> names = new HashMap<>();
+        final Set<String> assigned = new HashSet<>();
+        return properties.stream()
+                .map(property -> {
+                    final ConverterClassMetadata converter = property.getConverterClass();
+                    final String name = names.computeIfAbsent(converter.getClassName(), className -> {
+                        final String base = converter.getInstanceName();
+                        String unique = base;
+                        for (int suffix = 2; !assigned.add(unique); suffix++) {
+                            unique = base + "_" + suffix;
+                        }
+                        return unique;
+                    });
+                    return property.withConverterInstanceName(name);
+                })
+                .collect(toList());
+    }
+
+    private static int getPackedWidth(PropertyMethodMetadata property) {
+        if (property.isCold()) {
+            return 0;
+        }
+        if (property.getReturnTypeName().equals(TypeName.BOOLEAN) && property.getConverterClass().isDefault()) {
+            return 1;
+        }
+        return property.getEnumSetClass()
+                .map(enumClass -> enumClass.getConstantNames().size())
+                .filter(size -> size > 0 && size <= Long.SIZE)
+                .orElse(0);
     }
 }
@@ -17,17 +17,24 @@ package io.t28.shade.processor.metadata;
 
 import android.annotation.SuppressLint;
 
+import com.google.auto.common.MoreTypes;
 import com.google.common.base.CaseFormat;
 import com.google.common.base.Strings;
 
+import java.util.EnumSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.type.MirroredTypeException;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
 import javax.lang.model.util.Elements;
 
 import io.t28.shade.annotation.Property;
@@ -40,11 +47,30 @@ public class PropertyMethodMetadata extends MethodMetadata {
 
     private final Property annotation;
     private final Elements elementUtils;
+    private final PackedSlot packedSlot;
+    private final String converterInstanceName;
 
     PropertyMethodMetadata(@Nonnull ExecutableElement element, @Nonnull Property annotation, @Nonnull Elements elementUtils) {
+        this(element, annotation, elementUtils, null);
+    }
+
+    PropertyMethodMetadata(@Nonnull ExecutableElement element,
+                           @Nonnull Property annotation,
+                           @Nonnull Elements elementUtils,
+                           @Nullable PackedSlot packedSlot) {
+        this(element, annotation, elementUtils, packedSlot, null);
+    }
+
+    private PropertyMethodMetadata(@Nonnull ExecutableElement element,
+                                   @Nonnull Property annotation,
+                                   @Nonnull Elements elementUtils,
+                                   @Nullable PackedSlot packedSlot,
+                                   @Nullable String converterInstanceName) {
         super(element);
         this.annotation = annotation;
         this.elementUtils = elementUtils;
+        this.packedSlot = packedSlot;
+        this.converterInstanceName = converterInstanceName;
     }
 
     @Nonnull
@@ -70,16 +96,88 @@ public class PropertyMethodMetadata extends MethodMetadata {
         return Optional.of(annotation.defValue()).filter(value -> !value.isEmpty());
     }
 
+    public boolean isCold() {
+        return annotation.cold();
+    }
+
+    public boolean isExternal() {
+        return annotation.external();
+    }
+
+    /**
+     * Return the metadata of the enum which is stored natively
+     *
+     * @return The enum metadata, or empty if the property does not return an enum or uses a converter
+     */
+    @Nonnull
+    public Optional<EnumClassMetadata> getEnumClass() {
+        final TypeMirror returnType = getReturnType();
+        if (returnType.getKind() != TypeKind.DECLARED || !getConverterClass().isDefault()) {
+            return Optional.empty();
+        }
+        final TypeElement element = TypeElements.toElement(returnType);
+        if (element.getKind() != ElementKind.ENUM) {
+            return Optional.empty();
+        }
+        return Optional.of(new EnumClassMetadata(element));
+    }
+
+    /**
+     * Return the metadata of the enum which is the element type of the {@code EnumSet}
+     *
+     * @return The enum metadata, or empty if the property does not return an {@code EnumSet} or uses a converter
+     */
+    @Nonnull
+    public Optional<EnumClassMetadata> getEnumSetClass() {
+        final TypeMirror returnType = getReturnType();
+        if (returnType.getKind() != TypeKind.DECLARED || !getConverterClass().isDefault()) {
+            return Optional.empty();
+        }
+        if (!MoreTypes.isTypeOf(EnumSet.class, returnType)) {
+            return Optional.empty();
+        }
+        final List<? extends TypeMirror> typeArguments = MoreTypes.asDeclared(returnType).getTypeArguments();
+        if (typeArguments.size() != 1 || typeArguments.get(0).getKind() != TypeKind.DECLARED) {
+            return Optional.empty();
+        }
+        final TypeElement element = TypeElements.toElement(typeArguments.get(0));
+        if (element.getKind() != ElementKind.ENUM) {
+            return Optional.empty();
+        }
+        return Optional.of(new EnumClassMetadata(element));
+    }
+
+    /**
+     * Return the bits which are assigned to the property
+     *
+     * @return The assigned bits, or empty if the property is not packed
+     */
+    @Nonnull
+    public Optional<PackedSlot> getPackedSlot() {
+        return Optional.ofNullable(packedSlot);
+    }
+
     @Nonnull
     public ConverterClassMetadata getConverterClass() {
         try {
             final Class<?> converterClass = annotation.converter();
             final String canonicalName = converterClass.getCanonicalName();
             final TypeElement element = elementUtils.getTypeElement(canonicalName);
-            return new ConverterClassMetadata(element);
+            return new ConverterClassMetadata(element, converterInstanceName);
         } catch (MirroredTypeException e) {
             final TypeElement element = TypeElements.toElement(e.getTypeMirror());
-            return new ConverterClassMetadata(element);
+            return new ConverterClassMetadata(element, converterInstanceName);
         }
     }
+
+    /**
+     * Return the metadata whose converter instance has the specified name
+     *
+     * @param name The name of the converter instance which is unique in the generated class
+     * @return The metadata of the same property
+     */
+    @Nonnull
+    PropertyMethodMetadata withConverterInstanceName(@Nonnull String name) {
+        return new PropertyMethodMetadata(getMethod(), annotation, elementUtils, packedSlot, name);
+    }
 }
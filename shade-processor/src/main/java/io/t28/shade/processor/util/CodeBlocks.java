@@ -16,15 +16,20 @@
 package io.t28.shade.processor.util;
 
 import com.google.auto.common.MoreTypes;
+import com.squareup.javapoet.ArrayTypeName;
 import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.TypeName;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Collector;
 
 import javax.annotation.Nonnull;
 import javax.lang.model.type.TypeKind;
@@ -32,6 +37,8 @@ import javax.lang.model.type.TypeMirror;
 
 @SuppressWarnings("WeakerAccess")
 public class CodeBlocks {
+    private static final String VARIABLE_LOCK = "lock";
+
     private CodeBlocks() {
     }
 
@@ -42,16 +49,115 @@ public class CodeBlocks {
         }
 
         if (MoreTypes.isTypeOf(List.class, type)) {
-            return CodeBlock.of("new $T<>($N)", ArrayList.class, variable);
+            return CodeBlock.of("$T.unmodifiableList(new $T<>($N))", Collections.class, ArrayList.class, variable);
         }
 
         if (MoreTypes.isTypeOf(Set.class, type)) {
-            return CodeBlock.of("new $T<>($N)", HashSet.class, variable);
+            return CodeBlock.of("$T.unmodifiableSet(new $T<>($N))", Collections.class, HashSet.class, variable);
         }
 
         if (MoreTypes.isTypeOf(Map.class, type)) {
-            return CodeBlock.of("new $T<>($N)", HashMap.class, variable);
+            return CodeBlock.of("$T.unmodifiableMap(new $T<>($N))", Collections.class, HashMap.class, variable);
+        }
+        return CodeBlock.of("$N", variable);
+    }
+
+    @Nonnull
+    public static CodeBlock createGetterStatement(@Nonnull TypeMirror type, @Nonnull String variable) {
+        if (type.getKind() == TypeKind.ARRAY) {
+            return CodeBlock.of("$T.copyOf($N, $N.length)", Arrays.class, variable, variable);
         }
         return CodeBlock.of("$N", variable);
     }
+
+    @Nonnull
+    public static CodeBlock createNotEqualsStatement(@Nonnull TypeName type, @Nonnull CodeBlock value, @Nonnull CodeBlock other) {
+        if (type.equals(TypeName.FLOAT)) {
+            return CodeBlock.of("$T.compare($L, $L) != 0", Float.class, value, other);
+        }
+
+        if (type.equals(TypeName.DOUBLE)) {
+            return CodeBlock.of("$T.compare($L, $L) != 0", Double.class, value, other);
+        }
+
+        if (type.isPrimitive()) {
+            return CodeBlock.of("$L != $L", value, other);
+        }
+
+        if (type instanceof ArrayTypeName) {
+            return CodeBlock.of("!$T.equals($L, $L)", Arrays.class, value, other);
+        }
+        return CodeBlock.of("$L == null ? $L != null : !$L.equals($L)", value, other, value, other);
+    }
+
+    @Nonnull
+    public static CodeBlock createHashCodeStatement(@Nonnull TypeName type, @Nonnull CodeBlock value) {
+        if (type.equals(TypeName.BOOLEAN)) {
+            return CodeBlock.of("($L ? 1231 : 1237)", value);
+        }
+
+        if (type.equals(TypeName.LONG)) {
+            return CodeBlock.of("(int) ($L ^ ($L >>> 32))", value, value);
+        }
+
+        if (type.equals(TypeName.FLOAT)) {
+            return CodeBlock.of("$T.floatToIntBits($L)", Float.class, value);
+        }
+
+        if (type.equals(TypeName.DOUBLE)) {
+            final CodeBlock bits = CodeBlock.of("$T.doubleToLongBits($L)", Double.class, value);
+            return CodeBlock.of("(int) ($L ^ ($L >>> 32))", bits, bits);
+        }
+
+        if (type.isPrimitive()) {
+            return CodeBlock.of("$L", value);
+        }
+
+        if (type instanceof ArrayTypeName) {
+            return CodeBlock.of("$T.hashCode($L)", Arrays.class, value);
+        }
+        return CodeBlock.of("($L != null ? $L.hashCode() : 0)", value, value);
+    }
+
+    /**
+     * Create a block which runs the body while holding the lock
+     *
+     * @param lock The statement which returns the lock
+     * @param body The statements which are run while holding the lock
+     * @return The block which acquires and releases the lock
+     */
+    @Nonnull
+    public static CodeBlock createLockedBlock(@Nonnull CodeBlock lock, @Nonnull CodeBlock body) {
+        return CodeBlock.builder()
+                .addStatement("final $T $N = $L", Lock.class, VARIABLE_LOCK, lock)
+                .addStatement("$N.lock()", VARIABLE_LOCK)
+                .beginControlFlow("try")
+                .add(body)
+                .nextControlFlow("finally")
+                .addStatement("$N.unlock()", VARIABLE_LOCK)
+                .endControlFlow()
+                .build();
+    }
+
+    @Nonnull
+    public static Collector<CodeBlock, ?, CodeBlock> joining(@Nonnull String delimiter) {
+        return Collector.<CodeBlock, List<CodeBlock>, CodeBlock>of(
+                ArrayList::new,
+                List::add,
+                (left, right) -> {
+                    left.addAll(right);
+                    return left;
+                },
+                blocks -> {
+                    final CodeBlock.Builder builder = CodeBlock.builder();
+                    for (int i = 0; i < blocks.size(); i++) {
+                        if (i > 0) {
+                            builder.add(delimiter);
+                        }
+                        builder.add(blocks.get(i));
+                    }
+                    return builder.build();
+                }
+        );
+    }
 }
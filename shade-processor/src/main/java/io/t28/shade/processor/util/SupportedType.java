@@ -18,12 +18,14 @@ package io.t28.shade.processor.util;
 import android.annotation.SuppressLint;
 import android.support.annotation.NonNull;
 
+import com.squareup.javapoet.ArrayTypeName;
 import com.squareup.javapoet.ClassName;
 import com.squareup.javapoet.CodeBlock;
 import com.squareup.javapoet.ParameterizedTypeName;
 import com.squareup.javapoet.TypeName;
 
 import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Stream;
@@ -31,6 +33,8 @@ import java.util.stream.Stream;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
+import io.t28.shade.internal.ArrayCodec;
+
 @SuppressLint("NewApi")
 public enum SupportedType {
     BOOLEAN(TypeName.BOOLEAN) {
@@ -40,10 +44,22 @@ public enum SupportedType {
         @Override
         public CodeBlock buildLoadStatement(@Nonnull String variable, @Nonnull String key, @Nullable String defValue) {
             return CodeBlock.builder()
-                    .add("$N.getBoolean($S, $L)", variable, key, Optional.ofNullable(defValue).map(Boolean::valueOf).orElse(DEFAULT))
+                    .add("$N.getBoolean($S, $L)", variable, key, buildDefaultValue(defValue))
                     .build();
         }
 
+        @Nonnull
+        @Override
+        public CodeBlock buildDefaultValue(@Nullable String defValue) {
+            return CodeBlock.of("$L", Optional.ofNullable(defValue).map(Boolean::valueOf).orElse(DEFAULT));
+        }
+
+        @Override
+        public boolean isValidDefaultValue(@Nonnull String defValue) {
+            // Boolean.valueOf() parses any other value as false
+            return Boolean.TRUE.toString().equalsIgnoreCase(defValue) || Boolean.FALSE.toString().equalsIgnoreCase(defValue);
+        }
+
         @NonNull
         @Override
         public CodeBlock buildSaveStatement(@Nonnull String variable, @Nonnull String key, @Nonnull CodeBlock value) {
@@ -59,10 +75,26 @@ public enum SupportedType {
         @Override
         public CodeBlock buildLoadStatement(@Nonnull String variable, @Nonnull String key, @Nullable String defValue) {
             return CodeBlock.builder()
-                    .add("$N.getFloat($S, $Lf)", variable, key, Optional.ofNullable(defValue).map(Float::valueOf).orElse(DEFAULT))
+                    .add("$N.getFloat($S, $L)", variable, key, buildDefaultValue(defValue))
                     .build();
         }
 
+        @Nonnull
+        @Override
+        public CodeBlock buildDefaultValue(@Nullable String defValue) {
+            return CodeBlock.of("$Lf", Optional.ofNullable(defValue).map(Float::valueOf).orElse(DEFAULT));
+        }
+
+        @Override
+        public boolean isValidDefaultValue(@Nonnull String defValue) {
+            try {
+                final float value = Float.valueOf(defValue);
+                return !Float.isNaN(value) && !Float.isInfinite(value);
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+
         @NonNull
         @Override
         public CodeBlock buildSaveStatement(@Nonnull String variable, @Nonnull String key, @Nonnull CodeBlock value) {
@@ -78,10 +110,16 @@ public enum SupportedType {
         @Override
         public CodeBlock buildLoadStatement(@Nonnull String variable, @Nonnull String key, @Nullable String defValue) {
             return CodeBlock.builder()
-                    .add("$N.getInt($S, $L)", variable, key, Optional.ofNullable(defValue).map(Integer::valueOf).orElse(DEFAULT))
+                    .add("$N.getInt($S, $L)", variable, key, buildDefaultValue(defValue))
                     .build();
         }
 
+        @Nonnull
+        @Override
+        public CodeBlock buildDefaultValue(@Nullable String defValue) {
+            return CodeBlock.of("$L", Optional.ofNullable(defValue).map(Integer::valueOf).orElse(DEFAULT));
+        }
+
         @NonNull
         @Override
         public CodeBlock buildSaveStatement(@Nonnull String variable, @Nonnull String key, @Nonnull CodeBlock value) {
@@ -97,10 +135,16 @@ public enum SupportedType {
         @Override
         public CodeBlock buildLoadStatement(@Nonnull String variable, @Nonnull String key, @Nullable String defValue) {
             return CodeBlock.builder()
-                    .add("$N.getLong($S, $LL)", variable, key, Optional.ofNullable(defValue).map(Long::valueOf).orElse(DEFAULT))
+                    .add("$N.getLong($S, $L)", variable, key, buildDefaultValue(defValue))
                     .build();
         }
 
+        @Nonnull
+        @Override
+        public CodeBlock buildDefaultValue(@Nullable String defValue) {
+            return CodeBlock.of("$LL", Optional.ofNullable(defValue).map(Long::valueOf).orElse(DEFAULT));
+        }
+
         @NonNull
         @Override
         public CodeBlock buildSaveStatement(@Nonnull String variable, @Nonnull String key, @Nonnull CodeBlock value) {
@@ -109,6 +153,131 @@ public enum SupportedType {
                     .build();
         }
     },
+    DOUBLE(TypeName.DOUBLE) {
+        private static final double DEFAULT = 0.0d;
+
+        @Nonnull
+        @Override
+        public CodeBlock buildLoadStatement(@Nonnull String variable, @Nonnull String key, @Nullable String defValue) {
+            // The raw bits are stored as long, so that the value is restored exactly
+            final long bits = Double.doubleToRawLongBits(Optional.ofNullable(defValue).map(Double::valueOf).orElse(DEFAULT));
+            return CodeBlock.builder()
+                    .add("$T.longBitsToDouble($N.getLong($S, 0x$LL))", Double.class, variable, key, Long.toHexString(bits))
+                    .build();
+        }
+
+        @Nonnull
+        @Override
+        public CodeBlock buildDefaultValue(@Nullable String defValue) {
+            return CodeBlock.of("$Ld", Optional.ofNullable(defValue).map(Double::valueOf).orElse(DEFAULT));
+        }
+
+        @NonNull
+        @Override
+        public CodeBlock buildSaveStatement(@Nonnull String variable, @Nonnull String key, @Nonnull CodeBlock value) {
+            return CodeBlock.builder()
+                    .add("$N.putLong($S, $T.doubleToRawLongBits($L))", variable, key, Double.class, value)
+                    .build();
+        }
+
+        @Override
+        public boolean isValidDefaultValue(@Nonnull String defValue) {
+            try {
+                final double value = Double.valueOf(defValue);
+                return !Double.isNaN(value) && !Double.isInfinite(value);
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+    },
+    SHORT(TypeName.SHORT) {
+        private static final short DEFAULT = 0;
+
+        @Nonnull
+        @Override
+        public CodeBlock buildLoadStatement(@Nonnull String variable, @Nonnull String key, @Nullable String defValue) {
+            return CodeBlock.builder()
+                    .add("(short) $N.getInt($S, $L)", variable, key, Optional.ofNullable(defValue).map(Short::valueOf).orElse(DEFAULT))
+                    .build();
+        }
+
+        @Nonnull
+        @Override
+        public CodeBlock buildDefaultValue(@Nullable String defValue) {
+            return CodeBlock.of("(short) $L", Optional.ofNullable(defValue).map(Short::valueOf).orElse(DEFAULT));
+        }
+
+        @NonNull
+        @Override
+        public CodeBlock buildSaveStatement(@Nonnull String variable, @Nonnull String key, @Nonnull CodeBlock value) {
+            return CodeBlock.builder()
+                    .add("$N.putInt($S, $L)", variable, key, value)
+                    .build();
+        }
+    },
+    BYTE(TypeName.BYTE) {
+        private static final byte DEFAULT = 0;
+
+        @Nonnull
+        @Override
+        public CodeBlock buildLoadStatement(@Nonnull String variable, @Nonnull String key, @Nullable String defValue) {
+            return CodeBlock.builder()
+                    .add("(byte) $N.getInt($S, $L)", variable, key, Optional.ofNullable(defValue).map(Byte::valueOf).orElse(DEFAULT))
+                    .build();
+        }
+
+        @Nonnull
+        @Override
+        public CodeBlock buildDefaultValue(@Nullable String defValue) {
+            return CodeBlock.of("(byte) $L", Optional.ofNullable(defValue).map(Byte::valueOf).orElse(DEFAULT));
+        }
+
+        @NonNull
+        @Override
+        public CodeBlock buildSaveStatement(@Nonnull String variable, @Nonnull String key, @Nonnull CodeBlock value) {
+            return CodeBlock.builder()
+                    .add("$N.putInt($S, $L)", variable, key, value)
+                    .build();
+        }
+    },
+    CHAR(TypeName.CHAR) {
+        private static final char DEFAULT = '\u0000';
+
+        @Nonnull
+        @Override
+        public CodeBlock buildLoadStatement(@Nonnull String variable, @Nonnull String key, @Nullable String defValue) {
+            return CodeBlock.builder()
+                    .add("(char) $N.getInt($S, $L)", variable, key, buildDefaultValue(defValue))
+                    .build();
+        }
+
+        @Nonnull
+        @Override
+        public CodeBlock buildDefaultValue(@Nullable String defValue) {
+            final char value = Optional.ofNullable(defValue).map(string -> string.charAt(0)).orElse(DEFAULT);
+            if (value == '\'' || value == '\\') {
+                return CodeBlock.of("'\\$L'", value);
+            }
+            if (value >= ' ' && value <= '~') {
+                return CodeBlock.of("'$L'", value);
+            }
+            // A unicode escape is not used because it is translated before the literal is parsed
+            return CodeBlock.of("(char) $L", (int) value);
+        }
+
+        @NonNull
+        @Override
+        public CodeBlock buildSaveStatement(@Nonnull String variable, @Nonnull String key, @Nonnull CodeBlock value) {
+            return CodeBlock.builder()
+                    .add("$N.putInt($S, $L)", variable, key, value)
+                    .build();
+        }
+
+        @Override
+        public boolean isValidDefaultValue(@Nonnull String defValue) {
+            return defValue.length() == 1;
+        }
+    },
     STRING(ClassName.get(String.class)) {
         private static final String DEFAULT = "";
 
@@ -116,10 +285,16 @@ public enum SupportedType {
         @Override
         public CodeBlock buildLoadStatement(@Nonnull String variable, @Nonnull String key, @Nullable String defValue) {
             return CodeBlock.builder()
-                    .add("$N.getString($S, $S)", variable, key, Optional.ofNullable(defValue).orElse(DEFAULT))
+                    .add("$N.getString($S, $L)", variable, key, buildDefaultValue(defValue))
                     .build();
         }
 
+        @Nonnull
+        @Override
+        public CodeBlock buildDefaultValue(@Nullable String defValue) {
+            return CodeBlock.of("$S", Optional.ofNullable(defValue).orElse(DEFAULT));
+        }
+
         @NonNull
         @Override
         public CodeBlock buildSaveStatement(@Nonnull String variable, @Nonnull String key, @Nonnull CodeBlock value) {
@@ -133,13 +308,16 @@ public enum SupportedType {
         @Override
         public CodeBlock buildLoadStatement(@Nonnull String variable, @Nonnull String key, @Nullable String defValue) {
             return CodeBlock.builder()
-                    .add("$N.getStringSet($S, $L)", variable, key, CodeBlock.builder()
-                            .add("$T.<$T>emptySet()", Collections.class, String.class)
-                            .build()
-                    )
+                    .add("$N.getStringSet($S, $L)", variable, key, buildDefaultValue(defValue))
                     .build();
         }
 
+        @Nonnull
+        @Override
+        public CodeBlock buildDefaultValue(@Nullable String defValue) {
+            return CodeBlock.of("$T.<$T>emptySet()", Collections.class, String.class);
+        }
+
         @NonNull
         @Override
         public CodeBlock buildSaveStatement(@Nonnull String variable, @Nonnull String key, @Nonnull CodeBlock value) {
@@ -147,6 +325,147 @@ public enum SupportedType {
                     .add("$N.putStringSet($S, $L)", variable, key, value)
                     .build();
         }
+    },
+    STRING_LIST(ParameterizedTypeName.get(List.class, String.class)) {
+        @Nonnull
+        @Override
+        public CodeBlock buildLoadStatement(@Nonnull String variable, @Nonnull String key, @Nullable String defValue) {
+            return CodeBlock.builder()
+                    .add("$T.decodeStringList($N.getBytes($S, null), $L)", ArrayCodec.class, variable, key, buildDefaultValue(defValue))
+                    .build();
+        }
+
+        @Nonnull
+        @Override
+        public CodeBlock buildDefaultValue(@Nullable String defValue) {
+            return CodeBlock.of("$T.<$T>emptyList()", Collections.class, String.class);
+        }
+
+        @NonNull
+        @Override
+        public CodeBlock buildSaveStatement(@Nonnull String variable, @Nonnull String key, @Nonnull CodeBlock value) {
+            return CodeBlock.builder()
+                    .add("$N.putBytes($S, $T.encode($L))", variable, key, ArrayCodec.class, value)
+                    .build();
+        }
+
+        @Override
+        public boolean isValidDefaultValue(@Nonnull String defValue) {
+            // The default value is always empty
+            return false;
+        }
+    },
+    BYTE_ARRAY(ArrayTypeName.of(TypeName.BYTE)) {
+        @Nonnull
+        @Override
+        public CodeBlock buildLoadStatement(@Nonnull String variable, @Nonnull String key, @Nullable String defValue) {
+            return CodeBlock.builder()
+                    .add("$N.getBytes($S, $L)", variable, key, buildDefaultValue(defValue))
+                    .build();
+        }
+
+        @Nonnull
+        @Override
+        public CodeBlock buildDefaultValue(@Nullable String defValue) {
+            return CodeBlock.of("new byte[0]");
+        }
+
+        @NonNull
+        @Override
+        public CodeBlock buildSaveStatement(@Nonnull String variable, @Nonnull String key, @Nonnull CodeBlock value) {
+            return CodeBlock.builder()
+                    .add("$N.putBytes($S, $L)", variable, key, value)
+                    .build();
+        }
+
+        @Override
+        public boolean isValidDefaultValue(@Nonnull String defValue) {
+            return false;
+        }
+    },
+    INT_ARRAY(ArrayTypeName.of(TypeName.INT)) {
+        @Nonnull
+        @Override
+        public CodeBlock buildLoadStatement(@Nonnull String variable, @Nonnull String key, @Nullable String defValue) {
+            return CodeBlock.builder()
+                    .add("$T.decodeIntArray($N.getBytes($S, null), $L)", ArrayCodec.class, variable, key, buildDefaultValue(defValue))
+                    .build();
+        }
+
+        @Nonnull
+        @Override
+        public CodeBlock buildDefaultValue(@Nullable String defValue) {
+            return CodeBlock.of("new int[0]");
+        }
+
+        @NonNull
+        @Override
+        public CodeBlock buildSaveStatement(@Nonnull String variable, @Nonnull String key, @Nonnull CodeBlock value) {
+            return CodeBlock.builder()
+                    .add("$N.putBytes($S, $T.encode($L))", variable, key, ArrayCodec.class, value)
+                    .build();
+        }
+
+        @Override
+        public boolean isValidDefaultValue(@Nonnull String defValue) {
+            return false;
+        }
+    },
+    LONG_ARRAY(ArrayTypeName.of(TypeName.LONG)) {
+        @Nonnull
+        @Override
+        public CodeBlock buildLoadStatement(@Nonnull String variable, @Nonnull String key, @Nullable String defValue) {
+            return CodeBlock.builder()
+                    .add("$T.decodeLongArray($N.getBytes($S, null), $L)", ArrayCodec.class, variable, key, buildDefaultValue(defValue))
+                    .build();
+        }
+
+        @Nonnull
+        @Override
+        public CodeBlock buildDefaultValue(@Nullable String defValue) {
+            return CodeBlock.of("new long[0]");
+        }
+
+        @NonNull
+        @Override
+        public CodeBlock buildSaveStatement(@Nonnull String variable, @Nonnull String key, @Nonnull CodeBlock value) {
+            return CodeBlock.builder()
+                    .add("$N.putBytes($S, $T.encode($L))", variable, key, ArrayCodec.class, value)
+                    .build();
+        }
+
+        @Override
+        public boolean isValidDefaultValue(@Nonnull String defValue) {
+            return false;
+        }
+    },
+    FLOAT_ARRAY(ArrayTypeName.of(TypeName.FLOAT)) {
+        @Nonnull
+        @Override
+        public CodeBlock buildLoadStatement(@Nonnull String variable, @Nonnull String key, @Nullable String defValue) {
+            return CodeBlock.builder()
+                    .add("$T.decodeFloatArray($N.getBytes($S, null), $L)", ArrayCodec.class, variable, key, buildDefaultValue(defValue))
+                    .build();
+        }
+
+        @Nonnull
+        @Override
+        public CodeBlock buildDefaultValue(@Nullable String defValue) {
+            return CodeBlock.of("new float[0]");
+        }
+
+        @NonNull
+        @Override
+        public CodeBlock buildSaveStatement(@Nonnull String variable, @Nonnull String key, @Nonnull CodeBlock value) {
+            return CodeBlock.builder()
+                    .add("$N.putBytes($S, $T.encode($L))", variable, key, ArrayCodec.class, value)
+                    .build();
+        }
+
+        @Override
+        public boolean isValidDefaultValue(@Nonnull String defValue) {
+            return false;
+        }
     };
 
     private final TypeName type;
@@ -155,6 +474,11 @@ public enum SupportedType {
         this.type = type;
     }
 
+    @Nonnull
+    public TypeName getTypeName() {
+        return type;
+    }
+
     @Nonnull
     public static SupportedType find(@Nonnull TypeName type) {
         return Stream.of(values())
@@ -175,6 +499,24 @@ public enum SupportedType {
     @Nonnull
     public abstract CodeBlock buildLoadStatement(@Nonnull String variable, @Nonnull String key, @Nullable String defValue);
 
+    @Nonnull
+    public abstract CodeBlock buildDefaultValue(@Nullable String defValue);
+
     @NonNull
     public abstract CodeBlock buildSaveStatement(@Nonnull String variable, @Nonnull String key, @Nonnull CodeBlock value);
+
+    /**
+     * Return whether the default value can be parsed as this type
+     *
+     * @param defValue The default value specified with {@code @Property}
+     * @return {@code true} if the default value is valid
+     */
+    public boolean isValidDefaultValue(@Nonnull String defValue) {
+        try {
+            buildDefaultValue(defValue);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
 }
@@ -51,20 +51,20 @@ public class TypeElements {
     }
 
     @Nonnull
-    public static List<TypeName> findGenericTypes(@Nonnull TypeElement element, @Nonnull String className) {
+    public static List<TypeName> findGenericTypes(@Nonnull TypeElement element, @Nonnull Class<?> interfaceClass) {
         TypeElement currentElement = element;
         while (currentElement != null) {
             for (final TypeMirror interfaceType : currentElement.getInterfaces()) {
                 final DeclaredType declaredType = (DeclaredType) interfaceType;
                 final TypeElement interfaceElement = TypeElements.toElement(declaredType);
-                if (interfaceElement.getSimpleName().toString().equals(className)) {
+                if (interfaceElement.getQualifiedName().contentEquals(interfaceClass.getCanonicalName())) {
                     return declaredType.getTypeArguments()
                             .stream()
                             .map(TypeName::get)
                             .collect(toList());
                 }
 
-                final List<TypeName> found = findGenericTypes(interfaceElement, className);
+                final List<TypeName> found = findGenericTypes(interfaceElement, interfaceClass);
                 if (!found.isEmpty()) {
                     return found;
                 }
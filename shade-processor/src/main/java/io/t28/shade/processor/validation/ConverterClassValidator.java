@@ -38,6 +38,9 @@ public class ConverterClassValidator implements Validator<ConverterClassMetadata
         }
 
         final TypeName storeType = metadata.getSupportedType();
+        if (storeType.equals(TypeName.VOID)) {
+            throw new ValidationException("Converter class(%s) must implement Converter or a primitive converter", metadata.getSimpleName());
+        }
         if (!SupportedType.contains(storeType)) {
             throw new ValidationException("Type(%s) is not allowed to store the SharedPreferences", storeType);
         }
@@ -53,6 +53,27 @@ public class PreferenceClassValidator implements Validator<PreferenceClassMetada
             throw new ValidationException("Class(%s) annotated with @%s must provide a default constructor", className, ANNOTATION_NAME);
         }
 
+        if (metadata.getCoalesceWindow() < 0) {
+            throw new ValidationException("Class(%s) annotated with @%s must not use a negative coalesceWindow", className, ANNOTATION_NAME);
+        }
+        if (!metadata.isDefaultStorage() && metadata.isDefault()) {
+            throw new ValidationException("Class(%s) annotated with @%s must specify a name to use a custom storage", className, ANNOTATION_NAME);
+        }
+
+        if (metadata.isBinaryEnabled() && metadata.getPropertyMethods().stream().anyMatch(PropertyMethodMetadata::isCold)) {
+            throw new ValidationException("Class(%s) annotated with @%s must not contain a cold property to use binary", className, ANNOTATION_NAME);
+        }
+        if (metadata.isBinaryEnabled() && metadata.getPropertyMethods().stream().anyMatch(PropertyMethodMetadata::isExternal)) {
+            throw new ValidationException("Class(%s) annotated with @%s must not contain an external property to use binary", className, ANNOTATION_NAME);
+        }
+        if ((metadata.isBinaryEnabled() || metadata.isPackedEnabled())
+                && metadata.getPropertyMethods().stream().map(PropertyMethodMetadata::getPreferenceKey).distinct().count() < metadata.getPropertyMethods().size()) {
+            throw new ValidationException("Class(%s) annotated with @%s must not contain properties of the same key to use binary or packed", className, ANNOTATION_NAME);
+        }
+        if (metadata.isBinaryEnabled() && metadata.isPackedEnabled()) {
+            throw new ValidationException("Class(%s) annotated with @%s must not use both binary and packed", className, ANNOTATION_NAME);
+        }
+
         metadata.getPropertyMethods().forEach(property -> {
             propertyMethodValidator.validate(property);
             converterClassValidator.validate(property.getConverterClass());
@@ -16,12 +16,22 @@
 package io.t28.shade.processor.validation;
 
 import com.google.common.base.Strings;
+import com.squareup.javapoet.ClassName;
 import com.squareup.javapoet.TypeName;
 
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
 import javax.annotation.Nonnull;
 
+import io.t28.shade.annotation.EnumCode;
 import io.t28.shade.annotation.Property;
+import io.t28.shade.processor.metadata.ConverterClassMetadata;
+import io.t28.shade.processor.metadata.EnumClassMetadata;
 import io.t28.shade.processor.metadata.PropertyMethodMetadata;
+import io.t28.shade.processor.util.SupportedType;
 
 public class PropertyMethodValidator implements Validator<PropertyMethodMetadata> {
     private static final String ANNOTATION_NAME = Property.class.getSimpleName();
@@ -44,5 +54,84 @@ public class PropertyMethodValidator implements Validator<PropertyMethodMetadata
         if (Strings.isNullOrEmpty(metadata.getPreferenceKey())) {
             throw new ValidationException("Method(%s) annotated with @%s can not allow to use an empty key", methodName, ANNOTATION_NAME);
         }
+
+        final Optional<EnumClassMetadata> enumClass = metadata.getEnumClass();
+        if (enumClass.isPresent()) {
+            validateEnum(metadata, enumClass.get());
+        }
+
+        final Optional<EnumClassMetadata> enumSetClass = metadata.getEnumSetClass();
+        if (enumSetClass.isPresent()) {
+            validateEnumSet(metadata, enumSetClass.get());
+        }
+
+        final ConverterClassMetadata converter = metadata.getConverterClass();
+        final TypeName storedType = converter.isDefault() ? returnType : converter.getSupportedType();
+        if (!enumClass.isPresent() && !enumSetClass.isPresent()) {
+            validateStoredType(metadata, storedType);
+        }
+
+        if (metadata.isExternal()) {
+            if (!storedType.equals(ClassName.get(String.class))) {
+                throw new ValidationException("Method(%s) annotated with @%s must store a String value to use external", methodName, ANNOTATION_NAME);
+            }
+        }
+    }
+
+    private static void validateStoredType(@Nonnull PropertyMethodMetadata metadata, @Nonnull TypeName storedType) throws ValidationException {
+        final String methodName = metadata.getSimpleName();
+        if (!SupportedType.contains(storedType)) {
+            if (metadata.getConverterClass().isDefault()) {
+                throw new ValidationException("Method(%s) annotated with @%s must specify a converter to return %s", methodName, ANNOTATION_NAME, storedType);
+            }
+            // The converter is reported by the converter validator
+            return;
+        }
+
+        final Optional<String> defValue = metadata.getDefaultValue();
+        if (defValue.isPresent() && !SupportedType.find(storedType).isValidDefaultValue(defValue.get())) {
+            throw new ValidationException("Method(%s) annotated with @%s must specify defValue which can be parsed as %s", methodName, ANNOTATION_NAME, storedType);
+        }
+    }
+
+    private static void validateEnumSet(@Nonnull PropertyMethodMetadata metadata, @Nonnull EnumClassMetadata enumClass) throws ValidationException {
+        final String methodName = metadata.getSimpleName();
+        final int size = enumClass.getConstantNames().size();
+        if (size == 0 || size > Long.SIZE) {
+            throw new ValidationException("Method(%s) annotated with @%s must return an EnumSet of an enum which declares 1 to %d constants", methodName, ANNOTATION_NAME, Long.SIZE);
+        }
+        if (metadata.getDefaultValue().isPresent()) {
+            throw new ValidationException("Method(%s) annotated with @%s must not specify defValue for EnumSet", methodName, ANNOTATION_NAME);
+        }
+        if (!metadata.getPackedSlot().isPresent()) {
+            throw new ValidationException("Method(%s) annotated with @%s must not be cold and must be declared in packed preferences to return EnumSet", methodName, ANNOTATION_NAME);
+        }
+    }
+
+    private static void validateEnum(@Nonnull PropertyMethodMetadata metadata, @Nonnull EnumClassMetadata enumClass) throws ValidationException {
+        final String methodName = metadata.getSimpleName();
+        final List<String> constantNames = enumClass.getConstantNames();
+        if (constantNames.isEmpty()) {
+            throw new ValidationException("Method(%s) annotated with @%s must return an enum which declares constants", methodName, ANNOTATION_NAME);
+        }
+
+        final Optional<String> defValue = metadata.getDefaultValue();
+        if (defValue.isPresent() && !constantNames.contains(defValue.get())) {
+            throw new ValidationException("Method(%s) annotated with @%s must specify a constant of %s as defValue", methodName, ANNOTATION_NAME, enumClass.getSimpleName());
+        }
+
+        if (!enumClass.hasCodes()) {
+            return;
+        }
+        final Set<Integer> codes = new HashSet<>();
+        for (final String constantName : constantNames) {
+            final Optional<Integer> code = enumClass.getCode(constantName);
+            if (!code.isPresent()) {
+                throw new ValidationException("Constant(%s) of %s must be annotated with @%s", constantName, enumClass.getSimpleName(), EnumCode.class.getSimpleName());
+            }
+            if (!codes.add(code.get())) {
+                throw new ValidationException("Constant(%s) of %s must not reuse code(%d)", constantName, enumClass.getSimpleName(), code.get());
+            }
+        }
     }
 }
@@ -17,15 +17,25 @@ package com.google.testing.compile;
 
 import android.annotation.SuppressLint;
 
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.tree.VariableTree;
+import com.sun.source.util.JavacTask;
+
 import org.assertj.core.api.AbstractAssert;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 import java.util.stream.Stream;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.tools.JavaFileObject;
+import javax.tools.ToolProvider;
 
 import static java.util.stream.Collectors.joining;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -88,6 +98,97 @@ public class CompilationAssert extends AbstractAssert<CompilationAssert, Compila
         return this;
     }
 
+    /**
+     * Verify that the generated source file contains the types and members which are declared in the expected file
+     * <p>
+     * Members are matched by their names and parameter types, and each matched member must be equal to the expected
+     * one. Members which are not declared in the expected file are ignored, so that the expected file can be focused
+     * on the code generated for a feature.
+     * </p>
+     */
+    @Nonnull
+    public CompilationAssert isGeneratedSourceFileContaining(@Nonnull String fqcn, @Nonnull JavaFileObject expected) {
+        isNotNull();
+        hasGeneratedSourceFile(fqcn);
+
+        final String qualifiedName = Stream.of(fqcn.split("\\.")).collect(joining("/", "", ".java"));
+        final CompilationUnitTree actualUnit = parse(this.actual.generatedSourceFile(qualifiedName).get());
+        final CompilationUnitTree expectedUnit = parse(expected);
+        for (final Tree expectedType : expectedUnit.getTypeDecls()) {
+            assertContains(actualUnit.getTypeDecls(), expectedType, String.valueOf(expectedUnit.getPackageName()));
+        }
+        return this;
+    }
+
+    @Nonnull
+    private CompilationUnitTree parse(@Nonnull JavaFileObject javaFile) {
+        final JavacTask task = (JavacTask) ToolProvider.getSystemJavaCompiler()
+                .getTask(null, null, null, null, null, Collections.singletonList(javaFile));
+        try {
+            return task.parse().iterator().next();
+        } catch (IOException e) {
+            fail("Unable to parse " + javaFile, e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void assertContains(@Nonnull List<? extends Tree> actualMembers, @Nonnull Tree expected, @Nonnull String location) {
+        final String key = toKey(expected);
+        final Optional<? extends Tree> found = actualMembers.stream()
+                .filter(member -> member.getKind() == expected.getKind() && toKey(member).equals(key))
+                .findFirst();
+        if (!found.isPresent()) {
+            fail(String.format("Generated source file does not contain <%s> in <%s>", key, location));
+        }
+
+        final Tree actual = found.get();
+        if (!(expected instanceof ClassTree)) {
+            assertThat(actual.toString())
+                    .as("<%s> in <%s>", key, location)
+                    .isEqualTo(expected.toString());
+            return;
+        }
+
+        final ClassTree actualClass = (ClassTree) actual;
+        final ClassTree expectedClass = (ClassTree) expected;
+        assertThat(toHeader(actualClass))
+                .as("Declaration of <%s> in <%s>", key, location)
+                .isEqualTo(toHeader(expectedClass));
+        for (final Tree expectedMember : expectedClass.getMembers()) {
+            assertContains(actualClass.getMembers(), expectedMember, location + "." + key);
+        }
+    }
+
+    @Nonnull
+    private static String toKey(@Nonnull Tree tree) {
+        if (tree instanceof ClassTree) {
+            return ((ClassTree) tree).getSimpleName().toString();
+        }
+        if (tree instanceof VariableTree) {
+            return ((VariableTree) tree).getName().toString();
+        }
+        if (tree instanceof MethodTree) {
+            final MethodTree method = (MethodTree) tree;
+            return method.getParameters()
+                    .stream()
+                    .map(parameter -> parameter.getType().toString())
+                    .collect(joining(", ", method.getName() + "(", ")"));
+        }
+        return tree.toString();
+    }
+
+    @Nonnull
+    private static String toHeader(@Nonnull ClassTree tree) {
+        return Stream.of(
+                tree.getModifiers(),
+                tree.getKind(),
+                tree.getSimpleName(),
+                tree.getTypeParameters(),
+                tree.getExtendsClause(),
+                tree.getImplementsClause()
+        ).map(String::valueOf).collect(joining(" "));
+    }
+
     @Nonnull
     private CharSequence toCharSequence(@Nonnull JavaFileObject javaFile) {
         try {
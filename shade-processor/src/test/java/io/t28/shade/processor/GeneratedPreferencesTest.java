@@ -0,0 +1,871 @@
+/*
+ * Copyright (c) 2016 Tatsuya Maki
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.t28.shade.processor;
+
+import android.content.Context;
+
+import com.google.testing.compile.Compilation;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.tools.JavaFileObject;
+
+import io.t28.shade.function.UnaryOperator;
+import io.t28.shade.internal.PackedLayout;
+import io.t28.shade.test.GeneratedClassLoader;
+import io.t28.shade.test.InMemoryStorage;
+import io.t28.shade.test.InMemoryStorageFactory;
+
+import static com.google.testing.compile.Compiler.javac;
+import static io.t28.shade.test.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests the behaviour of classes generated by the {@link ShadeProcessor}
+ */
+@RunWith(Enclosed.class)
+public class GeneratedPreferencesTest {
+    private static final String PACKAGE_NAME = "io.t28.shade.test.runtime.";
+
+    public static class Lazy {
+        private GeneratedClassLoader loader;
+        private Object preferences;
+
+        @Before
+        public void setUp() throws Exception {
+            InMemoryStorageFactory.reset();
+            loader = compile("LazyModel.java");
+            preferences = newPreferences(loader, "LazyModelPreferences");
+        }
+
+        @Test
+        public void getLazyShouldReturnSameValuesAsGetWhenValuesAreStored() throws Exception {
+            // setup
+            final Object editor = invoke(preferences, "edit");
+            invoke(editor, "putBooleanValue", false);
+            invoke(editor, "putFloatValue", 2.5f);
+            invoke(editor, "putIntValue", 2048);
+            invoke(editor, "putLongValue", 4294967296L);
+            invoke(editor, "putDoubleValue", 0.125d);
+            invoke(editor, "putShortValue", (short) 32);
+            invoke(editor, "putCharValue", 'Z');
+            invoke(editor, "putStringValue", "stored");
+            invoke(editor, "putSetValue", new HashSet<>(Arrays.asList("A", "B")));
+            invoke(editor, "putListValue", Arrays.asList("C", "D"));
+            invoke(editor, "putIntsValue", (Object) new int[]{1, 2, 3});
+            invoke(editor, "putTheme", enumConstant(loader, "LazyModel$Theme", "LIGHT"));
+            invoke(editor, "putSortOrder", enumConstant(loader, "LazyModel$SortOrder", "OLDEST"));
+            invoke(editor, "putUpdated", new Date(1000L));
+            invoke(editor, "putLocale", Locale.JAPAN);
+            invoke(editor, "apply");
+
+            // exercise
+            final Object expected = invoke(preferences, "get");
+            final Object actual = invoke(preferences, "getLazy");
+
+            // verify
+            assertPropertiesEqual(loader.loadClass(PACKAGE_NAME + "LazyModel"), actual, expected);
+        }
+
+        @Test
+        public void getShouldReturnValuesWhichArePut() throws Exception {
+            // setup
+            final Object editor = invoke(preferences, "edit");
+            invoke(editor, "putDoubleValue", 0.125d);
+            invoke(editor, "putShortValue", (short) -32);
+            invoke(editor, "putCharValue", 'Z');
+            invoke(editor, "putListValue", Arrays.asList("D", "C", "D"));
+            invoke(editor, "putIntsValue", (Object) new int[]{3, -2, 1});
+            invoke(editor, "putTheme", enumConstant(loader, "LazyModel$Theme", "LIGHT"));
+            invoke(editor, "putSortOrder", enumConstant(loader, "LazyModel$SortOrder", "OLDEST"));
+            invoke(editor, "putLocale", Locale.JAPAN);
+            invoke(editor, "apply");
+
+            // exercise
+            final Object actual = invoke(preferences, "get");
+
+            // verify
+            assertThat(invoke(actual, "doubleValue"))
+                    .isEqualTo(0.125d);
+            assertThat(invoke(actual, "shortValue"))
+                    .isEqualTo((short) -32);
+            assertThat(invoke(actual, "charValue"))
+                    .isEqualTo('Z');
+            assertThat(invoke(actual, "listValue"))
+                    .isEqualTo(Arrays.asList("D", "C", "D"));
+            assertThat((int[]) invoke(actual, "intsValue"))
+                    .containsExactly(3, -2, 1);
+            assertThat(invoke(actual, "theme"))
+                    .isEqualTo(enumConstant(loader, "LazyModel$Theme", "LIGHT"));
+            assertThat(invoke(actual, "sortOrder"))
+                    .isEqualTo(enumConstant(loader, "LazyModel$SortOrder", "OLDEST"));
+            assertThat(invoke(actual, "locale"))
+                    .isEqualTo(Locale.JAPAN);
+        }
+
+        @Test
+        public void getLazyShouldReturnSameValuesAsGetWhenValuesAreNotStored() throws Exception {
+            // exercise
+            final Object expected = invoke(preferences, "get");
+            final Object actual = invoke(preferences, "getLazy");
+
+            // verify
+            assertPropertiesEqual(loader.loadClass(PACKAGE_NAME + "LazyModel"), actual, expected);
+        }
+    }
+
+    public static class Instance {
+        private Class<?> preferencesClass;
+
+        @Before
+        public void setUp() throws Exception {
+            InMemoryStorageFactory.reset();
+            preferencesClass = compile("LazyModel.java").loadClass(PACKAGE_NAME + "LazyModelPreferences");
+        }
+
+        @Test
+        public void getInstanceShouldReturnSameInstanceForEveryContext() throws Exception {
+            // exercise
+            final Object first = preferencesClass.getMethod("getInstance", Context.class).invoke(null, mock(Context.class));
+            final Object second = preferencesClass.getMethod("getInstance", Context.class).invoke(null, mock(Context.class));
+
+            // verify
+            assertThat(second)
+                    .isNotNull()
+                    .isSameAs(first);
+        }
+
+        @Test
+        public void getInstanceShouldCreateOneInstanceWhenCalledConcurrently() throws Exception {
+            // setup
+            final int threadCount = 8;
+            final Method getInstance = preferencesClass.getMethod("getInstance", Context.class);
+            final CountDownLatch start = new CountDownLatch(1);
+            final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+            final List<Future<Object>> futures = new ArrayList<>();
+            for (int i = 0; i < threadCount; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return getInstance.invoke(null, mock(Context.class));
+                }));
+            }
+
+            // exercise
+            start.countDown();
+            final List<Object> actual = new ArrayList<>();
+            for (final Future<Object> future : futures) {
+                actual.add(future.get(10, TimeUnit.SECONDS));
+            }
+            executor.shutdown();
+
+            // verify
+            assertThat(new HashSet<>(actual))
+                    .hasSize(1);
+        }
+    }
+
+    public static class CachedSnapshot {
+        private Object preferences;
+
+        @Before
+        public void setUp() throws Exception {
+            InMemoryStorageFactory.reset();
+            preferences = newPreferences(compile("CachedModel.java"), "CachedModelPreferences");
+        }
+
+        @Test
+        public void getShouldReturnCachedSnapshotUntilValueIsChanged() throws Exception {
+            // setup
+            final Object first = invoke(preferences, "get");
+
+            // exercise
+            final Object second = invoke(preferences, "get");
+
+            // verify
+            assertThat(second)
+                    .isSameAs(first);
+        }
+
+        @Test
+        public void getShouldReturnNewSnapshotWhenValueIsChangedByEditor() throws Exception {
+            // setup
+            final Object first = invoke(preferences, "get");
+
+            // exercise
+            invoke(invoke(invoke(preferences, "edit"), "putName", "name"), "apply");
+            final Object actual = invoke(preferences, "get");
+
+            // verify
+            assertThat(actual)
+                    .isNotSameAs(first);
+            assertThat(invoke(actual, "name"))
+                    .isEqualTo("name");
+        }
+
+        @Test
+        public void getShouldReturnNewSnapshotWhenValueIsChangedThroughStorage() throws Exception {
+            // setup
+            final Object first = invoke(preferences, "get");
+
+            // exercise
+            InMemoryStorageFactory.get("io.t28.shade.test.runtime.cached").edit().putInt("key_count", 3).apply();
+            final Object actual = invoke(preferences, "get");
+
+            // verify
+            assertThat(actual)
+                    .isNotSameAs(first);
+            assertThat(invoke(actual, "count"))
+                    .isEqualTo(3);
+        }
+    }
+
+    public static class Editor {
+        private static final String NAME = "io.t28.shade.test.runtime.editor";
+        private static final String[] PROPERTY_NAMES = {"Count", "Name", "Theme", "Updated"};
+
+        private GeneratedClassLoader loader;
+        private Object preferences;
+
+        @Before
+        public void setUp() throws Exception {
+            InMemoryStorageFactory.reset();
+            loader = compile("EditorModel.java");
+            preferences = newPreferences(loader, "EditorModelPreferences");
+        }
+
+        @Test
+        public void putModelShouldStoreDefaultValuesWhichAreNotStored() throws Exception {
+            // setup
+            final Object model = invoke(preferences, "get");
+
+            // exercise
+            final Object editor = invoke(preferences, "edit");
+            invoke(editor, "put", model);
+            invoke(editor, "apply");
+
+            // verify
+            for (final String name : PROPERTY_NAMES) {
+                assertThat(invoke(preferences, "contains" + name))
+                        .as(name)
+                        .isEqualTo(true);
+            }
+        }
+
+        @Test
+        public void putModelShouldNotWriteValuesWhichAreEqualToStoredValues() throws Exception {
+            // setup
+            final Object editor = invoke(preferences, "edit");
+            invoke(editor, "put", invoke(preferences, "get"));
+            invoke(editor, "apply");
+            final int writeCount = InMemoryStorageFactory.get(NAME).getWriteCount();
+
+            // exercise
+            final Object actual = invoke(preferences, "edit");
+            invoke(actual, "put", invoke(preferences, "get"));
+            invoke(actual, "apply");
+
+            // verify
+            assertThat(InMemoryStorageFactory.get(NAME).getWriteCount())
+                    .isEqualTo(writeCount);
+        }
+
+        @Test
+        public void putModelShouldWriteValuesWhichAreExplicitlyPut() throws Exception {
+            // setup
+            final Object model = invoke(preferences, "get");
+            final Object editor = invoke(preferences, "edit");
+            invoke(editor, "put", model);
+            invoke(editor, "apply");
+
+            // exercise
+            final Object actual = invoke(preferences, "edit");
+            invoke(actual, "putName", "updated");
+            invoke(actual, "put", model);
+            invoke(actual, "apply");
+
+            // verify
+            assertThat(invoke(preferences, "getName"))
+                    .isEqualTo("guest");
+        }
+    }
+
+    public static class Binary {
+        private static final String NAME = "io.t28.shade.test.runtime.binary";
+
+        private Object preferences;
+
+        @Before
+        public void setUp() throws Exception {
+            InMemoryStorageFactory.reset();
+            preferences = newPreferences(compile("BinaryModel.java"), "BinaryModelPreferences");
+        }
+
+        @Test
+        public void getShouldMigrateValuesWhenSchemaIsChanged() throws Exception {
+            // setup
+            final Object editor = invoke(preferences, "edit");
+            invoke(editor, "putCount", 3);
+            invoke(editor, "putName", "stored");
+            invoke(editor, "putLegacy", 4294967296L);
+            invoke(editor, "putEnabled", false);
+            invoke(editor, "apply");
+
+            // exercise
+            final Object actual = newPreferences(compile("MigratedBinaryModel.java"), "MigratedBinaryModelPreferences");
+
+            // verify
+            assertThat(invoke(actual, "getCount"))
+                    .isEqualTo(3);
+            assertThat(invoke(actual, "getName"))
+                    .isEqualTo("stored");
+            assertThat(invoke(actual, "getRatio"))
+                    .isEqualTo(0.5f);
+            assertThat(invoke(actual, "containsRatio"))
+                    .isEqualTo(false);
+            assertThat(invoke(actual, "getEnabled"))
+                    .isEqualTo("unknown");
+        }
+
+        @Test
+        public void applyShouldKeepValuesWhichAreWrittenByAnotherSchema() throws Exception {
+            // setup
+            final Object editor = invoke(preferences, "edit");
+            invoke(editor, "putCount", 3);
+            invoke(editor, "putName", "stored");
+            invoke(editor, "apply");
+            final Object migrated = newPreferences(compile("MigratedBinaryModel.java"), "MigratedBinaryModelPreferences");
+
+            // exercise
+            final Object actual = invoke(migrated, "edit");
+            invoke(actual, "putRatio", 0.25f);
+            invoke(actual, "apply");
+
+            // verify
+            assertThat(invoke(migrated, "getCount"))
+                    .isEqualTo(3);
+            assertThat(invoke(migrated, "getName"))
+                    .isEqualTo("stored");
+            assertThat(invoke(migrated, "getRatio"))
+                    .isEqualTo(0.25f);
+            assertThat(invoke(preferences, "getCount"))
+                    .isEqualTo(3);
+        }
+
+        @Test
+        public void applyShouldRemoveValuesStoredPerKey() throws Exception {
+            // setup
+            InMemoryStorageFactory.get(NAME).edit()
+                    .putInt("key_count", 5)
+                    .putString("key_name", "stored")
+                    .commit();
+
+            // exercise
+            final Object editor = invoke(preferences, "edit");
+            invoke(editor, "putName", "updated");
+            invoke(editor, "apply");
+
+            // verify
+            assertThat(InMemoryStorageFactory.get(NAME).contains("key_count"))
+                    .isFalse();
+            assertThat(InMemoryStorageFactory.get(NAME).contains("key_name"))
+                    .isFalse();
+            assertThat(invoke(preferences, "getCount"))
+                    .isEqualTo(5);
+            assertThat(invoke(preferences, "getName"))
+                    .isEqualTo("updated");
+            assertThat(invoke(preferences, "containsCount"))
+                    .isEqualTo(true);
+        }
+
+        @Test
+        public void containsShouldReturnFalseWhenValueIsRemoved() throws Exception {
+            // setup
+            final Object editor = invoke(preferences, "edit");
+            invoke(editor, "putCount", 3);
+            invoke(editor, "putName", "stored");
+            invoke(editor, "apply");
+
+            // exercise
+            final Object actual = invoke(preferences, "edit");
+            invoke(actual, "removeCount");
+            invoke(actual, "apply");
+
+            // verify
+            assertThat(invoke(preferences, "containsCount"))
+                    .isEqualTo(false);
+            assertThat(invoke(preferences, "containsName"))
+                    .isEqualTo(true);
+            assertThat(invoke(preferences, "containsLegacy"))
+                    .isEqualTo(false);
+            assertThat(invoke(preferences, "getCount"))
+                    .isEqualTo(0);
+        }
+    }
+
+    public static class Packed {
+        private static final String NAME = "io.t28.shade.test.runtime.packed";
+        private static final int INCREMENT_COUNT = 500;
+
+        private GeneratedClassLoader loader;
+        private Object preferences;
+
+        @Before
+        public void setUp() throws Exception {
+            InMemoryStorageFactory.reset();
+            loader = compile("PackedModel.java");
+            preferences = newPreferences(loader, "PackedModelPreferences");
+        }
+
+        @Test
+        public void getShouldMoveBitsWhenLayoutIsChanged() throws Exception {
+            // setup
+            final Object editor = invoke(preferences, "edit");
+            invoke(editor, "putEnabled", false);
+            invoke(editor, "putVisible", true);
+            invoke(editor, "putFeatures", enumSet(
+                    enumConstant(loader, "PackedModel$Feature", "SYNC"),
+                    enumConstant(loader, "PackedModel$Feature", "SHARE")));
+            invoke(editor, "apply");
+
+            // exercise
+            final GeneratedClassLoader migratedLoader = compile("MigratedPackedModel.java");
+            final Object actual = newPreferences(migratedLoader, "MigratedPackedModelPreferences");
+
+            // verify
+            assertThat(invoke(actual, "getEnabled"))
+                    .isEqualTo(false);
+            assertThat(invoke(actual, "getVisible"))
+                    .isEqualTo(true);
+            assertThat(invoke(actual, "getAdded"))
+                    .isEqualTo(true);
+            assertThat(invoke(actual, "getFeatures"))
+                    .isEqualTo(enumSet(
+                            enumConstant(migratedLoader, "MigratedPackedModel$Feature", "SYNC"),
+                            enumConstant(migratedLoader, "MigratedPackedModel$Feature", "SHARE")));
+        }
+
+        @Test
+        public void getShouldRewriteWordsInCurrentLayoutOnce() throws Exception {
+            // setup
+            final Object editor = invoke(preferences, "edit");
+            invoke(editor, "putVisible", true);
+            invoke(editor, "apply");
+            final InMemoryStorage storage = InMemoryStorageFactory.get(NAME);
+            final Object migrated = newPreferences(compile("MigratedPackedModel.java"), "MigratedPackedModelPreferences");
+
+            // exercise
+            final int writeCount = storage.getWriteCount();
+            invoke(migrated, "getVisible");
+            invoke(migrated, "getEnabled");
+            invoke(migrated, "getAdded");
+
+            // verify
+            assertThat(storage.getWriteCount())
+                    .isEqualTo(writeCount + 1);
+            assertThat(storage.getString(PackedLayout.KEY, null))
+                    .contains("key_added");
+            assertThat(invoke(migrated, "getVisible"))
+                    .isEqualTo(true);
+        }
+
+        @Test
+        public void applyShouldRewriteBitsInCurrentLayout() throws Exception {
+            // setup
+            final Object editor = invoke(preferences, "edit");
+            invoke(editor, "putEnabled", false);
+            invoke(editor, "putFeatures", enumSet(
+                    enumConstant(loader, "PackedModel$Feature", "BACKUP"),
+                    enumConstant(loader, "PackedModel$Feature", "SHARE")));
+            invoke(editor, "apply");
+            final GeneratedClassLoader migratedLoader = compile("MigratedPackedModel.java");
+            final Object migrated = newPreferences(migratedLoader, "MigratedPackedModelPreferences");
+
+            // exercise
+            final Object actual = invoke(migrated, "edit");
+            invoke(actual, "putAdded", false);
+            invoke(actual, "apply");
+
+            // verify
+            assertThat(invoke(migrated, "getAdded"))
+                    .isEqualTo(false);
+            assertThat(invoke(migrated, "getEnabled"))
+                    .isEqualTo(false);
+            assertThat(invoke(migrated, "getFeatures"))
+                    .isEqualTo(enumSet(enumConstant(migratedLoader, "MigratedPackedModel$Feature", "SHARE")));
+            assertThat(invoke(preferences, "getEnabled"))
+                    .isEqualTo(false);
+            assertThat(invoke(preferences, "getFeatures"))
+                    .isEqualTo(enumSet(enumConstant(loader, "PackedModel$Feature", "SHARE")));
+        }
+
+        @Test
+        public void applyShouldNotLoseBitsOfConcurrentEditors() throws Exception {
+            // setup
+            final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+            // exercise
+            try {
+                final Future<?> enabled = executor.submit((Callable<Void>) () -> {
+                    for (int i = 1; i <= INCREMENT_COUNT; i++) {
+                        invoke(invoke(invoke(preferences, "edit"), "putEnabled", i % 2 == 1), "apply");
+                    }
+                    return null;
+                });
+                final Future<?> visible = executor.submit((Callable<Void>) () -> {
+                    for (int i = 1; i <= INCREMENT_COUNT; i++) {
+                        invoke(invoke(invoke(preferences, "edit"), "putVisible", i % 2 == 0), "apply");
+                    }
+                    return null;
+                });
+                enabled.get();
+                visible.get();
+            } finally {
+                executor.shutdownNow();
+            }
+
+            // verify
+            assertThat(invoke(preferences, "getEnabled"))
+                    .isEqualTo(false);
+            assertThat(invoke(preferences, "getVisible"))
+                    .isEqualTo(true);
+        }
+    }
+
+    public static class Listener {
+        private GeneratedClassLoader loader;
+        private Object preferences;
+        private List<String> callbacks;
+        private Object listener;
+
+        @Before
+        public void setUp() throws Exception {
+            InMemoryStorageFactory.reset();
+            loader = compile("ListenerModel.java");
+            preferences = newPreferences(loader, "ListenerModelPreferences");
+            callbacks = new CopyOnWriteArrayList<>();
+            final Class<?> listenerClass = loader.loadClass(PACKAGE_NAME + "ListenerModelPreferences$OnChangeListener");
+            listener = Proxy.newProxyInstance(loader, new Class<?>[]{listenerClass}, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "toString":
+                        return "OnChangeListener";
+                    default:
+                        callbacks.add(method.getName());
+                        return null;
+                }
+            });
+        }
+
+        @Test
+        public void registerShouldNotifyListenerOfEveryProperty() throws Exception {
+            // setup
+            invoke(preferences, "register", listener);
+
+            // exercise
+            final Object editor = invoke(preferences, "edit");
+            invoke(editor, "putName", "name");
+            invoke(editor, "putLocale", Locale.JAPAN);
+            invoke(editor, "apply");
+
+            // verify
+            assertThat(callbacks)
+                    .containsExactlyInAnyOrder("onNameChanged", "onLocaleChanged");
+        }
+
+        @Test
+        public void registerShouldNotConvertValueOfPropertyWithoutListener() throws Exception {
+            // setup
+            invoke(preferences, "register", listener, new String[]{"key_name"});
+            final AtomicInteger convertedCount = (AtomicInteger) loader.loadClass(PACKAGE_NAME + "ListenerModel$CountingLocaleConverter")
+                    .getField("CONVERTED_COUNT")
+                    .get(null);
+
+            // exercise
+            final Object editor = invoke(preferences, "edit");
+            invoke(editor, "putName", "name");
+            invoke(editor, "putLocale", Locale.JAPAN);
+            invoke(editor, "apply");
+
+            // verify
+            assertThat(callbacks)
+                    .containsExactly("onNameChanged");
+            assertThat(convertedCount.get())
+                    .isEqualTo(0);
+        }
+
+        @Test
+        public void unregisterShouldStopNotifyingListener() throws Exception {
+            // setup
+            invoke(preferences, "register", listener);
+
+            // exercise
+            invoke(preferences, "unregister", listener);
+            invoke(invoke(invoke(preferences, "edit"), "putName", "name"), "apply");
+
+            // verify
+            assertThat(callbacks)
+                    .isEmpty();
+        }
+
+        @Test(expected = IllegalArgumentException.class)
+        public void registerShouldThrowExceptionWhenKeyIsUnknown() throws Exception {
+            // exercise
+            invoke(preferences, "register", listener, new String[]{"key_unknown"});
+        }
+    }
+
+    public static class SharedConverter {
+        private GeneratedClassLoader loader;
+        private Object preferences;
+
+        @Before
+        public void setUp() throws Exception {
+            InMemoryStorageFactory.reset();
+            loader = compile("ConverterModel.java");
+            preferences = newPreferences(loader, "ConverterModelPreferences");
+        }
+
+        @Test
+        public void putShouldUseEachConverterWhenSimpleNamesAreSame() throws Exception {
+            // exercise
+            final Object editor = invoke(preferences, "edit");
+            invoke(editor, "putUpper", "Text");
+            invoke(editor, "putLower", "Text");
+            invoke(editor, "apply");
+
+            // verify
+            assertThat((String) invoke(preferences, "getUpper"))
+                    .isEqualTo("TEXT");
+            assertThat((String) invoke(preferences, "getLower"))
+                    .isEqualTo("text");
+        }
+
+        @Test
+        public void getShouldCreateConverterWhenItIsUsedAtFirst() throws Exception {
+            // setup
+            final AtomicInteger createdCount = (AtomicInteger) loader.loadClass(PACKAGE_NAME + "ConverterModel$Upper$TextConverter")
+                    .getField("CREATED_COUNT")
+                    .get(null);
+            invoke(preferences, "getLower");
+            assertThat(createdCount.get())
+                    .isEqualTo(0);
+
+            // exercise
+            invoke(preferences, "getUpper");
+            invoke(preferences, "getUpper");
+
+            // verify
+            assertThat(createdCount.get())
+                    .isEqualTo(1);
+        }
+    }
+
+    public static class Update {
+        private static final String NAME = "io.t28.shade.test.runtime.counter";
+        private static final int THREAD_COUNT = 8;
+        private static final int INCREMENT_COUNT = 500;
+        private static final long TIMEOUT_SECONDS = 5;
+
+        private Object preferences;
+        private Object sharedPreferences;
+
+        @Before
+        public void setUp() throws Exception {
+            InMemoryStorageFactory.reset();
+            final GeneratedClassLoader loader = compile("CounterModel.java", "SharedCounterModel.java");
+            preferences = newPreferences(loader, "CounterModelPreferences");
+            sharedPreferences = newPreferences(loader, "SharedCounterModelPreferences");
+        }
+
+        @Test
+        public void incrementShouldNotLoseUpdatesOfConcurrentWriters() throws Exception {
+            // setup
+            final ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+            final List<Future<Void>> futures = new ArrayList<>();
+
+            // exercise
+            try {
+                for (int thread = 0; thread < THREAD_COUNT; thread++) {
+                    // Half of the writers use another class which is stored with the same name
+                    final Object target = thread % 2 == 0 ? preferences : sharedPreferences;
+                    futures.add(executor.submit((Callable<Void>) () -> {
+                        for (int i = 0; i < INCREMENT_COUNT; i++) {
+                            invoke(target, "incrementCount", 1);
+                        }
+                        return null;
+                    }));
+                }
+                for (final Future<Void> future : futures) {
+                    future.get();
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+
+            // verify
+            assertThat(invoke(preferences, "getCount"))
+                    .isEqualTo(THREAD_COUNT * INCREMENT_COUNT);
+        }
+
+        @Test
+        public void incrementShouldNotWaitForCommitWhichIsWriting() throws Exception {
+            // setup
+            final CountDownLatch started = new CountDownLatch(1);
+            final CountDownLatch released = new CountDownLatch(1);
+            InMemoryStorageFactory.get(NAME).blockCommits(started, released);
+            final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+            // exercise
+            try {
+                final Future<?> committed = executor.submit(() -> invoke(invoke(invoke(preferences, "edit"), "putCount", 10), "commit"));
+                assertThat(started.await(TIMEOUT_SECONDS, TimeUnit.SECONDS))
+                        .isTrue();
+                final Future<?> incremented = executor.submit(() -> invoke(sharedPreferences, "incrementCount", 1));
+
+                // verify
+                assertThat(incremented.get(TIMEOUT_SECONDS, TimeUnit.SECONDS))
+                        .isEqualTo(11);
+                released.countDown();
+                assertThat(committed.get(TIMEOUT_SECONDS, TimeUnit.SECONDS))
+                        .isEqualTo(true);
+            } finally {
+                released.countDown();
+                executor.shutdownNow();
+            }
+        }
+
+        @Test
+        public void updateShouldNotLoseUpdatesOfConcurrentWriters() throws Exception {
+            // setup
+            final ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+            final List<Future<Void>> futures = new ArrayList<>();
+
+            // exercise
+            try {
+                for (int thread = 0; thread < THREAD_COUNT; thread++) {
+                    final Object target = thread % 2 == 0 ? preferences : sharedPreferences;
+                    futures.add(executor.submit((Callable<Void>) () -> {
+                        for (int i = 0; i < INCREMENT_COUNT; i++) {
+                            invoke(target, "updateCount", (UnaryOperator<Integer>) value -> value + 1);
+                        }
+                        return null;
+                    }));
+                }
+                for (final Future<Void> future : futures) {
+                    future.get();
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+
+            // verify
+            assertThat(invoke(sharedPreferences, "getCount"))
+                    .isEqualTo(THREAD_COUNT * INCREMENT_COUNT);
+        }
+    }
+
+    @Nonnull
+    static GeneratedClassLoader compile(@Nonnull String... names) throws Exception {
+        final List<JavaFileObject> files = new ArrayList<>();
+        for (final String name : names) {
+            files.add(ShadeProcessorTest.forName("runtime/" + name));
+        }
+        final Compilation compilation = javac()
+                .withProcessors(new ShadeProcessor())
+                .compile(files);
+        assertThat(compilation)
+                .isSucceeded();
+        return new GeneratedClassLoader(compilation);
+    }
+
+    @Nonnull
+    static Object newPreferences(@Nonnull ClassLoader loader, @Nonnull String simpleName) throws Exception {
+        final Class<?> preferencesClass = loader.loadClass(PACKAGE_NAME + simpleName);
+        return preferencesClass.getConstructor(Context.class).newInstance(mock(Context.class));
+    }
+
+    @Nonnull
+    @SuppressWarnings("unchecked")
+    static Object enumConstant(@Nonnull ClassLoader loader, @Nonnull String simpleName, @Nonnull String name) throws Exception {
+        final Class<? extends Enum> enumClass = (Class<? extends Enum>) loader.loadClass(PACKAGE_NAME + simpleName);
+        return Enum.valueOf(enumClass, name);
+    }
+
+    @Nonnull
+    @SuppressWarnings("unchecked")
+    static Object enumSet(@Nonnull Object first, @Nonnull Object... rest) {
+        final EnumSet set = EnumSet.of((Enum) first);
+        set.addAll(Arrays.asList(rest));
+        return set;
+    }
+
+    @Nullable
+    static Object invoke(@Nonnull Object target, @Nonnull String name, Object... args) throws Exception {
+        for (final Method method : target.getClass().getMethods()) {
+            if (!method.getName().equals(name) || method.getParameterCount() != args.length) {
+                continue;
+            }
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof Exception) {
+                    throw (Exception) cause;
+                }
+                throw (Error) cause;
+            }
+        }
+        throw new NoSuchMethodException(target.getClass().getName() + "#" + name);
+    }
+
+    static void assertPropertiesEqual(@Nonnull Class<?> modelClass, @Nonnull Object actual, @Nonnull Object expected) throws Exception {
+        for (final Method method : modelClass.getDeclaredMethods()) {
+            final Object actualValue = method.invoke(actual);
+            final Object expectedValue = method.invoke(expected);
+            assertThat(Objects.deepEquals(actualValue, expectedValue))
+                    .as("%s: %s but expected %s", method.getName(), actualValue, expectedValue)
+                    .isTrue();
+        }
+    }
+}
@@ -72,7 +72,7 @@ public class ShadeProcessorTest {
             assertThat(actual)
                     .isSucceeded()
                     .hasGeneratedSourceFile("io.t28.shade.test.type.AbstractClassPreferences")
-                    .isGeneratedSourceFileEqualTo("io.t28.shade.test.type.AbstractClassPreferences", forName("AbstractClassPreferences.java"));
+                    .isGeneratedSourceFileContaining("io.t28.shade.test.type.AbstractClassPreferences", forName("AbstractClassPreferences.java"));
         }
 
         @Test
@@ -110,7 +110,7 @@ public class ShadeProcessorTest {
             assertThat(actual)
                     .isSucceeded()
                     .hasGeneratedSourceFile("io.t28.shade.test.DefaultNamePreferences")
-                    .isGeneratedSourceFileEqualTo("io.t28.shade.test.DefaultNamePreferences", forName("DefaultNamePreferences.java"));
+                    .isGeneratedSourceFileContaining("io.t28.shade.test.DefaultNamePreferences", forName("DefaultNamePreferences.java"));
         }
 
         @Test
@@ -124,7 +124,7 @@ public class ShadeProcessorTest {
             assertThat(actual)
                     .isSucceeded()
                     .hasGeneratedSourceFile("io.t28.shade.test.DefaultModePreferences")
-                    .isGeneratedSourceFileEqualTo("io.t28.shade.test.DefaultModePreferences", forName("DefaultModePreferences.java"));
+                    .isGeneratedSourceFileContaining("io.t28.shade.test.DefaultModePreferences", forName("DefaultModePreferences.java"));
         }
 
         @Test
@@ -138,7 +138,127 @@ public class ShadeProcessorTest {
             assertThat(actual)
                     .isSucceeded()
                     .hasGeneratedSourceFile("io.t28.shade.test.WorldReadableModePreferences")
-                    .isGeneratedSourceFileEqualTo("io.t28.shade.test.WorldReadableModePreferences", forName("WorldReadableModePreferences.java"));
+                    .isGeneratedSourceFileContaining("io.t28.shade.test.WorldReadableModePreferences", forName("WorldReadableModePreferences.java"));
+        }
+
+        @Test
+        public void compileCacheSnapshot() throws Exception {
+            // exercise
+            final Compilation actual = javac()
+                    .withProcessors(new ShadeProcessor())
+                    .compile(forName("CacheSnapshot.java"));
+
+            // verify
+            assertThat(actual)
+                    .isSucceeded()
+                    .hasGeneratedSourceFile("io.t28.shade.test.CacheSnapshotPreferences")
+                    .isGeneratedSourceFileContaining("io.t28.shade.test.CacheSnapshotPreferences", forName("CacheSnapshotPreferences.java"));
+        }
+
+        @Test
+        public void compileCoalesceWindow() throws Exception {
+            // exercise
+            final Compilation actual = javac()
+                    .withProcessors(new ShadeProcessor())
+                    .compile(forName("CoalesceWindow.java"));
+
+            // verify
+            assertThat(actual)
+                    .isSucceeded()
+                    .hasGeneratedSourceFile("io.t28.shade.test.CoalesceWindowPreferences")
+                    .isGeneratedSourceFileContaining("io.t28.shade.test.CoalesceWindowPreferences", forName("CoalesceWindowPreferences.java"));
+        }
+
+        @Test
+        public void compileCustomStorage() throws Exception {
+            // exercise
+            final Compilation actual = javac()
+                    .withProcessors(new ShadeProcessor())
+                    .compile(forName("CustomStorage.java"));
+
+            // verify
+            assertThat(actual)
+                    .isSucceeded()
+                    .hasGeneratedSourceFile("io.t28.shade.test.CustomStoragePreferences")
+                    .isGeneratedSourceFileContaining("io.t28.shade.test.CustomStoragePreferences", forName("CustomStoragePreferences.java"));
+        }
+
+        @Test
+        public void compileBinaryFormat() throws Exception {
+            // exercise
+            final Compilation actual = javac()
+                    .withProcessors(new ShadeProcessor())
+                    .compile(forName("BinaryFormat.java"));
+
+            // verify
+            assertThat(actual)
+                    .isSucceeded()
+                    .hasGeneratedSourceFile("io.t28.shade.test.BinaryFormatPreferences")
+                    .isGeneratedSourceFileContaining("io.t28.shade.test.BinaryFormatPreferences", forName("BinaryFormatPreferences.java"));
+        }
+
+        @Test
+        public void compileColdProperty() throws Exception {
+            // exercise
+            final Compilation actual = javac()
+                    .withProcessors(new ShadeProcessor())
+                    .compile(forName("ColdProperty.java"));
+
+            // verify
+            assertThat(actual)
+                    .isSucceeded()
+                    .hasGeneratedSourceFile("io.t28.shade.test.ColdPropertyPreferences")
+                    .isGeneratedSourceFileContaining("io.t28.shade.test.ColdPropertyPreferences", forName("ColdPropertyPreferences.java"));
+        }
+
+        @Test
+        public void compileCustomStorageWithoutNameWithError() throws Exception {
+            // exercise
+            final Compilation actual = javac()
+                    .withProcessors(new ShadeProcessor())
+                    .compile(forName("CustomStorage.java"), forName("CustomStorageWithoutName.java"));
+
+            // verify
+            assertThat(actual)
+                    .isFailed();
+        }
+
+        @Test
+        public void compileColdPropertyWithBinaryWithError() throws Exception {
+            // exercise
+            final Compilation actual = javac()
+                    .withProcessors(new ShadeProcessor())
+                    .compile(forName("ColdPropertyWithBinary.java"));
+
+            // verify
+            assertThat(actual)
+                    .isFailed();
+        }
+
+        @Test
+        public void compilePackedFormat() throws Exception {
+            // exercise
+            final Compilation actual = javac()
+                    .withProcessors(new ShadeProcessor())
+                    .compile(forName("PackedFormat.java"));
+
+            // verify
+            assertThat(actual)
+                    .isSucceeded()
+                    .hasGeneratedSourceFile("io.t28.shade.test.PackedFormatPreferences")
+                    .isGeneratedSourceFileContaining("io.t28.shade.test.PackedFormatPreferences", forName("PackedFormatPreferences.java"));
+        }
+
+        @Test
+        public void compilePackedFormatWithBinaryWithError() throws Exception {
+            // exercise
+            final Compilation actual = javac()
+                    .withProcessors(new ShadeProcessor())
+                    .compile(forName("PackedFormatWithBinary.java"));
+
+            // verify
+            assertThat(actual)
+                    .isFailed();
         }
 
         @Nonnull
@@ -159,7 +279,7 @@ public class ShadeProcessorTest {
             assertThat(actual)
                     .isSucceeded()
                     .hasGeneratedSourceFile("io.t28.shade.test.AllTypesPreferences")
-                    .isGeneratedSourceFileEqualTo("io.t28.shade.test.AllTypesPreferences", forName("AllTypesPreferences.java"));
+                    .isGeneratedSourceFileContaining("io.t28.shade.test.AllTypesPreferences", forName("AllTypesPreferences.java"));
         }
 
         @Test
@@ -173,7 +293,7 @@ public class ShadeProcessorTest {
             assertThat(actual)
                     .isSucceeded()
                     .hasGeneratedSourceFile("io.t28.shade.test.AllTypesWithDefaultPreferences")
-                    .isGeneratedSourceFileEqualTo("io.t28.shade.test.AllTypesWithDefaultPreferences", forName("AllTypesWithDefaultPreferences.java"));
+                    .isGeneratedSourceFileContaining("io.t28.shade.test.AllTypesWithDefaultPreferences", forName("AllTypesWithDefaultPreferences.java"));
         }
 
         @Test
@@ -235,7 +355,7 @@ public class ShadeProcessorTest {
             assertThat(actual)
                     .isSucceeded()
                     .hasGeneratedSourceFile("io.t28.shade.test.PreparedConverterPreferences")
-                    .isGeneratedSourceFileEqualTo("io.t28.shade.test.PreparedConverterPreferences", forName("PreparedConverterPreferences.java"));
+                    .isGeneratedSourceFileContaining("io.t28.shade.test.PreparedConverterPreferences", forName("PreparedConverterPreferences.java"));
         }
 
         @Test
@@ -249,7 +369,163 @@ public class ShadeProcessorTest {
             assertThat(actual)
                     .isSucceeded()
                     .hasGeneratedSourceFile("io.t28.shade.test.PreparedConverterWithDefaultPreferences")
-                    .isGeneratedSourceFileEqualTo("io.t28.shade.test.PreparedConverterWithDefaultPreferences", forName("PreparedConverterWithDefaultPreferences.java"));
+                    .isGeneratedSourceFileContaining("io.t28.shade.test.PreparedConverterWithDefaultPreferences", forName("PreparedConverterWithDefaultPreferences.java"));
+        }
+
+        @Test
+        public void compileStatefulConverter() throws Exception {
+            // exercise
+            final Compilation actual = javac()
+                    .withProcessors(new ShadeProcessor())
+                    .compile(forName("StatefulConverter.java"));
+
+            // verify
+            assertThat(actual)
+                    .isSucceeded()
+                    .hasGeneratedSourceFile("io.t28.shade.test.StatefulConverterPreferences")
+                    .isGeneratedSourceFileContaining("io.t28.shade.test.StatefulConverterPreferences", forName("StatefulConverterPreferences.java"));
+        }
+
+        @Test
+        public void compileExternalValue() throws Exception {
+            // exercise
+            final Compilation actual = javac()
+                    .withProcessors(new ShadeProcessor())
+                    .compile(forName("ExternalValue.java"));
+
+            // verify
+            assertThat(actual)
+                    .isSucceeded()
+                    .hasGeneratedSourceFile("io.t28.shade.test.ExternalValuePreferences")
+                    .isGeneratedSourceFileContaining("io.t28.shade.test.ExternalValuePreferences", forName("ExternalValuePreferences.java"));
+        }
+
+        @Test
+        public void compileUnsupportedTypeExternalValueWithError() throws Exception {
+            // exercise
+            final Compilation actual = javac()
+                    .withProcessors(new ShadeProcessor())
+                    .compile(forName("UnsupportedTypeExternalValue.java"));
+
+            // verify
+            assertThat(actual)
+                    .isFailed();
+        }
+
+        @Test
+        public void compilePrimitiveConverter() throws Exception {
+            // exercise
+            final Compilation actual = javac()
+                    .withProcessors(new ShadeProcessor())
+                    .compile(forName("PrimitiveConverter.java"));
+
+            // verify
+            assertThat(actual)
+                    .isSucceeded()
+                    .hasGeneratedSourceFile("io.t28.shade.test.PrimitiveConverterPreferences")
+                    .isGeneratedSourceFileContaining("io.t28.shade.test.PrimitiveConverterPreferences", forName("PrimitiveConverterPreferences.java"));
+        }
+
+        @Test
+        public void compileNonConverterWithError() throws Exception {
+            // exercise
+            final Compilation actual = javac()
+                    .withProcessors(new ShadeProcessor())
+                    .compile(forName("NonConverterProperty.java"));
+
+            // verify
+            assertThat(actual)
+                    .isFailed();
+        }
+
+        @Test
+        public void compileEnumProperty() throws Exception {
+            // exercise
+            final Compilation actual = javac()
+                    .withProcessors(new ShadeProcessor())
+                    .compile(forName("EnumProperty.java"));
+
+            // verify
+            assertThat(actual)
+                    .isSucceeded()
+                    .hasGeneratedSourceFile("io.t28.shade.test.EnumPropertyPreferences")
+                    .isGeneratedSourceFileContaining("io.t28.shade.test.EnumPropertyPreferences", forName("EnumPropertyPreferences.java"));
+        }
+
+        @Test
+        public void compileUnknownConstantEnumPropertyWithError() throws Exception {
+            // exercise
+            final Compilation actual = javac()
+                    .withProcessors(new ShadeProcessor())
+                    .compile(forName("UnknownConstantEnumProperty.java"));
+
+            // verify
+            assertThat(actual)
+                    .isFailed();
+        }
+
+        @Test
+        public void compileMissingCodeEnumPropertyWithError() throws Exception {
+            // exercise
+            final Compilation actual = javac()
+                    .withProcessors(new ShadeProcessor())
+                    .compile(forName("MissingCodeEnumProperty.java"));
+
+            // verify
+            assertThat(actual)
+                    .isFailed();
+        }
+
+        @Test
+        public void compileUnpackedEnumSetWithError() throws Exception {
+            // exercise
+            final Compilation actual = javac()
+                    .withProcessors(new ShadeProcessor())
+                    .compile(forName("UnpackedEnumSet.java"));
+
+            // verify
+            assertThat(actual)
+                    .isFailed();
+        }
+
+        @Test
+        public void compileNarrowTypes() throws Exception {
+            // exercise
+            final Compilation actual = javac()
+                    .withProcessors(new ShadeProcessor())
+                    .compile(forName("NarrowTypes.java"));
+
+            // verify
+            assertThat(actual)
+                    .isSucceeded()
+                    .hasGeneratedSourceFile("io.t28.shade.test.NarrowTypesPreferences")
+                    .isGeneratedSourceFileContaining("io.t28.shade.test.NarrowTypesPreferences", forName("NarrowTypesPreferences.java"));
+        }
+
+        @Test
+        public void compileInvalidDefaultValueWithError() throws Exception {
+            // exercise
+            final Compilation actual = javac()
+                    .withProcessors(new ShadeProcessor())
+                    .compile(forName("InvalidDefaultValue.java"));
+
+            // verify
+            assertThat(actual)
+                    .isFailed();
+        }
+
+        @Test
+        public void compileArrayTypes() throws Exception {
+            // exercise
+            final Compilation actual = javac()
+                    .withProcessors(new ShadeProcessor())
+                    .compile(forName("ArrayTypes.java"));
+
+            // verify
+            assertThat(actual)
+                    .isSucceeded()
+                    .hasGeneratedSourceFile("io.t28.shade.test.ArrayTypesPreferences")
+                    .isGeneratedSourceFileContaining("io.t28.shade.test.ArrayTypesPreferences", forName("ArrayTypesPreferences.java"));
         }
 
         @Test
@@ -77,4 +77,32 @@ public class ConverterClassMetadataTest {
                 .isSupportedType(TypeName.LONG)
                 .isConvertedType(ClassName.get(Date.class));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void isStatefulShouldReturnFalseWithoutAnnotation() throws Exception {
+        // setup
+        final TypeElement element = elements.getTypeElement(DateConverter.class.getCanonicalName());
+        final ConverterClassMetadata underTest = new ConverterClassMetadata(element);
+
+        // exercise
+        final boolean actual = underTest.isStateful();
+
+        // verify
+        assertThat(actual)
+                .isFalse();
+    }
+
+    @Test
+    public void getInstanceNameShouldReturnConstantName() throws Exception {
+        // setup
+        final TypeElement element = elements.getTypeElement(DateConverter.class.getCanonicalName());
+        final ConverterClassMetadata underTest = new ConverterClassMetadata(element);
+
+        // exercise
+        final String actual = underTest.getInstanceName();
+
+        // verify
+        assertThat(actual)
+                .isEqualTo("DATE_CONVERTER");
+    }
+}
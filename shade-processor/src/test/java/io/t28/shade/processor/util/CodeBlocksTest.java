@@ -18,6 +18,7 @@ package io.t28.shade.processor.util;
 
 import com.google.testing.compile.CompilationRule;
 import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.TypeName;
 
 import org.junit.Before;
 import org.junit.Rule;
@@ -28,6 +29,7 @@ import org.junit.runners.JUnit4;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Stream;
 
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.type.TypeKind;
@@ -65,7 +67,7 @@ public class CodeBlocksTest {
     }
 
     @Test
-    public void createUnmodifiableStatementShouldCopyListDefensively() throws Exception {
+    public void createUnmodifiableStatementShouldWrapListWithUnmodifiableView() throws Exception {
         // setup
         final TypeElement element = elements.getTypeElement(List.class.getCanonicalName());
         final TypeMirror mirror = element.asType();
@@ -75,11 +77,11 @@ public class CodeBlocksTest {
 
         // verify
         assertThat(actual.toString())
-                .isEqualTo("new java.util.ArrayList<>(value)");
+                .isEqualTo("java.util.Collections.unmodifiableList(new java.util.ArrayList<>(value))");
     }
 
     @Test
-    public void createUnmodifiableStatementShouldCopySetDefensively() throws Exception {
+    public void createUnmodifiableStatementShouldWrapSetWithUnmodifiableView() throws Exception {
         // setup
         final TypeElement element = elements.getTypeElement(Set.class.getCanonicalName());
         final TypeMirror mirror = element.asType();
@@ -89,11 +91,11 @@ public class CodeBlocksTest {
 
         // verify
         assertThat(actual.toString())
-                .isEqualTo("new java.util.HashSet<>(value)");
+                .isEqualTo("java.util.Collections.unmodifiableSet(new java.util.HashSet<>(value))");
     }
 
     @Test
-    public void createUnmodifiableStatementShouldCopyMapDefensively() throws Exception {
+    public void createUnmodifiableStatementShouldWrapMapWithUnmodifiableView() throws Exception {
         // setup
         final TypeElement element = elements.getTypeElement(Map.class.getCanonicalName());
         final TypeMirror mirror = element.asType();
@@ -103,7 +105,7 @@ public class CodeBlocksTest {
 
         // verify
         assertThat(actual.toString())
-                .isEqualTo("new java.util.HashMap<>(value)");
+                .isEqualTo("java.util.Collections.unmodifiableMap(new java.util.HashMap<>(value))");
     }
 
     @Test
@@ -119,4 +121,114 @@ public class CodeBlocksTest {
         assertThat(actual.toString())
                 .isEqualTo("value");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void createGetterStatementShouldCopyArrayDefensively() throws Exception {
+        // setup
+        final TypeMirror mirror = mock(TypeMirror.class);
+        when(mirror.getKind()).thenReturn(TypeKind.ARRAY);
+
+        // exercise
+        final CodeBlock actual = CodeBlocks.createGetterStatement(mirror, "value");
+
+        // verify
+        assertThat(actual.toString())
+                .isEqualTo("java.util.Arrays.copyOf(value, value.length)");
+    }
+
+    @Test
+    public void createGetterStatementShouldReturnCollectionWithoutCopy() throws Exception {
+        // setup
+        final TypeElement element = elements.getTypeElement(Set.class.getCanonicalName());
+        final TypeMirror mirror = element.asType();
+
+        // exercise
+        final CodeBlock actual = CodeBlocks.createGetterStatement(mirror, "value");
+
+        // verify
+        assertThat(actual.toString())
+                .isEqualTo("value");
+    }
+
+    @Test
+    public void createNotEqualsStatementShouldCompareFloatWithCompare() throws Exception {
+        // exercise
+        final CodeBlock actual = CodeBlocks.createNotEqualsStatement(TypeName.FLOAT, CodeBlock.of("a"), CodeBlock.of("b"));
+
+        // verify
+        assertThat(actual.toString())
+                .isEqualTo("java.lang.Float.compare(a, b) != 0");
+    }
+
+    @Test
+    public void createNotEqualsStatementShouldComparePrimitiveWithOperator() throws Exception {
+        // exercise
+        final CodeBlock actual = CodeBlocks.createNotEqualsStatement(TypeName.INT, CodeBlock.of("a"), CodeBlock.of("b"));
+
+        // verify
+        assertThat(actual.toString())
+                .isEqualTo("a != b");
+    }
+
+    @Test
+    public void createNotEqualsStatementShouldCompareObjectNullSafely() throws Exception {
+        // exercise
+        final CodeBlock actual = CodeBlocks.createNotEqualsStatement(TypeName.get(String.class), CodeBlock.of("a"), CodeBlock.of("b"));
+
+        // verify
+        assertThat(actual.toString())
+                .isEqualTo("a == null ? b != null : !a.equals(b)");
+    }
+
+    @Test
+    public void createHashCodeStatementShouldHashBooleanWithoutBoxing() throws Exception {
+        // exercise
+        final CodeBlock actual = CodeBlocks.createHashCodeStatement(TypeName.BOOLEAN, CodeBlock.of("a"));
+
+        // verify
+        assertThat(actual.toString())
+                .isEqualTo("(a ? 1231 : 1237)");
+    }
+
+    @Test
+    public void createHashCodeStatementShouldHashLongWithoutBoxing() throws Exception {
+        // exercise
+        final CodeBlock actual = CodeBlocks.createHashCodeStatement(TypeName.LONG, CodeBlock.of("a"));
+
+        // verify
+        assertThat(actual.toString())
+                .isEqualTo("(int) (a ^ (a >>> 32))");
+    }
+
+    @Test
+    public void createHashCodeStatementShouldHashObjectNullSafely() throws Exception {
+        // exercise
+        final CodeBlock actual = CodeBlocks.createHashCodeStatement(TypeName.get(String.class), CodeBlock.of("a"));
+
+        // verify
+        assertThat(actual.toString())
+                .isEqualTo("(a != null ? a.hashCode() : 0)");
+    }
+
+    @Test
+    public void joiningShouldJoinCodeBlocksWithDelimiter() throws Exception {
+        // exercise
+        final CodeBlock actual = Stream.of(CodeBlock.of("a"), CodeBlock.of("b"), CodeBlock.of("c"))
+                .collect(CodeBlocks.joining(", "));
+
+        // verify
+        assertThat(actual.toString())
+                .isEqualTo("a, b, c");
+    }
+
+    @Test
+    public void joiningShouldReturnEmptyCodeBlockWhenNoElements() throws Exception {
+        // exercise
+        final CodeBlock actual = Stream.<CodeBlock>empty()
+                .collect(CodeBlocks.joining(", "));
+
+        // verify
+        assertThat(actual.isEmpty())
+                .isTrue();
+    }
+}
@@ -91,7 +91,7 @@ public class TypeElementsTest {
         final TypeElement element = elements.getTypeElement(CustomConverter.class.getCanonicalName());
 
         // exercise
-        final List<TypeName> actual = TypeElements.findGenericTypes(element, Converter.class.getSimpleName());
+        final List<TypeName> actual = TypeElements.findGenericTypes(element, Converter.class);
 
         // verify
         assertThat(actual).hasSize(2);
@@ -107,7 +107,7 @@ public class TypeElementsTest {
         final TypeElement element = elements.getTypeElement(ParentConverter.class.getCanonicalName());
 
         // exercise
-        final List<TypeName> actual = TypeElements.findGenericTypes(element, Converter.class.getSimpleName());
+        final List<TypeName> actual = TypeElements.findGenericTypes(element, Converter.class);
 
         // verify
         assertThat(actual).hasSize(2);
@@ -123,7 +123,19 @@ public class TypeElementsTest {
         final TypeElement element = elements.getTypeElement(HashMap.class.getCanonicalName());
 
         // exercise
-        final List<TypeName> actual = TypeElements.findGenericTypes(element, Converter.class.getSimpleName());
+        final List<TypeName> actual = TypeElements.findGenericTypes(element, Converter.class);
+
+        // verify
+        assertThat(actual).isEmpty();
+    }
+
+    @Test
+    public void findGenericTypesShouldIgnoreInterfaceWhoseSimpleNameIsSame() throws Exception {
+        // setup
+        final TypeElement element = elements.getTypeElement(Other.OtherConverter.class.getCanonicalName());
+
+        // exercise
+        final List<TypeName> actual = TypeElements.findGenericTypes(element, Converter.class);
 
         // verify
         assertThat(actual).isEmpty();
@@ -175,4 +187,12 @@ public class TypeElementsTest {
             return String.join(DELIMITER, converted);
         }
     }
-}
\ No newline at end of file
+
+    public static class Other {
+        public interface Converter<A, B> {
+        }
+
+        public static class OtherConverter implements Converter<String, String> {
+        }
+    }
+}
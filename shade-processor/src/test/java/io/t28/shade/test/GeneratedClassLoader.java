@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2016 Tatsuya Maki
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package io.t28.shade.test;
+
+import com.google.common.io.ByteStreams;
+import com.google.testing.compile.Compilation;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Optional;
+
+import javax.annotation.Nonnull;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * ClassLoader which loads classes compiled by a {@link Compilation}
+ * <p>
+ * Classes which are not compiled by the compilation are loaded by the parent, so that generated classes share the
+ * runtime classes with the test.
+ * </p>
+ */
+public class GeneratedClassLoader extends ClassLoader {
+    private final Compilation compilation;
+
+    public GeneratedClassLoader(@Nonnull Compilation compilation) {
+        super(GeneratedClassLoader.class.getClassLoader());
+        this.compilation = compilation;
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+        final String path = name.replace('.', '/') + ".class";
+        final Optional<JavaFileObject> file = compilation.generatedFile(StandardLocation.CLASS_OUTPUT, path);
+        if (!file.isPresent()) {
+            throw new ClassNotFoundException(name);
+        }
+        try (InputStream stream = file.get().openInputStream()) {
+            final byte[] bytes = ByteStreams.toByteArray(stream);
+            return defineClass(name, bytes, 0, bytes.length);
+        } catch (IOException e) {
+            throw new ClassNotFoundException(name, e);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2016 Tatsuya Maki
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package io.t28.shade.test;
+
+import android.content.Context;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+
+import io.t28.shade.storage.Storage;
+import io.t28.shade.storage.StorageFactory;
+
+/**
+ * Factory which shares an {@link InMemoryStorage} by the name within the test
+ */
+public class InMemoryStorageFactory implements StorageFactory {
+    private static final Map<String, InMemoryStorage> STORAGES = new HashMap<>();
+
+    @Nonnull
+    @Override
+    public Storage create(@Nonnull Context context, @Nonnull String name, int mode) {
+        return get(name);
+    }
+
+    @Nonnull
+    public static InMemoryStorage get(@Nonnull String name) {
+        synchronized (STORAGES) {
+            InMemoryStorage storage = STORAGES.get(name);
+            if (storage == null) {
+                storage = new InMemoryStorage();
+                STORAGES.put(name, storage);
+            }
+            return storage;
+        }
+    }
+
+    public static void reset() {
+        synchronized (STORAGES) {
+            STORAGES.clear();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2016 Tatsuya Maki
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package io.t28.shade.test;
+
+import java.util.Date;
+import java.util.Set;
+
+import io.t28.shade.annotation.Preferences;
+import io.t28.shade.annotation.Property;
+import io.t28.shade.converter.DateConverter;
+
+@Preferences(name = "io.t28.shade.test.binary_format", binary = true)
+public interface BinaryFormat {
+    @Property(key = "key_boolean")
+    boolean value1();
+
+    @Property(key = "key_string", defValue = "default")
+    String value2();
+
+    @Property(key = "key_string_set")
+    Set<String> value3();
+
+    @Property(key = "key_date", converter = DateConverter.class)
+    Date value4();
+
+    @Property(key = "key_double", defValue = "0.5")
+    double value5();
+
+    @Property(key = "key_short")
+    short value6();
+
+    @Property(key = "key_int_array")
+    int[] value7();
+}
@@ -0,0 +1,260 @@
+package io.t28.shade.test;
+
+@SuppressWarnings("all")
+public class BinaryFormatPreferences {
+    private static final String BINARY_KEY = "io.t28.shade.binary";
+
+    @NonNull
+    public BinaryFormat get() {
+        return load(storage);
+    }
+
+    @NonNull
+    public String getValue2() {
+        return get().value2();
+    }
+
+    public boolean containsValue2() {
+        final long[] present = new long[1];
+        load(storage, present);
+        return (present[0] & 1L << 1) != 0L;
+    }
+
+    @NonNull
+    private static BinaryFormat load(@NonNull Storage storage) {
+        return load(storage, new long[1]);
+    }
+
+    @NonNull
+    private static BinaryFormat load(@NonNull Storage storage, @NonNull long[] present) {
+        final BinaryFormat decoded = decode(storage.getBytes(BINARY_KEY, null), present);
+        if (decoded != null) {
+            return decoded;
+        }
+        // Read the values stored per key until the blob is written
+        final Snapshot snapshot = new Snapshot(storage.getAll());
+        if (snapshot.contains("key_boolean")) {
+            present[0] |= 1L << 0;
+        }
+        if (snapshot.contains("key_string")) {
+            present[0] |= 1L << 1;
+        }
+        if (snapshot.contains("key_string_set")) {
+            present[0] |= 1L << 2;
+        }
+        if (snapshot.contains("key_date")) {
+            present[0] |= 1L << 3;
+        }
+        if (snapshot.contains("key_double")) {
+            present[0] |= 1L << 4;
+        }
+        if (snapshot.contains("key_short")) {
+            present[0] |= 1L << 5;
+        }
+        if (snapshot.contains("key_int_array")) {
+            present[0] |= 1L << 6;
+        }
+        return new BinaryFormatImpl(
+                snapshot.getBoolean("key_boolean", false),
+                snapshot.getString("key_string", "default"),
+                snapshot.getStringSet("key_string_set", Collections.<String>emptySet()),
+                DateConverterHolder.INSTANCE.toConverted(snapshot.getLong("key_date", 0L)),
+                Double.longBitsToDouble(snapshot.getLong("key_double", 0x3fe0000000000000L)),
+                (short) snapshot.getInt("key_short", 0),
+                ArrayCodec.decodeIntArray(snapshot.getBytes("key_int_array", null), new int[0]));
+    }
+
+    @Nullable
+    private static BinaryFormat decode(@Nullable byte[] bytes, @NonNull long[] present) {
+        if (bytes == null) {
+            return null;
+        }
+        // A property which is not in the blob is the default value
+        boolean storedValue1 = false;
+        String storedValue2 = "default";
+        Set<String> storedValue3 = Collections.<String>emptySet();
+        long storedValue4 = 0L;
+        double storedValue5 = 0.5d;
+        short storedValue6 = (short) 0;
+        int[] storedValue7 = new int[0];
+        try {
+            final BinaryReader reader = new BinaryReader(bytes);
+            if (reader.readFixedInt() != BinaryWriter.HEADER) {
+                return null;
+            }
+            while (reader.hasRemaining()) {
+                final String key = reader.readKey();
+                final int type = reader.readType();
+                switch (key) {
+                    case "key_boolean":
+                        if (type == BinaryWriter.TYPE_BOOLEAN) {
+                            storedValue1 = reader.readBoolean();
+                            present[0] |= 1L << 0;
+                            continue;
+                        }
+                        break;
+                    case "key_string":
+                        if (type == BinaryWriter.TYPE_STRING) {
+                            storedValue2 = reader.readString("default");
+                            present[0] |= 1L << 1;
+                            continue;
+                        }
+                        break;
+                    case "key_string_set":
+                        if (type == BinaryWriter.TYPE_STRING_SET) {
+                            storedValue3 = reader.readStringSet(Collections.<String>emptySet());
+                            present[0] |= 1L << 2;
+                            continue;
+                        }
+                        break;
+                    case "key_date":
+                        if (type == BinaryWriter.TYPE_LONG) {
+                            storedValue4 = reader.readLong();
+                            present[0] |= 1L << 3;
+                            continue;
+                        }
+                        break;
+                    case "key_double":
+                        if (type == BinaryWriter.TYPE_DOUBLE) {
+                            storedValue5 = reader.readDouble();
+                            present[0] |= 1L << 4;
+                            continue;
+                        }
+                        break;
+                    case "key_short":
+                        if (type == BinaryWriter.TYPE_INT) {
+                            storedValue6 = (short) reader.readInt();
+                            present[0] |= 1L << 5;
+                            continue;
+                        }
+                        break;
+                    case "key_int_array":
+                        if (type == BinaryWriter.TYPE_INT_ARRAY) {
+                            storedValue7 = reader.readIntArray(new int[0]);
+                            present[0] |= 1L << 6;
+                            continue;
+                        }
+                        break;
+                }
+                // The property is removed or its type is changed
+                reader.skip(type);
+            }
+        } catch (IllegalArgumentException e) {
+            // The rest of the blob is truncated or malformed, and the properties read so far are kept
+        }
+        return new BinaryFormatImpl(
+                storedValue1,
+                storedValue2,
+                storedValue3,
+                DateConverterHolder.INSTANCE.toConverted(storedValue4),
+                storedValue5,
+                storedValue6,
+                storedValue7);
+    }
+
+    @NonNull
+    private static byte[] encode(@NonNull BinaryFormat model, @NonNull long[] present) {
+        final BinaryWriter writer = new BinaryWriter().writeFixedInt(BinaryWriter.HEADER);
+        if ((present[0] & 1L << 0) != 0L) {
+            writer.writeField("key_boolean", BinaryWriter.TYPE_BOOLEAN).writeBoolean(model.value1());
+        }
+        if ((present[0] & 1L << 1) != 0L) {
+            writer.writeField("key_string", BinaryWriter.TYPE_STRING).writeString(model.value2());
+        }
+        if ((present[0] & 1L << 2) != 0L) {
+            writer.writeField("key_string_set", BinaryWriter.TYPE_STRING_SET).writeStringSet(model.value3());
+        }
+        if ((present[0] & 1L << 3) != 0L) {
+            writer.writeField("key_date", BinaryWriter.TYPE_LONG).writeLong(DateConverterHolder.INSTANCE.toSupported(model.value4()));
+        }
+        if ((present[0] & 1L << 4) != 0L) {
+            writer.writeField("key_double", BinaryWriter.TYPE_DOUBLE).writeDouble(model.value5());
+        }
+        if ((present[0] & 1L << 5) != 0L) {
+            writer.writeField("key_short", BinaryWriter.TYPE_INT).writeInt(model.value6());
+        }
+        if ((present[0] & 1L << 6) != 0L) {
+            writer.writeField("key_int_array", BinaryWriter.TYPE_INT_ARRAY).writeIntArray(model.value7());
+        }
+        return writer.toByteArray();
+    }
+
+    public static class Editor {
+        private final long[] present = new long[1];
+
+        @NonNull
+        public Editor putValue2(@NonNull String value2) {
+            this.value2 = value2;
+            present[0] |= 1L << 1;
+            dirty[0] |= 1L << 1;
+            return this;
+        }
+
+        public void apply() {
+            if (!isDirty()) {
+                return;
+            }
+            final Lock lock = storage.getLock();
+            lock.lock();
+            try {
+                putBinary();
+                editor.apply();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public boolean commit() {
+            if (!isDirty()) {
+                return true;
+            }
+            final Lock lock = storage.getLock();
+            lock.lock();
+            try {
+                putBinary();
+                editor.apply();
+            } finally {
+                lock.unlock();
+            }
+            return storage.edit().commit();
+        }
+
+        private boolean isAllDirty() {
+            return (dirty[0] & 0x7fL) == 0x7fL;
+        }
+
+        @NonNull
+        private BinaryFormat merge(@NonNull long[] merged) {
+            // The stored model is read only when any property is not written by this editor
+            final long[] stored = new long[dirty.length];
+            final BinaryFormat current = isAllDirty() ? null : load(storage, stored);
+            for (int word = 0; word < dirty.length; word++) {
+                merged[word] = (stored[word] & ~dirty[word]) | (present[word] & dirty[word]);
+            }
+            return new BinaryFormatImpl(
+                    (dirty[0] & 1L << 0) != 0L ? value1 : current.value1(),
+                    (dirty[0] & 1L << 1) != 0L ? value2 : current.value2(),
+                    (dirty[0] & 1L << 2) != 0L ? value3 : current.value3(),
+                    (dirty[0] & 1L << 3) != 0L ? value4 : current.value4(),
+                    (dirty[0] & 1L << 4) != 0L ? value5 : current.value5(),
+                    (dirty[0] & 1L << 5) != 0L ? value6 : current.value6(),
+                    (dirty[0] & 1L << 6) != 0L ? value7 : current.value7());
+        }
+
+        private void putBinary() {
+            if (!storage.contains(BINARY_KEY)) {
+                // The values stored per key are moved into the blob in the same transaction
+                editor.remove("key_boolean");
+                editor.remove("key_string");
+                editor.remove("key_string_set");
+                editor.remove("key_date");
+                editor.remove("key_double");
+                editor.remove("key_short");
+                editor.remove("key_int_array");
+            }
+            final long[] merged = new long[dirty.length];
+            final BinaryFormat model = merge(merged);
+            editor.putBytes(BINARY_KEY, encode(model, merged));
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package io.t28.shade.test;
+
+@SuppressWarnings("all")
+public class CacheSnapshotPreferences {
+    private final SnapshotCache<CacheSnapshot> snapshotCache = new SnapshotCache<>();
+
+    private final Storage.OnChangeListener changeListener = new Storage.OnChangeListener() {
+        @Override
+        public void onChanged(@NonNull Storage storage, @Nullable String key) {
+            snapshotCache.invalidate();
+        }
+    };
+
+    public CacheSnapshotPreferences(@NonNull Context context) {
+        this.preferences = context.getApplicationContext().getSharedPreferences("io.t28.shade.test.cache_snapshot", 0);
+        this.storage = new SharedPreferencesStorage(preferences);
+        this.storage.registerListener(changeListener);
+    }
+
+    @NonNull
+    public CacheSnapshot get() {
+        final CacheSnapshot cached = snapshotCache.get();
+        if (cached != null) {
+            return cached;
+        }
+        final int stamp = snapshotCache.stamp();
+        final Snapshot snapshot = new Snapshot(storage.getAll());
+        final CacheSnapshot loaded = new CacheSnapshotImpl(
+                snapshot.getBoolean("key_boolean", false),
+                snapshot.getString("key_string", "default"));
+        snapshotCache.put(stamp, loaded);
+        return loaded;
+    }
+
+    @NonNull
+    public Editor edit() {
+        return new Editor(storage, snapshotCache);
+    }
+
+    public static class Editor {
+        private final SnapshotCache<CacheSnapshot> snapshotCache;
+
+        protected Editor(@NonNull Storage storage, @NonNull SnapshotCache<CacheSnapshot> snapshotCache) {
+            this.storage = storage;
+            this.editor = storage.edit();
+            this.snapshotCache = snapshotCache;
+        }
+
+        public void apply() {
+            if (!isDirty()) {
+                return;
+            }
+            final Lock lock = storage.getLock();
+            lock.lock();
+            try {
+                editor.apply();
+            } finally {
+                lock.unlock();
+            }
+            snapshotCache.invalidate();
+        }
+
+        public boolean commit() {
+            if (!isDirty()) {
+                return true;
+            }
+            final Lock lock = storage.getLock();
+            lock.lock();
+            try {
+                editor.apply();
+            } finally {
+                lock.unlock();
+            }
+            snapshotCache.invalidate();
+            return storage.edit().commit();
+        }
+    }
+}
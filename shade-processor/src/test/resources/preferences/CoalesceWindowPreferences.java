@@ -0,0 +1,15 @@
+package io.t28.shade.test;
+
+@SuppressWarnings("all")
+public class CoalesceWindowPreferences {
+    private final CoalescingStorage storage;
+
+    public CoalesceWindowPreferences(@NonNull Context context) {
+        this.preferences = context.getApplicationContext().getSharedPreferences("io.t28.shade.test.coalesce_window", 0);
+        this.storage = CoalescingStorage.wrap("io.t28.shade.test.coalesce_window", new SharedPreferencesStorage(preferences), 500L);
+    }
+
+    public void flush() {
+        storage.flush();
+    }
+}
@@ -0,0 +1,32 @@
+package io.t28.shade.test;
+
+@SuppressWarnings("all")
+public class ColdPropertyPreferences {
+    public ColdPropertyPreferences(@NonNull Context context) {
+        this.preferences = context.getApplicationContext().getSharedPreferences("io.t28.shade.test.cold_property", 0);
+        this.storage = new SplitStorage(new SharedPreferencesStorage(preferences), new SharedPreferencesStorageFactory(), context.getApplicationContext(), "io.t28.shade.test.cold_property.cold", 0, "key_history", "key_launch_count");
+    }
+
+    @NonNull
+    public ColdProperty get() {
+        final Snapshot snapshot = new Snapshot(storage.getAll());
+        return new ColdPropertyImpl(
+                snapshot.getString("key_session_id", ""),
+                snapshot.getStringSet("key_history", Collections.<String>emptySet()),
+                snapshot.getInt("key_launch_count", 0));
+    }
+
+    @NonNull
+    public String getValue1() {
+        return storage.getString("key_session_id", "");
+    }
+
+    @NonNull
+    public Set<String> getValue2() {
+        return storage.getStringSet("key_history", Collections.<String>emptySet());
+    }
+
+    public int getValue3() {
+        return storage.getInt("key_launch_count", 0);
+    }
+}
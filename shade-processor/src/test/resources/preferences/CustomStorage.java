@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2016 Tatsuya Maki
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package io.t28.shade.test;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+
+import io.t28.shade.annotation.Preferences;
+import io.t28.shade.annotation.Property;
+import io.t28.shade.storage.SharedPreferencesStorage;
+import io.t28.shade.storage.Storage;
+import io.t28.shade.storage.StorageFactory;
+
+@Preferences(name = "io.t28.shade.test.custom_storage", storage = CustomStorage.Factory.class)
+public interface CustomStorage {
+    @Property(key = "key_boolean")
+    boolean value1();
+
+    @Property(key = "key_string", defValue = "default")
+    String value2();
+
+    class Factory implements StorageFactory {
+        @NonNull
+        @Override
+        public Storage create(@NonNull Context context, @NonNull String name, int mode) {
+            return new SharedPreferencesStorage(context.getSharedPreferences(name, mode));
+        }
+    }
+}
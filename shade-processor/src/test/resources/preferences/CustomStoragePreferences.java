@@ -0,0 +1,15 @@
+package io.t28.shade.test;
+
+@SuppressWarnings("all")
+public class CustomStoragePreferences {
+    private final Storage storage;
+
+    public CustomStoragePreferences(@NonNull Context context) {
+        this.storage = new CustomStorage.Factory().create(context.getApplicationContext(), "io.t28.shade.test.custom_storage", 0);
+    }
+
+    @NonNull
+    public Storage getStorage() {
+        return storage;
+    }
+}
@@ -3,38 +3,232 @@ package io.t28.shade.test.type;
 import android.content.Context;
 import android.content.SharedPreferences;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import io.t28.shade.annotation.Property;
-import io.t28.shade.internal.EqualsBuilder;
-import io.t28.shade.internal.HashCodeBuilder;
-import io.t28.shade.internal.ToStringBuilder;
+import io.t28.shade.function.UnaryOperator;
+import io.t28.shade.internal.Snapshot;
+import io.t28.shade.storage.SharedPreferencesStorage;
+import io.t28.shade.storage.Storage;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.Lock;
 
 @SuppressWarnings("all")
 public class InterfaceTypePreferences {
+    private static volatile InterfaceTypePreferences instance;
+
+    private final Storage storage;
+
     private final SharedPreferences preferences;
 
+    private final Map<OnChangeListener, BitSet> listeners = new ConcurrentHashMap<>();
+
+    private final AtomicIntegerArray listenerCounts = new AtomicIntegerArray(1);
+
+    private final Storage.OnChangeListener changeDispatcher = new Storage.OnChangeListener() {
+        @Override
+        public void onChanged(@NonNull Storage storage, @Nullable String key) {
+            dispatchChange(key);
+        }
+    };
+
     public InterfaceTypePreferences(@NonNull Context context) {
         this.preferences = context.getApplicationContext().getSharedPreferences("io.t28.shade.test", 0);
+        this.storage = new SharedPreferencesStorage(preferences);
+    }
+
+    @NonNull
+    public static InterfaceTypePreferences getInstance(@NonNull Context context) {
+        InterfaceTypePreferences current = instance;
+        if (current == null) {
+            synchronized (InterfaceTypePreferences.class) {
+                current = instance;
+                if (current == null) {
+                    current = new InterfaceTypePreferences(context);
+                    instance = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    @NonNull
+    public static Future<InterfaceTypePreferences> preload(@NonNull final Context context, @NonNull Executor executor) {
+        final FutureTask<InterfaceTypePreferences> task = new FutureTask<>(new Callable<InterfaceTypePreferences>() {
+            @Override
+            public InterfaceTypePreferences call() throws Exception {
+                final InterfaceTypePreferences preferences = getInstance(context);
+                preferences.get();
+                return preferences;
+            }
+        });
+        executor.execute(task);
+        return task;
     }
 
     @NonNull
     public InterfaceType get() {
-        return new InterfaceTypeImpl(getValue());
+        final Snapshot snapshot = new Snapshot(storage.getAll());
+        return new InterfaceTypeImpl(
+                snapshot.getString("test_value", ""));
+    }
+
+    @NonNull
+    public InterfaceType getLazy() {
+        return new InterfaceTypeLazyImpl(storage);
     }
 
     @NonNull
     public String getValue() {
-        return preferences.getString("test_value", "");
+        return storage.getString("test_value", "");
     }
 
     public boolean containsValue() {
-        return preferences.contains("test_value");
+        return storage.contains("test_value");
     }
 
     @NonNull
     public Editor edit() {
-        return new Editor(preferences);
+        return new Editor(storage);
+    }
+
+    @NonNull
+    public InterfaceType update(@NonNull UnaryOperator<InterfaceType> operator) {
+        while (true) {
+            final InterfaceType current = get();
+            final InterfaceType updated = operator.apply(current);
+            final Editor editor = edit().put(updated);
+            final Lock lock = storage.getLock();
+            lock.lock();
+            try {
+                if (!current.equals(get())) {
+                    continue;
+                }
+                editor.apply();
+                return updated;
+            } finally {
+                lock.unlock();
+            }
+        }
     }
 
+    @NonNull
+    public String updateValue(@NonNull UnaryOperator<String> operator) {
+        while (true) {
+            final String current = getValue();
+            final String updated = operator.apply(current);
+            final Editor editor = edit().putValue(updated);
+            final Lock lock = storage.getLock();
+            lock.lock();
+            try {
+                if (current == null ? getValue() != null : !current.equals(getValue())) {
+                    continue;
+                }
+                editor.apply();
+                return updated;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    public void register(@NonNull OnChangeListener listener) {
+        final BitSet properties = new BitSet();
+        properties.set(0, 1);
+        register(listener, properties);
+    }
+
+    public void register(@NonNull OnChangeListener listener, @NonNull String... keys) {
+        final BitSet properties = new BitSet();
+        for (final String key : keys) {
+            switch (key) {
+                case "test_value":
+                    properties.set(0);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Property of key(" + key + ") does not exist");
+            }
+        }
+        register(listener, properties);
+    }
+
+    private void register(@NonNull OnChangeListener listener, @NonNull BitSet properties) {
+        synchronized (listeners) {
+            if (listeners.isEmpty()) {
+                storage.registerListener(changeDispatcher);
+            }
+            updateListenerCounts(listeners.put(listener, properties), -1);
+            updateListenerCounts(properties, 1);
+        }
+    }
+
+    public void unregister(@NonNull OnChangeListener listener) {
+        synchronized (listeners) {
+            final BitSet properties = listeners.remove(listener);
+            if (properties == null) {
+                return;
+            }
+            updateListenerCounts(properties, -1);
+            if (listeners.isEmpty()) {
+                storage.unregisterListener(changeDispatcher);
+            }
+        }
+    }
+
+    private void updateListenerCounts(@Nullable BitSet properties, int delta) {
+        if (properties == null) {
+            return;
+        }
+        for (int index = properties.nextSetBit(0); index >= 0; index = properties.nextSetBit(index + 1)) {
+            listenerCounts.addAndGet(index, delta);
+        }
+    }
+
+    private void dispatchChange(@Nullable String key) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        if (key == null) {
+            dispatchValueChanged();
+            return;
+        }
+        switch (key) {
+            case "test_value":
+                dispatchValueChanged();
+                break;
+        }
+    }
+
+    private void dispatchValueChanged() {
+        if (listenerCounts.get(0) == 0) {
+            // The value is neither read nor converted unless a listener of the property is registered
+            return;
+        }
+        final String value = getValue();
+        for (final Map.Entry<OnChangeListener, BitSet> entry : listeners.entrySet()) {
+            if (entry.getValue().get(0)) {
+                entry.getKey().onValueChanged(value);
+            }
+        }
+    }
+
+    @NonNull
+    public Storage getStorage() {
+        return storage;
+    }
+
+    /**
+     * @deprecated Use {@link #getStorage()} instead. Values which are coalesced, stored into other files or packed
+     * are not read or written as they are through {@code SharedPreferences}.
+     */
+    @Deprecated
     @NonNull
     public SharedPreferences getSharedPreferences() {
         return preferences;
@@ -43,6 +237,10 @@ public class InterfaceTypePreferences {
     public static class InterfaceTypeImpl implements InterfaceType {
         private final String value;
 
+        private int cachedHashCode;
+
+        private String cachedToString;
+
         public InterfaceTypeImpl(@NonNull String value) {
             this.value = value;
         }
@@ -56,24 +254,36 @@ public class InterfaceTypePreferences {
                 return false;
             }
             final InterfaceType that = (InterfaceType) object;
-            final EqualsBuilder builder = new EqualsBuilder();
-            builder.append(value, that.value());
-            return builder.build();
+            if (value == null ? that.value() != null : !value.equals(that.value())) {
+                return false;
+            }
+            return true;
         }
 
         @Override
         public int hashCode() {
-            final HashCodeBuilder builder = new HashCodeBuilder();
-            builder.append(value);
-            return builder.build();
+            int result = cachedHashCode;
+            if (result == 0) {
+                result = 1;
+                result = 31 * result + (value != null ? value.hashCode() : 0);
+                cachedHashCode = result;
+            }
+            return result;
         }
 
         @NonNull
         @Override
         public String toString() {
-            final ToStringBuilder builder = new ToStringBuilder(this);
-            builder.append("value", value);
-            return builder.toString();
+            String result = cachedToString;
+            if (result == null) {
+                result = new StringBuilder(41)
+                        .append("InterfaceTypeImpl{")
+                        .append("value=").append(value)
+                        .append('}')
+                        .toString();
+                cachedToString = result;
+            }
+            return result;
         }
 
         @Override
@@ -85,39 +295,174 @@ public class InterfaceTypePreferences {
         }
     }
 
+    public static class InterfaceTypeLazyImpl implements InterfaceType {
+        private final Storage storage;
+
+        private volatile boolean valueLoaded;
+
+        private String value;
+
+        private int cachedHashCode;
+
+        private String cachedToString;
+
+        public InterfaceTypeLazyImpl(@NonNull Storage storage) {
+            this.storage = storage;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (this == object) {
+                return true;
+            }
+            if (!(object instanceof InterfaceType)) {
+                return false;
+            }
+            final InterfaceType that = (InterfaceType) object;
+            if (value() == null ? that.value() != null : !value().equals(that.value())) {
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = cachedHashCode;
+            if (result == 0) {
+                result = 1;
+                result = 31 * result + (value() != null ? value().hashCode() : 0);
+                cachedHashCode = result;
+            }
+            return result;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            String result = cachedToString;
+            if (result == null) {
+                result = new StringBuilder(45)
+                        .append("InterfaceTypeLazyImpl{")
+                        .append("value=").append(value())
+                        .append('}')
+                        .toString();
+                cachedToString = result;
+            }
+            return result;
+        }
+
+        @Override
+        @Property(
+                key = "test_value"
+        )
+        public String value() {
+            if (!valueLoaded) {
+                final String loaded = storage.getString("test_value", "");
+                this.value = loaded;
+                this.valueLoaded = true;
+            }
+            return value;
+        }
+    }
+
     public static class Editor {
-        private final SharedPreferences.Editor editor;
+        private final Storage storage;
+
+        private final Storage.Editor editor;
 
-        protected Editor(@NonNull SharedPreferences preferences) {
-            this.editor = preferences.edit();
+        private final long[] dirty = new long[1];
+
+        protected Editor(@NonNull Storage storage) {
+            this.storage = storage;
+            this.editor = storage.edit();
         }
 
         @NonNull
         public Editor put(@NonNull InterfaceType interfaceType) {
-            putValue(interfaceType.value());
+            final Snapshot snapshot = new Snapshot(storage.getAll());
+            final String value = interfaceType.value();
+            if ((dirty[0] & 1L << 0) != 0L || !snapshot.contains("test_value")) {
+                putValue(value);
+            } else {
+                final String storedValue = snapshot.getString("test_value", "");
+                if (value == null ? storedValue != null : !value.equals(storedValue)) {
+                    putValue(value);
+                }
+            }
             return this;
         }
 
         @NonNull
         public Editor putValue(@NonNull String value) {
             editor.putString("test_value", value);
+            dirty[0] |= 1L << 0;
             return this;
         }
 
         @NonNull
         public Editor removeValue() {
             editor.remove("test_value");
+            dirty[0] |= 1L << 0;
             return this;
         }
 
         @NonNull
         public Editor clear() {
             editor.clear();
+            Arrays.fill(dirty, -1L);
             return this;
         }
 
         public void apply() {
-            editor.apply();
+            if (!isDirty()) {
+                return;
+            }
+            final Lock lock = storage.getLock();
+            lock.lock();
+            try {
+                editor.apply();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public boolean commit() {
+            if (!isDirty()) {
+                return true;
+            }
+            final Lock lock = storage.getLock();
+            lock.lock();
+            try {
+                editor.apply();
+            } finally {
+                lock.unlock();
+            }
+            return storage.edit().commit();
         }
+
+        @NonNull
+        public Future<Boolean> commitAsync(@NonNull Executor executor) {
+            final FutureTask<Boolean> task = new FutureTask<>(new Callable<Boolean>() {
+                @Override
+                public Boolean call() throws Exception {
+                    return Editor.this.commit();
+                }
+            });
+            executor.execute(task);
+            return task;
+        }
+
+        private boolean isDirty() {
+            for (final long word : dirty) {
+                if (word != 0L) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    public interface OnChangeListener {
+        void onValueChanged(@NonNull String value);
     }
 }
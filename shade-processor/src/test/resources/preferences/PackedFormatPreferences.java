@@ -0,0 +1,196 @@
+package io.t28.shade.test;
+
+@SuppressWarnings("all")
+public class PackedFormatPreferences {
+    private static final String PACKED_KEY_0 = "io.t28.shade.packed.0";
+
+    private static final String PACKED_LAYOUT = "key_enabled@0:0,key_visible@0:1,key_features@0:2[SYNC|BACKUP|SHARE]";
+
+    private static final long PACKED_VERSION = 0xd69b2af03116d5bcL;
+
+    @NonNull
+    public PackedFormat get() {
+        final Snapshot snapshot = new Snapshot(storage.getAll());
+        return new PackedFormatImpl(
+                (loadPacked0(snapshot) & 0x1L) != 0L,
+                (loadPacked0(snapshot) & 0x2L) != 0L,
+                snapshot.getInt("key_count", 0),
+                decodePackedFormatFeatureSet(loadPacked0(snapshot) >>> 2));
+    }
+
+    public boolean getValue1() {
+        return (loadPacked0(storage) & 0x1L) != 0L;
+    }
+
+    public boolean getValue2() {
+        return (loadPacked0(storage) & 0x2L) != 0L;
+    }
+
+    public int getValue3() {
+        return storage.getInt("key_count", 0);
+    }
+
+    @NonNull
+    public EnumSet<PackedFormat.Feature> getValue4() {
+        return decodePackedFormatFeatureSet(loadPacked0(storage) >>> 2);
+    }
+
+    public boolean containsValue1() {
+        return (storage.getLong(PackedLayout.VERSION_KEY, 0L) == PACKED_VERSION || PackedLayout.contains(storage.getString(PackedLayout.KEY, null), "key_enabled") || storage.contains("key_enabled"));
+    }
+
+    public boolean containsValue2() {
+        return (storage.getLong(PackedLayout.VERSION_KEY, 0L) == PACKED_VERSION || PackedLayout.contains(storage.getString(PackedLayout.KEY, null), "key_visible") || storage.contains("key_visible"));
+    }
+
+    public boolean containsValue3() {
+        return storage.contains("key_count");
+    }
+
+    public boolean containsValue4() {
+        return (storage.getLong(PackedLayout.VERSION_KEY, 0L) == PACKED_VERSION || PackedLayout.contains(storage.getString(PackedLayout.KEY, null), "key_features"));
+    }
+
+    private static long loadPacked0(@NonNull Storage storage) {
+        if (storage.getLong(PackedLayout.VERSION_KEY, 0L) == PACKED_VERSION) {
+            return storage.getLong(PACKED_KEY_0, 0x1L);
+        }
+        if (storage.contains(PackedLayout.KEY)) {
+            // The words which are written by another version are rewritten in this layout once
+            migratePacked(storage);
+            return storage.getLong(PACKED_KEY_0, 0x1L);
+        }
+        // Read the values stored per key until the words are written
+        long word = 0L;
+        if (storage.getBoolean("key_enabled", true)) {
+            word |= 0x1L;
+        }
+        if (storage.getBoolean("key_visible", false)) {
+            word |= 0x2L;
+        }
+        return word;
+    }
+
+    private static long loadPacked0(@NonNull Snapshot snapshot) {
+        if (snapshot.getLong(PackedLayout.VERSION_KEY, 0L) == PACKED_VERSION) {
+            return snapshot.getLong(PACKED_KEY_0, 0x1L);
+        }
+        final String layout = snapshot.getString(PackedLayout.KEY, null);
+        if (layout != null) {
+            // The bits are moved by key from the layout which is written by another version
+            return PackedLayout.remap(snapshot.getAll(), layout, PACKED_LAYOUT, 0, 0x1L);
+        }
+        // Read the values stored per key until the words are written
+        long word = 0L;
+        if (snapshot.getBoolean("key_enabled", true)) {
+            word |= 0x1L;
+        }
+        if (snapshot.getBoolean("key_visible", false)) {
+            word |= 0x2L;
+        }
+        return word;
+    }
+
+    private static void migratePacked(@NonNull Storage storage) {
+        final Lock lock = storage.getLock();
+        lock.lock();
+        try {
+            final String layout = storage.getString(PackedLayout.KEY, null);
+            if (layout == null || storage.getLong(PackedLayout.VERSION_KEY, 0L) == PACKED_VERSION) {
+                // The words are rewritten by another thread or are removed while waiting for the lock
+                return;
+            }
+            final Map<String, ?> values = storage.getAll();
+            storage.edit()
+                    .putLong(PACKED_KEY_0, PackedLayout.remap(values, layout, PACKED_LAYOUT, 0, 0x1L))
+                    .putString(PackedLayout.KEY, PACKED_LAYOUT)
+                    .putLong(PackedLayout.VERSION_KEY, PACKED_VERSION)
+                    .apply();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @NonNull
+    private static EnumSet<PackedFormat.Feature> decodePackedFormatFeatureSet(long bits) {
+        final EnumSet<PackedFormat.Feature> set = EnumSet.noneOf(PackedFormat.Feature.class);
+        if ((bits & 0x1L) != 0L) {
+            set.add(PackedFormat.Feature.SYNC);
+        }
+        if ((bits & 0x2L) != 0L) {
+            set.add(PackedFormat.Feature.BACKUP);
+        }
+        if ((bits & 0x4L) != 0L) {
+            set.add(PackedFormat.Feature.SHARE);
+        }
+        return set;
+    }
+
+    private static long encodePackedFormatFeatureSet(@NonNull EnumSet<PackedFormat.Feature> value) {
+        long bits = 0L;
+        if (value.contains(PackedFormat.Feature.SYNC)) {
+            bits |= 0x1L;
+        }
+        if (value.contains(PackedFormat.Feature.BACKUP)) {
+            bits |= 0x2L;
+        }
+        if (value.contains(PackedFormat.Feature.SHARE)) {
+            bits |= 0x4L;
+        }
+        return bits;
+    }
+
+    public static class Editor {
+        private long packed0;
+
+        private long packedMask0;
+
+        private boolean cleared;
+
+        @NonNull
+        public Editor putValue1(boolean value1) {
+            this.packed0 = (this.packed0 & ~0x1L) | (value1 ? 0x1L : 0L);
+            this.packedMask0 |= 0x1L;
+            dirty[0] |= 1L << 0;
+            return this;
+        }
+
+        @NonNull
+        public Editor putValue2(boolean value2) {
+            this.packed0 = (this.packed0 & ~0x2L) | (value2 ? 0x2L : 0L);
+            this.packedMask0 |= 0x2L;
+            dirty[0] |= 1L << 1;
+            return this;
+        }
+
+        @NonNull
+        public Editor putValue3(int value3) {
+            editor.putInt("key_count", value3);
+            dirty[0] |= 1L << 2;
+            return this;
+        }
+
+        @NonNull
+        public Editor putValue4(@NonNull EnumSet<PackedFormat.Feature> value4) {
+            this.packed0 = (this.packed0 & ~0x1cL) | encodePackedFormatFeatureSet(value4) << 2;
+            this.packedMask0 |= 0x1cL;
+            dirty[0] |= 1L << 3;
+            return this;
+        }
+
+        private void putPacked() {
+            // Words of another layout are rewritten in this layout, and the values stored per key are folded into them
+            final boolean migrated = cleared || !(storage.getLong(PackedLayout.VERSION_KEY, 0L) == PACKED_VERSION);
+            if (migrated) {
+                editor.remove("key_enabled");
+                editor.remove("key_visible");
+                editor.putString(PackedLayout.KEY, PACKED_LAYOUT);
+                editor.putLong(PackedLayout.VERSION_KEY, PACKED_VERSION);
+            }
+            if (migrated || packedMask0 != 0L) {
+                final long current = cleared ? 0x1L : loadPacked0(storage);
+                editor.putLong(PACKED_KEY_0, (current & ~packedMask0) | packed0);
+            }
+        }
+    }
+}
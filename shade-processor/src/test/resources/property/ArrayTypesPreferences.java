@@ -0,0 +1,66 @@
+package io.t28.shade.test;
+
+@SuppressWarnings("all")
+public class ArrayTypesPreferences {
+    @NonNull
+    public int[] getValue1() {
+        return ArrayCodec.decodeIntArray(storage.getBytes("key_int_array", null), new int[0]);
+    }
+
+    @NonNull
+    public long[] getValue2() {
+        return ArrayCodec.decodeLongArray(storage.getBytes("key_long_array", null), new long[0]);
+    }
+
+    @NonNull
+    public float[] getValue3() {
+        return ArrayCodec.decodeFloatArray(storage.getBytes("key_float_array", null), new float[0]);
+    }
+
+    @NonNull
+    public byte[] getValue4() {
+        return storage.getBytes("key_byte_array", new byte[0]);
+    }
+
+    @NonNull
+    public List<String> getValue5() {
+        return ArrayCodec.decodeStringList(storage.getBytes("key_string_list", null), Collections.<String>emptyList());
+    }
+
+    public static class Editor {
+        @NonNull
+        public Editor putValue1(@NonNull int[] value1) {
+            editor.putBytes("key_int_array", ArrayCodec.encode(value1));
+            dirty[0] |= 1L << 0;
+            return this;
+        }
+
+        @NonNull
+        public Editor putValue2(@NonNull long[] value2) {
+            editor.putBytes("key_long_array", ArrayCodec.encode(value2));
+            dirty[0] |= 1L << 1;
+            return this;
+        }
+
+        @NonNull
+        public Editor putValue3(@NonNull float[] value3) {
+            editor.putBytes("key_float_array", ArrayCodec.encode(value3));
+            dirty[0] |= 1L << 2;
+            return this;
+        }
+
+        @NonNull
+        public Editor putValue4(@NonNull byte[] value4) {
+            editor.putBytes("key_byte_array", value4);
+            dirty[0] |= 1L << 3;
+            return this;
+        }
+
+        @NonNull
+        public Editor putValue5(@NonNull List<String> value5) {
+            editor.putBytes("key_string_list", ArrayCodec.encode(value5));
+            dirty[0] |= 1L << 4;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package io.t28.shade.test;
+
+@SuppressWarnings("all")
+public class EnumPropertyPreferences {
+    @NonNull
+    public EnumProperty.Theme getTheme() {
+        return decodeEnumPropertyTheme(storage.getString("key_theme", "DARK"), EnumProperty.Theme.DARK);
+    }
+
+    @NonNull
+    public EnumProperty.SortOrder getSortOrder() {
+        return decodeEnumPropertySortOrder(storage.getInt("key_sort_order", 10), EnumProperty.SortOrder.NEWEST);
+    }
+
+    @NonNull
+    private static EnumProperty.Theme decodeEnumPropertyTheme(@Nullable String value, @NonNull EnumProperty.Theme defValue) {
+        if (value == null) {
+            return defValue;
+        }
+        switch (value) {
+            case "LIGHT":
+                return EnumProperty.Theme.LIGHT;
+            case "DARK":
+                return EnumProperty.Theme.DARK;
+            default:
+                return defValue;
+        }
+    }
+
+    @NonNull
+    private static EnumProperty.SortOrder decodeEnumPropertySortOrder(int value, @NonNull EnumProperty.SortOrder defValue) {
+        switch (value) {
+            case 10:
+                return EnumProperty.SortOrder.NEWEST;
+            case 20:
+                return EnumProperty.SortOrder.OLDEST;
+            default:
+                return defValue;
+        }
+    }
+
+    private static int encodeEnumPropertySortOrder(@NonNull EnumProperty.SortOrder value) {
+        switch (value) {
+            case NEWEST:
+                return 10;
+            case OLDEST:
+                return 20;
+            default:
+                throw new IllegalArgumentException("Unknown constant: " + value);
+        }
+    }
+
+    public static class Editor {
+        @NonNull
+        public Editor putTheme(@NonNull EnumProperty.Theme theme) {
+            editor.putString("key_theme", theme.name());
+            dirty[0] |= 1L << 0;
+            return this;
+        }
+
+        @NonNull
+        public Editor putSortOrder(@NonNull EnumProperty.SortOrder sortOrder) {
+            editor.putInt("key_sort_order", encodeEnumPropertySortOrder(sortOrder));
+            dirty[0] |= 1L << 1;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package io.t28.shade.test;
+
+@SuppressWarnings("all")
+public class ExternalValuePreferences {
+    public ExternalValuePreferences(@NonNull Context context) {
+        this.preferences = context.getApplicationContext().getSharedPreferences("io.t28.shade.test.external", 0);
+        this.storage = new ExternalStorage(new SharedPreferencesStorage(preferences), context.getApplicationContext(), "io.t28.shade.test.external", "key_response", "key_website");
+    }
+
+    @NonNull
+    public ExternalValue get() {
+        final Snapshot snapshot = new Snapshot(storage.getAll());
+        return new ExternalValueImpl(
+                snapshot.getString("key_response", ""),
+                UriConverterHolder.INSTANCE.toConverted(snapshot.getString("key_website", "")),
+                snapshot.getInt("key_count", 0));
+    }
+
+    @NonNull
+    public String getValue1() {
+        return storage.getString("key_response", "");
+    }
+
+    @NonNull
+    public Uri getValue2() {
+        return UriConverterHolder.INSTANCE.toConverted(storage.getString("key_website", ""));
+    }
+
+    public int getValue3() {
+        return storage.getInt("key_count", 0);
+    }
+
+    public static class Editor {
+        @NonNull
+        public Editor putValue1(@NonNull String value1) {
+            editor.putString("key_response", value1);
+            dirty[0] |= 1L << 0;
+            return this;
+        }
+
+        @NonNull
+        public Editor putValue2(@NonNull Uri value2) {
+            editor.putString("key_website", UriConverterHolder.INSTANCE.toSupported(value2));
+            dirty[0] |= 1L << 1;
+            return this;
+        }
+
+        @NonNull
+        public Editor putValue3(int value3) {
+            editor.putInt("key_count", value3);
+            dirty[0] |= 1L << 2;
+            return this;
+        }
+    }
+}
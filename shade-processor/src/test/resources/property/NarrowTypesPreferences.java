@@ -0,0 +1,61 @@
+package io.t28.shade.test;
+
+@SuppressWarnings("all")
+public class NarrowTypesPreferences {
+    public double getValue1() {
+        return Double.longBitsToDouble(storage.getLong("key_double", 0x400921fb54442d18L));
+    }
+
+    public short getValue2() {
+        return (short) storage.getInt("key_short", -2);
+    }
+
+    public byte getValue3() {
+        return (byte) storage.getInt("key_byte", 127);
+    }
+
+    public char getValue4() {
+        return (char) storage.getInt("key_char", 'a');
+    }
+
+    public char getValue5() {
+        return (char) storage.getInt("key_quote", '\'');
+    }
+
+    public static class Editor {
+        @NonNull
+        public Editor putValue1(double value1) {
+            editor.putLong("key_double", Double.doubleToRawLongBits(value1));
+            dirty[0] |= 1L << 0;
+            return this;
+        }
+
+        @NonNull
+        public Editor putValue2(short value2) {
+            editor.putInt("key_short", value2);
+            dirty[0] |= 1L << 1;
+            return this;
+        }
+
+        @NonNull
+        public Editor putValue3(byte value3) {
+            editor.putInt("key_byte", value3);
+            dirty[0] |= 1L << 2;
+            return this;
+        }
+
+        @NonNull
+        public Editor putValue4(char value4) {
+            editor.putInt("key_char", value4);
+            dirty[0] |= 1L << 3;
+            return this;
+        }
+
+        @NonNull
+        public Editor putValue5(char value5) {
+            editor.putInt("key_quote", value5);
+            dirty[0] |= 1L << 4;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2016 Tatsuya Maki
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package io.t28.shade.test;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.Date;
+
+import io.t28.shade.annotation.Preferences;
+import io.t28.shade.annotation.Property;
+import io.t28.shade.converter.BooleanConverter;
+import io.t28.shade.converter.DateConverter;
+import io.t28.shade.converter.IntConverter;
+
+@Preferences("io.t28.shade.test")
+public interface PrimitiveConverter {
+    @Property(key = "key_level", defValue = "1", converter = LevelConverter.class)
+    Level level();
+
+    @Property(key = "key_enabled", converter = EnabledConverter.class)
+    String enabled();
+
+    @Property(key = "key_updated", converter = DateConverter.class)
+    Date updated();
+
+    enum Level {
+        LOW, HIGH
+    }
+
+    class LevelConverter implements IntConverter<Level> {
+        @NonNull
+        @Override
+        public Level toConverted(int supported) {
+            return Level.values()[supported];
+        }
+
+        @Override
+        public int toSupported(@Nullable Level converted) {
+            return converted == null ? 0 : converted.ordinal();
+        }
+    }
+
+    class EnabledConverter implements BooleanConverter<String> {
+        @NonNull
+        @Override
+        public String toConverted(boolean supported) {
+            return supported ? "enabled" : "disabled";
+        }
+
+        @Override
+        public boolean toSupported(@Nullable String converted) {
+            return "enabled".equals(converted);
+        }
+    }
+}
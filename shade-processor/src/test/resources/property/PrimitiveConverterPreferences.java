@@ -0,0 +1,54 @@
+package io.t28.shade.test;
+
+@SuppressWarnings("all")
+public class PrimitiveConverterPreferences {
+    @NonNull
+    public PrimitiveConverter.Level getLevel() {
+        return PrimitiveConverterLevelConverterHolder.INSTANCE.toConverted(storage.getInt("key_level", 1));
+    }
+
+    @NonNull
+    public String getEnabled() {
+        return PrimitiveConverterEnabledConverterHolder.INSTANCE.toConverted(storage.getBoolean("key_enabled", false));
+    }
+
+    @NonNull
+    public Date getUpdated() {
+        return DateConverterHolder.INSTANCE.toConverted(storage.getLong("key_updated", 0L));
+    }
+
+    public static class Editor {
+        @NonNull
+        public Editor putLevel(@NonNull PrimitiveConverter.Level level) {
+            editor.putInt("key_level", PrimitiveConverterLevelConverterHolder.INSTANCE.toSupported(level));
+            dirty[0] |= 1L << 0;
+            return this;
+        }
+
+        @NonNull
+        public Editor putEnabled(@NonNull String enabled) {
+            editor.putBoolean("key_enabled", PrimitiveConverterEnabledConverterHolder.INSTANCE.toSupported(enabled));
+            dirty[0] |= 1L << 1;
+            return this;
+        }
+
+        @NonNull
+        public Editor putUpdated(@NonNull Date updated) {
+            editor.putLong("key_updated", DateConverterHolder.INSTANCE.toSupported(updated));
+            dirty[0] |= 1L << 2;
+            return this;
+        }
+    }
+
+    private static final class PrimitiveConverterLevelConverterHolder {
+        static final PrimitiveConverter.LevelConverter INSTANCE = new PrimitiveConverter.LevelConverter();
+    }
+
+    private static final class PrimitiveConverterEnabledConverterHolder {
+        static final PrimitiveConverter.EnabledConverter INSTANCE = new PrimitiveConverter.EnabledConverter();
+    }
+
+    private static final class DateConverterHolder {
+        static final DateConverter INSTANCE = new DateConverter();
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2016 Tatsuya Maki
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package io.t28.shade.test;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import io.t28.shade.annotation.Preferences;
+import io.t28.shade.annotation.Property;
+import io.t28.shade.annotation.Stateful;
+import io.t28.shade.converter.Converter;
+
+@Preferences("io.t28.shade.test")
+public interface StatefulConverter {
+    @Property(key = "key_count", converter = CountingConverter.class)
+    Integer count();
+
+    @Stateful
+    class CountingConverter implements Converter<Integer, Integer> {
+        private int count;
+
+        @NonNull
+        @Override
+        public Integer toConverted(@Nullable Integer supported) {
+            count++;
+            return supported == null ? count : supported + count;
+        }
+
+        @NonNull
+        @Override
+        public Integer toSupported(@Nullable Integer converted) {
+            count++;
+            return converted == null ? count : converted - count;
+        }
+    }
+}
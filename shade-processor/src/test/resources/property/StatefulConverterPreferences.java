@@ -0,0 +1,18 @@
+package io.t28.shade.test;
+
+@SuppressWarnings("all")
+public class StatefulConverterPreferences {
+    @NonNull
+    public Integer getCount() {
+        return new StatefulConverter.CountingConverter().toConverted(storage.getInt("key_count", 0));
+    }
+
+    public static class Editor {
+        @NonNull
+        public Editor putCount(@NonNull Integer count) {
+            editor.putInt("key_count", new StatefulConverter.CountingConverter().toSupported(count));
+            dirty[0] |= 1L << 0;
+            return this;
+        }
+    }
+}
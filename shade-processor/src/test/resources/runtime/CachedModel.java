@@ -0,0 +1,29 @@
+/*
+ * Copyright (c) 2016 Tatsuya Maki
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package io.t28.shade.test.runtime;
+
+import io.t28.shade.annotation.Preferences;
+import io.t28.shade.annotation.Property;
+import io.t28.shade.test.InMemoryStorageFactory;
+
+@Preferences(name = "io.t28.shade.test.runtime.cached", storage = InMemoryStorageFactory.class, cacheSnapshot = true)
+public interface CachedModel {
+    @Property(key = "key_name", defValue = "default")
+    String name();
+
+    @Property(key = "key_count")
+    int count();
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2016 Tatsuya Maki
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package io.t28.shade.test.runtime;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.t28.shade.annotation.Preferences;
+import io.t28.shade.annotation.Property;
+import io.t28.shade.converter.Converter;
+import io.t28.shade.test.InMemoryStorageFactory;
+
+@Preferences(name = "io.t28.shade.test.runtime.converter", storage = InMemoryStorageFactory.class)
+public interface ConverterModel {
+    @Property(key = "key_upper", converter = Upper.TextConverter.class)
+    String upper();
+
+    @Property(key = "key_lower", converter = Lower.TextConverter.class)
+    String lower();
+
+    class Upper {
+        public static class TextConverter implements Converter<String, String> {
+            public static final AtomicInteger CREATED_COUNT = new AtomicInteger();
+
+            public TextConverter() {
+                CREATED_COUNT.incrementAndGet();
+            }
+
+            @NonNull
+            @Override
+            public String toConverted(@Nullable String supported) {
+                return supported == null ? "" : supported;
+            }
+
+            @NonNull
+            @Override
+            public String toSupported(@Nullable String converted) {
+                return converted == null ? "" : converted.toUpperCase(Locale.US);
+            }
+        }
+    }
+
+    class Lower {
+        public static class TextConverter implements Converter<String, String> {
+            @NonNull
+            @Override
+            public String toConverted(@Nullable String supported) {
+                return supported == null ? "" : supported;
+            }
+
+            @NonNull
+            @Override
+            public String toSupported(@Nullable String converted) {
+                return converted == null ? "" : converted.toLowerCase(Locale.US);
+            }
+        }
+    }
+}
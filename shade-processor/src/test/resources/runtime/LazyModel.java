@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2016 Tatsuya Maki
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package io.t28.shade.test.runtime;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import io.t28.shade.annotation.EnumCode;
+import io.t28.shade.annotation.Preferences;
+import io.t28.shade.annotation.Property;
+import io.t28.shade.converter.Converter;
+import io.t28.shade.converter.DateConverter;
+import io.t28.shade.test.InMemoryStorageFactory;
+
+@Preferences(name = "io.t28.shade.test.runtime.lazy", storage = InMemoryStorageFactory.class)
+public interface LazyModel {
+    @Property(key = "key_boolean", defValue = "true")
+    boolean booleanValue();
+
+    @Property(key = "key_float", defValue = "1.5")
+    float floatValue();
+
+    @Property(key = "key_int", defValue = "1024")
+    int intValue();
+
+    @Property(key = "key_long", defValue = "2147483648")
+    long longValue();
+
+    @Property(key = "key_double", defValue = "0.25")
+    double doubleValue();
+
+    @Property(key = "key_short", defValue = "16")
+    short shortValue();
+
+    @Property(key = "key_char", defValue = "A")
+    char charValue();
+
+    @Property(key = "key_string", defValue = "default")
+    String stringValue();
+
+    @Property(key = "key_set")
+    Set<String> setValue();
+
+    @Property(key = "key_list")
+    List<String> listValue();
+
+    @Property(key = "key_ints")
+    int[] intsValue();
+
+    @Property(key = "key_theme", defValue = "DARK")
+    Theme theme();
+
+    @Property(key = "key_sort_order")
+    SortOrder sortOrder();
+
+    @Property(key = "key_updated", converter = DateConverter.class)
+    Date updated();
+
+    @Property(key = "key_locale", converter = LocaleConverter.class)
+    Locale locale();
+
+    enum Theme {
+        LIGHT, DARK
+    }
+
+    enum SortOrder {
+        @EnumCode(10)
+        NEWEST,
+        @EnumCode(20)
+        OLDEST
+    }
+
+    class LocaleConverter implements Converter<Locale, String> {
+        @NonNull
+        @Override
+        public Locale toConverted(@Nullable String supported) {
+            return supported == null ? Locale.ROOT : Locale.forLanguageTag(supported);
+        }
+
+        @NonNull
+        @Override
+        public String toSupported(@Nullable Locale converted) {
+            return converted == null ? "" : converted.toLanguageTag();
+        }
+    }
+}
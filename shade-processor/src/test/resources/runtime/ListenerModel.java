@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2016 Tatsuya Maki
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package io.t28.shade.test.runtime;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.t28.shade.annotation.Preferences;
+import io.t28.shade.annotation.Property;
+import io.t28.shade.converter.Converter;
+import io.t28.shade.test.InMemoryStorageFactory;
+
+@Preferences(name = "io.t28.shade.test.runtime.listener", storage = InMemoryStorageFactory.class)
+public interface ListenerModel {
+    @Property(key = "key_name", defValue = "default")
+    String name();
+
+    @Property(key = "key_locale", converter = CountingLocaleConverter.class)
+    Locale locale();
+
+    class CountingLocaleConverter implements Converter<Locale, String> {
+        public static final AtomicInteger CONVERTED_COUNT = new AtomicInteger();
+
+        @NonNull
+        @Override
+        public Locale toConverted(@Nullable String supported) {
+            CONVERTED_COUNT.incrementAndGet();
+            return supported == null ? Locale.ROOT : Locale.forLanguageTag(supported);
+        }
+
+        @NonNull
+        @Override
+        public String toSupported(@Nullable Locale converted) {
+            return converted == null ? "" : converted.toLanguageTag();
+        }
+    }
+}
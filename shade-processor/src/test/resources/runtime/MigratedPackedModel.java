@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2016 Tatsuya Maki
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package io.t28.shade.test.runtime;
+
+import java.util.EnumSet;
+
+import io.t28.shade.annotation.Preferences;
+import io.t28.shade.annotation.Property;
+import io.t28.shade.test.InMemoryStorageFactory;
+
+/**
+ * Next version of {@link PackedModel} whose properties and constants are reordered, removed and added
+ */
+@Preferences(name = "io.t28.shade.test.runtime.packed", storage = InMemoryStorageFactory.class, packed = true)
+public interface MigratedPackedModel {
+    @Property(key = "key_added", defValue = "true")
+    boolean added();
+
+    @Property(key = "key_features")
+    EnumSet<Feature> features();
+
+    @Property(key = "key_visible")
+    boolean visible();
+
+    @Property(key = "key_enabled", defValue = "true")
+    boolean enabled();
+
+    enum Feature {
+        SHARE, EXPORT, SYNC
+    }
+}
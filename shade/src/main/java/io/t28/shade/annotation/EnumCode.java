@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2016 Tatsuya Maki
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.t28.shade.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares a stable code of an enum constant
+ * <p>
+ * An enum property is stored by the name of the constant by default.
+ * It is stored by the code instead when every constant of the enum is annotated with {@code @EnumCode}, so that
+ * constants can be renamed or reordered without breaking stored values.
+ * </p>
+ */
+@Target({ElementType.FIELD})
+@Retention(RetentionPolicy.CLASS)
+public @interface EnumCode {
+    /**
+     * The code which is stored for the constant
+     *
+     * @return The code of the constant
+     */
+    int value();
+}
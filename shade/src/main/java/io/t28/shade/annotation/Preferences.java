@@ -25,6 +25,8 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
+import io.t28.shade.storage.StorageFactory;
+
 @Target({ElementType.TYPE})
 @Retention(RetentionPolicy.CLASS)
 @RequiresApi(Build.VERSION_CODES.HONEYCOMB)
@@ -58,6 +60,67 @@ public @interface Preferences {
     @Mode
     int mode() default Context.MODE_PRIVATE;
 
+    /**
+     * Whether the generated class caches the last snapshot
+     * <p>
+     * The cached snapshot is invalidated when any preference is changed.
+     * </p>
+     *
+     * @return {@code true} if the snapshot should be cached
+     */
+    boolean cacheSnapshot() default false;
+
+    /**
+     * The window of write coalescing in milliseconds
+     * <p>
+     * Written values are kept in memory and written to SharedPreferences at most once per window.
+     * Writes are not coalesced when the value is {@code 0}.
+     * </p>
+     * <p>
+     * Pending values are lost if the process is killed before the window elapses.
+     * Call {@code flush()} of the generated class from {@code Activity#onPause()} or {@code Activity#onStop()},
+     * so that the values are written before the process can be killed in background.
+     * </p>
+     *
+     * @return The window in milliseconds
+     */
+    long coalesceWindow() default 0L;
+
+    /**
+     * Whether the model is stored as one binary blob
+     * <p>
+     * The generated class encodes the whole model with a compact binary codec, so that {@code get()} and
+     * {@code put(model)} read and write a single value. Values stored per key are read until the blob is written, and
+     * each property is tagged with its key so that stored values survive adding, removing or reordering properties.
+     * </p>
+     *
+     * @return {@code true} if the model should be stored as a binary blob
+     */
+    boolean binary() default false;
+
+    /**
+     * Whether boolean and {@code EnumSet} properties are packed into bits of {@code long} values
+     * <p>
+     * Properties are assigned to bits in declaration order, and the properties written by one editor are stored
+     * with a single value per 64 bits. The layout is stored with the values, so that stored bits are moved by key and
+     * written back once when properties are added, removed or reordered. Values stored per key are read until the
+     * layout is written.
+     * </p>
+     *
+     * @return {@code true} if the flags should be packed
+     */
+    boolean packed() default false;
+
+    /**
+     * The factory of the storage which the generated classes read and write
+     * <p>
+     * SharedPreferences is used when the value is {@link StorageFactory}.
+     * </p>
+     *
+     * @return The class of the storage factory
+     */
+    Class<? extends StorageFactory> storage() default StorageFactory.class;
+
     @SuppressWarnings("deprecation")
     @IntDef({
             Context.MODE_PRIVATE,
@@ -21,6 +21,7 @@ import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
 import io.t28.shade.converter.Converter;
+import io.t28.shade.converter.ValueConverter;
 
 @Target({ElementType.METHOD})
 @Retention(RetentionPolicy.CLASS)
@@ -51,8 +52,36 @@ public @interface Property {
 
     /**
      * The converter that converts any value to supported value
+     * <p>
+     * The class must implement {@link Converter} or one of the primitive converters such as
+     * {@link io.t28.shade.converter.LongConverter}, which store a value without boxing.
+     * </p>
      *
      * @return The custom converter class
      */
-    Class<? extends Converter> converter() default Converter.class;
+    Class<? extends ValueConverter> converter() default Converter.class;
+
+    /**
+     * Whether the preference is rarely accessed
+     * <p>
+     * Cold preferences are stored into a companion storage which is loaded when a cold preference is accessed first,
+     * so that loading the other preferences does not read them.
+     * </p>
+     *
+     * @return {@code true} if the preference is stored into the companion storage
+     */
+    boolean cold() default false;
+
+    /**
+     * Whether the value is stored into a separate file
+     * <p>
+     * Only a reference to the file is stored with the other preferences, so that a large value is read when the
+     * property is accessed and is written only when the property is modified.
+     * This is available for a property whose value is stored as {@code String}.
+     * The file is written and synced on the thread which calls {@code apply()} or {@code commit()} of the editor.
+     * </p>
+     *
+     * @return {@code true} if the value is stored into a separate file
+     */
+    boolean external() default false;
 }
@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) 2016 Tatsuya Maki
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.t28.shade.converter;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * Converter which stores a value as {@code boolean} without boxing
+ *
+ * @param <A> The type of the converted value
+ * @see Converter
+ */
+public interface BooleanConverter<A> extends ValueConverter {
+    @NonNull
+    A toConverted(boolean supported);
+
+    boolean toSupported(@Nullable A converted);
+}
@@ -18,7 +18,7 @@ package io.t28.shade.converter;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
-public interface Converter<A, B> {
+public interface Converter<A, B> extends ValueConverter {
     @NonNull
     A toConverted(@Nullable B supported);
 
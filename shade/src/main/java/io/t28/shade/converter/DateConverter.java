@@ -20,21 +20,17 @@ import android.support.annotation.Nullable;
 
 import java.util.Date;
 
-public class DateConverter implements Converter<Date, Long> {
+public class DateConverter implements LongConverter<Date> {
     private static final long DEFAULT_TIMESTAMP = 0;
 
     @NonNull
     @Override
-    public Date toConverted(@Nullable Long supported) {
-        if (supported == null) {
-            return new Date();
-        }
+    public Date toConverted(long supported) {
         return new Date(supported);
     }
 
-    @NonNull
     @Override
-    public Long toSupported(@Nullable Date converted) {
+    public long toSupported(@Nullable Date converted) {
         if (converted == null) {
             return DEFAULT_TIMESTAMP;
         }
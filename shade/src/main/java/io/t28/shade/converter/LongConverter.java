@@ -13,31 +13,20 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-package io.t28.shade.example.preferences.converter;
+package io.t28.shade.converter;
 
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
-import android.text.TextUtils;
 
-import io.t28.shade.converter.Converter;
-import io.t28.shade.example.preferences.User;
-
-public class UserTypeConverter implements Converter<User.Type, String> {
+/**
+ * Converter which stores a value as {@code long} without boxing
+ *
+ * @param <A> The type of the converted value
+ * @see Converter
+ */
+public interface LongConverter<A> extends ValueConverter {
     @NonNull
-    @Override
-    public User.Type toConverted(@Nullable String name) {
-        if (TextUtils.isEmpty(name)) {
-            return User.Type.GUEST;
-        }
-        return User.Type.valueOf(name);
-    }
+    A toConverted(long supported);
 
-    @NonNull
-    @Override
-    public String toSupported(@Nullable User.Type type) {
-        if (type == null) {
-            return User.Type.GUEST.name();
-        }
-        return type.name();
-    }
+    long toSupported(@Nullable A converted);
 }
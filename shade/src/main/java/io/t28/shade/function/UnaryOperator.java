@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) 2016 Tatsuya Maki
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.t28.shade.function;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Operation which produces a new value from the current value
+ * <p>
+ * The operation may be invoked more than once when concurrent updates conflict, so it should be free of side effects.
+ * </p>
+ *
+ * @param <T> The type of value
+ */
+public interface UnaryOperator<T> {
+    @NonNull
+    T apply(@NonNull T value);
+}
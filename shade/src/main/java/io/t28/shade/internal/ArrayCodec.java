@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2016 Tatsuya Maki
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.t28.shade.internal;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.List;
+
+/**
+ * Codec of the array and list properties which are stored as bytes
+ * <p>
+ * Elements are encoded with {@link BinaryWriter} after the length, so that they are decoded straight into a
+ * primitive array without boxing. Bytes which are truncated or malformed are decoded as the default value.
+ * </p>
+ */
+public class ArrayCodec {
+    // The length and a few elements fit in the buffer without growing it
+    private static final int LENGTH_CAPACITY = 5;
+
+    private ArrayCodec() {
+    }
+
+    @NonNull
+    public static byte[] encode(@NonNull int[] value) {
+        return new BinaryWriter(LENGTH_CAPACITY + value.length)
+                .writeIntArray(value)
+                .toByteArray();
+    }
+
+    @NonNull
+    public static byte[] encode(@NonNull long[] value) {
+        return new BinaryWriter(LENGTH_CAPACITY + value.length)
+                .writeLongArray(value)
+                .toByteArray();
+    }
+
+    @NonNull
+    public static byte[] encode(@NonNull float[] value) {
+        return new BinaryWriter(LENGTH_CAPACITY + value.length * 4)
+                .writeFloatArray(value)
+                .toByteArray();
+    }
+
+    @NonNull
+    public static byte[] encode(@NonNull List<String> value) {
+        return new BinaryWriter()
+                .writeStringList(value)
+                .toByteArray();
+    }
+
+    @Nullable
+    public static int[] decodeIntArray(@Nullable byte[] bytes, @Nullable int[] defValue) {
+        if (bytes == null) {
+            return defValue;
+        }
+        try {
+            return new BinaryReader(bytes).readIntArray(defValue);
+        } catch (IllegalArgumentException e) {
+            return defValue;
+        }
+    }
+
+    @Nullable
+    public static long[] decodeLongArray(@Nullable byte[] bytes, @Nullable long[] defValue) {
+        if (bytes == null) {
+            return defValue;
+        }
+        try {
+            return new BinaryReader(bytes).readLongArray(defValue);
+        } catch (IllegalArgumentException e) {
+            return defValue;
+        }
+    }
+
+    @Nullable
+    public static float[] decodeFloatArray(@Nullable byte[] bytes, @Nullable float[] defValue) {
+        if (bytes == null) {
+            return defValue;
+        }
+        try {
+            return new BinaryReader(bytes).readFloatArray(defValue);
+        } catch (IllegalArgumentException e) {
+            return defValue;
+        }
+    }
+
+    @Nullable
+    public static List<String> decodeStringList(@Nullable byte[] bytes, @Nullable List<String> defValue) {
+        if (bytes == null) {
+            return defValue;
+        }
+        try {
+            return new BinaryReader(bytes).readStringList(defValue);
+        } catch (IllegalArgumentException e) {
+            return defValue;
+        }
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ * Copyright (c) 2016 Tatsuya Maki
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.t28.shade.internal;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reader of the binary format which is written by {@link BinaryWriter}
+ * <p>
+ * Every method throws {@link IllegalArgumentException} when the bytes are truncated or malformed, and a
+ * {@code null} string, set, list or array is read as the default value as well as {@code SharedPreferences} does.
+ * </p>
+ */
+public class BinaryReader {
+    private static final int MAX_VARINT_SHIFT = 63;
+
+    private final byte[] bytes;
+    private int position;
+
+    public BinaryReader(@NonNull byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    public boolean hasRemaining() {
+        return position < bytes.length;
+    }
+
+    @NonNull
+    public String readKey() {
+        final String key = readString(null);
+        if (key == null) {
+            throw new IllegalArgumentException("Key is missing at " + position);
+        }
+        return key;
+    }
+
+    public int readType() {
+        return readInt();
+    }
+
+    /**
+     * Skip the value of the field
+     *
+     * @param type The type of the value which is read by {@link #readType()}
+     */
+    public void skip(int type) {
+        switch (type) {
+            case BinaryWriter.TYPE_BOOLEAN:
+                readBoolean();
+                break;
+            case BinaryWriter.TYPE_FLOAT:
+                readFloat();
+                break;
+            case BinaryWriter.TYPE_INT:
+            case BinaryWriter.TYPE_LONG:
+                readVarLong();
+                break;
+            case BinaryWriter.TYPE_DOUBLE:
+                readDouble();
+                break;
+            case BinaryWriter.TYPE_STRING:
+                readString(null);
+                break;
+            case BinaryWriter.TYPE_STRING_SET:
+                readStringSet(null);
+                break;
+            case BinaryWriter.TYPE_STRING_LIST:
+                readStringList(null);
+                break;
+            case BinaryWriter.TYPE_BYTE_ARRAY:
+                readByteArray(null);
+                break;
+            case BinaryWriter.TYPE_INT_ARRAY:
+                readIntArray(null);
+                break;
+            case BinaryWriter.TYPE_LONG_ARRAY:
+                readLongArray(null);
+                break;
+            case BinaryWriter.TYPE_FLOAT_ARRAY:
+                readFloatArray(null);
+                break;
+            default:
+                throw new IllegalArgumentException("Type(" + type + ") is unknown");
+        }
+    }
+
+    public int readFixedInt() {
+        require(4);
+        return (bytes[position++] & 0xff) << 24
+                | (bytes[position++] & 0xff) << 16
+                | (bytes[position++] & 0xff) << 8
+                | (bytes[position++] & 0xff);
+    }
+
+    public boolean readBoolean() {
+        require(1);
+        return bytes[position++] != 0;
+    }
+
+    public float readFloat() {
+        return Float.intBitsToFloat(readFixedInt());
+    }
+
+    public double readDouble() {
+        final long high = readFixedInt() & 0xffffffffL;
+        final long low = readFixedInt() & 0xffffffffL;
+        return Double.longBitsToDouble(high << 32 | low);
+    }
+
+    public int readInt() {
+        final long value = readVarLong();
+        if ((value >>> 32) != 0L) {
+            throw new IllegalArgumentException("Value(" + value + ") is out of range of int");
+        }
+        final int encoded = (int) value;
+        return (encoded >>> 1) ^ -(encoded & 1);
+    }
+
+    public long readLong() {
+        final long encoded = readVarLong();
+        return (encoded >>> 1) ^ -(encoded & 1L);
+    }
+
+    @Nullable
+    public String readString(@Nullable String defValue) {
+        final int length = readLength();
+        if (length < 0) {
+            return defValue;
+        }
+        require(length);
+        final String value = new String(bytes, position, length, BinaryWriter.UTF_8);
+        position += length;
+        return value;
+    }
+
+    @Nullable
+    public Set<String> readStringSet(@Nullable Set<String> defValue) {
+        final int size = readLength();
+        if (size < 0) {
+            return defValue;
+        }
+        // Every string takes one byte at least
+        require(size);
+        final Set<String> value = new HashSet<>(size);
+        for (int i = 0; i < size; i++) {
+            value.add(readString(null));
+        }
+        return value;
+    }
+
+    @Nullable
+    public List<String> readStringList(@Nullable List<String> defValue) {
+        final int size = readLength();
+        if (size < 0) {
+            return defValue;
+        }
+        // Every string takes one byte at least
+        require(size);
+        final List<String> value = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            value.add(readString(null));
+        }
+        return value;
+    }
+
+    @Nullable
+    public byte[] readByteArray(@Nullable byte[] defValue) {
+        final int length = readLength();
+        if (length < 0) {
+            return defValue;
+        }
+        require(length);
+        final byte[] value = new byte[length];
+        System.arraycopy(bytes, position, value, 0, length);
+        position += length;
+        return value;
+    }
+
+    @Nullable
+    public int[] readIntArray(@Nullable int[] defValue) {
+        final int length = readLength();
+        if (length < 0) {
+            return defValue;
+        }
+        // Every element takes one byte at least
+        require(length);
+        final int[] value = new int[length];
+        for (int i = 0; i < length; i++) {
+            value[i] = readInt();
+        }
+        return value;
+    }
+
+    @Nullable
+    public long[] readLongArray(@Nullable long[] defValue) {
+        final int length = readLength();
+        if (length < 0) {
+            return defValue;
+        }
+        require(length);
+        final long[] value = new long[length];
+        for (int i = 0; i < length; i++) {
+            value[i] = readLong();
+        }
+        return value;
+    }
+
+    @Nullable
+    public float[] readFloatArray(@Nullable float[] defValue) {
+        final int length = readLength();
+        if (length < 0) {
+            return defValue;
+        }
+        require(length);
+        final float[] value = new float[length];
+        for (int i = 0; i < length; i++) {
+            value[i] = readFloat();
+        }
+        return value;
+    }
+
+    private int readLength() {
+        final long value = readVarLong();
+        if (value < 0L || value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Length(" + value + ") is out of range");
+        }
+        return (int) value - 1;
+    }
+
+    private long readVarLong() {
+        long value = 0L;
+        for (int shift = 0; shift <= MAX_VARINT_SHIFT; shift += 7) {
+            require(1);
+            final byte current = bytes[position++];
+            value |= (long) (current & 0x7f) << shift;
+            if ((current & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Varint is too long");
+    }
+
+    private void require(int size) {
+        if (size > bytes.length - position) {
+            throw new IllegalArgumentException("Bytes are truncated at " + position);
+        }
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2016 Tatsuya Maki
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.t28.shade.internal;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Writer of the binary format which the generated codec uses
+ * <p>
+ * An int and a long are written as a zigzag varint, a float as 4 bytes, and a string as the varint length of the
+ * UTF-8 bytes followed by the bytes. An array or a list is written as the varint length followed by the elements.
+ * A length is shifted by one so that {@code 0} represents {@code null}.
+ * </p>
+ * <p>
+ * A blob starts with {@link #HEADER}, followed by fields each of which is written by {@link #writeField(String, int)}
+ * and the value. A field is tagged with its key and type, so that a reader can skip a field which it does not know.
+ * </p>
+ *
+ * @see BinaryReader
+ */
+public class BinaryWriter {
+    public static final int HEADER = 0x53484431;
+    public static final int TYPE_BOOLEAN = 1;
+    public static final int TYPE_FLOAT = 2;
+    public static final int TYPE_INT = 3;
+    public static final int TYPE_LONG = 4;
+    public static final int TYPE_DOUBLE = 5;
+    public static final int TYPE_STRING = 6;
+    public static final int TYPE_STRING_SET = 7;
+    public static final int TYPE_STRING_LIST = 8;
+    public static final int TYPE_BYTE_ARRAY = 9;
+    public static final int TYPE_INT_ARRAY = 10;
+    public static final int TYPE_LONG_ARRAY = 11;
+    public static final int TYPE_FLOAT_ARRAY = 12;
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private byte[] buffer;
+    private int position;
+
+    public BinaryWriter() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public BinaryWriter(int capacity) {
+        this.buffer = new byte[capacity];
+    }
+
+    /**
+     * Write the tag of the field which is followed by the value
+     *
+     * @param key  The key of the field
+     * @param type The type of the value such as {@link #TYPE_INT}
+     * @return This writer
+     */
+    @NonNull
+    public BinaryWriter writeField(@NonNull String key, int type) {
+        return writeString(key).writeInt(type);
+    }
+
+    @NonNull
+    public BinaryWriter writeFixedInt(int value) {
+        ensureCapacity(4);
+        buffer[position++] = (byte) (value >>> 24);
+        buffer[position++] = (byte) (value >>> 16);
+        buffer[position++] = (byte) (value >>> 8);
+        buffer[position++] = (byte) value;
+        return this;
+    }
+
+    @NonNull
+    public BinaryWriter writeBoolean(boolean value) {
+        ensureCapacity(1);
+        buffer[position++] = (byte) (value ? 1 : 0);
+        return this;
+    }
+
+    @NonNull
+    public BinaryWriter writeFloat(float value) {
+        return writeFixedInt(Float.floatToIntBits(value));
+    }
+
+    @NonNull
+    public BinaryWriter writeDouble(double value) {
+        final long bits = Double.doubleToRawLongBits(value);
+        return writeFixedInt((int) (bits >>> 32)).writeFixedInt((int) bits);
+    }
+
+    @NonNull
+    public BinaryWriter writeInt(int value) {
+        return writeVarLong(((value << 1) ^ (value >> 31)) & 0xffffffffL);
+    }
+
+    @NonNull
+    public BinaryWriter writeLong(long value) {
+        return writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    @NonNull
+    public BinaryWriter writeString(@Nullable String value) {
+        if (value == null) {
+            return writeVarLong(0);
+        }
+        final byte[] bytes = value.getBytes(UTF_8);
+        writeVarLong(bytes.length + 1L);
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+        return this;
+    }
+
+    @NonNull
+    public BinaryWriter writeStringSet(@Nullable Set<String> value) {
+        if (value == null) {
+            return writeVarLong(0);
+        }
+        writeVarLong(value.size() + 1L);
+        for (final String string : value) {
+            writeString(string);
+        }
+        return this;
+    }
+
+    @NonNull
+    public BinaryWriter writeStringList(@Nullable List<String> value) {
+        if (value == null) {
+            return writeVarLong(0);
+        }
+        writeVarLong(value.size() + 1L);
+        for (final String string : value) {
+            writeString(string);
+        }
+        return this;
+    }
+
+    @NonNull
+    public BinaryWriter writeByteArray(@Nullable byte[] value) {
+        if (value == null) {
+            return writeVarLong(0);
+        }
+        writeVarLong(value.length + 1L);
+        ensureCapacity(value.length);
+        System.arraycopy(value, 0, buffer, position, value.length);
+        position += value.length;
+        return this;
+    }
+
+    @NonNull
+    public BinaryWriter writeIntArray(@Nullable int[] value) {
+        if (value == null) {
+            return writeVarLong(0);
+        }
+        writeVarLong(value.length + 1L);
+        for (final int element : value) {
+            writeInt(element);
+        }
+        return this;
+    }
+
+    @NonNull
+    public BinaryWriter writeLongArray(@Nullable long[] value) {
+        if (value == null) {
+            return writeVarLong(0);
+        }
+        writeVarLong(value.length + 1L);
+        for (final long element : value) {
+            writeLong(element);
+        }
+        return this;
+    }
+
+    @NonNull
+    public BinaryWriter writeFloatArray(@Nullable float[] value) {
+        if (value == null) {
+            return writeVarLong(0);
+        }
+        writeVarLong(value.length + 1L);
+        for (final float element : value) {
+            writeFloat(element);
+        }
+        return this;
+    }
+
+    @NonNull
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, position);
+    }
+
+    private BinaryWriter writeVarLong(long value) {
+        ensureCapacity(10);
+        long remaining = value;
+        while ((remaining & ~0x7fL) != 0L) {
+            buffer[position++] = (byte) ((remaining & 0x7f) | 0x80);
+            remaining >>>= 7;
+        }
+        buffer[position++] = (byte) remaining;
+        return this;
+    }
+
+    private void ensureCapacity(int size) {
+        if (position + size <= buffer.length) {
+            return;
+        }
+        buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + size));
+    }
+}
@@ -0,0 +1,427 @@
+/*
+ * Copyright (c) 2016 Tatsuya Maki
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.t28.shade.internal;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+import io.t28.shade.storage.Storage;
+import io.t28.shade.storage.WeakListenerSet;
+
+/**
+ * Storage which coalesces frequent writes
+ * <p>
+ * Written values are kept in an in-memory overlay which reads see immediately, and the overlay is flushed to the
+ * backing storage at most once per window or when {@link #flush()} is called.
+ * Change listeners are notified when a value is written into the overlay, that is when it becomes visible to reads.
+ * Values which are written to the backing storage without this wrapper are not notified.
+ * </p>
+ */
+public class CoalescingStorage implements Storage {
+    private static final Object REMOVED = new Object();
+    private static final Map<Key, CoalescingStorage> INSTANCES = new HashMap<>();
+    private static ScheduledExecutorService scheduler;
+
+    private final Storage storage;
+    private final long windowMillis;
+    private final ScheduledExecutorService executor;
+    private final Object lock = new Object();
+    private final WeakListenerSet listeners = new WeakListenerSet();
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    private Map<String, Object> overlay = new HashMap<>();
+    private boolean cleared;
+    private boolean scheduled;
+
+    @VisibleForTesting
+    CoalescingStorage(@NonNull Storage storage, long windowMillis, @NonNull ScheduledExecutorService executor) {
+        this.storage = storage;
+        this.windowMillis = windowMillis;
+        this.executor = executor;
+    }
+
+    /**
+     * Obtain the coalescing wrapper of the storage
+     * <p>
+     * The same wrapper is returned for the same name and an equal storage, so that every instance of a generated class
+     * shares one overlay.
+     * </p>
+     *
+     * @param name         The name of the preferences
+     * @param storage      The backing storage
+     * @param windowMillis The maximum delay of a write in milliseconds
+     * @return The coalescing wrapper
+     * @throws IllegalStateException if the storage is already wrapped with another window
+     */
+    @NonNull
+    public static CoalescingStorage wrap(@NonNull String name, @NonNull Storage storage, long windowMillis) {
+        synchronized (INSTANCES) {
+            final Key key = new Key(name, storage);
+            CoalescingStorage instance = INSTANCES.get(key);
+            if (instance == null) {
+                instance = new CoalescingStorage(storage, windowMillis, getScheduler());
+                INSTANCES.put(key, instance);
+            } else if (instance.windowMillis != windowMillis) {
+                throw new IllegalStateException("Storage(" + name + ") is already wrapped with another window(" + instance.windowMillis + ")");
+            }
+            return instance;
+        }
+    }
+
+    private static ScheduledExecutorService getScheduler() {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(@NonNull Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "shade-coalescing");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return scheduler;
+    }
+
+    /**
+     * Write the pending values to the backing storage
+     */
+    public void flush() {
+        write(false);
+    }
+
+    private boolean write(boolean commit) {
+        synchronized (lock) {
+            scheduled = false;
+            if (!cleared && overlay.isEmpty()) {
+                // Values which are flushed by apply before may not be written by the backing storage yet
+                return !commit || storage.edit().commit();
+            }
+
+            final Storage.Editor editor = storage.edit();
+            if (cleared) {
+                editor.clear();
+            }
+            for (final Map.Entry<String, Object> entry : overlay.entrySet()) {
+                putValue(editor, entry.getKey(), entry.getValue());
+            }
+            // The backing storage exposes the values as soon as apply or commit returns
+            final boolean result;
+            if (commit) {
+                result = editor.commit();
+            } else {
+                editor.apply();
+                result = true;
+            }
+            overlay = new HashMap<>();
+            cleared = false;
+            return result;
+        }
+    }
+
+    @NonNull
+    @Override
+    public Map<String, ?> getAll() {
+        synchronized (lock) {
+            final Map<String, Object> values = new HashMap<>();
+            if (!cleared) {
+                values.putAll(storage.getAll());
+            }
+            for (final Map.Entry<String, Object> entry : overlay.entrySet()) {
+                if (entry.getValue() == REMOVED) {
+                    values.remove(entry.getKey());
+                } else {
+                    values.put(entry.getKey(), entry.getValue());
+                }
+            }
+            return values;
+        }
+    }
+
+    @Nullable
+    @Override
+    public String getString(@NonNull String key, @Nullable String defValue) {
+        synchronized (lock) {
+            if (overlay.containsKey(key)) {
+                final Object value = overlay.get(key);
+                return value == REMOVED ? defValue : (String) value;
+            }
+            return cleared ? defValue : storage.getString(key, defValue);
+        }
+    }
+
+    @Nullable
+    @Override
+    @SuppressWarnings("unchecked")
+    public Set<String> getStringSet(@NonNull String key, @Nullable Set<String> defValue) {
+        synchronized (lock) {
+            if (overlay.containsKey(key)) {
+                final Object value = overlay.get(key);
+                return value == REMOVED ? defValue : (Set<String>) value;
+            }
+            return cleared ? defValue : storage.getStringSet(key, defValue);
+        }
+    }
+
+    @Nullable
+    @Override
+    public byte[] getBytes(@NonNull String key, @Nullable byte[] defValue) {
+        synchronized (lock) {
+            if (overlay.containsKey(key)) {
+                final Object value = overlay.get(key);
+                return value == REMOVED ? defValue : (byte[]) value;
+            }
+            return cleared ? defValue : storage.getBytes(key, defValue);
+        }
+    }
+
+    @Override
+    public int getInt(@NonNull String key, int defValue) {
+        synchronized (lock) {
+            if (overlay.containsKey(key)) {
+                final Object value = overlay.get(key);
+                return value == REMOVED ? defValue : (Integer) value;
+            }
+            return cleared ? defValue : storage.getInt(key, defValue);
+        }
+    }
+
+    @Override
+    public long getLong(@NonNull String key, long defValue) {
+        synchronized (lock) {
+            if (overlay.containsKey(key)) {
+                final Object value = overlay.get(key);
+                return value == REMOVED ? defValue : (Long) value;
+            }
+            return cleared ? defValue : storage.getLong(key, defValue);
+        }
+    }
+
+    @Override
+    public float getFloat(@NonNull String key, float defValue) {
+        synchronized (lock) {
+            if (overlay.containsKey(key)) {
+                final Object value = overlay.get(key);
+                return value == REMOVED ? defValue : (Float) value;
+            }
+            return cleared ? defValue : storage.getFloat(key, defValue);
+        }
+    }
+
+    @Override
+    public boolean getBoolean(@NonNull String key, boolean defValue) {
+        synchronized (lock) {
+            if (overlay.containsKey(key)) {
+                final Object value = overlay.get(key);
+                return value == REMOVED ? defValue : (Boolean) value;
+            }
+            return cleared ? defValue : storage.getBoolean(key, defValue);
+        }
+    }
+
+    @Override
+    public boolean contains(@NonNull String key) {
+        synchronized (lock) {
+            if (overlay.containsKey(key)) {
+                return overlay.get(key) != REMOVED;
+            }
+            return !cleared && storage.contains(key);
+        }
+    }
+
+    @NonNull
+    @Override
+    public Storage.Editor edit() {
+        return new Editor();
+    }
+
+    @NonNull
+    @Override
+    public Lock getLock() {
+        return storage.getLock();
+    }
+
+    @Override
+    public void registerListener(@NonNull OnChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void unregisterListener(@NonNull OnChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    private void merge(@NonNull Map<String, Object> values, boolean clear) {
+        synchronized (lock) {
+            if (clear) {
+                overlay.clear();
+                cleared = true;
+            }
+            overlay.putAll(values);
+            if (!scheduled) {
+                scheduled = true;
+                executor.schedule(flushTask, windowMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        // Listeners are notified outside of the lock, so that a listener can read the storage
+        if (clear) {
+            listeners.notifyChanged(this, null);
+        }
+        for (final String key : values.keySet()) {
+            listeners.notifyChanged(this, key);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void putValue(@NonNull Storage.Editor editor, @NonNull String key, @NonNull Object value) {
+        if (value == REMOVED) {
+            editor.remove(key);
+        } else if (value instanceof Boolean) {
+            editor.putBoolean(key, (Boolean) value);
+        } else if (value instanceof Float) {
+            editor.putFloat(key, (Float) value);
+        } else if (value instanceof Integer) {
+            editor.putInt(key, (Integer) value);
+        } else if (value instanceof Long) {
+            editor.putLong(key, (Long) value);
+        } else if (value instanceof String) {
+            editor.putString(key, (String) value);
+        } else if (value instanceof byte[]) {
+            editor.putBytes(key, (byte[]) value);
+        } else {
+            editor.putStringSet(key, (Set<String>) value);
+        }
+    }
+
+    private class Editor implements Storage.Editor {
+        private final Map<String, Object> values = new HashMap<>();
+        private boolean clear;
+
+        @NonNull
+        @Override
+        public Storage.Editor putString(@NonNull String key, @Nullable String value) {
+            return put(key, value);
+        }
+
+        @NonNull
+        @Override
+        public Storage.Editor putStringSet(@NonNull String key, @Nullable Set<String> value) {
+            return put(key, value == null ? null : new HashSet<>(value));
+        }
+
+        @NonNull
+        @Override
+        public Storage.Editor putBytes(@NonNull String key, @Nullable byte[] value) {
+            return put(key, value == null ? null : value.clone());
+        }
+
+        @NonNull
+        @Override
+        public Storage.Editor putInt(@NonNull String key, int value) {
+            return put(key, value);
+        }
+
+        @NonNull
+        @Override
+        public Storage.Editor putLong(@NonNull String key, long value) {
+            return put(key, value);
+        }
+
+        @NonNull
+        @Override
+        public Storage.Editor putFloat(@NonNull String key, float value) {
+            return put(key, value);
+        }
+
+        @NonNull
+        @Override
+        public Storage.Editor putBoolean(@NonNull String key, boolean value) {
+            return put(key, value);
+        }
+
+        @NonNull
+        @Override
+        public Storage.Editor remove(@NonNull String key) {
+            return put(key, null);
+        }
+
+        @NonNull
+        @Override
+        public Storage.Editor clear() {
+            clear = true;
+            return this;
+        }
+
+        @Override
+        public boolean commit() {
+            merge(values, clear);
+            return write(true);
+        }
+
+        @Override
+        public void apply() {
+            merge(values, clear);
+        }
+
+        private Storage.Editor put(@NonNull String key, @Nullable Object value) {
+            values.put(key, value == null ? REMOVED : value);
+            return this;
+        }
+    }
+
+    private static class Key {
+        private final String name;
+        private final Storage storage;
+
+        Key(@NonNull String name, @NonNull Storage storage) {
+            this.name = name;
+            this.storage = storage;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (this == object) {
+                return true;
+            }
+            if (!(object instanceof Key)) {
+                return false;
+            }
+            final Key that = (Key) object;
+            return name.equals(that.name) && storage.equals(that.storage);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * name.hashCode() + storage.hashCode();
+        }
+    }
+}
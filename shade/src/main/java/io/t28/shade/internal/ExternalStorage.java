@@ -0,0 +1,560 @@
+/*
+ * Copyright (c) 2016 Tatsuya Maki
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package io.t28.shade.internal;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.ref.SoftReference;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.locks.Lock;
+
+import io.t28.shade.storage.Storage;
+import io.t28.shade.storage.WeakListenerSet;
+
+/**
+ * Storage which stores string values of external keys into separate files
+ * <p>
+ * Only a reference to the file is stored into the backing storage, so that a large value is neither loaded with the
+ * backing storage nor rewritten when another key is modified. A file is never modified once it is written: a new
+ * file is written when the value is modified, and the previous file is deleted after the new reference is written
+ * durably. Values which are stored inline before a key was marked as external are returned until the key is written.
+ * </p>
+ * <p>
+ * Files are written on the thread which calls {@link Storage.Editor#putString(String, String)}, so that an external
+ * key should not be put on the main thread, while applying or committing the editor only writes the references.
+ * Files which are left unreferenced, by an editor which is never applied or by a process which is killed before
+ * applying it, are deleted in background when the directory is opened first in the process.
+ * </p>
+ */
+public class ExternalStorage implements Storage {
+    private static final String DIRECTORY_NAME = "shade";
+    private static final String DIRECTORY_EXTENSION = ".external";
+    private static final String REFERENCE_PREFIX = "shade-external:";
+    private static final String TEMPORARY_EXTENSION = ".tmp";
+    private static final Charset CHARSET = Charset.forName("UTF-8");
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    // Files which are modified within this period before the directory is opened may belong to an editor of another process
+    private static final long SWEEP_MARGIN_MILLIS = 60 * 1000;
+    private static final Set<File> SWEPT_DIRECTORIES = new HashSet<>();
+    private static ExecutorService cleaner;
+
+    private final Storage storage;
+    private final File directory;
+    private final Set<String> externalKeys;
+    private final Executor executor;
+    // Files are immutable, so that a value is cached by the name of its file
+    private final Map<String, SoftReference<String>> cache = new HashMap<>();
+    private final WeakListenerSet listeners = new WeakListenerSet();
+    private final OnChangeListener changeListener = new OnChangeListener() {
+        @Override
+        public void onChanged(@NonNull Storage storage, @Nullable String key) {
+            listeners.notifyChanged(ExternalStorage.this, key);
+        }
+    };
+
+    /**
+     * Constructor
+     *
+     * @param storage      The backing storage which holds references to files
+     * @param context      The context which provides the files directory
+     * @param name         The name of the preferences
+     * @param externalKeys The keys whose values are stored into separate files
+     */
+    public ExternalStorage(@NonNull Storage storage,
+                           @NonNull Context context,
+                           @NonNull String name,
+                           @NonNull String... externalKeys) {
+        this(storage, new File(new File(context.getFilesDir(), DIRECTORY_NAME), name + DIRECTORY_EXTENSION), externalKeys);
+    }
+
+    @VisibleForTesting
+    ExternalStorage(@NonNull Storage storage, @NonNull File directory, @NonNull String... externalKeys) {
+        this(storage, directory, getCleaner(), externalKeys);
+    }
+
+    @VisibleForTesting
+    ExternalStorage(@NonNull Storage storage, @NonNull File directory, @NonNull Executor executor, @NonNull String... externalKeys) {
+        this.storage = storage;
+        this.directory = directory;
+        this.executor = executor;
+        this.externalKeys = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(externalKeys)));
+        this.storage.registerListener(changeListener);
+        scheduleSweep();
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (this == object) {
+            return true;
+        }
+        if (!(object instanceof ExternalStorage)) {
+            return false;
+        }
+        final ExternalStorage that = (ExternalStorage) object;
+        return storage.equals(that.storage)
+                && directory.equals(that.directory)
+                && externalKeys.equals(that.externalKeys);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = storage.hashCode();
+        result = 31 * result + directory.hashCode();
+        result = 31 * result + externalKeys.hashCode();
+        return result;
+    }
+
+    @NonNull
+    @Override
+    public Map<String, ?> getAll() {
+        final Map<String, Object> values = new HashMap<>(storage.getAll());
+        for (final String key : externalKeys) {
+            final Object value = values.get(key);
+            if (!(value instanceof String)) {
+                continue;
+            }
+            final String loaded = load(key, (String) value, null);
+            if (loaded == null) {
+                values.remove(key);
+            } else {
+                values.put(key, loaded);
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public boolean contains(@NonNull String key) {
+        return storage.contains(key);
+    }
+
+    @Override
+    public boolean getBoolean(@NonNull String key, boolean defValue) {
+        return storage.getBoolean(key, defValue);
+    }
+
+    @Override
+    public float getFloat(@NonNull String key, float defValue) {
+        return storage.getFloat(key, defValue);
+    }
+
+    @Override
+    public int getInt(@NonNull String key, int defValue) {
+        return storage.getInt(key, defValue);
+    }
+
+    @Override
+    public long getLong(@NonNull String key, long defValue) {
+        return storage.getLong(key, defValue);
+    }
+
+    @Nullable
+    @Override
+    public String getString(@NonNull String key, @Nullable String defValue) {
+        final String value = storage.getString(key, null);
+        if (value == null) {
+            return defValue;
+        }
+        if (!externalKeys.contains(key)) {
+            return value;
+        }
+        return load(key, value, defValue);
+    }
+
+    @Nullable
+    @Override
+    public Set<String> getStringSet(@NonNull String key, @Nullable Set<String> defValue) {
+        return storage.getStringSet(key, defValue);
+    }
+
+    @Nullable
+    @Override
+    public byte[] getBytes(@NonNull String key, @Nullable byte[] defValue) {
+        return storage.getBytes(key, defValue);
+    }
+
+    @NonNull
+    @Override
+    public Storage.Editor edit() {
+        return new Editor();
+    }
+
+    @NonNull
+    @Override
+    public Lock getLock() {
+        return storage.getLock();
+    }
+
+    @Override
+    public void registerListener(@NonNull OnChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void unregisterListener(@NonNull OnChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    private static synchronized ExecutorService getCleaner() {
+        if (cleaner == null) {
+            cleaner = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(@NonNull Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "shade-external");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return cleaner;
+    }
+
+    private void scheduleSweep() {
+        synchronized (SWEPT_DIRECTORIES) {
+            if (!SWEPT_DIRECTORIES.add(directory.getAbsoluteFile())) {
+                return;
+            }
+        }
+        final long modifiedBefore = System.currentTimeMillis() - SWEEP_MARGIN_MILLIS;
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                sweep(modifiedBefore);
+            }
+        });
+    }
+
+    @VisibleForTesting
+    void sweep(long modifiedBefore) {
+        final String[] fileNames = directory.list();
+        if (fileNames == null) {
+            return;
+        }
+        // Every key is scanned since another class of the same preferences may declare other external keys
+        final Set<String> referenced = new HashSet<>();
+        for (final Object value : storage.getAll().values()) {
+            if (value instanceof String && ((String) value).startsWith(REFERENCE_PREFIX)) {
+                referenced.add(((String) value).substring(REFERENCE_PREFIX.length()));
+            }
+        }
+        final List<String> unreferenced = new ArrayList<>();
+        for (final String fileName : fileNames) {
+            if (!referenced.contains(fileName) && new File(directory, fileName).lastModified() < modifiedBefore) {
+                unreferenced.add(fileName);
+            }
+        }
+        delete(unreferenced);
+    }
+
+    @Nullable
+    private String load(@NonNull String key, @Nullable String value, @Nullable String defValue) {
+        String current = value;
+        while (current != null) {
+            try {
+                return resolve(current);
+            } catch (IOException e) {
+                // The file may be deleted by a writer which has replaced the reference meanwhile
+                final String latest = storage.getString(key, null);
+                if (current.equals(latest)) {
+                    return defValue;
+                }
+                current = latest;
+            }
+        }
+        return defValue;
+    }
+
+    @NonNull
+    private String resolve(@NonNull String value) throws IOException {
+        if (!value.startsWith(REFERENCE_PREFIX)) {
+            return value;
+        }
+        final String fileName = value.substring(REFERENCE_PREFIX.length());
+        synchronized (cache) {
+            final SoftReference<String> reference = cache.get(fileName);
+            final String cached = reference == null ? null : reference.get();
+            if (cached != null) {
+                return cached;
+            }
+        }
+        final String loaded = read(new File(directory, fileName));
+        synchronized (cache) {
+            cache.put(fileName, new SoftReference<>(loaded));
+        }
+        return loaded;
+    }
+
+    @NonNull
+    private static String read(@NonNull File file) throws IOException {
+        final Reader reader = new InputStreamReader(new FileInputStream(file), CHARSET);
+        try {
+            final StringBuilder builder = new StringBuilder((int) Math.min(file.length(), Integer.MAX_VALUE));
+            final char[] buffer = new char[BUFFER_SIZE];
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                builder.append(buffer, 0, read);
+            }
+            return builder.toString();
+        } finally {
+            reader.close();
+        }
+    }
+
+    @NonNull
+    private String write(@NonNull String value) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Failed to create directory(" + directory + ")");
+        }
+        final String fileName = UUID.randomUUID().toString();
+        final File temporary = new File(directory, fileName + TEMPORARY_EXTENSION);
+        final FileOutputStream stream = new FileOutputStream(temporary);
+        try {
+            final Writer writer = new OutputStreamWriter(stream, CHARSET);
+            writer.write(value);
+            writer.flush();
+            stream.getFD().sync();
+        } finally {
+            stream.close();
+        }
+        if (!temporary.renameTo(new File(directory, fileName))) {
+            throw new IOException("Failed to rename file(" + temporary + ")");
+        }
+        synchronized (cache) {
+            cache.put(fileName, new SoftReference<>(value));
+        }
+        return fileName;
+    }
+
+    private void delete(@NonNull List<String> fileNames) {
+        for (final String fileName : fileNames) {
+            synchronized (cache) {
+                cache.remove(fileName);
+            }
+            // A file which could not be deleted is never referenced again
+            //noinspection ResultOfMethodCallIgnored
+            new File(directory, fileName).delete();
+        }
+    }
+
+    private class Editor implements Storage.Editor {
+        private final Storage.Editor editor = storage.edit();
+        // File names of modified external keys by the key, or null if the key is removed
+        private final Map<String, String> references = new HashMap<>();
+        // Failures of writing files by the key, whose stored values are left as they are
+        private final Map<String, IOException> failures = new LinkedHashMap<>();
+        private boolean clear;
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * The value of an external key is written into a new file before this method returns, so that applying or
+         * committing the editor does not write files while the lock of the storage is held. If the file could not be
+         * written, the stored value of the key is left as it is and the failure is thrown by {@link #apply()} or
+         * {@link #commit()} after the other modifications are written.
+         * </p>
+         */
+        @NonNull
+        @Override
+        public Storage.Editor putString(@NonNull String key, @Nullable String value) {
+            if (!externalKeys.contains(key)) {
+                editor.putString(key, value);
+                return this;
+            }
+            discard(key);
+            if (value == null) {
+                references.put(key, null);
+                return this;
+            }
+            try {
+                references.put(key, write(value));
+            } catch (IOException e) {
+                failures.put(key, e);
+            }
+            return this;
+        }
+
+        @NonNull
+        @Override
+        public Storage.Editor putStringSet(@NonNull String key, @Nullable Set<String> value) {
+            editor.putStringSet(key, value);
+            return this;
+        }
+
+        @NonNull
+        @Override
+        public Storage.Editor putBytes(@NonNull String key, @Nullable byte[] value) {
+            editor.putBytes(key, value);
+            return this;
+        }
+
+        @NonNull
+        @Override
+        public Storage.Editor putInt(@NonNull String key, int value) {
+            editor.putInt(key, value);
+            return this;
+        }
+
+        @NonNull
+        @Override
+        public Storage.Editor putLong(@NonNull String key, long value) {
+            editor.putLong(key, value);
+            return this;
+        }
+
+        @NonNull
+        @Override
+        public Storage.Editor putFloat(@NonNull String key, float value) {
+            editor.putFloat(key, value);
+            return this;
+        }
+
+        @NonNull
+        @Override
+        public Storage.Editor putBoolean(@NonNull String key, boolean value) {
+            editor.putBoolean(key, value);
+            return this;
+        }
+
+        @NonNull
+        @Override
+        public Storage.Editor remove(@NonNull String key) {
+            if (externalKeys.contains(key)) {
+                discard(key);
+                references.put(key, null);
+            } else {
+                editor.remove(key);
+            }
+            return this;
+        }
+
+        @NonNull
+        @Override
+        public Storage.Editor clear() {
+            clear = true;
+            editor.clear();
+            return this;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @throws IllegalStateException if the value of an external key could not be written into a file, after the
+         *                               other modifications are committed
+         */
+        @Override
+        public boolean commit() {
+            final List<String> obsolete = prepare();
+            final boolean committed = editor.commit();
+            if (committed) {
+                delete(obsolete);
+            }
+            throwFailure();
+            return committed;
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Only the references to the files which are written by {@link #putString(String, String)} are applied
+         * asynchronously. Previous files are deleted in background after the backing storage has written the new
+         * references durably, since a crash before that would restore the old ones.
+         * </p>
+         *
+         * @throws IllegalStateException if the value of an external key could not be written into a file, after the
+         *                               other modifications are applied
+         */
+        @Override
+        public void apply() {
+            final List<String> obsolete = prepare();
+            editor.apply();
+            if (!obsolete.isEmpty()) {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        // An empty commit returns after the modifications applied before are written
+                        if (storage.edit().commit()) {
+                            delete(obsolete);
+                        }
+                    }
+                });
+            }
+            throwFailure();
+        }
+
+        @NonNull
+        private List<String> prepare() {
+            final List<String> obsolete = new ArrayList<>();
+            final Set<String> modifiedKeys = clear ? externalKeys : references.keySet();
+            for (final String key : modifiedKeys) {
+                final String current = storage.getString(key, null);
+                if (current != null && current.startsWith(REFERENCE_PREFIX)) {
+                    obsolete.add(current.substring(REFERENCE_PREFIX.length()));
+                }
+            }
+            for (final Map.Entry<String, String> entry : references.entrySet()) {
+                if (entry.getValue() == null) {
+                    editor.remove(entry.getKey());
+                } else {
+                    editor.putString(entry.getKey(), REFERENCE_PREFIX + entry.getValue());
+                }
+            }
+            return obsolete;
+        }
+
+        private void throwFailure() {
+            if (failures.isEmpty()) {
+                return;
+            }
+            final Map.Entry<String, IOException> first = failures.entrySet().iterator().next();
+            throw new IllegalStateException("Failed to write values of keys " + failures.keySet(), first.getValue());
+        }
+
+        private void discard(@NonNull String key) {
+            failures.remove(key);
+            // A file which is written for the key by this editor before is never referenced
+            final String fileName = references.remove(key);
+            if (fileName != null) {
+                delete(Collections.singletonList(fileName));
+            }
+        }
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2016 Tatsuya Maki
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.t28.shade.internal;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Layout of the bits of packed {@code long} values which the generated code writes
+ * <p>
+ * The layout is stored with the packed values, so that bits written by another version of the class are moved to
+ * the slots of the current version by key. A layout consists of entries separated by {@code ,}: an entry of a
+ * boolean is {@code key@word:shift}, and an entry of an {@code EnumSet} is {@code key@word:shift[A|B|C]} whose
+ * members are listed by their codes or names in the order of their bits. Reserved characters in keys and members
+ * are escaped as {@code %XX}.
+ * </p>
+ * <p>
+ * The hash of the layout is stored as its version, so that the generated code compares a {@code long} instead of
+ * the layout to find out whether the words are written in its layout.
+ * </p>
+ */
+public class PackedLayout {
+    public static final String KEY = "io.t28.shade.packed.layout";
+    public static final String VERSION_KEY = "io.t28.shade.packed.version";
+    public static final String WORD_KEY_PREFIX = "io.t28.shade.packed.";
+    private static final String RESERVED_CHARACTERS = "%,@:[]|";
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final int MAX_PARSED_LAYOUTS = 8;
+
+    // Both the stored layout and the current layout are parsed while words are moved, so that several are cached
+    private static final Map<String, Map<String, Entry>> PARSED_LAYOUTS = new LinkedHashMap<String, Map<String, Entry>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Map<String, PackedLayout.Entry>> eldest) {
+            return size() > MAX_PARSED_LAYOUTS;
+        }
+    };
+
+    private PackedLayout() {
+    }
+
+    /**
+     * Escape reserved characters of a key or a member
+     *
+     * @param value The key or the member
+     * @return The escaped value
+     */
+    @NonNull
+    public static String escape(@NonNull String value) {
+        final StringBuilder builder = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (RESERVED_CHARACTERS.indexOf(c) < 0) {
+                builder.append(c);
+            } else {
+                builder.append('%').append(String.format("%02X", (int) c));
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Return the version of the layout
+     * <p>
+     * The version is the 64-bit FNV-1a hash of the layout, and {@code 0} is never returned so that it can be used as
+     * the default value of an absent version.
+     * </p>
+     *
+     * @param layout The layout
+     * @return The version of the layout
+     */
+    public static long hash(@NonNull String layout) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < layout.length(); i++) {
+            hash ^= layout.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return hash == 0L ? 1L : hash;
+    }
+
+    /**
+     * Return whether the layout contains the key
+     *
+     * @param layout The stored layout, or {@code null} if the layout is not stored
+     * @param key    The key of the property
+     * @return {@code true} if bits of the key are stored
+     */
+    public static boolean contains(@Nullable String layout, @NonNull String key) {
+        return layout != null && parse(layout).containsKey(key);
+    }
+
+    /**
+     * Build the word of the current layout from the words which are stored in another layout
+     * <p>
+     * A property which is absent from the stored layout or whose kind is changed keeps its default bits, and an
+     * {@code EnumSet} member which is absent from the stored layout is not contained.
+     * </p>
+     *
+     * @param values       The stored values which contain the packed words
+     * @param storedLayout The layout which is stored with the words
+     * @param layout       The current layout
+     * @param word         The index of the word to be built
+     * @param defaultBits  The bits of the default values of the word
+     * @return The word of the current layout
+     */
+    public static long remap(@NonNull Map<String, ?> values,
+                             @NonNull String storedLayout,
+                             @NonNull String layout,
+                             int word,
+                             long defaultBits) {
+        final Map<String, Entry> stored = parse(storedLayout);
+        long bits = 0L;
+        for (final Map.Entry<String, Entry> current : parse(layout).entrySet()) {
+            final Entry entry = current.getValue();
+            if (entry.word != word) {
+                continue;
+            }
+            final Entry previous = stored.get(current.getKey());
+            final Object storedWord = previous == null ? null : values.get(WORD_KEY_PREFIX + previous.word);
+            if (!(storedWord instanceof Long) || (previous.members == null) != (entry.members == null)) {
+                bits |= defaultBits & entry.getMask();
+                continue;
+            }
+            final long storedBits = ((Long) storedWord & previous.getMask()) >>> previous.shift;
+            bits |= entry.place(entry.members == null ? storedBits : moveMembers(storedBits, previous.members, entry.members));
+        }
+        return bits;
+    }
+
+    private static long moveMembers(long storedBits, @NonNull String[] storedMembers, @NonNull String[] members) {
+        long bits = 0L;
+        for (int i = 0; i < members.length; i++) {
+            for (int j = 0; j < storedMembers.length; j++) {
+                if (members[i].equals(storedMembers[j]) && (storedBits & 1L << j) != 0L) {
+                    bits |= 1L << i;
+                }
+            }
+        }
+        return bits;
+    }
+
+    @NonNull
+    private static Map<String, Entry> parse(@NonNull String layout) {
+        synchronized (PARSED_LAYOUTS) {
+            final Map<String, Entry> parsed = PARSED_LAYOUTS.get(layout);
+            if (parsed != null) {
+                return parsed;
+            }
+        }
+        final Map<String, Entry> entries = new HashMap<>();
+        try {
+            if (!layout.isEmpty()) {
+                for (final String token : layout.split(",")) {
+                    final int at = token.indexOf('@');
+                    final int colon = token.indexOf(':', at);
+                    final int bracket = token.indexOf('[', colon);
+                    final int end = bracket < 0 ? token.length() : bracket;
+                    final String[] members = bracket < 0 ? null : token.substring(bracket + 1, token.length() - 1).split("\\|", -1);
+                    if (members != null) {
+                        for (int i = 0; i < members.length; i++) {
+                            members[i] = unescape(members[i]);
+                        }
+                    }
+                    final int word = Integer.parseInt(token.substring(at + 1, colon));
+                    final int shift = Integer.parseInt(token.substring(colon + 1, end));
+                    entries.put(unescape(token.substring(0, at)), new Entry(word, shift, members));
+                }
+            }
+        } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+            // A malformed layout is regarded as empty, so that the default values are read
+            entries.clear();
+        }
+        synchronized (PARSED_LAYOUTS) {
+            PARSED_LAYOUTS.put(layout, entries);
+        }
+        return entries;
+    }
+
+    @NonNull
+    private static String unescape(@NonNull String value) {
+        if (value.indexOf('%') < 0) {
+            return value;
+        }
+        final StringBuilder builder = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '%') {
+                builder.append((char) Integer.parseInt(value.substring(i + 1, i + 3), 16));
+                i += 2;
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+
+    private static class Entry {
+        private final int word;
+        private final int shift;
+        private final String[] members;
+
+        Entry(int word, int shift, @Nullable String[] members) {
+            if (word < 0 || shift < 0 || shift + getWidth(members) > Long.SIZE) {
+                throw new IllegalArgumentException("Entry(" + word + ":" + shift + ") is out of range");
+            }
+            this.word = word;
+            this.shift = shift;
+            this.members = members;
+        }
+
+        long getMask() {
+            final int width = getWidth(members);
+            final long bits = width == Long.SIZE ? -1L : (1L << width) - 1L;
+            return bits << shift;
+        }
+
+        long place(long storedBits) {
+            return (storedBits << shift) & getMask();
+        }
+
+        private static int getWidth(@Nullable String[] members) {
+            return members == null ? 1 : members.length;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2016 Tatsuya Maki
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.t28.shade.internal;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Base64;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Typed view of the values obtained by a single bulk read
+ * <p>
+ * The getters mirror the ones of {@code SharedPreferences}, so that the generated code can read every property
+ * from one {@code getAll()} call instead of acquiring the lock of {@code SharedPreferences} once per key.
+ * </p>
+ */
+public class Snapshot {
+    private final Map<String, ?> values;
+
+    public Snapshot(@NonNull Map<String, ?> values) {
+        this.values = values;
+    }
+
+    @NonNull
+    public Map<String, ?> getAll() {
+        return values;
+    }
+
+    public boolean contains(@NonNull String key) {
+        return values.containsKey(key);
+    }
+
+    public boolean getBoolean(@NonNull String key, boolean defValue) {
+        final Boolean value = (Boolean) values.get(key);
+        return value != null ? value : defValue;
+    }
+
+    public float getFloat(@NonNull String key, float defValue) {
+        final Float value = (Float) values.get(key);
+        return value != null ? value : defValue;
+    }
+
+    public int getInt(@NonNull String key, int defValue) {
+        final Integer value = (Integer) values.get(key);
+        return value != null ? value : defValue;
+    }
+
+    public long getLong(@NonNull String key, long defValue) {
+        final Long value = (Long) values.get(key);
+        return value != null ? value : defValue;
+    }
+
+    @Nullable
+    public String getString(@NonNull String key, @Nullable String defValue) {
+        final String value = (String) values.get(key);
+        return value != null ? value : defValue;
+    }
+
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public Set<String> getStringSet(@NonNull String key, @Nullable Set<String> defValue) {
+        final Set<String> value = (Set<String>) values.get(key);
+        return value != null ? value : defValue;
+    }
+
+    /**
+     * Return the bytes of the key
+     * <p>
+     * Bytes are obtained as a Base64 string from {@code SharedPreferencesStorage}, and as they are from other storages.
+     * </p>
+     *
+     * @param key      The key of the value
+     * @param defValue The value which is returned when the key does not exist
+     * @return The bytes, or the default value if the key does not exist or the string is not Base64
+     */
+    @Nullable
+    public byte[] getBytes(@NonNull String key, @Nullable byte[] defValue) {
+        final Object value = values.get(key);
+        if (value instanceof byte[]) {
+            return (byte[]) value;
+        }
+        if (!(value instanceof String)) {
+            return defValue;
+        }
+        try {
+            return Base64.decode((String) value, Base64.NO_WRAP);
+        } catch (IllegalArgumentException e) {
+            return defValue;
+        }
+    }
+}
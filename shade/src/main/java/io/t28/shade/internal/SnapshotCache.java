@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2016 Tatsuya Maki
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.t28.shade.internal;
+
+import android.support.annotation.CheckResult;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * Holds the last immutable snapshot of a preferences class
+ * <p>
+ * A cache hit costs a single volatile read. A snapshot loaded concurrently with {@link #invalidate()} is discarded
+ * by {@link #put(int, Object)}, because the stamp obtained before loading no longer matches.
+ * </p>
+ *
+ * @param <T> The type of snapshot
+ */
+public class SnapshotCache<T> {
+    private volatile T snapshot;
+    private int stamp;
+
+    @Nullable
+    @CheckResult
+    public T get() {
+        return snapshot;
+    }
+
+    @CheckResult
+    public synchronized int stamp() {
+        return stamp;
+    }
+
+    public synchronized void put(int stamp, @NonNull T snapshot) {
+        if (this.stamp != stamp) {
+            return;
+        }
+        this.snapshot = snapshot;
+    }
+
+    public synchronized void invalidate() {
+        stamp++;
+        snapshot = null;
+    }
+}
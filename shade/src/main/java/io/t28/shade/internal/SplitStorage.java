@@ -0,0 +1,360 @@
+/*
+ * Copyright (c) 2016 Tatsuya Maki
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package io.t28.shade.internal;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+
+import io.t28.shade.storage.Storage;
+import io.t28.shade.storage.StorageFactory;
+import io.t28.shade.storage.WeakListenerSet;
+
+/**
+ * Storage which routes cold keys to a companion storage
+ * <p>
+ * The companion storage is created when a cold key is accessed first, so that reading hot keys never loads values
+ * of cold keys. Values of cold keys which are stored in the hot storage before they were marked as cold are moved
+ * into the companion storage when it is created.
+ * </p>
+ */
+public class SplitStorage implements Storage {
+    private final Storage hot;
+    private final StorageFactory coldFactory;
+    private final Context context;
+    private final String coldName;
+    private final int mode;
+    private final Set<String> coldKeys;
+    private final Object lock = new Object();
+    private final WeakListenerSet listeners = new WeakListenerSet();
+    private final OnChangeListener changeListener = new OnChangeListener() {
+        @Override
+        public void onChanged(@NonNull Storage storage, @Nullable String key) {
+            listeners.notifyChanged(SplitStorage.this, key);
+        }
+    };
+
+    private volatile Storage cold;
+
+    /**
+     * Constructor
+     *
+     * @param hot         The storage of keys which are not cold
+     * @param coldFactory The factory of the companion storage
+     * @param context     The context which is passed to the factory
+     * @param coldName    The name of the companion storage
+     * @param mode        The operating mode of the companion storage
+     * @param coldKeys    The keys which are stored into the companion storage
+     */
+    public SplitStorage(@NonNull Storage hot,
+                        @NonNull StorageFactory coldFactory,
+                        @NonNull Context context,
+                        @NonNull String coldName,
+                        int mode,
+                        @NonNull String... coldKeys) {
+        this.hot = hot;
+        this.coldFactory = coldFactory;
+        this.context = context;
+        this.coldName = coldName;
+        this.mode = mode;
+        this.coldKeys = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(coldKeys)));
+        this.hot.registerListener(changeListener);
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (this == object) {
+            return true;
+        }
+        if (!(object instanceof SplitStorage)) {
+            return false;
+        }
+        final SplitStorage that = (SplitStorage) object;
+        return hot.equals(that.hot)
+                && coldFactory.getClass() == that.coldFactory.getClass()
+                && coldName.equals(that.coldName)
+                && mode == that.mode
+                && coldKeys.equals(that.coldKeys);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = hot.hashCode();
+        result = 31 * result + coldName.hashCode();
+        result = 31 * result + coldKeys.hashCode();
+        return result;
+    }
+
+    @VisibleForTesting
+    boolean isColdLoaded() {
+        return cold != null;
+    }
+
+    @NonNull
+    @Override
+    public Map<String, ?> getAll() {
+        final Map<String, Object> values = new HashMap<>();
+        for (final Map.Entry<String, ?> entry : hot.getAll().entrySet()) {
+            if (!coldKeys.contains(entry.getKey())) {
+                values.put(entry.getKey(), entry.getValue());
+            }
+        }
+        for (final Map.Entry<String, ?> entry : cold().getAll().entrySet()) {
+            if (coldKeys.contains(entry.getKey())) {
+                values.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public boolean contains(@NonNull String key) {
+        return route(key).contains(key);
+    }
+
+    @Override
+    public boolean getBoolean(@NonNull String key, boolean defValue) {
+        return route(key).getBoolean(key, defValue);
+    }
+
+    @Override
+    public float getFloat(@NonNull String key, float defValue) {
+        return route(key).getFloat(key, defValue);
+    }
+
+    @Override
+    public int getInt(@NonNull String key, int defValue) {
+        return route(key).getInt(key, defValue);
+    }
+
+    @Override
+    public long getLong(@NonNull String key, long defValue) {
+        return route(key).getLong(key, defValue);
+    }
+
+    @Nullable
+    @Override
+    public String getString(@NonNull String key, @Nullable String defValue) {
+        return route(key).getString(key, defValue);
+    }
+
+    @Nullable
+    @Override
+    public Set<String> getStringSet(@NonNull String key, @Nullable Set<String> defValue) {
+        return route(key).getStringSet(key, defValue);
+    }
+
+    @Nullable
+    @Override
+    public byte[] getBytes(@NonNull String key, @Nullable byte[] defValue) {
+        return route(key).getBytes(key, defValue);
+    }
+
+    @NonNull
+    @Override
+    public Storage.Editor edit() {
+        return new Editor();
+    }
+
+    @NonNull
+    @Override
+    public Lock getLock() {
+        return hot.getLock();
+    }
+
+    @Override
+    public void registerListener(@NonNull OnChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void unregisterListener(@NonNull OnChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    @NonNull
+    private Storage route(@NonNull String key) {
+        return coldKeys.contains(key) ? cold() : hot;
+    }
+
+    @NonNull
+    private Storage cold() {
+        Storage current = cold;
+        if (current == null) {
+            synchronized (lock) {
+                current = cold;
+                if (current == null) {
+                    current = coldFactory.create(context, coldName, mode);
+                    migrate(current);
+                    current.registerListener(changeListener);
+                    cold = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private void migrate(@NonNull Storage storage) {
+        final Map<String, ?> values = hot.getAll();
+        final Storage.Editor coldEditor = storage.edit();
+        final Storage.Editor hotEditor = hot.edit();
+        boolean migrated = false;
+        for (final String key : coldKeys) {
+            final Object value = values.get(key);
+            if (value == null) {
+                continue;
+            }
+            if (!storage.contains(key)) {
+                putValue(coldEditor, key, value);
+            }
+            hotEditor.remove(key);
+            migrated = true;
+        }
+        if (migrated) {
+            // The companion storage is written first so that values are not lost when the process dies meanwhile
+            coldEditor.commit();
+            hotEditor.apply();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void putValue(@NonNull Storage.Editor editor, @NonNull String key, @NonNull Object value) {
+        if (value instanceof Boolean) {
+            editor.putBoolean(key, (Boolean) value);
+        } else if (value instanceof Float) {
+            editor.putFloat(key, (Float) value);
+        } else if (value instanceof Integer) {
+            editor.putInt(key, (Integer) value);
+        } else if (value instanceof Long) {
+            editor.putLong(key, (Long) value);
+        } else if (value instanceof String) {
+            editor.putString(key, (String) value);
+        } else if (value instanceof byte[]) {
+            editor.putBytes(key, (byte[]) value);
+        } else {
+            editor.putStringSet(key, (Set<String>) value);
+        }
+    }
+
+    private class Editor implements Storage.Editor {
+        private final Storage.Editor hotEditor = hot.edit();
+        private Storage.Editor coldEditor;
+
+        @NonNull
+        @Override
+        public Storage.Editor putString(@NonNull String key, @Nullable String value) {
+            route(key).putString(key, value);
+            return this;
+        }
+
+        @NonNull
+        @Override
+        public Storage.Editor putStringSet(@NonNull String key, @Nullable Set<String> value) {
+            route(key).putStringSet(key, value);
+            return this;
+        }
+
+        @NonNull
+        @Override
+        public Storage.Editor putBytes(@NonNull String key, @Nullable byte[] value) {
+            route(key).putBytes(key, value);
+            return this;
+        }
+
+        @NonNull
+        @Override
+        public Storage.Editor putInt(@NonNull String key, int value) {
+            route(key).putInt(key, value);
+            return this;
+        }
+
+        @NonNull
+        @Override
+        public Storage.Editor putLong(@NonNull String key, long value) {
+            route(key).putLong(key, value);
+            return this;
+        }
+
+        @NonNull
+        @Override
+        public Storage.Editor putFloat(@NonNull String key, float value) {
+            route(key).putFloat(key, value);
+            return this;
+        }
+
+        @NonNull
+        @Override
+        public Storage.Editor putBoolean(@NonNull String key, boolean value) {
+            route(key).putBoolean(key, value);
+            return this;
+        }
+
+        @NonNull
+        @Override
+        public Storage.Editor remove(@NonNull String key) {
+            route(key).remove(key);
+            return this;
+        }
+
+        @NonNull
+        @Override
+        public Storage.Editor clear() {
+            hotEditor.clear();
+            coldEditor().clear();
+            return this;
+        }
+
+        @Override
+        public boolean commit() {
+            if (coldEditor == null && cold != null) {
+                // Modifications applied to the cold storage before are written as well
+                coldEditor = cold.edit();
+            }
+            final boolean committed = coldEditor == null || coldEditor.commit();
+            return hotEditor.commit() && committed;
+        }
+
+        @Override
+        public void apply() {
+            if (coldEditor != null) {
+                coldEditor.apply();
+            }
+            hotEditor.apply();
+        }
+
+        @NonNull
+        private Storage.Editor route(@NonNull String key) {
+            return coldKeys.contains(key) ? coldEditor() : hotEditor;
+        }
+
+        @NonNull
+        private Storage.Editor coldEditor() {
+            if (coldEditor == null) {
+                coldEditor = cold().edit();
+            }
+            return coldEditor;
+        }
+    }
+}
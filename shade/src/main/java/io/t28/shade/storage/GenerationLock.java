@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2016 Tatsuya Maki
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.t28.shade.storage;
+
+import android.support.annotation.NonNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+
+/**
+ * Lock and generation counter which are shared between processes through a memory-mapped file
+ * <p>
+ * A writer increments the generation while holding the lock, so that a reader detects that another process has
+ * modified the log with a single memory read.
+ * </p>
+ */
+final class GenerationLock {
+    private static final int SIZE = 8;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private FileLock lock;
+
+    GenerationLock(@NonNull File file) throws IOException {
+        this.channel = new RandomAccessFile(file, "rw").getChannel();
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, SIZE);
+    }
+
+    long read() {
+        return buffer.getLong(0);
+    }
+
+    long increment() {
+        final long next = buffer.getLong(0) + 1L;
+        buffer.putLong(0, next);
+        return next;
+    }
+
+    /**
+     * Acquire the lock which excludes other processes
+     * <p>
+     * Threads within the process must be excluded by the caller because the lock is held by the process.
+     * </p>
+     *
+     * @throws IOException if the lock could not be acquired
+     */
+    void lock() throws IOException {
+        lock = channel.lock();
+    }
+
+    void unlock() {
+        if (lock == null) {
+            return;
+        }
+        try {
+            lock.release();
+        } catch (IOException e) {
+            // The lock is released when the channel is closed
+        }
+        lock = null;
+    }
+
+    void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,685 @@
+/*
+ * Copyright (c) 2016 Tatsuya Maki
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.t28.shade.storage;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link Storage} backed by a memory-mapped append-only log
+ * <p>
+ * Every batch of modifications is appended to the log as one record, so that a write costs the size of the
+ * modified values instead of the size of the whole file. The log is compacted into a single record when it grows
+ * twice as large as the live values, on a background thread so that a write never waits for it. {@link Editor#apply()} writes to the mapped memory, which survives a crash of
+ * the process, and {@link Editor#commit()} additionally writes the mapped memory to the storage device.
+ * </p>
+ * <p>
+ * Listeners are notified on the thread which writes the modifications.
+ * </p>
+ * <p>
+ * A storage which is opened for multiple processes serializes writers of every process with a file lock, and
+ * shares a memory-mapped generation counter, so that a reader detects a write of another process with a single
+ * memory read and reloads the log only when it has changed. The lock of {@link #getLock()} holds the file lock as
+ * well, so that an update of one process can not be overwritten by another. Listeners are not notified of writes of
+ * other processes.
+ * </p>
+ *
+ * @see MappedStorageFactory
+ */
+public class MappedStorage implements Storage {
+    private static final int MIN_COMPACTION_SIZE = 64 * 1024;
+    private static final String GENERATION_SUFFIX = ".gen";
+    private static final Map<String, MappedStorage> INSTANCES = new HashMap<>();
+    private static ExecutorService compactor;
+
+    private final Map<String, Object> values = new HashMap<>();
+    private final WeakListenerSet listeners = new WeakListenerSet();
+    // Guards the values and the log, and is acquired before the file lock so that both are always taken in the same order
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Lock updateLock = new UpdateLock();
+    private final File file;
+    @Nullable
+    private final GenerationLock generationLock;
+    private final Executor executor;
+    private final Runnable compactTask = new Runnable() {
+        @Override
+        public void run() {
+            compact();
+        }
+    };
+    private RecordLog log;
+    private long generation;
+    private int compactionSize;
+    private boolean compactionScheduled;
+    private int fileLockCount;
+
+    @VisibleForTesting
+    MappedStorage(@NonNull File file) throws IOException {
+        this(file, null);
+    }
+
+    @VisibleForTesting
+    MappedStorage(@NonNull File file, @Nullable GenerationLock generationLock) throws IOException {
+        this(file, generationLock, getCompactor());
+    }
+
+    @VisibleForTesting
+    MappedStorage(@NonNull File file, @Nullable GenerationLock generationLock, @NonNull Executor executor) throws IOException {
+        this.file = file;
+        this.generationLock = generationLock;
+        this.executor = executor;
+        if (generationLock == null) {
+            this.log = RecordLog.open(file, values);
+        } else {
+            generationLock.lock();
+            try {
+                this.log = RecordLog.open(file, values);
+                this.generation = generationLock.read();
+            } finally {
+                generationLock.unlock();
+            }
+        }
+        this.compactionSize = computeCompactionSize();
+    }
+
+    /**
+     * Open the storage of the file
+     * <p>
+     * The same storage is returned for the same file within the process.
+     * </p>
+     *
+     * @param file The file of the log
+     * @return The opened storage
+     * @throws IllegalStateException if the file could not be opened
+     */
+    @NonNull
+    public static MappedStorage open(@NonNull File file) {
+        return open(file, false);
+    }
+
+    /**
+     * Open the storage of the file
+     * <p>
+     * The same storage is returned for the same file within the process.
+     * </p>
+     *
+     * @param file         The file of the log
+     * @param multiProcess Whether the file is shared with other processes
+     * @return The opened storage
+     * @throws IllegalStateException if the file could not be opened or is already opened in another mode
+     */
+    @NonNull
+    public static MappedStorage open(@NonNull File file, boolean multiProcess) {
+        synchronized (INSTANCES) {
+            final String path = file.getAbsolutePath();
+            MappedStorage instance = INSTANCES.get(path);
+            if (instance == null) {
+                final File directory = file.getParentFile();
+                if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+                    throw new IllegalStateException("Failed to create directory(" + directory + ")");
+                }
+                try {
+                    if (multiProcess) {
+                        instance = new MappedStorage(file, new GenerationLock(new File(path + GENERATION_SUFFIX)));
+                    } else {
+                        instance = new MappedStorage(file);
+                    }
+                } catch (IOException e) {
+                    throw new IllegalStateException("Failed to open file(" + file + ")", e);
+                }
+                INSTANCES.put(path, instance);
+            } else if ((instance.generationLock != null) != multiProcess) {
+                throw new IllegalStateException("File(" + file + ") is already opened in another mode");
+            }
+            return instance;
+        }
+    }
+
+    private static synchronized ExecutorService getCompactor() {
+        if (compactor == null) {
+            compactor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(@NonNull Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "shade-compaction");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return compactor;
+    }
+
+    @NonNull
+    @Override
+    public Map<String, ?> getAll() {
+        lock.lock();
+        try {
+            refresh();
+            return new HashMap<>(values);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean contains(@NonNull String key) {
+        lock.lock();
+        try {
+            refresh();
+            return values.containsKey(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean getBoolean(@NonNull String key, boolean defValue) {
+        lock.lock();
+        try {
+            refresh();
+            final Boolean value = (Boolean) values.get(key);
+            return value == null ? defValue : value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public float getFloat(@NonNull String key, float defValue) {
+        lock.lock();
+        try {
+            refresh();
+            final Float value = (Float) values.get(key);
+            return value == null ? defValue : value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int getInt(@NonNull String key, int defValue) {
+        lock.lock();
+        try {
+            refresh();
+            final Integer value = (Integer) values.get(key);
+            return value == null ? defValue : value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long getLong(@NonNull String key, long defValue) {
+        lock.lock();
+        try {
+            refresh();
+            final Long value = (Long) values.get(key);
+            return value == null ? defValue : value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Nullable
+    @Override
+    public String getString(@NonNull String key, @Nullable String defValue) {
+        lock.lock();
+        try {
+            refresh();
+            final String value = (String) values.get(key);
+            return value == null ? defValue : value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Nullable
+    @Override
+    @SuppressWarnings("unchecked")
+    public Set<String> getStringSet(@NonNull String key, @Nullable Set<String> defValue) {
+        lock.lock();
+        try {
+            refresh();
+            final Set<String> value = (Set<String>) values.get(key);
+            return value == null ? defValue : value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Nullable
+    @Override
+    public byte[] getBytes(@NonNull String key, @Nullable byte[] defValue) {
+        lock.lock();
+        try {
+            refresh();
+            final byte[] value = (byte[]) values.get(key);
+            return value == null ? defValue : value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @NonNull
+    @Override
+    public Storage.Editor edit() {
+        return new Editor();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The lock of a storage which is opened for multiple processes holds the file lock as well, so that another
+     * process can not write between a read and a write of an update.
+     * </p>
+     */
+    @NonNull
+    @Override
+    public Lock getLock() {
+        return updateLock;
+    }
+
+    @Override
+    public void registerListener(@NonNull OnChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void unregisterListener(@NonNull OnChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    @VisibleForTesting
+    int getLogLength() {
+        lock.lock();
+        try {
+            return log.length();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @VisibleForTesting
+    void close() throws IOException {
+        lock.lock();
+        try {
+            log.close();
+            if (generationLock != null) {
+                generationLock.close();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean write(boolean clear, @NonNull Map<String, Object> modified, boolean force) {
+        final boolean cleared;
+        final List<String> changedKeys = new ArrayList<>();
+        // The records are written to the storage device after the lock is released, so that updates do not wait for it
+        final MappedByteBuffer forced;
+        lock.lock();
+        try {
+            try {
+                lockFile();
+            } catch (IOException e) {
+                return false;
+            }
+            try {
+                // Another process may have appended records since the log is read
+                if (generationLock != null && generationLock.read() != generation) {
+                    reload();
+                }
+
+                cleared = clear && !values.isEmpty();
+                final Map<String, Object> changes = new LinkedHashMap<>();
+                for (final Map.Entry<String, Object> entry : modified.entrySet()) {
+                    final String key = entry.getKey();
+                    final Object value = entry.getValue();
+                    final Object current = cleared ? null : values.get(key);
+                    if (value == RecordLog.REMOVED ? current != null : !isEqual(value, current)) {
+                        changes.put(key, value);
+                    }
+                }
+                if (cleared || !changes.isEmpty()) {
+                    log.append(RecordLog.encode(cleared, changes));
+
+                    if (cleared) {
+                        values.clear();
+                    }
+                    for (final Map.Entry<String, Object> entry : changes.entrySet()) {
+                        if (entry.getValue() == RecordLog.REMOVED) {
+                            values.remove(entry.getKey());
+                        } else {
+                            values.put(entry.getKey(), entry.getValue());
+                        }
+                        changedKeys.add(entry.getKey());
+                    }
+                    if (generationLock != null) {
+                        generation = generationLock.increment();
+                    }
+                }
+                // Records which are appended by apply before are written as well
+                forced = force ? log.getMappedBuffer() : null;
+            } catch (IOException e) {
+                return false;
+            } finally {
+                unlockFile();
+            }
+            if (!compactionScheduled && log.length() > compactionSize) {
+                compactionScheduled = true;
+                executor.execute(compactTask);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (forced != null) {
+            forced.force();
+        }
+        if (cleared) {
+            notifyChanged(null);
+        }
+        for (final String key : changedKeys) {
+            notifyChanged(key);
+        }
+        return true;
+    }
+
+    /**
+     * Acquire the file lock if the storage is shared with other processes
+     * <p>
+     * The caller must hold {@link #lock}, and the file lock is counted so that a write within an update does not
+     * acquire it again.
+     * </p>
+     *
+     * @throws IOException if the lock could not be acquired
+     */
+    private void lockFile() throws IOException {
+        if (generationLock == null) {
+            return;
+        }
+        if (fileLockCount == 0) {
+            generationLock.lock();
+        }
+        fileLockCount++;
+    }
+
+    private void unlockFile() {
+        if (generationLock == null) {
+            return;
+        }
+        fileLockCount--;
+        if (fileLockCount == 0) {
+            generationLock.unlock();
+        }
+    }
+
+    /**
+     * Reload the log if another process has modified it
+     */
+    private void refresh() {
+        if (generationLock == null || generationLock.read() == generation) {
+            return;
+        }
+        try {
+            lockFile();
+            try {
+                reload();
+            } finally {
+                unlockFile();
+            }
+        } catch (IOException e) {
+            // The values which are read last are used until the log is read successfully
+        }
+    }
+
+    private void reload() throws IOException {
+        final Map<String, Object> loaded = new HashMap<>();
+        final RecordLog reloaded = RecordLog.open(file, loaded);
+        log.close();
+        log = reloaded;
+        values.clear();
+        values.putAll(loaded);
+        if (generationLock != null) {
+            generation = generationLock.read();
+        }
+        compactionSize = computeCompactionSize();
+    }
+
+    private static boolean isEqual(@NonNull Object value, @Nullable Object current) {
+        if (value instanceof byte[] && current instanceof byte[]) {
+            return Arrays.equals((byte[]) value, (byte[]) current);
+        }
+        return value.equals(current);
+    }
+
+    private void compact() {
+        lock.lock();
+        try {
+            compactionScheduled = false;
+            try {
+                lockFile();
+            } catch (IOException e) {
+                // The compaction is scheduled again by the next write
+                return;
+            }
+            try {
+                // Another process may have appended or compacted records since the log is read
+                if (generationLock != null && generationLock.read() != generation) {
+                    reload();
+                }
+                if (log.length() <= compactionSize) {
+                    return;
+                }
+                log.rewrite(RecordLog.encode(false, values));
+                compactionSize = computeCompactionSize();
+                if (generationLock != null) {
+                    generation = generationLock.increment();
+                }
+            } catch (IOException e) {
+                // The old log is still valid, so that the compaction is retried by the next write
+            } finally {
+                unlockFile();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int computeCompactionSize() {
+        return Math.max(MIN_COMPACTION_SIZE, RecordLog.encode(false, values).length * 2);
+    }
+
+    private void notifyChanged(@Nullable String key) {
+        listeners.notifyChanged(this, key);
+    }
+
+    /**
+     * Lock which serializes updates of the storage
+     * <p>
+     * The file lock is acquired with the lock within the process when the storage is shared with other processes, and
+     * is waited for by {@link #tryLock()} as well.
+     * </p>
+     */
+    private class UpdateLock implements Lock {
+        @Override
+        public void lock() {
+            lock.lock();
+            acquireFile();
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            lock.lockInterruptibly();
+            acquireFile();
+        }
+
+        @Override
+        public boolean tryLock() {
+            if (!lock.tryLock()) {
+                return false;
+            }
+            acquireFile();
+            return true;
+        }
+
+        @Override
+        public boolean tryLock(long time, @NonNull TimeUnit unit) throws InterruptedException {
+            if (!lock.tryLock(time, unit)) {
+                return false;
+            }
+            acquireFile();
+            return true;
+        }
+
+        @Override
+        public void unlock() {
+            unlockFile();
+            lock.unlock();
+        }
+
+        @NonNull
+        @Override
+        public Condition newCondition() {
+            throw new UnsupportedOperationException("Condition is not supported");
+        }
+
+        private void acquireFile() {
+            try {
+                lockFile();
+            } catch (IOException e) {
+                lock.unlock();
+                throw new IllegalStateException("Failed to lock file(" + file + ")", e);
+            }
+        }
+    }
+
+    private class Editor implements Storage.Editor {
+        private final Map<String, Object> modified = new LinkedHashMap<>();
+        private boolean clear;
+
+        @NonNull
+        @Override
+        public Storage.Editor putBoolean(@NonNull String key, boolean value) {
+            return put(key, value);
+        }
+
+        @NonNull
+        @Override
+        public Storage.Editor putFloat(@NonNull String key, float value) {
+            return put(key, value);
+        }
+
+        @NonNull
+        @Override
+        public Storage.Editor putInt(@NonNull String key, int value) {
+            return put(key, value);
+        }
+
+        @NonNull
+        @Override
+        public Storage.Editor putLong(@NonNull String key, long value) {
+            return put(key, value);
+        }
+
+        @NonNull
+        @Override
+        public Storage.Editor putString(@NonNull String key, @Nullable String value) {
+            return put(key, value);
+        }
+
+        @NonNull
+        @Override
+        public Storage.Editor putStringSet(@NonNull String key, @Nullable Set<String> value) {
+            return put(key, value == null ? null : new HashSet<>(value));
+        }
+
+        @NonNull
+        @Override
+        public Storage.Editor putBytes(@NonNull String key, @Nullable byte[] value) {
+            return put(key, value == null ? null : value.clone());
+        }
+
+        @NonNull
+        @Override
+        public Storage.Editor remove(@NonNull String key) {
+            return put(key, null);
+        }
+
+        @NonNull
+        @Override
+        public Storage.Editor clear() {
+            synchronized (this) {
+                clear = true;
+            }
+            return this;
+        }
+
+        @Override
+        public boolean commit() {
+            synchronized (this) {
+                final boolean written = write(clear, modified, true);
+                reset();
+                return written;
+            }
+        }
+
+        @Override
+        public void apply() {
+            synchronized (this) {
+                write(clear, modified, false);
+                reset();
+            }
+        }
+
+        private void reset() {
+            // The editor can be reused as well as SharedPreferences.Editor without writing the same changes again
+            modified.clear();
+            clear = false;
+        }
+
+        @NonNull
+        private Storage.Editor put(@NonNull String key, @Nullable Object value) {
+            synchronized (this) {
+                // A null value removes the key as well as SharedPreferences does
+                modified.put(key, value == null ? RecordLog.REMOVED : value);
+            }
+            return this;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2016 Tatsuya Maki
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.t28.shade.storage;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+
+import java.io.File;
+
+/**
+ * {@link StorageFactory} which creates {@link MappedStorage}
+ * <p>
+ * The log is stored under the files directory of the application, and the operating mode is ignored because the
+ * file is always private to the application.
+ * </p>
+ */
+public class MappedStorageFactory implements StorageFactory {
+    private static final String DIRECTORY_NAME = "shade";
+    private static final String FILE_EXTENSION = ".log";
+
+    @NonNull
+    @Override
+    public Storage create(@NonNull Context context, @NonNull String name, int mode) {
+        final File directory = new File(context.getFilesDir(), DIRECTORY_NAME);
+        return MappedStorage.open(new File(directory, name + FILE_EXTENSION));
+    }
+}
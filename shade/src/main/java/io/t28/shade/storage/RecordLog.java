@@ -0,0 +1,413 @@
+/*
+ * Copyright (c) 2016 Tatsuya Maki
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.t28.shade.storage;
+
+import android.support.annotation.NonNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of typed key-value records in a memory-mapped file
+ * <p>
+ * The file starts with a header which consists of a magic number and a version, followed by records.
+ * Each record consists of the length and the CRC32 of its payload, and the payload holds every entry of one
+ * batch, so that a batch is either read entirely or not at all.
+ * A record is followed by a zero length which terminates the log, so that loading stops there as well as at the
+ * first record which is incomplete or corrupted. The file is never truncated because another process may map it.
+ * </p>
+ */
+final class RecordLog {
+    static final Object REMOVED = new Object();
+
+    // "SHDL" in ASCII
+    private static final int MAGIC = 0x5348444c;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final int TERMINATOR_SIZE = 4;
+    private static final int PAGE_SIZE = 4096;
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final byte TYPE_CLEAR = 0;
+    private static final byte TYPE_REMOVE = 1;
+    private static final byte TYPE_BOOLEAN = 2;
+    private static final byte TYPE_FLOAT = 3;
+    private static final byte TYPE_INT = 4;
+    private static final byte TYPE_LONG = 5;
+    private static final byte TYPE_STRING = 6;
+    private static final byte TYPE_STRING_SET = 7;
+    private static final byte TYPE_BYTES = 8;
+
+    private final File file;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int end;
+
+    private RecordLog(@NonNull File file) {
+        this.file = file;
+    }
+
+    /**
+     * Open the log and read every valid record into the map
+     *
+     * @param file   The file of the log
+     * @param values The map which the read values are put into
+     * @return The opened log
+     * @throws IOException if the file could not be read or written
+     */
+    @NonNull
+    static RecordLog open(@NonNull File file, @NonNull Map<String, Object> values) throws IOException {
+        final RecordLog log = new RecordLog(file);
+        log.load(values);
+        return log;
+    }
+
+    /**
+     * Encode a batch into the payload of a record
+     *
+     * @param clear   Whether the batch removes all values before applying the entries
+     * @param entries The entries of the batch; a value {@link #REMOVED} removes the key
+     * @return The encoded payload
+     */
+    @NonNull
+    static byte[] encode(boolean clear, @NonNull Map<String, ?> entries) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream output = new DataOutputStream(bytes);
+        try {
+            output.writeInt(entries.size() + (clear ? 1 : 0));
+            if (clear) {
+                output.writeByte(TYPE_CLEAR);
+            }
+            for (final Map.Entry<String, ?> entry : entries.entrySet()) {
+                writeEntry(output, entry.getKey(), entry.getValue());
+            }
+        } catch (IOException e) {
+            // ByteArrayOutputStream never throws IOException
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Append a record at the end of the log
+     *
+     * @param payload The payload which is encoded by {@link #encode(boolean, Map)}
+     * @throws IOException if the file could not be extended
+     */
+    void append(@NonNull byte[] payload) throws IOException {
+        final int recordSize = RECORD_HEADER_SIZE + payload.length;
+        ensureCapacity(end + recordSize + TERMINATOR_SIZE);
+
+        final CRC32 crc = new CRC32();
+        crc.update(payload);
+        buffer.position(end + RECORD_HEADER_SIZE);
+        buffer.put(payload);
+        buffer.putInt(end + 4, (int) crc.getValue());
+        // Terminate the log so that an incomplete record which follows is not read
+        buffer.putInt(end + recordSize, 0);
+        // The length is written last so that a record is not visible until its payload is written
+        buffer.putInt(end, payload.length);
+        end += recordSize;
+    }
+
+    /**
+     * Write the mapped memory to the storage device
+     */
+    void force() {
+        buffer.force();
+    }
+
+    /**
+     * Return the mapped memory which holds the records appended so far
+     * <p>
+     * A mapping stays valid after the log is grown, rewritten or closed, so that the returned memory can be written
+     * to the storage device without holding the lock of the storage.
+     * </p>
+     *
+     * @return The mapped memory
+     */
+    @NonNull
+    MappedByteBuffer getMappedBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Replace the log with a log which consists of the single record
+     * <p>
+     * The new log is written to a temporary file which replaces the file by renaming, so that either the old log
+     * or the new log remains on a crash.
+     * </p>
+     *
+     * @param payload The payload which is encoded by {@link #encode(boolean, Map)}
+     * @throws IOException if the file could not be written
+     */
+    void rewrite(@NonNull byte[] payload) throws IOException {
+        final File temporary = new File(file.getPath() + TEMPORARY_SUFFIX);
+        final CRC32 crc = new CRC32();
+        crc.update(payload);
+        final ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + RECORD_HEADER_SIZE + payload.length);
+        record.putInt(MAGIC)
+                .putInt(VERSION)
+                .putInt(payload.length)
+                .putInt((int) crc.getValue())
+                .put(payload)
+                .flip();
+
+        final RandomAccessFile output = new RandomAccessFile(temporary, "rw");
+        try {
+            output.setLength(0);
+            output.getChannel().write(record);
+            output.getChannel().force(true);
+        } finally {
+            output.close();
+        }
+
+        channel.close();
+        if (!temporary.renameTo(file)) {
+            map(new RandomAccessFile(file, "rw").getChannel(), end);
+            throw new IOException("Failed to rename " + temporary + " to " + file);
+        }
+        end = record.limit();
+        map(new RandomAccessFile(file, "rw").getChannel(), end);
+    }
+
+    /**
+     * Return the length of the valid records in bytes
+     *
+     * @return The length including the header
+     */
+    int length() {
+        return end;
+    }
+
+    void close() throws IOException {
+        channel.close();
+    }
+
+    private void load(@NonNull Map<String, Object> values) throws IOException {
+        final FileChannel channel = new RandomAccessFile(file, "rw").getChannel();
+        final long size = channel.size();
+        if (size > Integer.MAX_VALUE) {
+            channel.close();
+            throw new IOException("File(" + file + ") is too large");
+        }
+
+        final ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        int position = HEADER_SIZE;
+        if (size < HEADER_SIZE || mapped.getInt(0) != MAGIC || mapped.getInt(4) != VERSION) {
+            // The header is incomplete or the file is not a log
+            position = 0;
+        } else {
+            while (true) {
+                final int next = readRecord(mapped, position, values);
+                if (next < 0) {
+                    break;
+                }
+                position = next;
+            }
+        }
+
+        // An incomplete record which follows is overwritten by the next record
+        map(channel, position);
+        if (position == 0) {
+            values.clear();
+            ensureCapacity(HEADER_SIZE + TERMINATOR_SIZE);
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(HEADER_SIZE, 0);
+            end = HEADER_SIZE;
+        }
+    }
+
+    private void map(@NonNull FileChannel channel, int end) throws IOException {
+        this.channel = channel;
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, roundUp(Math.max(end, HEADER_SIZE)));
+        this.end = end;
+    }
+
+    private void ensureCapacity(int capacity) throws IOException {
+        if (capacity <= buffer.capacity()) {
+            return;
+        }
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, roundUp(Math.max(capacity, buffer.capacity() * 2)));
+    }
+
+    /**
+     * Read a record and apply its entries to the map
+     *
+     * @return The position of the next record, or {@code -1} if the record is not valid
+     */
+    private static int readRecord(@NonNull ByteBuffer mapped, int position, @NonNull Map<String, Object> values) {
+        if (mapped.limit() - position < RECORD_HEADER_SIZE) {
+            return -1;
+        }
+        final int length = mapped.getInt(position);
+        final int checksum = mapped.getInt(position + 4);
+        final int start = position + RECORD_HEADER_SIZE;
+        if (length <= 0 || length > mapped.limit() - start) {
+            return -1;
+        }
+
+        final byte[] payload = new byte[length];
+        final ByteBuffer source = mapped.duplicate();
+        source.position(start);
+        source.get(payload);
+        final CRC32 crc = new CRC32();
+        crc.update(payload);
+        if ((int) crc.getValue() != checksum) {
+            return -1;
+        }
+
+        try {
+            applyPayload(ByteBuffer.wrap(payload), values);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            return -1;
+        }
+        return start + length;
+    }
+
+    private static void applyPayload(@NonNull ByteBuffer payload, @NonNull Map<String, Object> values) {
+        final int count = payload.getInt();
+        for (int i = 0; i < count; i++) {
+            final byte type = payload.get();
+            if (type == TYPE_CLEAR) {
+                values.clear();
+                continue;
+            }
+
+            final String key = readString(payload);
+            switch (type) {
+                case TYPE_REMOVE:
+                    values.remove(key);
+                    break;
+                case TYPE_BOOLEAN:
+                    values.put(key, payload.get() != 0);
+                    break;
+                case TYPE_FLOAT:
+                    values.put(key, payload.getFloat());
+                    break;
+                case TYPE_INT:
+                    values.put(key, payload.getInt());
+                    break;
+                case TYPE_LONG:
+                    values.put(key, payload.getLong());
+                    break;
+                case TYPE_STRING:
+                    values.put(key, readString(payload));
+                    break;
+                case TYPE_STRING_SET:
+                    final int size = payload.getInt();
+                    final Set<String> strings = new HashSet<>(size);
+                    for (int j = 0; j < size; j++) {
+                        strings.add(readString(payload));
+                    }
+                    values.put(key, strings);
+                    break;
+                case TYPE_BYTES:
+                    final int length = payload.getInt();
+                    if (length < 0 || length > payload.remaining()) {
+                        throw new IllegalArgumentException("Length(" + length + ") is out of range");
+                    }
+                    final byte[] bytes = new byte[length];
+                    payload.get(bytes);
+                    values.put(key, bytes);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Type(" + type + ") is not supported");
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void writeEntry(@NonNull DataOutputStream output, @NonNull String key, @NonNull Object value) throws IOException {
+        if (value == REMOVED) {
+            output.writeByte(TYPE_REMOVE);
+            writeString(output, key);
+        } else if (value instanceof Boolean) {
+            output.writeByte(TYPE_BOOLEAN);
+            writeString(output, key);
+            output.writeBoolean((Boolean) value);
+        } else if (value instanceof Float) {
+            output.writeByte(TYPE_FLOAT);
+            writeString(output, key);
+            output.writeFloat((Float) value);
+        } else if (value instanceof Integer) {
+            output.writeByte(TYPE_INT);
+            writeString(output, key);
+            output.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            output.writeByte(TYPE_LONG);
+            writeString(output, key);
+            output.writeLong((Long) value);
+        } else if (value instanceof String) {
+            output.writeByte(TYPE_STRING);
+            writeString(output, key);
+            writeString(output, (String) value);
+        } else if (value instanceof byte[]) {
+            final byte[] bytes = (byte[]) value;
+            output.writeByte(TYPE_BYTES);
+            writeString(output, key);
+            output.writeInt(bytes.length);
+            output.write(bytes);
+        } else if (value instanceof Set) {
+            final Set<String> strings = (Set<String>) value;
+            output.writeByte(TYPE_STRING_SET);
+            writeString(output, key);
+            output.writeInt(strings.size());
+            for (final String string : strings) {
+                writeString(output, string);
+            }
+        } else {
+            throw new IllegalArgumentException("Value(" + value + ") is not supported");
+        }
+    }
+
+    private static void writeString(@NonNull DataOutputStream output, @NonNull String value) throws IOException {
+        final byte[] bytes = value.getBytes(UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    @NonNull
+    private static String readString(@NonNull ByteBuffer payload) {
+        final int length = payload.getInt();
+        if (length < 0 || length > payload.remaining()) {
+            throw new IllegalArgumentException("Length(" + length + ") is out of range");
+        }
+        final String value = new String(payload.array(), payload.arrayOffset() + payload.position(), length, UTF_8);
+        payload.position(payload.position() + length);
+        return value;
+    }
+
+    private static int roundUp(int size) {
+        return (size + PAGE_SIZE - 1) / PAGE_SIZE * PAGE_SIZE;
+    }
+}
@@ -0,0 +1,258 @@
+/*
+ * Copyright (c) 2016 Tatsuya Maki
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.t28.shade.storage;
+
+import android.content.SharedPreferences;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Base64;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link Storage} backed by {@code SharedPreferences}
+ * <p>
+ * Bytes are stored as a Base64 string because {@code SharedPreferences} does not support bytes.
+ * </p>
+ */
+public class SharedPreferencesStorage implements Storage {
+    // SharedPreferences is shared by the name within the process, so that the lock is shared by the instance as well
+    private static final Map<SharedPreferences, Lock> LOCKS = new WeakHashMap<>();
+
+    private final SharedPreferences preferences;
+    private final Lock lock;
+    private final WeakListenerSet listeners = new WeakListenerSet();
+    // SharedPreferences holds listeners with weak references, so that the listener is held by this storage
+    private final SharedPreferences.OnSharedPreferenceChangeListener changeListener = new SharedPreferences.OnSharedPreferenceChangeListener() {
+        @Override
+        public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
+            listeners.notifyChanged(SharedPreferencesStorage.this, key);
+        }
+    };
+
+    public SharedPreferencesStorage(@NonNull SharedPreferences preferences) {
+        this.preferences = preferences;
+        this.lock = obtainLock(preferences);
+    }
+
+    @NonNull
+    public SharedPreferences getSharedPreferences() {
+        return preferences;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (this == object) {
+            return true;
+        }
+        if (!(object instanceof SharedPreferencesStorage)) {
+            return false;
+        }
+        // SharedPreferences is shared by the name within the process
+        return preferences == ((SharedPreferencesStorage) object).preferences;
+    }
+
+    @Override
+    public int hashCode() {
+        return System.identityHashCode(preferences);
+    }
+
+    @NonNull
+    @Override
+    public Map<String, ?> getAll() {
+        return preferences.getAll();
+    }
+
+    @Override
+    public boolean contains(@NonNull String key) {
+        return preferences.contains(key);
+    }
+
+    @Override
+    public boolean getBoolean(@NonNull String key, boolean defValue) {
+        return preferences.getBoolean(key, defValue);
+    }
+
+    @Override
+    public float getFloat(@NonNull String key, float defValue) {
+        return preferences.getFloat(key, defValue);
+    }
+
+    @Override
+    public int getInt(@NonNull String key, int defValue) {
+        return preferences.getInt(key, defValue);
+    }
+
+    @Override
+    public long getLong(@NonNull String key, long defValue) {
+        return preferences.getLong(key, defValue);
+    }
+
+    @Nullable
+    @Override
+    public String getString(@NonNull String key, @Nullable String defValue) {
+        return preferences.getString(key, defValue);
+    }
+
+    @Nullable
+    @Override
+    public Set<String> getStringSet(@NonNull String key, @Nullable Set<String> defValue) {
+        return preferences.getStringSet(key, defValue);
+    }
+
+    @Nullable
+    @Override
+    public byte[] getBytes(@NonNull String key, @Nullable byte[] defValue) {
+        final String value = preferences.getString(key, null);
+        if (value == null) {
+            return defValue;
+        }
+        try {
+            return Base64.decode(value, Base64.NO_WRAP);
+        } catch (IllegalArgumentException e) {
+            return defValue;
+        }
+    }
+
+    @NonNull
+    @Override
+    public Storage.Editor edit() {
+        return new Editor(preferences.edit());
+    }
+
+    @NonNull
+    @Override
+    public Lock getLock() {
+        return lock;
+    }
+
+    @Override
+    public void registerListener(@NonNull OnChangeListener listener) {
+        synchronized (listeners) {
+            if (listeners.isEmpty()) {
+                preferences.registerOnSharedPreferenceChangeListener(changeListener);
+            }
+            listeners.add(listener);
+        }
+    }
+
+    @Override
+    public void unregisterListener(@NonNull OnChangeListener listener) {
+        synchronized (listeners) {
+            if (listeners.remove(listener) && listeners.isEmpty()) {
+                preferences.unregisterOnSharedPreferenceChangeListener(changeListener);
+            }
+        }
+    }
+
+    @NonNull
+    private static Lock obtainLock(@NonNull SharedPreferences preferences) {
+        synchronized (LOCKS) {
+            Lock lock = LOCKS.get(preferences);
+            if (lock == null) {
+                lock = new ReentrantLock();
+                LOCKS.put(preferences, lock);
+            }
+            return lock;
+        }
+    }
+
+    private static class Editor implements Storage.Editor {
+        private final SharedPreferences.Editor editor;
+
+        Editor(@NonNull SharedPreferences.Editor editor) {
+            this.editor = editor;
+        }
+
+        @NonNull
+        @Override
+        public Storage.Editor putBoolean(@NonNull String key, boolean value) {
+            editor.putBoolean(key, value);
+            return this;
+        }
+
+        @NonNull
+        @Override
+        public Storage.Editor putFloat(@NonNull String key, float value) {
+            editor.putFloat(key, value);
+            return this;
+        }
+
+        @NonNull
+        @Override
+        public Storage.Editor putInt(@NonNull String key, int value) {
+            editor.putInt(key, value);
+            return this;
+        }
+
+        @NonNull
+        @Override
+        public Storage.Editor putLong(@NonNull String key, long value) {
+            editor.putLong(key, value);
+            return this;
+        }
+
+        @NonNull
+        @Override
+        public Storage.Editor putString(@NonNull String key, @Nullable String value) {
+            editor.putString(key, value);
+            return this;
+        }
+
+        @NonNull
+        @Override
+        public Storage.Editor putStringSet(@NonNull String key, @Nullable Set<String> value) {
+            editor.putStringSet(key, value);
+            return this;
+        }
+
+        @NonNull
+        @Override
+        public Storage.Editor putBytes(@NonNull String key, @Nullable byte[] value) {
+            editor.putString(key, value == null ? null : Base64.encodeToString(value, Base64.NO_WRAP));
+            return this;
+        }
+
+        @NonNull
+        @Override
+        public Storage.Editor remove(@NonNull String key) {
+            editor.remove(key);
+            return this;
+        }
+
+        @NonNull
+        @Override
+        public Storage.Editor clear() {
+            editor.clear();
+            return this;
+        }
+
+        @Override
+        public boolean commit() {
+            return editor.commit();
+        }
+
+        @Override
+        public void apply() {
+            editor.apply();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2016 Tatsuya Maki
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.t28.shade.storage;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Key-value store which the generated classes read and write
+ * <p>
+ * The contract follows the one of {@code SharedPreferences}: an {@link Editor} batches modifications, and
+ * {@link Editor#apply()} makes them visible to subsequent reads before returning.
+ * </p>
+ * <p>
+ * Storages which read and write the same values should be equal, so that wrappers of them share their state.
+ * </p>
+ *
+ * @see SharedPreferencesStorage
+ */
+public interface Storage {
+    @NonNull
+    Map<String, ?> getAll();
+
+    boolean contains(@NonNull String key);
+
+    boolean getBoolean(@NonNull String key, boolean defValue);
+
+    float getFloat(@NonNull String key, float defValue);
+
+    int getInt(@NonNull String key, int defValue);
+
+    long getLong(@NonNull String key, long defValue);
+
+    @Nullable
+    String getString(@NonNull String key, @Nullable String defValue);
+
+    @Nullable
+    Set<String> getStringSet(@NonNull String key, @Nullable Set<String> defValue);
+
+    /**
+     * Return the bytes of the key
+     * <p>
+     * The returned array must not be modified.
+     * </p>
+     *
+     * @param key      The key of the value
+     * @param defValue The value which is returned if the key does not exist
+     * @return The bytes of the key or the default value
+     */
+    @Nullable
+    byte[] getBytes(@NonNull String key, @Nullable byte[] defValue);
+
+    @NonNull
+    Editor edit();
+
+    /**
+     * Return the lock which serializes read-modify-write operations
+     * <p>
+     * Storages which read and write the same values must return the same lock, so that an update read from one of
+     * them is not overwritten by a write through another. A storage which is shared with other processes should
+     * exclude them as well while the lock is held.
+     * </p>
+     *
+     * @return The lock of the stored values
+     */
+    @NonNull
+    Lock getLock();
+
+    /**
+     * Register the listener
+     * <p>
+     * The listener is held with a weak reference as {@code SharedPreferences} does, so that the caller must keep a
+     * reference to it as long as it should be notified.
+     * </p>
+     *
+     * @param listener The listener to be registered
+     * @see WeakListenerSet
+     */
+    void registerListener(@NonNull OnChangeListener listener);
+
+    void unregisterListener(@NonNull OnChangeListener listener);
+
+    /**
+     * Batch of modifications which is written at once
+     */
+    interface Editor {
+        @NonNull
+        Editor putBoolean(@NonNull String key, boolean value);
+
+        @NonNull
+        Editor putFloat(@NonNull String key, float value);
+
+        @NonNull
+        Editor putInt(@NonNull String key, int value);
+
+        @NonNull
+        Editor putLong(@NonNull String key, long value);
+
+        @NonNull
+        Editor putString(@NonNull String key, @Nullable String value);
+
+        @NonNull
+        Editor putStringSet(@NonNull String key, @Nullable Set<String> value);
+
+        @NonNull
+        Editor putBytes(@NonNull String key, @Nullable byte[] value);
+
+        @NonNull
+        Editor remove(@NonNull String key);
+
+        @NonNull
+        Editor clear();
+
+        /**
+         * Write the modifications synchronously
+         * <p>
+         * Modifications which are applied by {@link #apply()} before are written as well, so that an empty commit
+         * waits until they are written.
+         * </p>
+         *
+         * @return {@code true} if the modifications are written successfully
+         */
+        boolean commit();
+
+        /**
+         * Write the modifications asynchronously
+         */
+        void apply();
+    }
+
+    /**
+     * Listener which is notified when a value is changed
+     */
+    interface OnChangeListener {
+        /**
+         * Called when a value is changed
+         *
+         * @param storage The changed storage
+         * @param key     The changed key, or {@code null} when all values are removed
+         */
+        void onChanged(@NonNull Storage storage, @Nullable String key);
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2016 Tatsuya Maki
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.t28.shade.storage;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+
+/**
+ * Factory which creates the {@link Storage} of a class annotated with {@code @Preferences}
+ * <p>
+ * The implementation must provide a default constructor.
+ * </p>
+ */
+public interface StorageFactory {
+    /**
+     * Create a storage
+     *
+     * @param context The application context
+     * @param name    The name of the preferences
+     * @param mode    The operating mode of the preferences
+     * @return The created storage
+     */
+    @NonNull
+    Storage create(@NonNull Context context, @NonNull String name, int mode);
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2016 Tatsuya Maki
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.t28.shade.storage;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Set of {@link Storage.OnChangeListener} which holds listeners with weak references
+ * <p>
+ * A listener is removed when it is no longer referenced by anything else, so that an object which registers its
+ * listener on a storage shared within the process does not need to unregister it. This is the same behaviour as
+ * {@code SharedPreferences#registerOnSharedPreferenceChangeListener}.
+ * </p>
+ */
+public class WeakListenerSet {
+    private final Map<Storage.OnChangeListener, Boolean> listeners = new WeakHashMap<>();
+
+    /**
+     * Add the listener
+     *
+     * @param listener The listener to be added
+     * @return {@code true} if the listener is not contained yet
+     */
+    public synchronized boolean add(@NonNull Storage.OnChangeListener listener) {
+        return listeners.put(listener, Boolean.TRUE) == null;
+    }
+
+    /**
+     * Remove the listener
+     *
+     * @param listener The listener to be removed
+     * @return {@code true} if the listener is contained
+     */
+    public synchronized boolean remove(@NonNull Storage.OnChangeListener listener) {
+        return listeners.remove(listener) != null;
+    }
+
+    public synchronized boolean isEmpty() {
+        return listeners.isEmpty();
+    }
+
+    /**
+     * Notify listeners which are still referenced
+     * <p>
+     * Listeners are called outside of the lock, so that a listener can register or unregister listeners.
+     * </p>
+     *
+     * @param storage The changed storage
+     * @param key     The changed key, or {@code null} when all values are removed
+     */
+    public void notifyChanged(@NonNull Storage storage, @Nullable String key) {
+        final List<Storage.OnChangeListener> snapshot;
+        synchronized (this) {
+            if (listeners.isEmpty()) {
+                return;
+            }
+            snapshot = new ArrayList<>(listeners.keySet());
+        }
+        for (final Storage.OnChangeListener listener : snapshot) {
+            listener.onChanged(storage, key);
+        }
+    }
+}
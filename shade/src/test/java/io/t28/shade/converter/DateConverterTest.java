@@ -55,13 +55,13 @@ public class DateConverterTest {
     }
 
     @Test
-    public void toConvertedShouldReturnCurrentDateWhenArgumentIsNull() throws Exception {
+    public void toConvertedShouldReturnEpochWhenTimestampIsZero() throws Exception {
         // exercise
-        final Date actual = underTest.toConverted(null);
+        final Date actual = underTest.toConverted(0L);
 
         // verify
         assertThat(actual)
-                .isBeforeOrEqualsTo(new Date());
+                .isEqualTo(new Date(0L));
     }
 
     @Test
@@ -91,7 +91,7 @@ public class DateConverterTest {
         calendar.set(2016, Calendar.NOVEMBER, 28, 20, 0, 0);
 
         // exercise
-        final Long actual = underTest.toSupported(calendar.getTime());
+        final long actual = underTest.toSupported(calendar.getTime());
 
         // verify
         assertThat(actual)
@@ -101,7 +101,7 @@ public class DateConverterTest {
     @Test
     public void toSupportedShouldReturnZeroWhenDateIsNull() throws Exception {
         // exercise
-        final Long actual = underTest.toSupported(null);
+        final long actual = underTest.toSupported(null);
 
         // verify
         assertThat(actual)
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2016 Tatsuya Maki
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.t28.shade.internal;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(JUnit4.class)
+public class ArrayCodecTest {
+    @Test
+    public void decodeIntArrayShouldReturnEncodedValue() throws Exception {
+        // setup
+        final byte[] bytes = ArrayCodec.encode(new int[]{-1, 0, 300});
+
+        // exercise
+        final int[] actual = ArrayCodec.decodeIntArray(bytes, null);
+
+        // verify
+        assertThat(actual)
+                .containsExactly(-1, 0, 300);
+    }
+
+    @Test
+    public void decodeLongArrayShouldReturnEncodedValue() throws Exception {
+        // setup
+        final byte[] bytes = ArrayCodec.encode(new long[]{Long.MIN_VALUE, 1L});
+
+        // exercise
+        final long[] actual = ArrayCodec.decodeLongArray(bytes, null);
+
+        // verify
+        assertThat(actual)
+                .containsExactly(Long.MIN_VALUE, 1L);
+    }
+
+    @Test
+    public void decodeFloatArrayShouldReturnEncodedValue() throws Exception {
+        // setup
+        final byte[] bytes = ArrayCodec.encode(new float[]{0.5f, -0.0f});
+
+        // exercise
+        final float[] actual = ArrayCodec.decodeFloatArray(bytes, null);
+
+        // verify
+        assertThat(actual)
+                .containsExactly(0.5f, -0.0f);
+    }
+
+    @Test
+    public void decodeStringListShouldReturnEncodedValue() throws Exception {
+        // setup
+        final byte[] bytes = ArrayCodec.encode(Arrays.asList("B", "A", "B"));
+
+        // exercise
+        final List<String> actual = ArrayCodec.decodeStringList(bytes, null);
+
+        // verify
+        assertThat(actual)
+                .containsExactly("B", "A", "B");
+    }
+
+    @Test
+    public void encodeShouldWriteOneByteForEmptyArray() throws Exception {
+        // exercise
+        final byte[] actual = ArrayCodec.encode(new int[0]);
+
+        // verify
+        assertThat(actual)
+                .hasSize(1);
+    }
+
+    @Test
+    public void decodeShouldReturnDefaultValueWhenBytesAreNull() throws Exception {
+        // exercise
+        final List<String> actual = ArrayCodec.decodeStringList(null, Collections.<String>emptyList());
+
+        // verify
+        assertThat(actual)
+                .isEmpty();
+    }
+
+    @Test
+    public void decodeShouldReturnDefaultValueWhenBytesAreTruncated() throws Exception {
+        // setup
+        final byte[] bytes = ArrayCodec.encode(new long[]{Long.MAX_VALUE});
+
+        // exercise
+        final long[] actual = ArrayCodec.decodeLongArray(Arrays.copyOf(bytes, bytes.length - 1), new long[]{1L});
+
+        // verify
+        assertThat(actual)
+                .containsExactly(1L);
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2016 Tatsuya Maki
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.t28.shade.internal;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+@RunWith(JUnit4.class)
+public class BinaryWriterTest {
+    @Test
+    public void toByteArrayShouldBeReadByReader() throws Exception {
+        // setup
+        final BinaryWriter underTest = new BinaryWriter(1)
+                .writeFixedInt(0xcafebabe)
+                .writeBoolean(true)
+                .writeFloat(-1.5f)
+                .writeDouble(Math.PI)
+                .writeDouble(-0.0d)
+                .writeInt(Integer.MIN_VALUE)
+                .writeInt(-1)
+                .writeInt(Integer.MAX_VALUE)
+                .writeLong(Long.MIN_VALUE)
+                .writeLong(300L)
+                .writeString("\u30b7\u30a7\u30fc\u30c9")
+                .writeString(null)
+                .writeStringSet(new HashSet<>(Arrays.asList("A", "B")))
+                .writeStringSet(null)
+                .writeStringList(Arrays.asList("B", "A", "B"))
+                .writeByteArray(new byte[]{-1, 0, 1})
+                .writeIntArray(new int[]{Integer.MIN_VALUE, 0, Integer.MAX_VALUE})
+                .writeLongArray(new long[]{Long.MIN_VALUE, Long.MAX_VALUE})
+                .writeFloatArray(new float[]{-1.5f, Float.NaN})
+                .writeIntArray(null);
+
+        // exercise
+        final BinaryReader actual = new BinaryReader(underTest.toByteArray());
+
+        // verify
+        assertThat(actual.readFixedInt())
+                .isEqualTo(0xcafebabe);
+        assertThat(actual.readBoolean())
+                .isTrue();
+        assertThat(actual.readFloat())
+                .isEqualTo(-1.5f);
+        assertThat(actual.readDouble())
+                .isEqualTo(Math.PI);
+        assertThat(Double.doubleToRawLongBits(actual.readDouble()))
+                .isEqualTo(Double.doubleToRawLongBits(-0.0d));
+        assertThat(actual.readInt())
+                .isEqualTo(Integer.MIN_VALUE);
+        assertThat(actual.readInt())
+                .isEqualTo(-1);
+        assertThat(actual.readInt())
+                .isEqualTo(Integer.MAX_VALUE);
+        assertThat(actual.readLong())
+                .isEqualTo(Long.MIN_VALUE);
+        assertThat(actual.readLong())
+                .isEqualTo(300L);
+        assertThat(actual.readString(null))
+                .isEqualTo("\u30b7\u30a7\u30fc\u30c9");
+        assertThat(actual.readString("default"))
+                .isEqualTo("default");
+        assertThat(actual.readStringSet(null))
+                .containsOnly("A", "B");
+        assertThat(actual.readStringSet(null))
+                .isNull();
+        assertThat(actual.readStringList(null))
+                .containsExactly("B", "A", "B");
+        assertThat(actual.readByteArray(null))
+                .containsExactly(new byte[]{-1, 0, 1});
+        assertThat(actual.readIntArray(null))
+                .containsExactly(Integer.MIN_VALUE, 0, Integer.MAX_VALUE);
+        assertThat(actual.readLongArray(null))
+                .containsExactly(Long.MIN_VALUE, Long.MAX_VALUE);
+        assertThat(actual.readFloatArray(null))
+                .containsExactly(-1.5f, Float.NaN);
+        assertThat(actual.readIntArray(new int[]{1}))
+                .containsExactly(1);
+    }
+
+    @Test
+    public void writeIntShouldUseOneByteForSmallValue() throws Exception {
+        // exercise
+        final byte[] actual = new BinaryWriter()
+                .writeInt(-64)
+                .writeInt(63)
+                .toByteArray();
+
+        // verify
+        assertThat(actual)
+                .hasSize(2);
+    }
+
+    @Test
+    public void readShouldThrowExceptionWhenBytesAreTruncated() throws Exception {
+        // setup
+        final byte[] bytes = new BinaryWriter()
+                .writeLong(Long.MAX_VALUE)
+                .writeString("value")
+                .toByteArray();
+
+        for (int length = 0; length < bytes.length; length++) {
+            final BinaryReader underTest = new BinaryReader(Arrays.copyOf(bytes, length));
+            try {
+                // exercise
+                underTest.readLong();
+                underTest.readString(null);
+                fail("IllegalArgumentException is expected at " + length);
+            } catch (IllegalArgumentException expected) {
+                // verify
+            }
+        }
+    }
+
+    @Test
+    public void skipShouldSkipValueOfEveryType() throws Exception {
+        // setup
+        final byte[] bytes = new BinaryWriter()
+                .writeField("boolean", BinaryWriter.TYPE_BOOLEAN).writeBoolean(true)
+                .writeField("float", BinaryWriter.TYPE_FLOAT).writeFloat(1.5f)
+                .writeField("int", BinaryWriter.TYPE_INT).writeInt(-300)
+                .writeField("long", BinaryWriter.TYPE_LONG).writeLong(Long.MIN_VALUE)
+                .writeField("double", BinaryWriter.TYPE_DOUBLE).writeDouble(Math.E)
+                .writeField("string", BinaryWriter.TYPE_STRING).writeString("value")
+                .writeField("string_set", BinaryWriter.TYPE_STRING_SET).writeStringSet(new HashSet<>(Arrays.asList("A", "B")))
+                .writeField("string_list", BinaryWriter.TYPE_STRING_LIST).writeStringList(null)
+                .writeField("byte_array", BinaryWriter.TYPE_BYTE_ARRAY).writeByteArray(new byte[]{1, 2})
+                .writeField("int_array", BinaryWriter.TYPE_INT_ARRAY).writeIntArray(new int[]{-1, 1})
+                .writeField("long_array", BinaryWriter.TYPE_LONG_ARRAY).writeLongArray(new long[]{Long.MAX_VALUE})
+                .writeField("float_array", BinaryWriter.TYPE_FLOAT_ARRAY).writeFloatArray(new float[]{Float.NaN})
+                .writeField("last", BinaryWriter.TYPE_INT).writeInt(42)
+                .toByteArray();
+        final BinaryReader underTest = new BinaryReader(bytes);
+
+        // exercise
+        String key = null;
+        while (underTest.hasRemaining()) {
+            key = underTest.readKey();
+            final int type = underTest.readType();
+            if ("last".equals(key)) {
+                break;
+            }
+            underTest.skip(type);
+        }
+
+        // verify
+        assertThat(key)
+                .isEqualTo("last");
+        assertThat(underTest.readInt())
+                .isEqualTo(42);
+        assertThat(underTest.hasRemaining())
+                .isFalse();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void skipShouldThrowExceptionWhenTypeIsUnknown() throws Exception {
+        // setup
+        final BinaryReader underTest = new BinaryReader(new BinaryWriter()
+                .writeInt(1)
+                .toByteArray());
+
+        // exercise
+        underTest.skip(0);
+    }
+}
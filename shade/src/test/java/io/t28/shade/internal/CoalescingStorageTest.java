@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) 2016 Tatsuya Maki
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.t28.shade.internal;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import io.t28.shade.storage.Storage;
+import io.t28.shade.test.InMemoryStorage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(JUnit4.class)
+public class CoalescingStorageTest {
+    private static final long WINDOW_MILLIS = 50L;
+    private static final int WRITE_COUNT = 20000;
+
+    private InMemoryStorage storage;
+    private ScheduledExecutorService executor;
+    private CoalescingStorage underTest;
+
+    @Before
+    public void setUp() throws Exception {
+        storage = new InMemoryStorage();
+        executor = Executors.newSingleThreadScheduledExecutor();
+        underTest = new CoalescingStorage(storage, WINDOW_MILLIS, executor);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void getShouldReturnValueWrittenBeforeFlush() throws Exception {
+        // setup
+        underTest.edit().putInt("int", 1024).apply();
+
+        // exercise
+        final int actual = underTest.getInt("int", 0);
+
+        // verify
+        assertThat(actual)
+                .isEqualTo(1024);
+        assertThat(storage.getWriteCount())
+                .isEqualTo(0);
+    }
+
+    @Test
+    public void wrapShouldReturnSameInstanceForSameStorage() throws Exception {
+        // setup
+        final CoalescingStorage expected = CoalescingStorage.wrap("same", storage, WINDOW_MILLIS);
+
+        // exercise
+        final CoalescingStorage actual = CoalescingStorage.wrap("same", storage, WINDOW_MILLIS);
+
+        // verify
+        assertThat(actual)
+                .isSameAs(expected);
+    }
+
+    @Test
+    public void wrapShouldReturnAnotherInstanceForAnotherStorage() throws Exception {
+        // setup
+        final CoalescingStorage expected = CoalescingStorage.wrap("another", storage, WINDOW_MILLIS);
+
+        // exercise
+        final CoalescingStorage actual = CoalescingStorage.wrap("another", new InMemoryStorage(), WINDOW_MILLIS);
+
+        // verify
+        assertThat(actual)
+                .isNotSameAs(expected);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void wrapShouldThrowExceptionWhenWindowIsDifferent() throws Exception {
+        // setup
+        CoalescingStorage.wrap("conflict", storage, WINDOW_MILLIS);
+
+        // exercise
+        CoalescingStorage.wrap("conflict", storage, WINDOW_MILLIS * 2);
+    }
+
+    @Test
+    public void listenerShouldBeNotifiedWhenValueIsWrittenIntoOverlay() throws Exception {
+        // setup
+        final List<String> keys = new ArrayList<>();
+        final Storage.OnChangeListener listener = new Storage.OnChangeListener() {
+            @Override
+            public void onChanged(@NonNull Storage storage, @Nullable String key) {
+                keys.add(key);
+            }
+        };
+        underTest.registerListener(listener);
+
+        // exercise
+        underTest.edit().putInt("int", 1024).apply();
+
+        // verify
+        assertThat(keys)
+                .containsExactly("int");
+        assertThat(storage.getWriteCount())
+                .isEqualTo(0);
+    }
+
+    @Test
+    public void flushShouldWriteCoalescedValuesOnce() throws Exception {
+        // setup
+        for (int value = 1; value <= 1000; value++) {
+            underTest.edit().putLong("long", value).apply();
+        }
+
+        // exercise
+        underTest.flush();
+
+        // verify
+        assertThat(storage.getWriteCount())
+                .isEqualTo(1);
+        assertThat(storage.getLong("long", 0L))
+                .isEqualTo(1000L);
+    }
+
+    @Test
+    public void applyShouldFlushAfterWindow() throws Exception {
+        // setup
+        underTest.edit().putString("string", "value").apply();
+
+        // exercise
+        Thread.sleep(WINDOW_MILLIS * 4);
+
+        // verify
+        assertThat(storage.getWriteCount())
+                .isEqualTo(1);
+        assertThat(storage.getString("string", null))
+                .isEqualTo("value");
+    }
+
+    @Test
+    public void commitShouldWriteImmediately() throws Exception {
+        // exercise
+        final boolean actual = underTest.edit().putBoolean("boolean", true).commit();
+
+        // verify
+        assertThat(actual)
+                .isTrue();
+        assertThat(storage.getBoolean("boolean", false))
+                .isTrue();
+    }
+
+    @Test
+    public void removeShouldHideStoredValue() throws Exception {
+        // setup
+        storage.edit().putFloat("float", 1.5f).apply();
+        underTest.edit().remove("float").apply();
+
+        // exercise
+        final boolean actual = underTest.contains("float");
+
+        // verify
+        assertThat(actual)
+                .isFalse();
+        assertThat(underTest.getFloat("float", 0.0f))
+                .isEqualTo(0.0f);
+    }
+
+    @Test
+    public void clearShouldHideStoredValuesAndKeepLaterValues() throws Exception {
+        // setup
+        storage.edit().putInt("int", 1).putString("string", "value").apply();
+        underTest.edit().clear().putInt("int", 2).apply();
+
+        // exercise
+        underTest.flush();
+
+        // verify
+        assertThat(storage.getAll())
+                .hasSize(1);
+        assertThat(storage.getInt("int", 0))
+                .isEqualTo(2);
+    }
+
+    @Test
+    public void flushShouldNotLoseConcurrentUpdates() throws Exception {
+        // setup
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final CountDownLatch started = new CountDownLatch(1);
+        final Thread flusher = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                while (running.get()) {
+                    underTest.flush();
+                }
+            }
+        });
+        flusher.start();
+        started.await();
+
+        // exercise
+        int previous = 0;
+        boolean monotonic = true;
+        for (int value = 1; value <= WRITE_COUNT; value++) {
+            underTest.edit().putInt("int", value).apply();
+            final int read = underTest.getInt("int", 0);
+            monotonic &= read == value && read > previous;
+            previous = read;
+        }
+        running.set(false);
+        flusher.join(TimeUnit.SECONDS.toMillis(10));
+        underTest.flush();
+
+        // verify
+        assertThat(monotonic)
+                .isTrue();
+        assertThat(storage.getInt("int", 0))
+                .isEqualTo(WRITE_COUNT);
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2016 Tatsuya Maki
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package io.t28.shade.internal;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import io.t28.shade.test.InMemoryStorage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(JUnit4.class)
+public class ExternalStorageTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private File directory;
+    private InMemoryStorage storage;
+    private QueueExecutor executor;
+    private ExternalStorage underTest;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = new File(folder.getRoot(), "test.external");
+        storage = new InMemoryStorage();
+        executor = new QueueExecutor();
+        underTest = new ExternalStorage(storage, directory, executor, "json");
+    }
+
+    @Test
+    public void getStringShouldReturnValueStoredInFile() throws Exception {
+        // setup
+        final String expected = createLargeValue();
+        underTest.edit().putString("json", expected).commit();
+
+        // exercise
+        final String actual = new ExternalStorage(storage, directory, "json").getString("json", null);
+
+        // verify
+        assertThat(actual)
+                .isEqualTo(expected);
+        assertThat(storage.getString("json", null).length())
+                .isLessThan(64);
+        assertThat(directory.list())
+                .hasSize(1);
+    }
+
+    @Test
+    public void commitShouldNotRewriteFileWhenAnotherKeyIsModified() throws Exception {
+        // setup
+        underTest.edit().putString("json", "{}").commit();
+        final String reference = storage.getString("json", null);
+
+        // exercise
+        underTest.edit().putString("name", "value").commit();
+
+        // verify
+        assertThat(storage.getString("json", null))
+                .isEqualTo(reference);
+        assertThat(storage.getString("name", null))
+                .isEqualTo("value");
+    }
+
+    @Test
+    public void commitShouldDeletePreviousFile() throws Exception {
+        // setup
+        underTest.edit().putString("json", "{\"version\":1}").commit();
+
+        // exercise
+        underTest.edit().putString("json", "{\"version\":2}").commit();
+
+        // verify
+        assertThat(underTest.getString("json", null))
+                .isEqualTo("{\"version\":2}");
+        assertThat(directory.list())
+                .hasSize(1);
+    }
+
+    @Test
+    public void applyShouldDeletePreviousFileAfterReferenceIsCommitted() throws Exception {
+        // setup
+        underTest.edit().putString("json", "{\"version\":1}").commit();
+
+        // exercise
+        underTest.edit().putString("json", "{\"version\":2}").apply();
+
+        // verify
+        assertThat(directory.list())
+                .hasSize(2);
+        executor.runAll();
+        assertThat(underTest.getString("json", null))
+                .isEqualTo("{\"version\":2}");
+        assertThat(directory.list())
+                .hasSize(1);
+    }
+
+    @Test
+    public void commitShouldWriteOtherValuesWhenFileIsNotWritten() throws Exception {
+        // setup
+        storage.edit().putString("json", "{}").commit();
+        final ExternalStorage broken = new ExternalStorage(storage, folder.newFile("broken.external"), executor, "json");
+
+        // exercise
+        IllegalStateException actual = null;
+        try {
+            broken.edit().putString("json", "{\"version\":2}").putInt("int", 1).commit();
+        } catch (IllegalStateException e) {
+            actual = e;
+        }
+
+        // verify
+        assertThat(actual)
+                .isNotNull();
+        assertThat(actual.getCause())
+                .isInstanceOf(IOException.class);
+        assertThat(broken.getInt("int", 0))
+                .isEqualTo(1);
+        assertThat(broken.getString("json", null))
+                .isEqualTo("{}");
+    }
+
+    @Test
+    public void applyShouldWriteOtherValuesWhenFileIsNotWritten() throws Exception {
+        // setup
+        final ExternalStorage broken = new ExternalStorage(storage, folder.newFile("broken.external"), executor, "json");
+
+        // exercise
+        IllegalStateException actual = null;
+        try {
+            broken.edit().putString("json", "{}").putInt("int", 1).apply();
+        } catch (IllegalStateException e) {
+            actual = e;
+        }
+
+        // verify
+        assertThat(actual)
+                .isNotNull();
+        assertThat(broken.getInt("int", 0))
+                .isEqualTo(1);
+        assertThat(broken.contains("json"))
+                .isFalse();
+    }
+
+    @Test
+    public void removeShouldDeleteFile() throws Exception {
+        // setup
+        underTest.edit().putString("json", "{}").commit();
+
+        // exercise
+        underTest.edit().remove("json").commit();
+
+        // verify
+        assertThat(underTest.contains("json"))
+                .isFalse();
+        assertThat(underTest.getString("json", "default"))
+                .isEqualTo("default");
+        assertThat(directory.list())
+                .isEmpty();
+    }
+
+    @Test
+    public void clearShouldDeleteFiles() throws Exception {
+        // setup
+        underTest.edit().putString("json", "{}").putInt("int", 1).commit();
+
+        // exercise
+        underTest.edit().clear().commit();
+
+        // verify
+        assertThat(underTest.getAll())
+                .isEmpty();
+        assertThat(directory.list())
+                .isEmpty();
+    }
+
+    @Test
+    public void getStringShouldReturnValueStoredInline() throws Exception {
+        // setup
+        storage.edit().putString("json", "{}").commit();
+
+        // exercise
+        final String actual = underTest.getString("json", null);
+
+        // verify
+        assertThat(actual)
+                .isEqualTo("{}");
+    }
+
+    @Test
+    public void getAllShouldReturnValueStoredInFile() throws Exception {
+        // setup
+        underTest.edit().putString("json", "{}").putInt("int", 1).commit();
+
+        // exercise
+        final Map<String, ?> actual = underTest.getAll();
+
+        // verify
+        assertThat(actual.keySet())
+                .containsOnly("json", "int");
+        assertThat(actual.get("json"))
+                .isEqualTo("{}");
+    }
+
+    private static String createLargeValue() {
+        final StringBuilder builder = new StringBuilder();
+        for (int index = 0; index < 100000; index++) {
+            builder.append('\u30b7').append(index);
+        }
+        return builder.toString();
+    }
+
+    private static class QueueExecutor implements Executor {
+        private final List<Runnable> tasks = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable task) {
+            tasks.add(task);
+        }
+
+        void runAll() {
+            for (final Runnable task : tasks) {
+                task.run();
+            }
+            tasks.clear();
+        }
+    }
+}
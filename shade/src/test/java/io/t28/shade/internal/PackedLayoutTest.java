@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2016 Tatsuya Maki
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.t28.shade.internal;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(JUnit4.class)
+public class PackedLayoutTest {
+    @Test
+    public void escapeShouldEscapeReservedCharacters() throws Exception {
+        // exercise
+        final String actual = PackedLayout.escape("a,b@c:d[e]f|g%h");
+
+        // verify
+        assertThat(actual)
+                .isEqualTo("a%2Cb%40c%3Ad%5Be%5Df%7Cg%25h");
+    }
+
+    @Test
+    public void containsShouldReturnTrueWhenEscapedKeyIsStored() throws Exception {
+        // setup
+        final String layout = PackedLayout.escape("a,b") + "@0:0," + PackedLayout.escape("c@d") + "@0:1";
+
+        // exercise
+        final boolean actual = PackedLayout.contains(layout, "c@d");
+
+        // verify
+        assertThat(actual)
+                .isTrue();
+        assertThat(PackedLayout.contains(layout, "a"))
+                .isFalse();
+        assertThat(PackedLayout.contains(null, "a,b"))
+                .isFalse();
+    }
+
+    @Test
+    public void hashShouldReturnDifferentVersionsOfReorderedLayouts() throws Exception {
+        // exercise
+        final long actual = PackedLayout.hash("a@0:0,b@0:1");
+
+        // verify
+        assertThat(actual)
+                .isEqualTo(PackedLayout.hash("a@0:0,b@0:1"))
+                .isNotEqualTo(PackedLayout.hash("b@0:0,a@0:1"))
+                .isNotEqualTo(0L);
+        assertThat(PackedLayout.hash(""))
+                .isNotEqualTo(0L);
+    }
+
+    @Test
+    public void remapShouldMoveBitsOfReorderedProperties() throws Exception {
+        // setup
+        final Map<String, Object> values = new HashMap<>();
+        values.put(PackedLayout.WORD_KEY_PREFIX + "0", 0b01L);
+
+        // exercise
+        final long actual = PackedLayout.remap(values, "first@0:0,second@0:1", "added@0:0,second@0:1,first@0:2", 0, 0b001L);
+
+        // verify
+        assertThat(actual)
+                .isEqualTo(0b101L);
+    }
+
+    @Test
+    public void remapShouldMoveMembersByName() throws Exception {
+        // setup
+        final Map<String, Object> values = new HashMap<>();
+        values.put(PackedLayout.WORD_KEY_PREFIX + "1", 0b1010L);
+
+        // exercise
+        final long actual = PackedLayout.remap(values, "flag@1:0,set@1:1[A|B|C]", "set@0:0[C|D|A]", 0, 0L);
+
+        // verify
+        assertThat(actual)
+                .isEqualTo(0b101L);
+    }
+
+    @Test
+    public void remapShouldReturnDefaultBitsWhenKindIsChanged() throws Exception {
+        // setup
+        final Map<String, Object> values = new HashMap<>();
+        values.put(PackedLayout.WORD_KEY_PREFIX + "0", 0b111L);
+
+        // exercise
+        final long actual = PackedLayout.remap(values, "key@0:0[A|B|C]", "key@0:0", 0, 0L);
+
+        // verify
+        assertThat(actual)
+                .isEqualTo(0L);
+    }
+
+    @Test
+    public void remapShouldReturnDefaultBitsWhenLayoutIsMalformed() throws Exception {
+        // setup
+        final Map<String, Object> values = new HashMap<>();
+        values.put(PackedLayout.WORD_KEY_PREFIX + "0", 0L);
+
+        // exercise
+        final long actual = PackedLayout.remap(values, "key@0:x", "key@0:0", 0, 0b1L);
+
+        // verify
+        assertThat(actual)
+                .isEqualTo(0b1L);
+    }
+
+    @Test
+    public void remapShouldReturnDefaultBitsWhenWordIsNotStored() throws Exception {
+        // exercise
+        final long actual = PackedLayout.remap(Collections.<String, Object>emptyMap(), "key@0:0", "key@0:0", 0, 0b1L);
+
+        // verify
+        assertThat(actual)
+                .isEqualTo(0b1L);
+    }
+}
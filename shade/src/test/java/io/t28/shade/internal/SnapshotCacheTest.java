@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2016 Tatsuya Maki
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.t28.shade.internal;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(JUnit4.class)
+public class SnapshotCacheTest {
+    private static final int READER_COUNT = 4;
+    private static final int WRITE_COUNT = 20000;
+
+    private SnapshotCache<Model> underTest;
+
+    @Before
+    public void setUp() throws Exception {
+        underTest = new SnapshotCache<>();
+    }
+
+    @Test
+    public void getShouldReturnNullWhenNothingIsCached() throws Exception {
+        // exercise
+        final Model actual = underTest.get();
+
+        // verify
+        assertThat(actual)
+                .isNull();
+    }
+
+    @Test
+    public void getShouldReturnSnapshotPutWithCurrentStamp() throws Exception {
+        // setup
+        final Model snapshot = new Model(1, 1);
+        underTest.put(underTest.stamp(), snapshot);
+
+        // exercise
+        final Model actual = underTest.get();
+
+        // verify
+        assertThat(actual)
+                .isSameAs(snapshot);
+    }
+
+    @Test
+    public void getShouldReturnNullAfterInvalidation() throws Exception {
+        // setup
+        underTest.put(underTest.stamp(), new Model(1, 1));
+        underTest.invalidate();
+
+        // exercise
+        final Model actual = underTest.get();
+
+        // verify
+        assertThat(actual)
+                .isNull();
+    }
+
+    @Test
+    public void putShouldDiscardSnapshotLoadedBeforeInvalidation() throws Exception {
+        // setup
+        final int stamp = underTest.stamp();
+        underTest.invalidate();
+        underTest.put(stamp, new Model(1, 1));
+
+        // exercise
+        final Model actual = underTest.get();
+
+        // verify
+        assertThat(actual)
+                .isNull();
+    }
+
+    @Test
+    public void readersShouldNeverSeeTornOrStaleSnapshot() throws Exception {
+        // setup
+        final AtomicReference<int[]> store = new AtomicReference<>(new int[]{0, 0});
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final CountDownLatch started = new CountDownLatch(READER_COUNT);
+        final ExecutorService executor = Executors.newFixedThreadPool(READER_COUNT);
+        final List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < READER_COUNT; i++) {
+            results.add(executor.submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() throws Exception {
+                    started.countDown();
+                    int previous = 0;
+                    while (running.get()) {
+                        final Model model = read(store);
+                        if (model.first != model.second || model.first < previous) {
+                            return false;
+                        }
+                        previous = model.first;
+                    }
+                    return true;
+                }
+            }));
+        }
+
+        // exercise
+        started.await();
+        for (int value = 1; value <= WRITE_COUNT; value++) {
+            store.set(new int[]{value, value});
+            underTest.invalidate();
+        }
+        running.set(false);
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+
+        // verify
+        for (final Future<Boolean> result : results) {
+            assertThat(result.get())
+                    .isTrue();
+        }
+        assertThat(read(store).first)
+                .isEqualTo(WRITE_COUNT);
+    }
+
+    private Model read(AtomicReference<int[]> store) {
+        final Model cached = underTest.get();
+        if (cached != null) {
+            return cached;
+        }
+        final int stamp = underTest.stamp();
+        final int[] values = store.get();
+        final Model loaded = new Model(values[0], values[1]);
+        underTest.put(stamp, loaded);
+        return loaded;
+    }
+
+    private static class Model {
+        private final int first;
+        private final int second;
+
+        Model(int first, int second) {
+            this.first = first;
+            this.second = second;
+        }
+    }
+}
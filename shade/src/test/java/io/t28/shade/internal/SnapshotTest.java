@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2016 Tatsuya Maki
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.t28.shade.internal;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(JUnit4.class)
+public class SnapshotTest {
+    private Snapshot underTest;
+
+    @Before
+    public void setUp() throws Exception {
+        final Map<String, Object> values = new HashMap<>();
+        values.put("boolean", true);
+        values.put("float", 1.5f);
+        values.put("int", 1024);
+        values.put("long", 2147483648L);
+        values.put("string", "value");
+        values.put("string_set", Collections.singleton("value"));
+        values.put("bytes", new byte[]{1, 2, 3});
+        underTest = new Snapshot(values);
+    }
+
+    @Test
+    public void containsShouldReturnTrueWhenKeyExists() throws Exception {
+        // exercise
+        final boolean actual = underTest.contains("int");
+
+        // verify
+        assertThat(actual)
+                .isTrue();
+    }
+
+    @Test
+    public void containsShouldReturnFalseWhenKeyDoesNotExist() throws Exception {
+        // exercise
+        final boolean actual = underTest.contains("unknown");
+
+        // verify
+        assertThat(actual)
+                .isFalse();
+    }
+
+    @Test
+    public void getBooleanShouldReturnStoredValue() throws Exception {
+        // exercise
+        final boolean actual = underTest.getBoolean("boolean", false);
+
+        // verify
+        assertThat(actual)
+                .isTrue();
+    }
+
+    @Test
+    public void getFloatShouldReturnStoredValue() throws Exception {
+        // exercise
+        final float actual = underTest.getFloat("float", 0.0f);
+
+        // verify
+        assertThat(actual)
+                .isEqualTo(1.5f);
+    }
+
+    @Test
+    public void getIntShouldReturnStoredValue() throws Exception {
+        // exercise
+        final int actual = underTest.getInt("int", 0);
+
+        // verify
+        assertThat(actual)
+                .isEqualTo(1024);
+    }
+
+    @Test
+    public void getLongShouldReturnStoredValue() throws Exception {
+        // exercise
+        final long actual = underTest.getLong("long", 0L);
+
+        // verify
+        assertThat(actual)
+                .isEqualTo(2147483648L);
+    }
+
+    @Test
+    public void getStringShouldReturnStoredValue() throws Exception {
+        // exercise
+        final String actual = underTest.getString("string", "");
+
+        // verify
+        assertThat(actual)
+                .isEqualTo("value");
+    }
+
+    @Test
+    public void getStringSetShouldReturnStoredValue() throws Exception {
+        // exercise
+        final Set<String> actual = underTest.getStringSet("string_set", Collections.<String>emptySet());
+
+        // verify
+        assertThat(actual)
+                .containsOnly("value");
+    }
+
+    @Test
+    public void getBytesShouldReturnStoredValue() throws Exception {
+        // exercise
+        final byte[] actual = underTest.getBytes("bytes", null);
+
+        // verify
+        assertThat(actual)
+                .containsExactly(new byte[]{1, 2, 3});
+    }
+
+    @Test
+    public void getBytesShouldReturnDefaultValueWhenValueIsNotBytes() throws Exception {
+        // exercise
+        final byte[] actual = underTest.getBytes("int", null);
+
+        // verify
+        assertThat(actual)
+                .isNull();
+    }
+
+    @Test
+    public void getIntShouldReturnDefaultValueWhenKeyDoesNotExist() throws Exception {
+        // exercise
+        final int actual = underTest.getInt("unknown", 10);
+
+        // verify
+        assertThat(actual)
+                .isEqualTo(10);
+    }
+
+    @Test
+    public void getStringShouldReturnDefaultValueWhenKeyDoesNotExist() throws Exception {
+        // exercise
+        final String actual = underTest.getString("unknown", "default");
+
+        // verify
+        assertThat(actual)
+                .isEqualTo("default");
+    }
+
+    @Test(expected = ClassCastException.class)
+    public void getIntShouldThrowExceptionWhenStoredTypeIsDifferent() throws Exception {
+        // exercise
+        underTest.getInt("string", 0);
+    }
+}
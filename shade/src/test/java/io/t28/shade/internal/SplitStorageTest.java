@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2016 Tatsuya Maki
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package io.t28.shade.internal;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import io.t28.shade.storage.Storage;
+import io.t28.shade.storage.StorageFactory;
+import io.t28.shade.test.InMemoryStorage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(JUnit4.class)
+public class SplitStorageTest {
+    private InMemoryStorage hot;
+    private InMemoryStorage cold;
+    private SplitStorage underTest;
+
+    @Before
+    public void setUp() throws Exception {
+        hot = new InMemoryStorage();
+        cold = new InMemoryStorage();
+        underTest = new SplitStorage(hot, new StorageFactory() {
+            @NonNull
+            @Override
+            public Storage create(@NonNull Context context, @NonNull String name, int mode) {
+                return cold;
+            }
+        }, null, "test.cold", 0, "cold_int", "cold_string");
+    }
+
+    @Test
+    public void getShouldNotLoadColdStorageForHotKey() throws Exception {
+        // setup
+        hot.edit().putInt("hot_int", 1).apply();
+
+        // exercise
+        final int actual = underTest.getInt("hot_int", 0);
+
+        // verify
+        assertThat(actual)
+                .isEqualTo(1);
+        assertThat(underTest.isColdLoaded())
+                .isFalse();
+    }
+
+    @Test
+    public void editShouldRouteColdKeyToColdStorage() throws Exception {
+        // exercise
+        underTest.edit()
+                .putInt("hot_int", 1)
+                .putInt("cold_int", 2)
+                .commit();
+
+        // verify
+        assertThat(hot.getAll().keySet())
+                .containsOnly("hot_int");
+        assertThat(cold.getAll().keySet())
+                .containsOnly("cold_int");
+        assertThat(underTest.getInt("cold_int", 0))
+                .isEqualTo(2);
+    }
+
+    @Test
+    public void getAllShouldMergeBothStorages() throws Exception {
+        // setup
+        underTest.edit()
+                .putString("hot_string", "hot")
+                .putString("cold_string", "cold")
+                .commit();
+
+        // exercise
+        final Map<String, ?> actual = underTest.getAll();
+
+        // verify
+        assertThat(actual.keySet())
+                .containsOnly("hot_string", "cold_string");
+        assertThat(actual.get("hot_string"))
+                .isEqualTo("hot");
+        assertThat(actual.get("cold_string"))
+                .isEqualTo("cold");
+    }
+
+    @Test
+    public void getShouldMigrateColdValueStoredInHotStorage() throws Exception {
+        // setup
+        hot.edit()
+                .putInt("hot_int", 1)
+                .putInt("cold_int", 2)
+                .commit();
+
+        // exercise
+        final int actual = underTest.getInt("cold_int", 0);
+
+        // verify
+        assertThat(actual)
+                .isEqualTo(2);
+        assertThat(hot.contains("cold_int"))
+                .isFalse();
+        assertThat(cold.getInt("cold_int", 0))
+                .isEqualTo(2);
+    }
+
+    @Test
+    public void clearShouldClearBothStorages() throws Exception {
+        // setup
+        underTest.edit()
+                .putInt("hot_int", 1)
+                .putInt("cold_int", 2)
+                .commit();
+
+        // exercise
+        underTest.edit().clear().commit();
+
+        // verify
+        assertThat(underTest.getAll())
+                .isEmpty();
+    }
+
+    @Test
+    public void listenerShouldBeNotifiedOfChangesOfBothStorages() throws Exception {
+        // setup
+        final List<String> keys = new ArrayList<>();
+        underTest.registerListener(new Storage.OnChangeListener() {
+            @Override
+            public void onChanged(@NonNull Storage storage, String key) {
+                assertThat(storage)
+                        .isSameAs(underTest);
+                keys.add(key);
+            }
+        });
+
+        // exercise
+        underTest.edit()
+                .putInt("hot_int", 1)
+                .putInt("cold_int", 2)
+                .commit();
+
+        // verify
+        assertThat(keys)
+                .containsOnly("hot_int", "cold_int");
+    }
+}
@@ -0,0 +1,312 @@
+/*
+ * Copyright (c) 2016 Tatsuya Maki
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.t28.shade.storage;
+
+import android.support.annotation.NonNull;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(JUnit4.class)
+public class MappedStorageTest {
+    // Compaction runs on the writing thread, so that the log is compacted when apply returns
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(@NonNull Runnable runnable) {
+            runnable.run();
+        }
+    };
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+    private MappedStorage underTest;
+
+    @Before
+    public void setUp() throws Exception {
+        file = new File(folder.getRoot(), "test.log");
+        underTest = new MappedStorage(file, null, DIRECT_EXECUTOR);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        underTest.close();
+    }
+
+    @Test
+    public void getShouldReturnValuesAfterReopen() throws Exception {
+        // setup
+        underTest.edit()
+                .putBoolean("boolean", true)
+                .putFloat("float", 1.5f)
+                .putInt("int", 1024)
+                .putLong("long", 2147483648L)
+                .putString("string", "\u30b7\u30a7\u30fc\u30c9")
+                .putStringSet("set", new HashSet<>(Arrays.asList("A", "B")))
+                .commit();
+
+        // exercise
+        final MappedStorage actual = new MappedStorage(file);
+
+        // verify
+        assertThat(actual.getBoolean("boolean", false))
+                .isTrue();
+        assertThat(actual.getFloat("float", 0.0f))
+                .isEqualTo(1.5f);
+        assertThat(actual.getInt("int", 0))
+                .isEqualTo(1024);
+        assertThat(actual.getLong("long", 0L))
+                .isEqualTo(2147483648L);
+        assertThat(actual.getString("string", null))
+                .isEqualTo("\u30b7\u30a7\u30fc\u30c9");
+        assertThat(actual.getStringSet("set", null))
+                .containsOnly("A", "B");
+        actual.close();
+    }
+
+    @Test
+    public void getBytesShouldReturnBytesAfterReopen() throws Exception {
+        // setup
+        underTest.edit().putBytes("bytes", new byte[]{1, 2, 3}).commit();
+
+        // exercise
+        final MappedStorage actual = new MappedStorage(file);
+
+        // verify
+        assertThat(actual.getBytes("bytes", null))
+                .containsExactly(new byte[]{1, 2, 3});
+        actual.close();
+    }
+
+    @Test
+    public void removeAndClearShouldBePersisted() throws Exception {
+        // setup
+        underTest.edit().putInt("int", 1).putString("string", "value").apply();
+        underTest.edit().remove("int").apply();
+        underTest.edit().clear().putLong("long", 2L).apply();
+
+        // exercise
+        final MappedStorage actual = new MappedStorage(file);
+
+        // verify
+        assertThat(actual.getAll())
+                .hasSize(1);
+        assertThat(actual.getLong("long", 0L))
+                .isEqualTo(2L);
+        actual.close();
+    }
+
+    @Test
+    public void applyShouldNotAppendUnchangedValues() throws Exception {
+        // setup
+        underTest.edit().putInt("int", 1).apply();
+        final int expected = underTest.getLogLength();
+
+        // exercise
+        underTest.edit().putInt("int", 1).remove("missing").apply();
+
+        // verify
+        assertThat(underTest.getLogLength())
+                .isEqualTo(expected);
+    }
+
+    @Test
+    public void applyShouldNotWriteChangesOfPreviousApplyAgain() throws Exception {
+        // setup
+        final Storage.Editor editor = underTest.edit();
+        editor.clear().putInt("int", 1).apply();
+        underTest.edit().putString("string", "value").apply();
+
+        // exercise
+        editor.putLong("long", 2L).commit();
+
+        // verify
+        assertThat(underTest.getAll())
+                .hasSize(3);
+        assertThat(underTest.getString("string", null))
+                .isEqualTo("value");
+    }
+
+    @Test
+    public void applyShouldCompactLog() throws Exception {
+        // setup
+        final char[] chars = new char[1024];
+        Arrays.fill(chars, 'a');
+        final String value = new String(chars);
+
+        // exercise
+        for (int i = 0; i < 1000; i++) {
+            underTest.edit().putString("string", value + i).apply();
+        }
+
+        // verify
+        assertThat(underTest.getLogLength())
+                .isLessThan(128 * 1024);
+        final MappedStorage actual = new MappedStorage(file);
+        assertThat(actual.getString("string", null))
+                .isEqualTo(value + 999);
+        actual.close();
+    }
+
+    @Test
+    public void applyShouldLeaveCompactionToExecutor() throws Exception {
+        // setup
+        underTest.close();
+        final List<Runnable> tasks = new ArrayList<>();
+        underTest = new MappedStorage(file, null, new Executor() {
+            @Override
+            public void execute(@NonNull Runnable runnable) {
+                tasks.add(runnable);
+            }
+        });
+        final char[] chars = new char[1024];
+        Arrays.fill(chars, 'a');
+        final String value = new String(chars);
+        for (int i = 0; i < 1000; i++) {
+            underTest.edit().putString("string", value + i).apply();
+        }
+        final int length = underTest.getLogLength();
+
+        // exercise
+        for (final Runnable task : tasks) {
+            task.run();
+        }
+
+        // verify
+        assertThat(tasks)
+                .hasSize(1);
+        assertThat(length)
+                .isGreaterThan(128 * 1024);
+        assertThat(underTest.getLogLength())
+                .isLessThan(128 * 1024);
+        assertThat(underTest.getString("string", null))
+                .isEqualTo(value + 999);
+    }
+
+    @Test
+    public void openShouldRecoverFromTruncationAtEveryOffset() throws Exception {
+        // setup
+        final List<Map<String, ?>> states = new ArrayList<>();
+        final List<Integer> lengths = new ArrayList<>();
+        states.add(underTest.getAll());
+        lengths.add(underTest.getLogLength());
+        final List<Storage.Editor> editors = Arrays.asList(
+                underTest.edit().putInt("int", 1),
+                underTest.edit().putString("string", "value").putBoolean("boolean", true),
+                underTest.edit().putStringSet("set", new HashSet<>(Arrays.asList("A", "B", "C"))),
+                underTest.edit().remove("int").putFloat("float", 2.5f),
+                underTest.edit().clear().putLong("long", 3L),
+                underTest.edit().putString("string", "updated")
+        );
+        for (final Storage.Editor editor : editors) {
+            editor.commit();
+            states.add(underTest.getAll());
+            lengths.add(underTest.getLogLength());
+        }
+        final int length = underTest.getLogLength();
+        final byte[] bytes = new byte[length];
+        final RandomAccessFile input = new RandomAccessFile(file, "r");
+        input.readFully(bytes);
+        input.close();
+
+        // exercise
+        final List<Integer> failedOffsets = new ArrayList<>();
+        for (int offset = 0; offset <= length; offset++) {
+            final File truncated = folder.newFile("truncated" + offset + ".log");
+            final FileOutputStream output = new FileOutputStream(truncated);
+            output.write(bytes, 0, offset);
+            output.close();
+
+            int expected = 0;
+            while (expected + 1 < lengths.size() && lengths.get(expected + 1) <= offset) {
+                expected++;
+            }
+            final MappedStorage actual = new MappedStorage(truncated);
+            if (!actual.getAll().equals(states.get(expected))) {
+                failedOffsets.add(offset);
+            }
+            actual.close();
+        }
+
+        // verify
+        assertThat(failedOffsets)
+                .isEmpty();
+    }
+
+    @Test
+    public void applyShouldAppendAfterCorruptedRecord() throws Exception {
+        // setup
+        underTest.edit().putInt("int", 1).commit();
+        final int length = underTest.getLogLength();
+        underTest.edit().putInt("int", 2).commit();
+        underTest.close();
+        final RandomAccessFile output = new RandomAccessFile(file, "rw");
+        output.seek(length + 8);
+        output.write(0xff);
+        output.close();
+
+        // exercise
+        underTest = new MappedStorage(file);
+        underTest.edit().putString("string", "value").commit();
+
+        // verify
+        final MappedStorage actual = new MappedStorage(file);
+        assertThat(actual.getInt("int", 0))
+                .isEqualTo(1);
+        assertThat(actual.getString("string", null))
+                .isEqualTo("value");
+        actual.close();
+    }
+
+    @Test
+    public void applyShouldNotifyChangedKeys() throws Exception {
+        // setup
+        final List<String> keys = new ArrayList<>();
+        underTest.registerListener(new Storage.OnChangeListener() {
+            @Override
+            public void onChanged(Storage storage, String key) {
+                keys.add(key);
+            }
+        });
+
+        // exercise
+        underTest.edit().putInt("int", 1).putString("string", "value").apply();
+        underTest.edit().putInt("int", 1).apply();
+        underTest.edit().clear().apply();
+
+        // verify
+        assertThat(keys)
+                .containsExactly("int", "string", null);
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2016 Tatsuya Maki
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.t28.shade.storage;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(JUnit4.class)
+public class MultiProcessStorageTest {
+    private static final int WRITE_COUNT = 2000;
+    private static final int INCREMENT_COUNT = 1000;
+    private static final String MODE_PUT = "put";
+    private static final String MODE_INCREMENT = "increment";
+    private static final String KEY_READY = "ready";
+    private static final String VALUE = "0123456789abcdef0123456789abcdef";
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+    private MappedStorage underTest;
+
+    @Before
+    public void setUp() throws Exception {
+        file = new File(folder.getRoot(), "test.log");
+        underTest = new MappedStorage(file, new GenerationLock(new File(file.getPath() + ".gen")));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        underTest.close();
+    }
+
+    @Test
+    public void getShouldReturnValueWrittenByAnotherProcess() throws Exception {
+        // setup
+        underTest.edit().putString("child_0", "stale").commit();
+        final Process process = startChild(MODE_PUT, "child", 1);
+
+        // exercise
+        assertThat(process.waitFor())
+                .isEqualTo(0);
+
+        // verify
+        assertThat(underTest.getString("child_0", null))
+                .isEqualTo(VALUE);
+    }
+
+    @Test
+    public void commitShouldNotLoseValuesWrittenConcurrentlyByAnotherProcess() throws Exception {
+        // setup
+        final Process process = startChild(MODE_PUT, "child", WRITE_COUNT);
+
+        // exercise
+        boolean committed = true;
+        for (int index = 0; index < WRITE_COUNT; index++) {
+            committed &= underTest.edit().putString("parent_" + index, VALUE).commit();
+        }
+        assertThat(process.waitFor())
+                .isEqualTo(0);
+
+        // verify
+        assertThat(committed)
+                .isTrue();
+        final Map<String, ?> actual = underTest.getAll();
+        assertThat(actual)
+                .hasSize(WRITE_COUNT * 2);
+        for (int index = 0; index < WRITE_COUNT; index++) {
+            assertThat(actual.get("parent_" + index))
+                    .isEqualTo(VALUE);
+            assertThat(actual.get("child_" + index))
+                    .isEqualTo(VALUE);
+        }
+        final MappedStorage reopened = new MappedStorage(file);
+        assertThat(reopened.getAll())
+                .isEqualTo(actual);
+        reopened.close();
+    }
+
+    @Test
+    public void incrementShouldNotLoseIncrementsOfAnotherProcess() throws Exception {
+        // setup
+        final Process process = startChild(MODE_INCREMENT, "counter", INCREMENT_COUNT);
+
+        // exercise
+        while (!underTest.contains(KEY_READY)) {
+            Thread.sleep(1);
+        }
+        for (int index = 0; index < INCREMENT_COUNT; index++) {
+            increment(underTest, "counter");
+        }
+        assertThat(process.waitFor())
+                .isEqualTo(0);
+
+        // verify
+        assertThat(underTest.getInt("counter", 0))
+                .isEqualTo(INCREMENT_COUNT * 2);
+    }
+
+    private Process startChild(String mode, String key, int count) throws Exception {
+        final String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        return new ProcessBuilder(
+                java,
+                "-cp",
+                System.getProperty("java.class.path"),
+                MultiProcessStorageTest.class.getName(),
+                file.getPath(),
+                mode,
+                key,
+                String.valueOf(count)
+        ).inheritIO().start();
+    }
+
+    /**
+     * Increment the value in the same way as the generated incrementXxx methods do
+     */
+    private static void increment(Storage storage, String key) {
+        final Lock lock = storage.getLock();
+        lock.lock();
+        try {
+            storage.edit().putInt(key, storage.getInt(key, 0) + 1).apply();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Entry point of the child process which writes values into the storage shared with the test process
+     *
+     * @param args The path of the file, the mode, the prefix of keys or the key to increment and the number of writes
+     */
+    public static void main(String[] args) throws Exception {
+        final MappedStorage storage = MappedStorage.open(new File(args[0]), true);
+        final int count = Integer.parseInt(args[3]);
+        if (MODE_INCREMENT.equals(args[1])) {
+            // The test process starts incrementing when the child is ready, so that both processes increment concurrently
+            storage.edit().putBoolean(KEY_READY, true).commit();
+        }
+        for (int index = 0; index < count; index++) {
+            if (MODE_INCREMENT.equals(args[1])) {
+                increment(storage, args[2]);
+            } else if (!storage.edit().putString(args[2] + "_" + index, VALUE).commit()) {
+                System.exit(1);
+            }
+        }
+        storage.close();
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2016 Tatsuya Maki
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.t28.shade.storage;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.File;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(JUnit4.class)
+public class WeakListenerSetTest {
+    private static final int GC_ATTEMPTS = 50;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private MappedStorage storage;
+    private WeakListenerSet underTest;
+
+    @Before
+    public void setUp() throws Exception {
+        storage = new MappedStorage(new File(folder.getRoot(), "test.log"));
+        underTest = new WeakListenerSet();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        storage.close();
+    }
+
+    @Test
+    public void addShouldReturnFalseWhenListenerIsAlreadyAdded() throws Exception {
+        // setup
+        final RecordingListener listener = new RecordingListener();
+        underTest.add(listener);
+
+        // exercise
+        final boolean actual = underTest.add(listener);
+
+        // verify
+        assertThat(actual)
+                .isFalse();
+    }
+
+    @Test
+    public void removeShouldReturnTrueWhenListenerIsAdded() throws Exception {
+        // setup
+        final RecordingListener listener = new RecordingListener();
+        underTest.add(listener);
+
+        // exercise
+        final boolean actual = underTest.remove(listener);
+
+        // verify
+        assertThat(actual)
+                .isTrue();
+        assertThat(underTest.isEmpty())
+                .isTrue();
+    }
+
+    @Test
+    public void notifyChangedShouldNotifyAddedListeners() throws Exception {
+        // setup
+        final RecordingListener listener = new RecordingListener();
+        underTest.add(listener);
+
+        // exercise
+        underTest.notifyChanged(storage, "key");
+
+        // verify
+        assertThat(listener.keys)
+                .containsExactly("key");
+    }
+
+    @Test
+    public void notifyChangedShouldNotNotifyRemovedListeners() throws Exception {
+        // setup
+        final RecordingListener listener = new RecordingListener();
+        underTest.add(listener);
+        underTest.remove(listener);
+
+        // exercise
+        underTest.notifyChanged(storage, "key");
+
+        // verify
+        assertThat(listener.keys)
+                .isEmpty();
+    }
+
+    @Test
+    public void listenerShouldBeReleasedWhenItIsNoLongerReferenced() throws Exception {
+        // setup
+        RecordingListener listener = new RecordingListener();
+        final WeakReference<RecordingListener> reference = new WeakReference<>(listener);
+        underTest.add(listener);
+
+        // exercise
+        //noinspection UnusedAssignment
+        listener = null;
+        for (int i = 0; i < GC_ATTEMPTS && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        // verify
+        assertThat(reference.get())
+                .isNull();
+        assertThat(underTest.isEmpty())
+                .isTrue();
+    }
+
+    private static class RecordingListener implements Storage.OnChangeListener {
+        private final List<String> keys = new ArrayList<>();
+
+        @Override
+        public void onChanged(@NonNull Storage storage, @Nullable String key) {
+            keys.add(key);
+        }
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright (c) 2016 Tatsuya Maki
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package io.t28.shade.test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import io.t28.shade.storage.Storage;
+import io.t28.shade.storage.WeakListenerSet;
+
+/**
+ * Storage which holds values in memory for tests of storages and generated classes
+ */
+public class InMemoryStorage implements Storage {
+    private final Lock lock = new ReentrantLock();
+    private final Map<String, Object> values = new HashMap<>();
+    private final WeakListenerSet listeners = new WeakListenerSet();
+    private int writeCount;
+    private CountDownLatch commitStarted;
+    private CountDownLatch commitReleased;
+
+    public synchronized int getWriteCount() {
+        return writeCount;
+    }
+
+    /**
+     * Block commits after they have written the values, as if the storage device were slow
+     *
+     * @param started  The latch which is counted down when a commit is blocked
+     * @param released The latch which releases blocked commits
+     */
+    public synchronized void blockCommits(CountDownLatch started, CountDownLatch released) {
+        commitStarted = started;
+        commitReleased = released;
+    }
+
+    @Override
+    public synchronized Map<String, ?> getAll() {
+        return new HashMap<>(values);
+    }
+
+    @Override
+    public synchronized String getString(String key, String defValue) {
+        return values.containsKey(key) ? (String) values.get(key) : defValue;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public synchronized Set<String> getStringSet(String key, Set<String> defValue) {
+        return values.containsKey(key) ? (Set<String>) values.get(key) : defValue;
+    }
+
+    @Override
+    public synchronized byte[] getBytes(String key, byte[] defValue) {
+        return values.containsKey(key) ? (byte[]) values.get(key) : defValue;
+    }
+
+    @Override
+    public synchronized int getInt(String key, int defValue) {
+        return values.containsKey(key) ? (Integer) values.get(key) : defValue;
+    }
+
+    @Override
+    public synchronized long getLong(String key, long defValue) {
+        return values.containsKey(key) ? (Long) values.get(key) : defValue;
+    }
+
+    @Override
+    public synchronized float getFloat(String key, float defValue) {
+        return values.containsKey(key) ? (Float) values.get(key) : defValue;
+    }
+
+    @Override
+    public synchronized boolean getBoolean(String key, boolean defValue) {
+        return values.containsKey(key) ? (Boolean) values.get(key) : defValue;
+    }
+
+    @Override
+    public synchronized boolean contains(String key) {
+        return values.containsKey(key);
+    }
+
+    @Override
+    public Editor edit() {
+        return new InMemoryEditor();
+    }
+
+    @Override
+    public Lock getLock() {
+        return lock;
+    }
+
+    @Override
+    public void registerListener(OnChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void unregisterListener(OnChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    private void notifyChanged(String key) {
+        listeners.notifyChanged(this, key);
+    }
+
+    private class InMemoryEditor implements Editor {
+        private final Map<String, Object> modified = new HashMap<>();
+        private boolean clear;
+
+        @Override
+        public Editor putString(String key, String value) {
+            modified.put(key, value);
+            return this;
+        }
+
+        @Override
+        public Editor putStringSet(String key, Set<String> value) {
+            modified.put(key, value == null ? null : new HashSet<>(value));
+            return this;
+        }
+
+        @Override
+        public Editor putBytes(String key, byte[] value) {
+            modified.put(key, value);
+            return this;
+        }
+
+        @Override
+        public Editor putInt(String key, int value) {
+            modified.put(key, value);
+            return this;
+        }
+
+        @Override
+        public Editor putLong(String key, long value) {
+            modified.put(key, value);
+            return this;
+        }
+
+        @Override
+        public Editor putFloat(String key, float value) {
+            modified.put(key, value);
+            return this;
+        }
+
+        @Override
+        public Editor putBoolean(String key, boolean value) {
+            modified.put(key, value);
+            return this;
+        }
+
+        @Override
+        public Editor remove(String key) {
+            modified.put(key, null);
+            return this;
+        }
+
+        @Override
+        public Editor clear() {
+            clear = true;
+            return this;
+        }
+
+        @Override
+        public boolean commit() {
+            write();
+            final CountDownLatch started;
+            final CountDownLatch released;
+            synchronized (InMemoryStorage.this) {
+                started = commitStarted;
+                released = commitReleased;
+            }
+            if (released == null) {
+                return true;
+            }
+            started.countDown();
+            try {
+                released.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public void apply() {
+            write();
+        }
+
+        private void write() {
+            synchronized (InMemoryStorage.this) {
+                if (clear) {
+                    values.clear();
+                }
+                for (final Map.Entry<String, Object> entry : modified.entrySet()) {
+                    if (entry.getValue() == null) {
+                        values.remove(entry.getKey());
+                    } else {
+                        values.put(entry.getKey(), entry.getValue());
+                    }
+                }
+                writeCount++;
+            }
+            if (clear) {
+                notifyChanged(null);
+            }
+            for (final String key : modified.keySet()) {
+                notifyChanged(key);
+            }
+        }
+    }
+}